@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+/**
+ * Builds the sheet data used by the benchmarks. 
+ * @author jhorvath
+ */
+final class EEHBenchmarkData {
+	
+	private EEHBenchmarkData() {
+	}
+	
+	/**
+	 * Creates an ExcelExportHelper populated with generated sheets. 
+	 * @param sheets int The number of sheets.
+	 * @param rows int The number of data rows per sheet.
+	 * @param cols int The number of columns per row.
+	 * @param mix String The kind of cell values: MIXED, NUMERIC, URL, BOOLEAN or TEXT.
+	 * @return ExcelExportHelper
+	 */
+	static ExcelExportHelper populate(int sheets, int rows, int cols, String mix) {
+		ExcelExportHelper eeh = new ExcelExportHelper();
+		
+		for (int s = 0; s < sheets; s++) {
+			EEHSheet sheet = eeh.createSheet("Sheet " + s);
+			
+			for (int c = 0; c < cols; c++) {
+				sheet.getHeaders().add("Column " + c);
+			}
+			for (int r = 0; r < rows; r++) {
+				ArrayList<String> row = new ArrayList<>(cols);
+				for (int c = 0; c < cols; c++) {
+					row.add(value(mix, r, c));
+				}
+				sheet.getData().add(row);
+			}
+		}
+		return eeh;
+	}
+	
+	private static String value(String mix, int row, int col) {
+		switch (mix) {
+		case "NUMERIC":
+			return numeric(row, col);
+		case "URL":
+			return url(row, col);
+		case "BOOLEAN":
+			return bool(row, col);
+		case "TEXT":
+			return text(row, col);
+		case "MIXED":
+			switch (col % 4) {
+			case 0:
+				return text(row, col);
+			case 1:
+				return numeric(row, col);
+			case 2:
+				return url(row, col);
+			default:
+				return bool(row, col);
+			}
+		default:
+			throw new IllegalArgumentException("Unknown cell mix: " + mix);
+		}
+	}
+	
+	private static String numeric(int row, int col) {
+		return (row + col) % 2 == 0 ? Integer.toString(row * 31 + col) : (row + 0.25) + "";
+	}
+	
+	private static String url(int row, int col) {
+		return "https://www.example.com/items/" + (row % 1000) + "/" + col;
+	}
+	
+	private static String bool(int row, int col) {
+		return (row + col) % 2 == 0 ? "true" : "false";
+	}
+	
+	private static String text(int row, int col) {
+		return "Value " + row + " of column " + col;
+	}
+	
+	/**
+	 * An OutputStream that counts and discards everything written to it, 
+	 * so the benchmarks measure serialization without disk I/O. 
+	 */
+	static final class DiscardingOutputStream extends OutputStream {
+		
+		private long count;
+		
+		@Override
+		public void write(int b) {
+			this.count++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.count += len;
+		}
+		
+		long getCount() {
+			return this.count;
+		}
+	}
+	
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end benchmark of writing a workbook, from the sheet data 
+ * to the serialized file. The output is discarded rather than written 
+ * to disk, so the results do not depend on the file system. 
+ * @author jhorvath
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+	
+	@Param({ "1000", "10000" })
+	public int rows;
+	
+	@Param({ "10" })
+	public int cols;
+	
+	@Param({ "MIXED", "NUMERIC", "URL", "BOOLEAN", "TEXT" })
+	public String mix;
+	
+	@Param({ "1", "4" })
+	public int sheets;
+	
+	@Param({ "ESTIMATED", "EXACT", "NONE" })
+	public EEHColumnSizing columnSizing;
+	
+	@Param({ "IN_MEMORY", "STREAMING", "DIRECT" })
+	public EEHWriteMode writeMode;
+	
+	@Param({ "DEFAULT" })
+	public EEHCompression compression;
+	
+	private ExcelExportHelper eeh;
+	
+	@Setup
+	public void setup() {
+		this.eeh = EEHBenchmarkData.populate(this.sheets, this.rows, this.cols, this.mix);
+		this.eeh.setColumnSizing(this.columnSizing);
+		this.eeh.setWriteMode(this.writeMode);
+		this.eeh.setCompression(this.compression);
+	}
+	
+	@Benchmark
+	public long writeWorkBook() throws EEHException {
+		EEHBenchmarkData.DiscardingOutputStream os = new EEHBenchmarkData.DiscardingOutputStream();
+		this.eeh.writeWorkBook(os);
+		return os.getCount();
+	}
+	
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the separate phases of writing a workbook: populating 
+ * the POI sheets, sizing the columns, and serializing the workbook. 
+ * @author jhorvath
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportPhaseBenchmark {
+	
+	/**
+	 * The sheet data of a scenario.
+	 */
+	@State(Scope.Benchmark)
+	public static class Scenario {
+		
+		@Param({ "1000", "10000" })
+		public int rows;
+		
+		@Param({ "10" })
+		public int cols;
+		
+		@Param({ "MIXED", "NUMERIC", "URL", "BOOLEAN", "TEXT" })
+		public String mix;
+		
+		@Param({ "1", "4" })
+		public int sheets;
+		
+		ExcelExportHelper eeh;
+		
+		@Setup
+		public void setup() {
+			this.eeh = EEHBenchmarkData.populate(this.sheets, this.rows, this.cols, this.mix);
+		}
+	}
+	
+	/**
+	 * An in memory workbook populated from the scenario, 
+	 * with the column widths estimated while it was populated. 
+	 */
+	public static class Populated {
+		
+		EEHExcelFileWriter writer;
+		Workbook workbook;
+		EEHColumnWidthTracker[] widths;
+		
+		protected void populate(Scenario scenario) throws EEHException {
+			this.writer = new EEHExcelFileWriter(new EEHBenchmarkData.DiscardingOutputStream(), scenario.eeh.getSheets());
+			this.writer.setColumnSizing(EEHColumnSizing.NONE);
+			this.workbook = this.writer.createWorkbook();
+			this.widths = new EEHColumnWidthTracker[scenario.eeh.getSheets().size()];
+			
+			EEHStyleRegistry styles = new EEHStyleRegistry(this.workbook);
+			for (int i = 0; i < this.widths.length; i++) {
+				EEHSheetPreparer preparer = new EEHSheetPreparer(scenario.eeh.getSheets().get(i));
+				this.writer.createSheet(scenario.eeh.getSheets().get(i), new EEHRowCursor(preparer, null), this.workbook, styles, 
+						new EEHSheetSummary(scenario.eeh.getSheets().get(i).getSheetName()));
+				this.widths[i] = preparer.getWidths();
+			}
+		}
+	}
+	
+	/**
+	 * A populated workbook shared by the iterations, as sizing 
+	 * the columns can be repeated on the same workbook. 
+	 */
+	@State(Scope.Thread)
+	public static class PopulatedForSizing extends Populated {
+		
+		@Setup(Level.Trial)
+		public void setup(Scenario scenario) throws EEHException {
+			populate(scenario);
+		}
+	}
+	
+	/**
+	 * A new populated workbook for each invocation, as writing 
+	 * the workbook closes it. Each invocation takes milliseconds, 
+	 * so the per invocation setup does not distort the results. 
+	 */
+	@State(Scope.Thread)
+	public static class PopulatedForWriting extends Populated {
+		
+		@Setup(Level.Invocation)
+		public void setup(Scenario scenario) throws EEHException {
+			populate(scenario);
+		}
+	}
+	
+	/**
+	 * Prepares the sheet data and creates the POI sheets, rows and cells.
+	 */
+	@Benchmark
+	public Workbook populateSheets(Scenario scenario) throws EEHException {
+		Populated populated = new Populated();
+		populated.populate(scenario);
+		return populated.workbook;
+	}
+	
+	/**
+	 * Measures every cell of the populated sheets with POI autoSizeColumn.
+	 */
+	@Benchmark
+	public Workbook autoSizeColumns(PopulatedForSizing populated) {
+		return sizeColumns(populated, EEHColumnSizing.EXACT);
+	}
+	
+	/**
+	 * Applies the column widths estimated while the sheets were populated.
+	 */
+	@Benchmark
+	public Workbook estimateColumns(PopulatedForSizing populated) {
+		return sizeColumns(populated, EEHColumnSizing.ESTIMATED);
+	}
+	
+	/**
+	 * Serializes the populated workbook to a discarding stream.
+	 */
+	@Benchmark
+	public Workbook generateFile(PopulatedForWriting populated) throws EEHException {
+		populated.writer.generateFile(populated.workbook);
+		return populated.workbook;
+	}
+	
+	private Workbook sizeColumns(Populated populated, EEHColumnSizing columnSizing) {
+		populated.writer.setColumnSizing(columnSizing);
+		
+		for (int i = 0; i < populated.widths.length; i++) {
+			populated.writer.sizeColumns(populated.workbook.getSheetAt(i), populated.widths[i]);
+		}
+		return populated.workbook;
+	}
+	
+}
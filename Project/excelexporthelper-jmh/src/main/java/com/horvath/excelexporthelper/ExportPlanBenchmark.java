@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of repeated exports of the same report layout, comparing a workbook 
+ * set up for each export with a plan compiled once, with and without fixed column 
+ * widths. The difference between the workbook and a plan is the latency saved per export. The output is discarded rather than written 
+ * to disk, so the results do not depend on the file system. 
+ * @author jhorvath
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportPlanBenchmark {
+	
+	@Param({ "100", "1000" })
+	public int rows;
+	
+	@Param({ "10" })
+	public int cols;
+	
+	@Param({ "MIXED" })
+	public String mix;
+	
+	@Param({ "1", "4" })
+	public int sheets;
+	
+	@Param({ "ESTIMATED", "NONE" })
+	public EEHColumnSizing columnSizing;
+	
+	private List<List<ArrayList<String>>> sheetRows;
+	private List<List<String>> sheetHeaders;
+	private EEHExportPlan plan;
+	private EEHExportPlan fixedPlan;
+	
+	@Setup
+	public void setup() throws EEHException {
+		ExcelExportHelper template = EEHBenchmarkData.populate(this.sheets, this.rows, this.cols, this.mix);
+		template.setColumnSizing(this.columnSizing);
+		
+		this.sheetRows = new ArrayList<>();
+		this.sheetHeaders = new ArrayList<>();
+		for (EEHSheet sheet : template.getSheets()) {
+			this.sheetRows.add(new ArrayList<>(sheet.getData()));
+			this.sheetHeaders.add(new ArrayList<>(sheet.getHeaders()));
+		}
+		
+		// with fixed widths the held rows size the columns of the plan once
+		this.plan = template.compilePlan();
+		this.fixedPlan = template.compilePlan(true);
+	}
+	
+	@Benchmark
+	public long exportWithWorkBook() throws EEHException {
+		ExcelExportHelper eeh = new ExcelExportHelper();
+		eeh.setWriteMode(EEHWriteMode.DIRECT);
+		eeh.setColumnSizing(this.columnSizing);
+		
+		for (int s = 0; s < this.sheets; s++) {
+			EEHSheet sheet = eeh.createSheet("Sheet " + s);
+			sheet.getHeaders().addAll(this.sheetHeaders.get(s));
+			sheet.setRowSource(this.sheetRows.get(s));
+		}
+		
+		EEHBenchmarkData.DiscardingOutputStream os = new EEHBenchmarkData.DiscardingOutputStream();
+		eeh.writeWorkBook(os);
+		return os.getCount();
+	}
+	
+	@Benchmark
+	public long exportWithPlan() throws EEHException {
+		return export(this.plan);
+	}
+	
+	@Benchmark
+	public long exportWithFixedWidthPlan() throws EEHException {
+		return export(this.fixedPlan);
+	}
+	
+	private long export(EEHExportPlan plan) throws EEHException {
+		EEHRowSource[] rowSources = new EEHRowSource[this.sheets];
+		for (int s = 0; s < this.sheets; s++) {
+			rowSources[s] = new EEHIteratorRowSource(this.sheetRows.get(s));
+		}
+		
+		EEHBenchmarkData.DiscardingOutputStream os = new EEHBenchmarkData.DiscardingOutputStream();
+		plan.export(os, rowSources);
+		return os.getCount();
+	}
+	
+}
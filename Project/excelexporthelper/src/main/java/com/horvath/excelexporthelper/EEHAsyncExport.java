@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs an export on an executor and completes a future with the written file. 
+ * Cancelling the future interrupts the export, which stops at the next row 
+ * and removes its temporary files, as any failed export does. 
+ * @author jhorvath
+ */
+final class EEHAsyncExport implements Runnable {
+	
+	private final EEHExcelFileWriter writer;
+	private final File file;
+	private final CompletableFuture<File> future;
+	
+	/**
+	 * The thread running the export, or null when it is not running. 
+	 * Guarded by this export, so that a thread is never interrupted 
+	 * once it has moved on to other work. 
+	 */
+	private Thread worker;
+	
+	/**
+	 * Constructor. 
+	 * @param writer EEHExcelFileWriter A writer set up with the options of the export.
+	 * @param file File The file the writer writes to.
+	 */
+	protected EEHAsyncExport(EEHExcelFileWriter writer, File file) {
+		this.writer = writer;
+		this.file = file;
+		this.future = new CompletableFuture<>();
+		this.worker = null;
+		
+		this.future.whenComplete(new BiConsumer<File, Throwable>() {
+			@Override
+			public void accept(File result, Throwable failure) {
+				if (future.isCancelled()) {
+					interruptWorker();
+				}
+			}
+		});
+	}
+	
+	@Override
+	public void run() {
+		if (!start()) {
+			// cancelled before the export started
+			return;
+		}
+		
+		try {
+			this.writer.writeFile();
+			this.future.complete(this.file);
+			
+		} catch (EEHException | RuntimeException | Error ex) {
+			this.future.completeExceptionally(ex);
+			
+		} finally {
+			finish();
+		}
+	}
+	
+	protected CompletableFuture<File> getFuture() {
+		return this.future;
+	}
+	
+	private synchronized boolean start() {
+		if (this.future.isDone()) {
+			return false;
+		}
+		this.worker = Thread.currentThread();
+		return true;
+	}
+	
+	private synchronized void finish() {
+		this.worker = null;
+		if (this.future.isCancelled()) {
+			// clear an interrupt meant for this export only, before the thread runs other tasks
+			Thread.interrupted();
+		}
+	}
+	
+	private synchronized void interruptWorker() {
+		if (this.worker != null) {
+			this.worker.interrupt();
+		}
+	}
+}
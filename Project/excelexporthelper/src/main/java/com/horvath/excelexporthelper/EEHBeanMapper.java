@@ -0,0 +1,462 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes beans as the rows of an EEHSheet, with a column for each field and 
+ * method of the bean class marked with EEHColumn. The accessors of a class are 
+ * looked up once, as method handles that return primitive values without boxing, 
+ * and the mapper is cached for the class, so mapping a row costs about the same 
+ * as copying the values by hand. 
+ * @author jhorvath
+ */
+final public class EEHBeanMapper<T> {
+	
+	public static final String EXCEPTION_NULL_CLASS = "Bean class must not be null.";
+	public static final String EXCEPTION_NULL_SHEET = "Sheet must not be null.";
+	public static final String EXCEPTION_NULL_BEANS = "Beans must not be null.";
+	public static final String EXCEPTION_NO_COLUMNS = "The class has no fields or methods marked as columns: ";
+	public static final String EXCEPTION_STATIC_COLUMN = "A static member cannot be a column: ";
+	public static final String EXCEPTION_INVALID_METHOD = "A column method must return a value and take no parameters: ";
+	public static final String EXCEPTION_INVALID_FORMAT = "Only date and time columns can have a format: ";
+	public static final String EXCEPTION_INACCESSIBLE_COLUMN = "The column cannot be read: ";
+	public static final String EXCEPTION_READ_FAILED = "Unable to read the value of the column: ";
+	
+	/**
+	 * Larger whole numbers are written as text, as a double cannot hold them exactly.
+	 */
+	private static final long MAX_EXACT_NUMBER = 1L << 53;
+	
+	/**
+	 * How the values of a column are read.
+	 */
+	private static final int DOUBLE = 0;
+	private static final int FLOAT = 1;
+	private static final int LONG = 2;
+	private static final int BOOLEAN = 3;
+	private static final int OBJECT = 4;
+	
+	private static final ClassValue<EEHBeanMapper<?>> MAPPERS = new ClassValue<EEHBeanMapper<?>>() {
+		@Override
+		protected EEHBeanMapper<?> computeValue(Class<?> type) {
+			return new EEHBeanMapper<>(type);
+		}
+	};
+	
+	private Class<T> type;
+	private Column[] columns;
+	private List<String> headers;
+	
+	/**
+	 * Constructor. 
+	 * @param type Class<T> 
+	 */
+	private EEHBeanMapper(Class<T> type) {
+		this.type = type;
+		
+		List<Column> found = new ArrayList<>();
+		List<Class<?>> hierarchy = new ArrayList<>();
+		for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+			hierarchy.add(0, current);
+		}
+		
+		for (Class<?> current : hierarchy) {
+			for (Field field : current.getDeclaredFields()) {
+				EEHColumn annotation = field.getAnnotation(EEHColumn.class);
+				if (annotation != null) {
+					found.add(createColumn(field, field.getName(), field.getType(), annotation, found.size()));
+				}
+			}
+			for (Method method : current.getDeclaredMethods()) {
+				EEHColumn annotation = method.getAnnotation(EEHColumn.class);
+				if (annotation != null) {
+					if (method.getParameterCount() > 0 || method.getReturnType() == void.class) {
+						throw new IllegalArgumentException(EXCEPTION_INVALID_METHOD + method);
+					}
+					found.add(createColumn(method, getPropertyName(method.getName()), method.getReturnType(), annotation, found.size()));
+				}
+			}
+		}
+		
+		if (found.isEmpty()) {
+			throw new IllegalArgumentException(EXCEPTION_NO_COLUMNS + type.getName());
+		}
+		
+		// a stable sort keeps the declared order of columns with the same order
+		Collections.sort(found, new Comparator<Column>() {
+			@Override
+			public int compare(Column first, Column second) {
+				return Integer.compare(first.order, second.order);
+			}
+		});
+		this.columns = found.toArray(new Column[found.size()]);
+		
+		List<String> names = new ArrayList<>(this.columns.length);
+		for (Column column : this.columns) {
+			names.add(column.name);
+		}
+		this.headers = Collections.unmodifiableList(names);
+	}
+	
+	/**
+	 * Returns the mapper for the given class. The columns of a class are 
+	 * only looked up the first time its mapper is requested. 
+	 * @param type Class<T> 
+	 * @return EEHBeanMapper<T> 
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> EEHBeanMapper<T> forClass(Class<T> type) {
+		if (type == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_CLASS);
+		}
+		return (EEHBeanMapper<T>) MAPPERS.get(type);
+	}
+	
+	public Class<T> getType() {
+		return this.type;
+	}
+	
+	/**
+	 * Returns the headers of the columns, in column order.
+	 * @return List<String> 
+	 */
+	public List<String> getHeaders() {
+		return this.headers;
+	}
+	
+	/**
+	 * Sets the headers and column types of the sheet and writes the beans as its rows. 
+	 * The beans are read while the workbook is written, in the same way as a row source. 
+	 * A null bean writes an empty row. 
+	 * @param sheet EEHSheet 
+	 * @param beans Iterable<? extends T> 
+	 */
+	public void mapRows(EEHSheet sheet, Iterable<? extends T> beans) {
+		if (beans == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_BEANS);
+		}
+		prepareSheet(sheet);
+		sheet.setRowSource(new BeanRowSource<T>(this, beans.iterator(), beans));
+	}
+	
+	/**
+	 * Sets the headers and column types of the sheet and writes the beans of the 
+	 * stream as its rows. The stream is read while the workbook is written, and 
+	 * closed once the sheet has been written. 
+	 * @param sheet EEHSheet 
+	 * @param beans Stream<? extends T> 
+	 */
+	public void mapRows(EEHSheet sheet, Stream<? extends T> beans) {
+		if (beans == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_BEANS);
+		}
+		prepareSheet(sheet);
+		sheet.setRowSource(new BeanRowSource<T>(this, beans.iterator(), beans));
+	}
+	
+	/**
+	 * Adds the cells of a bean to a row, for use in a custom row source. 
+	 * @param bean T 
+	 * @param row EEHRow 
+	 * @throws EEHException
+	 */
+	public void mapRow(T bean, EEHRow row) throws EEHException {
+		if (bean == null) {
+			return;
+		}
+		
+		Object value = bean;
+		Column column = null;
+		try {
+			for (int i = 0; i < this.columns.length; i++) {
+				column = this.columns[i];
+				
+				switch (column.kind) {
+				
+				case DOUBLE:
+					row.addNumber((double) column.getter.invokeExact(value));
+					break;
+					
+				case FLOAT:
+					row.addNumber(toDouble((float) column.getter.invokeExact(value)));
+					break;
+					
+				case LONG:
+					addWholeNumber((long) column.getter.invokeExact(value), row);
+					break;
+					
+				case BOOLEAN:
+					row.addBoolean((boolean) column.getter.invokeExact(value));
+					break;
+					
+				case OBJECT:
+				default:
+					addObject(column, (Object) column.getter.invokeExact(value), row);
+					break;
+				}
+			}
+			
+		} catch (Error ex) {
+			throw ex;
+		} catch (Throwable ex) {
+			throw new EEHException(EXCEPTION_READ_FAILED + column.name, 
+					ex instanceof Exception ? (Exception) ex : new Exception(ex));
+		}
+	}
+	
+	/**
+	 * Replaces the headers of the sheet and declares the column types.
+	 * @param sheet EEHSheet 
+	 */
+	private void prepareSheet(EEHSheet sheet) {
+		if (sheet == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_SHEET);
+		}
+		
+		sheet.getHeaders().clear();
+		sheet.getHeaders().addAll(this.headers);
+		
+		for (int i = 0; i < this.columns.length; i++) {
+			if (this.columns[i].type != EEHColumnType.INFERRED) {
+				sheet.setColumnType(i, this.columns[i].type);
+			}
+		}
+	}
+	
+	private static void addWholeNumber(long number, EEHRow row) {
+		if (Math.abs(number) > MAX_EXACT_NUMBER) {
+			row.addText(Long.toString(number));
+		} else {
+			row.addNumber(number);
+		}
+	}
+	
+	/**
+	 * Widens a float to the double with the same decimal digits, so 19.99f is 
+	 * written as 19.99 rather than as the exact value of the float.
+	 * @param number float 
+	 * @return double 
+	 */
+	private static double toDouble(float number) {
+		return Double.parseDouble(Float.toString(number));
+	}
+	
+	/**
+	 * Adds a cell for a value of a column that is not read as a primitive.
+	 * @param column Column 
+	 * @param value Object 
+	 * @param row EEHRow 
+	 */
+	private static void addObject(Column column, Object value, EEHRow row) {
+		if (value == null) {
+			row.addBlank();
+			
+		} else if (column.formatter != null) {
+			// an instant has no fields of its own, so it is formatted in the default time zone
+			if (value instanceof Date) {
+				row.addText(column.zonedFormatter.format(Instant.ofEpochMilli(((Date) value).getTime())));
+			} else {
+				row.addText(column.zonedFormatter.format((TemporalAccessor) value));
+			}
+			
+		} else if (column.type != EEHColumnType.TEXT && value instanceof Number) {
+			if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+				addWholeNumber(((Number) value).longValue(), row);
+			} else if (value instanceof BigInteger && ((BigInteger) value).bitLength() > 53) {
+				row.addText(value.toString());
+			} else if (value instanceof Float) {
+				row.addNumber(toDouble((Float) value));
+			} else {
+				row.addNumber(((Number) value).doubleValue());
+			}
+			
+		} else if (column.type != EEHColumnType.TEXT && value instanceof Boolean) {
+			row.addBoolean((Boolean) value);
+			
+		} else if (column.type == EEHColumnType.TEXT) {
+			row.addText(value.toString());
+			
+		} else {
+			// typed by the sheet, using the declared column type
+			row.addValue(value.toString());
+		}
+	}
+	
+	/**
+	 * Looks up the accessor of a column.
+	 * @param member AccessibleObject The field or method.
+	 * @param propertyName String 
+	 * @param valueType Class<?> 
+	 * @param annotation EEHColumn 
+	 * @param index int 
+	 * @return Column
+	 */
+	private static Column createColumn(AccessibleObject member, String propertyName, Class<?> valueType, 
+			EEHColumn annotation, int index) {
+		
+		Member declared = (Member) member;
+		if (Modifier.isStatic(declared.getModifiers())) {
+			throw new IllegalArgumentException(EXCEPTION_STATIC_COLUMN + declared);
+		}
+		
+		Column column = new Column();
+		column.name = annotation.name().isEmpty() ? propertyName : annotation.name();
+		column.order = annotation.order();
+		column.type = annotation.type();
+		
+		if (!annotation.format().isEmpty()) {
+			if (!TemporalAccessor.class.isAssignableFrom(valueType) && !Date.class.isAssignableFrom(valueType)) {
+				throw new IllegalArgumentException(EXCEPTION_INVALID_FORMAT + declared);
+			}
+			column.formatter = DateTimeFormatter.ofPattern(annotation.format());
+			column.zonedFormatter = column.formatter.withZone(ZoneId.systemDefault());
+		}
+		
+		Class<?> readType;
+		if (column.type == EEHColumnType.TEXT || !valueType.isPrimitive() || valueType == char.class) {
+			column.kind = OBJECT;
+			readType = Object.class;
+		} else if (valueType == boolean.class) {
+			column.kind = BOOLEAN;
+			readType = boolean.class;
+		} else if (valueType == float.class) {
+			column.kind = FLOAT;
+			readType = float.class;
+		} else if (valueType == double.class) {
+			column.kind = DOUBLE;
+			readType = double.class;
+		} else {
+			column.kind = LONG;
+			readType = long.class;
+		}
+		
+		try {
+			if (!Modifier.isPublic(declared.getModifiers()) || !Modifier.isPublic(declared.getDeclaringClass().getModifiers())) {
+				member.setAccessible(true);
+			}
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle getter = member instanceof Field 
+					? lookup.unreflectGetter((Field) member) : lookup.unreflect((Method) member);
+			
+			// one call type for every column of a kind, with primitives widened rather than boxed
+			column.getter = getter.asType(MethodType.methodType(readType, Object.class));
+			
+		} catch (IllegalAccessException | RuntimeException ex) {
+			throw new IllegalArgumentException(EXCEPTION_INACCESSIBLE_COLUMN + declared, ex);
+		}
+		return column;
+	}
+	
+	/**
+	 * Returns the property name of a method, such as "total" for getTotal() 
+	 * and "paid" for isPaid().
+	 * @param methodName String 
+	 * @return String 
+	 */
+	private static String getPropertyName(String methodName) {
+		int prefix = 0;
+		if (methodName.startsWith("get")) {
+			prefix = 3;
+		} else if (methodName.startsWith("is")) {
+			prefix = 2;
+		}
+		
+		if (prefix == 0 || methodName.length() == prefix || !Character.isUpperCase(methodName.charAt(prefix))) {
+			return methodName;
+		}
+		return Character.toLowerCase(methodName.charAt(prefix)) + methodName.substring(prefix + 1);
+	}
+	
+	/**
+	 * A column of the bean class, with its accessor.
+	 */
+	private static final class Column {
+		private String name;
+		private int order;
+		private EEHColumnType type;
+		private DateTimeFormatter formatter;
+		private DateTimeFormatter zonedFormatter;
+		private int kind;
+		private MethodHandle getter;
+	}
+	
+	/**
+	 * Supplies the beans of an iterator as rows.
+	 */
+	private static final class BeanRowSource<T> implements EEHRowSource, AutoCloseable {
+		
+		private EEHBeanMapper<T> mapper;
+		private Iterator<? extends T> iterator;
+		private Object resource;
+		
+		private BeanRowSource(EEHBeanMapper<T> mapper, Iterator<? extends T> iterator, Object resource) {
+			this.mapper = mapper;
+			this.iterator = iterator;
+			this.resource = resource;
+		}
+		
+		@Override
+		public boolean nextRow(EEHRow row) throws EEHException {
+			if (!this.iterator.hasNext()) {
+				return false;
+			}
+			this.mapper.mapRow(this.iterator.next(), row);
+			return true;
+		}
+		
+		@Override
+		public void close() throws EEHException {
+			if (this.resource instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) this.resource).close();
+				} catch (RuntimeException ex) {
+					throw ex;
+				} catch (Exception ex) {
+					throw new EEHException(EEHSheetRows.EXCEPTION_CLOSE_FAILED + ex.getMessage(), ex);
+				}
+			}
+		}
+	}
+}
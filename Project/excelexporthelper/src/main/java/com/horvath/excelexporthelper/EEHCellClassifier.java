@@ -0,0 +1,498 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Determines how the text of a cell is written to the Excel sheet. 
+ * The text is scanned once and classified as a number, URL, boolean or 
+ * plain text, following the same rules as Double.parseDouble, 
+ * java.net.URL and Boolean.parseBoolean, but without relying on 
+ * exceptions for values that do not match. 
+ * Instances keep the parsed value of the last classified cell 
+ * and are not thread safe. 
+ * @author jhorvath
+ */
+final class EEHCellClassifier {
+	
+	/**
+	 * The maximum number of distinct URL schemes remembered. 
+	 */
+	private static final int MAX_CACHED_SCHEMES = 256;
+	
+	/**
+	 * The largest number of digits that can be accumulated in a long 
+	 * and converted to a double without any loss of precision.
+	 */
+	private static final int MAX_EXACT_DIGITS = 15;
+	
+	/**
+	 * Records for each URL scheme seen so far if the runtime has a protocol handler for it.
+	 */
+	private static final Map<String, Boolean> KNOWN_SCHEMES = new ConcurrentHashMap<>();
+	
+	private double number;
+	private boolean bool;
+	private String[] schemes;
+	
+	/**
+	 * Constructor for a classifier that accepts URLs of any scheme the runtime supports.
+	 */
+	protected EEHCellClassifier() {
+		this(null);
+	}
+	
+	/**
+	 * Constructor for a classifier that only accepts URLs of the given schemes. 
+	 * @param schemes Collection<String> The lower case schemes, or null for any scheme the runtime supports.
+	 */
+	protected EEHCellClassifier(Collection<String> schemes) {
+		this.schemes = schemes == null ? null : schemes.toArray(new String[schemes.size()]);
+	}
+	
+	/**
+	 * Classifies the given cell text. When the result is NUMBER or BOOLEAN, 
+	 * the parsed value is available from getNumber() or getBoolean(). 
+	 * @param text String 
+	 * @return EEHCellKind
+	 */
+	protected EEHCellKind classify(String text) {
+		
+		if (text == null) {
+			return EEHCellKind.BLANK;
+			
+		} else if (scanNumber(text)) {
+			return EEHCellKind.NUMBER;
+			
+		} else if (isUrl(text)) {
+			return EEHCellKind.HYPERLINK;
+			
+		} else if (scanBoolean(text)) {
+			return EEHCellKind.BOOLEAN;
+		}
+		
+		return EEHCellKind.TEXT;
+	}
+	
+	/**
+	 * Classifies the given cell text for a column of the given type. 
+	 * Only the declared type is tested for, and text that does not 
+	 * match it is classified as TEXT. 
+	 * @param text String 
+	 * @param type EEHColumnType 
+	 * @return EEHCellKind
+	 */
+	protected EEHCellKind classify(String text, EEHColumnType type) {
+		
+		if (text == null) {
+			return EEHCellKind.BLANK;
+		}
+		
+		switch (type) {
+		
+		case NUMERIC:
+			return scanNumber(text) ? EEHCellKind.NUMBER : EEHCellKind.TEXT;
+			
+		case BOOLEAN:
+			return scanBoolean(text) ? EEHCellKind.BOOLEAN : EEHCellKind.TEXT;
+			
+		case HYPERLINK:
+			return isUrl(text) ? EEHCellKind.HYPERLINK : EEHCellKind.TEXT;
+			
+		case TEXT:
+			return EEHCellKind.TEXT;
+			
+		case INFERRED:
+		default:
+			return classify(text);
+		}
+	}
+	
+	/**
+	 * Returns the value of the last cell classified as a number.
+	 * @return double 
+	 */
+	protected double getNumber() {
+		return this.number;
+	}
+	
+	/**
+	 * Returns the value of the last cell classified as a boolean.
+	 * @return boolean 
+	 */
+	protected boolean getBoolean() {
+		return this.bool;
+	}
+	
+	/**
+	 * Tests if the text is accepted by Double.parseDouble, and if so stores the value. 
+	 * @param text String 
+	 * @return boolean 
+	 */
+	protected boolean scanNumber(String text) {
+		
+		// Double.parseDouble ignores the same surrounding characters as String.trim()
+		int end = text.length();
+		while (end > 0 && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		int start = 0;
+		while (start < end && text.charAt(start) <= ' ') {
+			start++;
+		}
+		
+		int i = start;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		if (i >= end) {
+			return false;
+		}
+		
+		char c = text.charAt(i);
+		if (c == 'N' || c == 'I') {
+			String special = c == 'N' ? "NaN" : "Infinity";
+			
+			// the special values must make up the rest of the text
+			if (end - i != special.length() || !text.startsWith(special, i)) {
+				return false;
+			}
+			this.number = c == 'N' ? Double.NaN 
+					: (negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+			return true;
+		}
+		
+		if (c == '0' && i + 1 < end && (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X')) {
+			if (!scanHexNumber(text, i + 2, end)) {
+				return false;
+			}
+			this.number = Double.parseDouble(text);
+			return true;
+		}
+		
+		// the integer and fraction digits
+		int digits = 0;
+		long value = 0;
+		boolean pointSeen = false;
+		boolean exact = true;
+		
+		while (i < end) {
+			c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits++;
+				value = value * 10 + (c - '0');
+				
+			} else if (c == '.' && !pointSeen) {
+				pointSeen = true;
+				exact = false;
+				
+			} else {
+				break;
+			}
+			i++;
+		}
+		
+		if (digits == 0) {
+			return false;
+		}
+		
+		// the optional exponent
+		if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+			exact = false;
+			i++;
+			if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+				i++;
+			}
+			int exponentStart = i;
+			while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+				i++;
+			}
+			if (i == exponentStart) {
+				return false;
+			}
+		}
+		
+		// the optional type suffix must be the very last character
+		if (i < end) {
+			c = text.charAt(i);
+			if (i != end - 1 || (c != 'f' && c != 'F' && c != 'd' && c != 'D')) {
+				return false;
+			}
+			exact = false;
+		}
+		
+		if (exact && digits <= MAX_EXACT_DIGITS) {
+			// a plain integer small enough to be converted without rounding
+			this.number = negative ? -(double) value : (double) value;
+		} else {
+			// the text is known to be valid, so this does not throw
+			this.number = Double.parseDouble(text);
+		}
+		return true;
+	}
+	
+	/**
+	 * Tests if the text following a hexadecimal prefix is a valid 
+	 * hexadecimal floating point value, which requires a binary exponent.
+	 * @param text String 
+	 * @param start int Index of the first character after the prefix. 
+	 * @param end int 
+	 * @return boolean 
+	 */
+	private boolean scanHexNumber(String text, int start, int end) {
+		int i = start;
+		int digits = 0;
+		boolean pointSeen = false;
+		
+		while (i < end) {
+			char c = text.charAt(i);
+			if (Character.digit(c, 16) >= 0 && c < 128) {
+				digits++;
+			} else if (c == '.' && !pointSeen) {
+				pointSeen = true;
+			} else {
+				break;
+			}
+			i++;
+		}
+		
+		if (digits == 0 || i >= end || (text.charAt(i) != 'p' && text.charAt(i) != 'P')) {
+			return false;
+		}
+		i++;
+		
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			i++;
+		}
+		int exponentStart = i;
+		while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+			i++;
+		}
+		if (i == exponentStart) {
+			return false;
+		}
+		
+		if (i < end) {
+			char c = text.charAt(i);
+			return i == end - 1 && (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+		}
+		return true;
+	}
+	
+	/**
+	 * Tests if the text is accepted by java.net.URL and can be converted to a URI. 
+	 * Text without a URL scheme, with a scheme the runtime has no handler for, 
+	 * or with a scheme that is not allowed, is rejected before any URL object is created. 
+	 * @param text String 
+	 * @return boolean 
+	 */
+	protected boolean isUrl(String text) {
+		
+		// java.net.URL ignores the same surrounding characters as String.trim()
+		int end = text.length();
+		while (end > 0 && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		int start = schemeStart(text, end);
+		int colon = schemeEnd(text, start, end);
+		if (colon < 0) {
+			return false;
+		}
+		
+		// spaces and control characters are not allowed in a URI ahead of the fragment, 
+		// after it they depend on whether the protocol handler keeps the fragment
+		for (int i = colon + 1; i < end && text.charAt(i) != '#'; i++) {
+			if (text.charAt(i) <= ' ') {
+				return false;
+			}
+		}
+		
+		if (!isAllowedScheme(text, start, colon)) {
+			return false;
+		}
+		if (!isKnownScheme(text.substring(start, colon).toLowerCase(Locale.ROOT))) {
+			return false;
+		}
+		
+		return canParseUrl(text);
+	}
+	
+	/**
+	 * Tests if the scheme of a URL is one this classifier accepts. 
+	 * @param text String A URL.
+	 * @return boolean 
+	 */
+	protected boolean hasAllowedScheme(String text) {
+		if (this.schemes == null) {
+			return true;
+		}
+		int start = schemeStart(text, text.length());
+		int colon = schemeEnd(text, start, text.length());
+		
+		return colon >= 0 && isAllowedScheme(text, start, colon);
+	}
+	
+	/**
+	 * Returns the index the scheme of a URL starts at, after any leading 
+	 * spaces and the optional "url:" prefix accepted by java.net.URL.
+	 * @param text String 
+	 * @param end int 
+	 * @return int 
+	 */
+	private static int schemeStart(String text, int end) {
+		int start = 0;
+		while (start < end && text.charAt(start) <= ' ') {
+			start++;
+		}
+		if (text.regionMatches(true, start, "url:", 0, 4)) {
+			start += 4;
+		}
+		return start;
+	}
+	
+	/**
+	 * Returns the index of the colon ending the scheme of a URL. 
+	 * The scheme ends at the first colon, which must come before any slash. 
+	 * @param text String 
+	 * @param start int 
+	 * @param end int 
+	 * @return int The index of the colon, or -1 when the text has no valid scheme.
+	 */
+	private static int schemeEnd(String text, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c == ':') {
+				return i > start ? i : -1;
+			} else if (c == '/' || !isSchemeCharacter(c, i == start)) {
+				return -1;
+			}
+		}
+		return -1;
+	}
+	
+	private boolean isAllowedScheme(String text, int start, int colon) {
+		if (this.schemes == null) {
+			return true;
+		}
+		for (String scheme : this.schemes) {
+			if (scheme.length() == colon - start && text.regionMatches(true, start, scheme, 0, colon - start)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Helper method to test if given string value
+	 * can be parsed to a URL address or not.
+	 * @param text String 
+	 * @return boolean 
+	 */
+	private boolean canParseUrl(String text) {
+		boolean canParseUrl = true;
+
+		try {
+			URL url = new URL(text);
+			url.toURI();
+		} catch (URISyntaxException | MalformedURLException ex) {
+			canParseUrl = false;
+		}
+		return canParseUrl;
+	}
+	
+	/**
+	 * Tests if the character is allowed in a URL scheme. 
+	 * @param c char 
+	 * @param first boolean True for the first character of the scheme. 
+	 * @return boolean 
+	 */
+	private static boolean isSchemeCharacter(char c, boolean first) {
+		if (first) {
+			return Character.isLetter(c);
+		}
+		return Character.isLetterOrDigit(c) || c == '.' || c == '+' || c == '-';
+	}
+	
+	/**
+	 * Tests if the runtime has a protocol handler for the given scheme. 
+	 * The result is remembered, so the check is only made once per scheme.
+	 * @param scheme String 
+	 * @return boolean 
+	 */
+	private static boolean isKnownScheme(String scheme) {
+		Boolean known = KNOWN_SCHEMES.get(scheme);
+		
+		if (known == null) {
+			try {
+				new URL(scheme, "", -1, "");
+				known = Boolean.TRUE;
+			} catch (MalformedURLException ex) {
+				known = Boolean.FALSE;
+			}
+			
+			if (KNOWN_SCHEMES.size() < MAX_CACHED_SCHEMES) {
+				KNOWN_SCHEMES.put(scheme, known);
+			}
+		}
+		return known.booleanValue();
+	}
+	
+	/**
+	 * Tests if the text is "true" or "false", ignoring case and surrounding 
+	 * whitespace, and if so stores the value.
+	 * @param text String
+	 * @return boolean 
+	 */
+	protected boolean scanBoolean(String text) {
+		int end = text.length();
+		while (end > 0 && text.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		int start = 0;
+		while (start < end && text.charAt(start) <= ' ') {
+			start++;
+		}
+		
+		int length = end - start;
+		if (length == 4 && text.regionMatches(true, start, "true", 0, 4)) {
+			this.bool = true;
+			return true;
+			
+		} else if (length == 5 && text.regionMatches(true, start, "false", 0, 5)) {
+			this.bool = false;
+			return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field, or a method without parameters, of a bean as a column 
+ * written by an EEHBeanMapper. 
+ * @author jhorvath
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface EEHColumn {
+	
+	/**
+	 * The header of the column. By default the name of the field, or the 
+	 * property name of the method, such as "total" for getTotal().
+	 * @return String 
+	 */
+	String name() default "";
+	
+	/**
+	 * The position of the column, with lower orders first. Columns with the same 
+	 * order follow the order in which their class declares them, with the columns 
+	 * of superclasses first. 
+	 * @return int 
+	 */
+	int order() default 0;
+	
+	/**
+	 * How values held as text are written. Numbers and booleans are written as 
+	 * numeric and boolean cells unless the type is TEXT. 
+	 * @return EEHColumnType
+	 */
+	EEHColumnType type() default EEHColumnType.INFERRED;
+	
+	/**
+	 * A DateTimeFormatter pattern, such as "yyyy-MM-dd", for columns of java.time 
+	 * or java.util.Date values, which are written as text in this format. 
+	 * Values that hold an instant are written in the default time zone. 
+	 * By default such values are written as the text of toString().
+	 * @return String 
+	 */
+	String format() default "";
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+/**
+ * Defines how the values of a column of an EEHSheet are written. 
+ * Values of a declared column that cannot be written as its type 
+ * are written as text. 
+ * @author jhorvath
+ */
+public enum EEHColumnType {
+	
+	/**
+	 * The type of each value is worked out from its text. This is the default.
+	 */
+	INFERRED,
+	
+	/**
+	 * Values are written as numbers, without testing for URLs or booleans.
+	 */
+	NUMERIC,
+	
+	/**
+	 * Values of "true" or "false", regardless of case, are written as booleans.
+	 */
+	BOOLEAN,
+	
+	/**
+	 * Values are written as hyperlinks. Each value is still checked to be a 
+	 * valid URL, as an invalid address cannot be written to the file.
+	 */
+	HYPERLINK,
+	
+	/**
+	 * Values are written as text as they are, so values such as "00123" keep their leading zeros.
+	 */
+	TEXT
+}
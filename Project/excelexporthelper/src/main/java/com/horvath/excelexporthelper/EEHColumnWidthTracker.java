@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+/**
+ * Keeps track of the longest rendered value in each column of a sheet 
+ * while the cells are written, so column widths can be set without 
+ * reading the cells back. 
+ * @author jhorvath
+ */
+final class EEHColumnWidthTracker {
+	
+	/**
+	 * The widest column allowed by Excel, in characters.
+	 */
+	private static final int MAX_COLUMN_CHARACTERS = 255;
+	
+	/**
+	 * Excel shows at most this many characters for a number in the General format.
+	 */
+	private static final int MAX_NUMBER_CHARACTERS = 11;
+	
+	/**
+	 * Extra space added to the widest value of each column, in characters. 
+	 */
+	private static final int COLUMN_PADDING = 1;
+	
+	private int[] widths;
+	private int columnCount;
+	
+	/**
+	 * Constructor. 
+	 */
+	protected EEHColumnWidthTracker() {
+		this.widths = new int[16];
+		this.columnCount = 0;
+	}
+	
+	/**
+	 * Records a bold header value. Bold text needs roughly a tenth more room. 
+	 * @param column int 
+	 * @param text String
+	 */
+	protected void trackHeader(int column, String text) {
+		int length = text == null ? 0 : text.length();
+		track(column, length + (length + 9) / 10);
+	}
+	
+	/**
+	 * Records a text or hyperlink value. 
+	 * @param column int 
+	 * @param text String
+	 */
+	protected void trackText(int column, String text) {
+		track(column, text == null ? 0 : text.length());
+	}
+	
+	/**
+	 * Records a numeric value as it is displayed in the General format. 
+	 * @param column int 
+	 * @param number double
+	 */
+	protected void trackNumber(int column, double number) {
+		ensureColumn(column);
+		
+		// nothing is displayed wider than the cap, so there is no need to render the number
+		if (this.widths[column] >= MAX_NUMBER_CHARACTERS) {
+			return;
+		}
+		track(column, numberLength(number));
+	}
+	
+	/**
+	 * Records a boolean value, displayed as TRUE or FALSE. 
+	 * @param column int 
+	 * @param bool boolean
+	 */
+	protected void trackBoolean(int column, boolean bool) {
+		track(column, bool ? 4 : 5);
+	}
+	
+	/**
+	 * Records a cell that holds no value. 
+	 * @param column int 
+	 */
+	protected void trackBlank(int column) {
+		track(column, 0);
+	}
+	
+	/**
+	 * Returns the number of columns that have been written to. 
+	 * @return int 
+	 */
+	protected int getColumnCount() {
+		return this.columnCount;
+	}
+	
+	/**
+	 * Sets the width of every column that holds a value. 
+	 * @param sheet Sheet
+	 */
+	protected void applyWidths(Sheet sheet) {
+		for (int i = 0; i < this.columnCount; i++) {
+			int width = getColumnWidth(i);
+			
+			if (width > 0) {
+				sheet.setColumnWidth(i, width);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the estimated width of the column, in units of 1/256th of a character, 
+	 * or zero if nothing has been written to the column.
+	 * @param column int 
+	 * @return int 
+	 */
+	protected int getColumnWidth(int column) {
+		if (column >= this.columnCount || this.widths[column] == 0) {
+			return 0;
+		}
+		int characters = Math.min(this.widths[column] + COLUMN_PADDING, MAX_COLUMN_CHARACTERS);
+		return characters * 256;
+	}
+	
+	/**
+	 * Stores the length for the column if it is the longest seen so far.
+	 * @param column int 
+	 * @param length int 
+	 */
+	private void track(int column, int length) {
+		ensureColumn(column);
+		
+		if (length > this.widths[column]) {
+			this.widths[column] = length;
+		}
+	}
+	
+	/**
+	 * Grows the storage so the given column can be recorded.
+	 * @param column int 
+	 */
+	private void ensureColumn(int column) {
+		if (column >= this.widths.length) {
+			this.widths = Arrays.copyOf(this.widths, Math.max(column + 1, this.widths.length * 2));
+		}
+		if (column >= this.columnCount) {
+			this.columnCount = column + 1;
+		}
+	}
+	
+	/**
+	 * Returns the number of characters Excel shows for a number in the General format.
+	 * @param number double 
+	 * @return int 
+	 */
+	private static int numberLength(double number) {
+		if (number == Math.rint(number) && Math.abs(number) < 1e11) {
+			// whole numbers are shown with all of their digits
+			long value = (long) Math.abs(number);
+			int length = number < 0 ? 2 : 1;
+			
+			while (value >= 10) {
+				value /= 10;
+				length++;
+			}
+			return length;
+		}
+		return Math.min(Double.toString(number).length(), MAX_NUMBER_CHARACTERS);
+	}
+}
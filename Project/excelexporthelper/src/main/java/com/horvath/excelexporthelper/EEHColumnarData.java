@@ -0,0 +1,423 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column oriented storage for the rows of an EEHSheet. 
+ * Values are typed as rows are added and kept per column in fixed size chunks: 
+ * numbers in double arrays, booleans in bit sets and text as codes into a 
+ * per-column dictionary, which falls back to plain strings for columns 
+ * with too many distinct values. Chunks are only allocated for the value 
+ * types a column actually holds, and growing never copies stored values. 
+ * The list view returns rows rebuilt as strings, and only supports adding 
+ * rows to the end and clearing. 
+ * @author jhorvath
+ */
+final class EEHColumnarData extends AbstractList<ArrayList<String>> {
+	
+	/**
+	 * Each chunk holds the values of 4096 rows.
+	 */
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	/**
+	 * The number of distinct values a column dictionary holds before 
+	 * the column switches to storing plain strings. 
+	 */
+	protected static final int MAX_DICTIONARY_SIZE = 1 << 16;
+	
+	private static final EEHCellKind[] KINDS = EEHCellKind.values();
+	
+	private EEHCellClassifier classifier;
+	private List<Column> columns;
+	private List<int[]> rowLengths;
+	private int rowCount;
+	
+	/**
+	 * Constructor. 
+	 */
+	protected EEHColumnarData() {
+		this.classifier = new EEHCellClassifier();
+		this.columns = new ArrayList<>();
+		this.rowLengths = new ArrayList<>();
+		this.rowCount = 0;
+	}
+	
+	@Override
+	public boolean add(ArrayList<String> rowData) {
+		EEHCellClassifier cells = this.classifier;
+		int rowIndex = this.rowCount;
+		
+		for (int col = 0; col < rowData.size(); col++) {
+			String data = rowData.get(col);
+			Column column = getColumn(col);
+			
+			switch (cells.classify(data, column.type)) {
+			
+			case NUMBER:
+				column.setNumber(rowIndex, cells.getNumber());
+				break;
+				
+			case BOOLEAN:
+				column.setBoolean(rowIndex, cells.getBoolean());
+				break;
+				
+			case HYPERLINK:
+				column.setText(rowIndex, EEHCellKind.HYPERLINK, data);
+				break;
+				
+			case TEXT:
+				column.setText(rowIndex, EEHCellKind.TEXT, data);
+				break;
+				
+			case BLANK:
+			default:
+				column.setKind(rowIndex, EEHCellKind.BLANK);
+				break;
+			}
+		}
+		
+		setRowLength(rowIndex, rowData.size());
+		this.rowCount++;
+		this.modCount++;
+		return true;
+	}
+	
+	@Override
+	public void add(int index, ArrayList<String> rowData) {
+		if (index != this.rowCount) {
+			// rows can only be appended
+			throw new UnsupportedOperationException();
+		}
+		add(rowData);
+	}
+	
+	/**
+	 * Sets how the values added to a column are typed. 
+	 * @param index int 
+	 * @param type EEHColumnType 
+	 */
+	protected void setColumnType(int index, EEHColumnType type) {
+		getColumn(index).type = type;
+	}
+	
+	/**
+	 * Fills the given row with the typed values of a stored row. 
+	 * @param index int 
+	 * @param row EEHRow 
+	 */
+	protected void readRow(int index, EEHRow row) {
+		checkIndex(index);
+		row.clear();
+		
+		int length = getRowLength(index);
+		for (int col = 0; col < length; col++) {
+			Column column = this.columns.get(col);
+			
+			switch (column.getKind(index)) {
+			
+			case NUMBER:
+				row.addNumber(column.getNumber(index));
+				break;
+				
+			case BOOLEAN:
+				row.addBoolean(column.getBoolean(index));
+				break;
+				
+			case HYPERLINK:
+				row.addHyperlink(column.getText(index));
+				break;
+				
+			case TEXT:
+				row.addText(column.getText(index));
+				break;
+				
+			case BLANK:
+			default:
+				row.addBlank();
+				break;
+			}
+		}
+	}
+	
+	@Override
+	public ArrayList<String> get(int index) {
+		checkIndex(index);
+		
+		int length = getRowLength(index);
+		ArrayList<String> rowData = new ArrayList<>(length);
+		
+		for (int col = 0; col < length; col++) {
+			Column column = this.columns.get(col);
+			
+			switch (column.getKind(index)) {
+			
+			case NUMBER:
+				rowData.add(renderNumber(column.getNumber(index)));
+				break;
+				
+			case BOOLEAN:
+				rowData.add(String.valueOf(column.getBoolean(index)));
+				break;
+				
+			case HYPERLINK:
+			case TEXT:
+				rowData.add(column.getText(index));
+				break;
+				
+			case BLANK:
+			default:
+				rowData.add(null);
+				break;
+			}
+		}
+		return rowData;
+	}
+	
+	@Override
+	public int size() {
+		return this.rowCount;
+	}
+	
+	@Override
+	public void clear() {
+		this.columns.clear();
+		this.rowLengths.clear();
+		this.rowCount = 0;
+		this.modCount++;
+	}
+	
+	/**
+	 * Returns the column at the given index, creating any missing columns.
+	 * @param index int 
+	 * @return Column 
+	 */
+	private Column getColumn(int index) {
+		while (this.columns.size() <= index) {
+			this.columns.add(new Column());
+		}
+		return this.columns.get(index);
+	}
+	
+	private void setRowLength(int rowIndex, int length) {
+		int[] chunk = chunkFor(this.rowLengths, rowIndex);
+		if (chunk == null) {
+			chunk = new int[CHUNK_SIZE];
+			setChunk(this.rowLengths, rowIndex, chunk);
+		}
+		chunk[rowIndex & CHUNK_MASK] = length;
+	}
+	
+	private int getRowLength(int rowIndex) {
+		return this.rowLengths.get(rowIndex >>> CHUNK_SHIFT)[rowIndex & CHUNK_MASK];
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= this.rowCount) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.rowCount);
+		}
+	}
+	
+	/**
+	 * Renders a stored number as text that parses back to the same value.
+	 * @param number double 
+	 * @return String 
+	 */
+	private static String renderNumber(double number) {
+		if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+			return Long.toString((long) number);
+		}
+		return Double.toString(number);
+	}
+	
+	/**
+	 * Returns the chunk holding the given row, or null if it has not been allocated.
+	 * @param chunks List<T>
+	 * @param rowIndex int 
+	 * @return T 
+	 */
+	private static <T> T chunkFor(List<T> chunks, int rowIndex) {
+		int chunkIndex = rowIndex >>> CHUNK_SHIFT;
+		return chunkIndex < chunks.size() ? chunks.get(chunkIndex) : null;
+	}
+	
+	/**
+	 * Stores the chunk for the given row, padding any chunks before it with null.
+	 * @param chunks List<T>
+	 * @param rowIndex int 
+	 * @param chunk T 
+	 */
+	private static <T> void setChunk(List<T> chunks, int rowIndex, T chunk) {
+		int chunkIndex = rowIndex >>> CHUNK_SHIFT;
+		while (chunks.size() <= chunkIndex) {
+			chunks.add(null);
+		}
+		chunks.set(chunkIndex, chunk);
+	}
+	
+	/**
+	 * The stored values of a single column. 
+	 */
+	private static final class Column {
+		
+		private EEHColumnType type = EEHColumnType.INFERRED;
+		private List<byte[]> kinds = new ArrayList<>();
+		private List<double[]> numbers = new ArrayList<>();
+		private List<long[]> booleans = new ArrayList<>();
+		private List<int[]> codes = new ArrayList<>();
+		private List<String[]> texts = new ArrayList<>();
+		
+		private Map<String, Integer> dictionary = new HashMap<>();
+		private List<String> dictionaryValues = new ArrayList<>();
+		private boolean plainText = false;
+		
+		private void setKind(int rowIndex, EEHCellKind kind) {
+			byte[] chunk = chunkFor(this.kinds, rowIndex);
+			if (chunk == null) {
+				chunk = new byte[CHUNK_SIZE];
+				setChunk(this.kinds, rowIndex, chunk);
+			}
+			chunk[rowIndex & CHUNK_MASK] = (byte) kind.ordinal();
+		}
+		
+		private EEHCellKind getKind(int rowIndex) {
+			return KINDS[this.kinds.get(rowIndex >>> CHUNK_SHIFT)[rowIndex & CHUNK_MASK]];
+		}
+		
+		private void setNumber(int rowIndex, double number) {
+			setKind(rowIndex, EEHCellKind.NUMBER);
+			
+			double[] chunk = chunkFor(this.numbers, rowIndex);
+			if (chunk == null) {
+				chunk = new double[CHUNK_SIZE];
+				setChunk(this.numbers, rowIndex, chunk);
+			}
+			chunk[rowIndex & CHUNK_MASK] = number;
+		}
+		
+		private double getNumber(int rowIndex) {
+			return this.numbers.get(rowIndex >>> CHUNK_SHIFT)[rowIndex & CHUNK_MASK];
+		}
+		
+		private void setBoolean(int rowIndex, boolean bool) {
+			setKind(rowIndex, EEHCellKind.BOOLEAN);
+			
+			long[] chunk = chunkFor(this.booleans, rowIndex);
+			if (chunk == null) {
+				chunk = new long[CHUNK_SIZE / 64];
+				setChunk(this.booleans, rowIndex, chunk);
+			}
+			int bit = rowIndex & CHUNK_MASK;
+			if (bool) {
+				chunk[bit >>> 6] |= 1L << bit;
+			} else {
+				chunk[bit >>> 6] &= ~(1L << bit);
+			}
+		}
+		
+		private boolean getBoolean(int rowIndex) {
+			int bit = rowIndex & CHUNK_MASK;
+			return (this.booleans.get(rowIndex >>> CHUNK_SHIFT)[bit >>> 6] & (1L << bit)) != 0;
+		}
+		
+		private void setText(int rowIndex, EEHCellKind kind, String text) {
+			setKind(rowIndex, kind);
+			
+			if (!this.plainText) {
+				Integer code = this.dictionary.get(text);
+				
+				if (code == null && this.dictionaryValues.size() < MAX_DICTIONARY_SIZE) {
+					code = this.dictionaryValues.size();
+					this.dictionary.put(text, code);
+					this.dictionaryValues.add(text);
+				}
+				
+				if (code != null) {
+					int[] chunk = chunkFor(this.codes, rowIndex);
+					if (chunk == null) {
+						chunk = new int[CHUNK_SIZE];
+						setChunk(this.codes, rowIndex, chunk);
+					}
+					chunk[rowIndex & CHUNK_MASK] = code;
+					return;
+				}
+				
+				// too many distinct values for a dictionary to pay off
+				switchToPlainText();
+			}
+			
+			String[] chunk = chunkFor(this.texts, rowIndex);
+			if (chunk == null) {
+				chunk = new String[CHUNK_SIZE];
+				setChunk(this.texts, rowIndex, chunk);
+			}
+			chunk[rowIndex & CHUNK_MASK] = text;
+		}
+		
+		private String getText(int rowIndex) {
+			if (this.plainText) {
+				return this.texts.get(rowIndex >>> CHUNK_SHIFT)[rowIndex & CHUNK_MASK];
+			}
+			return this.dictionaryValues.get(this.codes.get(rowIndex >>> CHUNK_SHIFT)[rowIndex & CHUNK_MASK]);
+		}
+		
+		/**
+		 * Replaces the dictionary codes stored so far with the strings they stand for.
+		 */
+		private void switchToPlainText() {
+			for (int c = 0; c < this.codes.size(); c++) {
+				int[] codeChunk = this.codes.get(c);
+				byte[] kindChunk = c < this.kinds.size() ? this.kinds.get(c) : null;
+				
+				if (codeChunk == null || kindChunk == null) {
+					this.texts.add(null);
+					continue;
+				}
+				
+				String[] textChunk = new String[CHUNK_SIZE];
+				for (int i = 0; i < CHUNK_SIZE; i++) {
+					EEHCellKind kind = KINDS[kindChunk[i]];
+					if (kind == EEHCellKind.TEXT || kind == EEHCellKind.HYPERLINK) {
+						textChunk[i] = this.dictionaryValues.get(codeChunk[i]);
+					}
+				}
+				this.texts.add(textChunk);
+			}
+			
+			this.plainText = true;
+			this.codes = null;
+			this.dictionary = null;
+			this.dictionaryValues = null;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.zip.Deflater;
+
+/**
+ * Defines how strongly the parts of the workbook are compressed in the file.
+ * @author jhorvath
+ */
+public enum EEHCompression {
+	
+	/**
+	 * The parts are stored without compression. This is the fastest to write, 
+	 * but gives the largest files. 
+	 */
+	STORE(Deflater.NO_COMPRESSION),
+	
+	/**
+	 * The parts are compressed with the fastest deflate level, giving 
+	 * somewhat larger files in much less time than the default. 
+	 */
+	FAST(Deflater.BEST_SPEED),
+	
+	/**
+	 * The parts are compressed with the default deflate level. 
+	 */
+	DEFAULT(Deflater.DEFAULT_COMPRESSION),
+	
+	/**
+	 * The parts are compressed with the strongest deflate level, giving 
+	 * the smallest files at the most cost. 
+	 */
+	BEST(Deflater.BEST_COMPRESSION);
+	
+	private final int level;
+	
+	private EEHCompression(int level) {
+		this.level = level;
+	}
+	
+	/**
+	 * Returns the deflate level used for the parts. 
+	 * @return int 
+	 */
+	protected int getLevel() {
+		return this.level;
+	}
+}
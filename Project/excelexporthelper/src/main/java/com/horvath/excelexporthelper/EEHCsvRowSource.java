@@ -0,0 +1,448 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Reads the rows of a sheet from CSV or TSV data while the workbook is written, 
+ * following RFC 4180: values are separated by the delimiter, records end at a 
+ * line break, and quoted values may hold delimiters, line breaks and doubled 
+ * quotes. The data is read through one reused buffer, so a file of any size 
+ * is converted in constant memory. Each value is typed in the same way as the 
+ * strings of getData(), unless typing is turned off, and empty values become 
+ * empty cells. Empty lines are skipped. 
+ * @author jhorvath
+ */
+final public class EEHCsvRowSource implements EEHRowSource, AutoCloseable {
+	
+	/**
+	 * The delimiter of comma separated values, which is the default.
+	 */
+	public static final char COMMA = ',';
+	
+	/**
+	 * The delimiter of tab separated values.
+	 */
+	public static final char TAB = '\t';
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final char BYTE_ORDER_MARK = '\uFEFF';
+	
+	public static final String EXCEPTION_NULL_FILE = "CSV file must not be null.";
+	public static final String EXCEPTION_NULL_READER = "CSV reader must not be null.";
+	public static final String EXCEPTION_NULL_CHARSET = "Charset must not be null.";
+	public static final String EXCEPTION_NULL_SHEET = "Sheet must not be null.";
+	public static final String EXCEPTION_INVALID_DELIMITER = "Delimiter must not be a line break or the quote character.";
+	public static final String EXCEPTION_INVALID_QUOTE = "Quote character must not be a line break or the delimiter.";
+	public static final String EXCEPTION_ALREADY_READ = "The options of a CSV source cannot be changed once it has been read.";
+	public static final String EXCEPTION_HEADERS_AFTER_ROWS = "The header row can only be read before any other rows.";
+	public static final String EXCEPTION_READ_FAILED = "Unable to read the CSV data. ";
+	public static final String EXCEPTION_UNCLOSED_QUOTE = "A quoted value is not closed before the end of the data, in record ";
+	
+	private File file;
+	private Charset charset;
+	private Reader reader;
+	private char delimiter;
+	private char quote;
+	private boolean quoting;
+	private boolean typeValues;
+	
+	private char[] buffer;
+	private int position;
+	private int limit;
+	
+	/**
+	 * Holds a value that does not lie within the buffer in one piece. 
+	 */
+	private char[] value;
+	private int valueLength;
+	
+	private long recordCount;
+	private boolean opened;
+	
+	/**
+	 * Constructor for a UTF-8 encoded file. 
+	 * @param file File 
+	 */
+	public EEHCsvRowSource(File file) {
+		this(file, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Constructor for a file in the given encoding. The file 
+	 * is only opened once its first record is read. 
+	 * @param file File 
+	 * @param charset Charset 
+	 */
+	public EEHCsvRowSource(File file, Charset charset) {
+		if (file == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_FILE);
+		}
+		if (charset == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_CHARSET);
+		}
+		this.file = file;
+		this.charset = charset;
+		init();
+	}
+	
+	/**
+	 * Constructor for data from a reader, which is closed with the source. 
+	 * The reader does not need to be buffered. 
+	 * @param reader Reader 
+	 */
+	public EEHCsvRowSource(Reader reader) {
+		if (reader == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_READER);
+		}
+		this.reader = reader;
+		init();
+	}
+	
+	private void init() {
+		this.delimiter = COMMA;
+		this.quote = '"';
+		this.quoting = true;
+		this.typeValues = true;
+		this.value = new char[256];
+		this.valueLength = 0;
+		this.recordCount = 0;
+		this.opened = false;
+	}
+	
+	/**
+	 * Sets the character between the values of a record, such as COMMA, TAB or ';'.
+	 * @param delimiter char 
+	 */
+	public void setDelimiter(char delimiter) {
+		checkNotRead();
+		if (isLineBreak(delimiter) || delimiter == this.quote) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_DELIMITER);
+		}
+		this.delimiter = delimiter;
+	}
+	
+	public char getDelimiter() {
+		return this.delimiter;
+	}
+	
+	/**
+	 * Sets the character values are quoted with. 
+	 * @param quote char 
+	 */
+	public void setQuote(char quote) {
+		checkNotRead();
+		if (isLineBreak(quote) || quote == this.delimiter) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_QUOTE);
+		}
+		this.quote = quote;
+	}
+	
+	public char getQuote() {
+		return this.quote;
+	}
+	
+	/**
+	 * Sets whether values can be quoted. When quoting is off, quote 
+	 * characters are read as part of the values, as in most TSV files. 
+	 * @param quoting boolean 
+	 */
+	public void setQuoting(boolean quoting) {
+		checkNotRead();
+		this.quoting = quoting;
+	}
+	
+	public boolean isQuoting() {
+		return this.quoting;
+	}
+	
+	/**
+	 * Sets whether values are typed in the same way as the strings of getData(), 
+	 * following the declared column types of the sheet, which is the default, or 
+	 * all written as text, keeping values such as "00123" as they are. 
+	 * @param typeValues boolean 
+	 */
+	public void setTypeValues(boolean typeValues) {
+		checkNotRead();
+		this.typeValues = typeValues;
+	}
+	
+	public boolean isTypeValues() {
+		return this.typeValues;
+	}
+	
+	/**
+	 * Reads the first record as the header row of the given sheet, replacing its 
+	 * headers, so the rows that follow are the data rows. Must be called before 
+	 * the workbook is written, which opens the file ahead of the export. 
+	 * @param sheet EEHSheet 
+	 * @throws EEHException
+	 */
+	public void readHeaders(EEHSheet sheet) throws EEHException {
+		if (sheet == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_SHEET);
+		}
+		if (this.recordCount > 0) {
+			throw new IllegalStateException(EXCEPTION_HEADERS_AFTER_ROWS);
+		}
+		
+		EEHRow row = new EEHRow();
+		sheet.getHeaders().clear();
+		if (readRecord(row, false)) {
+			for (int column = 0; column < row.size(); column++) {
+				String header = row.getText(column);
+				sheet.getHeaders().add(header == null ? "" : header);
+			}
+		}
+	}
+	
+	@Override
+	public boolean nextRow(EEHRow row) throws EEHException {
+		return readRecord(row, this.typeValues);
+	}
+	
+	/**
+	 * Returns the number of records read so far, counting any header row.
+	 * @return long 
+	 */
+	public long getRecordCount() {
+		return this.recordCount;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (this.reader != null) {
+			this.reader.close();
+		}
+		// the buffer is released, and a source that was never read is not opened after closing
+		this.buffer = null;
+		this.opened = true;
+	}
+	
+	/**
+	 * Reads the next record into the row. 
+	 * @param row EEHRow 
+	 * @param typed boolean True to add the values to be typed, false to add them as text.
+	 * @return boolean False when there are no more records.
+	 * @throws EEHException
+	 */
+	private boolean readRecord(EEHRow row, boolean typed) throws EEHException {
+		try {
+			if (!this.opened) {
+				open();
+			}
+			if (this.buffer == null) {
+				return false;
+			}
+			
+			// empty lines are not records
+			while (true) {
+				if (this.position == this.limit && !fill()) {
+					return false;
+				}
+				if (!isLineBreak(this.buffer[this.position])) {
+					break;
+				}
+				this.position++;
+			}
+			
+			this.recordCount++;
+			while (readValue(row, typed)) {
+				// values follow until the end of the record
+			}
+			return true;
+			
+		} catch (IOException ex) {
+			throw new EEHException(EXCEPTION_READ_FAILED + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Reads one value of the record into the row. 
+	 * @param row EEHRow 
+	 * @param typed boolean 
+	 * @return boolean True when a delimiter follows, false at the end of the record.
+	 * @throws IOException
+	 * @throws EEHException
+	 */
+	private boolean readValue(EEHRow row, boolean typed) throws IOException, EEHException {
+		this.valueLength = 0;
+		boolean quoted = false;
+		
+		if (this.quoting && (this.position < this.limit || fill()) && this.buffer[this.position] == this.quote) {
+			this.position++;
+			readQuoted();
+			quoted = true;
+		}
+		
+		// anything after a closing quote is kept, as most readers do
+		int start = this.position;
+		while (true) {
+			if (this.position == this.limit) {
+				appendValue(start, this.position);
+				if (!fill()) {
+					addValue(row, typed, createValue(quoted, start, start));
+					return false;
+				}
+				start = 0;
+			}
+			
+			char c = this.buffer[this.position];
+			if (c == this.delimiter) {
+				addValue(row, typed, createValue(quoted, start, this.position));
+				this.position++;
+				return true;
+			}
+			if (isLineBreak(c)) {
+				addValue(row, typed, createValue(quoted, start, this.position));
+				skipLineBreak();
+				return false;
+			}
+			this.position++;
+		}
+	}
+	
+	/**
+	 * Reads a quoted value up to and including its closing quote.
+	 * @throws IOException
+	 * @throws EEHException
+	 */
+	private void readQuoted() throws IOException, EEHException {
+		int start = this.position;
+		
+		while (true) {
+			if (this.position == this.limit) {
+				appendValue(start, this.position);
+				if (!fill()) {
+					throw new EEHException(EXCEPTION_UNCLOSED_QUOTE + this.recordCount);
+				}
+				start = 0;
+			}
+			
+			if (this.buffer[this.position] != this.quote) {
+				this.position++;
+				continue;
+			}
+			
+			appendValue(start, this.position);
+			this.position++;
+			if ((this.position < this.limit || fill()) && this.buffer[this.position] == this.quote) {
+				// a doubled quote stands for one quote
+				start = this.position;
+				this.position++;
+				continue;
+			}
+			return;
+		}
+	}
+	
+	/**
+	 * Creates the text of a value, straight from the buffer when it lies there in one piece.
+	 * @param quoted boolean 
+	 * @param start int The start of the rest of the value in the buffer.
+	 * @param end int 
+	 * @return String 
+	 */
+	private String createValue(boolean quoted, int start, int end) {
+		if (!quoted && this.valueLength == 0) {
+			return new String(this.buffer, start, end - start);
+		}
+		appendValue(start, end);
+		return new String(this.value, 0, this.valueLength);
+	}
+	
+	private void addValue(EEHRow row, boolean typed, String text) {
+		if (text.isEmpty()) {
+			row.addBlank();
+		} else if (typed) {
+			row.addValue(text);
+		} else {
+			row.addText(text);
+		}
+	}
+	
+	private void appendValue(int start, int end) {
+		int length = end - start;
+		if (this.valueLength + length > this.value.length) {
+			this.value = Arrays.copyOf(this.value, Math.max(this.valueLength + length, this.value.length * 2));
+		}
+		System.arraycopy(this.buffer, start, this.value, this.valueLength, length);
+		this.valueLength += length;
+	}
+	
+	private void skipLineBreak() throws IOException {
+		char c = this.buffer[this.position++];
+		if (c == '\r' && (this.position < this.limit || fill()) && this.buffer[this.position] == '\n') {
+			this.position++;
+		}
+	}
+	
+	private void open() throws IOException {
+		this.opened = true;
+		if (this.reader == null) {
+			this.reader = new InputStreamReader(Files.newInputStream(this.file.toPath()), this.charset);
+		}
+		this.buffer = new char[BUFFER_SIZE];
+		this.position = 0;
+		this.limit = 0;
+		
+		if (fill() && this.buffer[0] == BYTE_ORDER_MARK) {
+			this.position = 1;
+		}
+	}
+	
+	/**
+	 * Reads the next block of data into the buffer, once everything in it has been used.
+	 * @return boolean False at the end of the data.
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+		int n;
+		do {
+			n = this.reader.read(this.buffer, 0, this.buffer.length);
+		} while (n == 0);
+		
+		this.position = 0;
+		this.limit = Math.max(n, 0);
+		return n > 0;
+	}
+	
+	private void checkNotRead() {
+		if (this.opened) {
+			throw new IllegalStateException(EXCEPTION_ALREADY_READ);
+		}
+	}
+	
+	private static boolean isLineBreak(char c) {
+		return c == '\n' || c == '\r';
+	}
+}
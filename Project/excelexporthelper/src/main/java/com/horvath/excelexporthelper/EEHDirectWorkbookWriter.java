@@ -0,0 +1,789 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.ss.SpreadsheetVersion;
+
+/**
+ * Writes the parts of an Excel file directly as XML, without building 
+ * a POI workbook. Supports the features EEH exposes: bold headers, text, 
+ * numbers, booleans, hyperlinks and column widths. Text is written through 
+ * a bounded shared strings dictionary and cells are encoded straight into 
+ * a byte buffer, so writing a cell creates almost no objects. The sheets can 
+ * also be written into the archive of an existing workbook being appended to. 
+ * @author jhorvath
+ */
+final class EEHDirectWorkbookWriter {
+	
+	protected static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+	private static final String MAIN_NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	protected static final String RELATIONSHIPS_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	protected static final String PACKAGE_RELATIONSHIPS_NAMESPACE = "http://schemas.openxmlformats.org/package/2006/relationships";
+	protected static final String HYPERLINK_RELATIONSHIP = RELATIONSHIPS_NAMESPACE + "/hyperlink";
+	
+	/**
+	 * The cell styles written to every workbook, referenced by index from the cells.
+	 */
+	private static final int HEADER_STYLE = 1;
+	private static final int HYPERLINK_STYLE = 2;
+	
+	/**
+	 * The fonts of the header and hyperlink cell styles, as written to the styles.
+	 */
+	protected static final String HEADER_FONT = "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font>";
+	protected static final String HYPERLINK_FONT = "<font><u/><sz val=\"11\"/><color indexed=\"12\"/><name val=\"Calibri\"/><family val=\"2\"/></font>";
+	
+	private static final String STYLES = XML_DECLARATION
+			+ "<styleSheet xmlns=\"" + MAIN_NAMESPACE + "\">"
+			+ "<fonts count=\"3\">"
+			+ "<font><sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font>"
+			+ HEADER_FONT
+			+ HYPERLINK_FONT
+			+ "</fonts>"
+			+ "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+			+ "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+			+ "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+			+ "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+			+ "<cellXfs count=\"3\">"
+			+ "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+			+ createFontStyle(1)
+			+ createFontStyle(2)
+			+ "</cellXfs>"
+			+ "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+			+ "</styleSheet>";
+	
+	private static final String ROOT_RELATIONSHIPS = XML_DECLARATION
+			+ "<Relationships xmlns=\"" + PACKAGE_RELATIONSHIPS_NAMESPACE + "\">"
+			+ "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIPS_NAMESPACE + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+			+ "</Relationships>";
+	
+	private static final int MAX_TEXT_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+	private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+	private static final int MAX_COLUMNS = SpreadsheetVersion.EXCEL2007.getMaxColumns();
+	
+	protected static final String EXCEPTION_TEXT_TOO_LONG = "The maximum length of cell contents (text) is " + MAX_TEXT_LENGTH + " characters";
+	protected static final String EXCEPTION_TOO_MANY_ROWS = "The maximum number of rows in a sheet is " + MAX_ROWS + ".";
+	protected static final String EXCEPTION_TOO_MANY_COLUMNS = "The maximum number of columns in a sheet is " + MAX_COLUMNS + ".";
+	protected static final String EXCEPTION_INVALID_ADDRESS = "Address of hyperlink must be a valid URI: ";
+	
+	private ZipOutputStream zip;
+	private ZipArchiveOutputStream archive;
+	private OutputStream parts;
+	private EEHXmlWriter xml;
+	private EEHRollover rollover;
+	private EEHColumnSizing columnSizing;
+	private List<String> sheetNames;
+	private int sheetCount;
+	private int headerStyle;
+	private int hyperlinkStyle;
+	
+	private int sharedStringLimit;
+	private Map<String, Integer> sharedStrings;
+	private List<String> sharedStringValues;
+	private long sharedStringCount;
+	
+	/**
+	 * The encoded reference of each column, such as "A" or "AB", created as columns are used.
+	 */
+	private byte[][] columnNames;
+	
+	/**
+	 * Constructor. Writes the parts that do not depend on the sheet data. 
+	 * @param out OutputStream The stream the file is written to, which is not closed.
+	 * @param rollover EEHRollover Names the sheets and limits their rows.
+	 * @param columnSizing EEHColumnSizing 
+	 * @param sharedStringLimit int The maximum number of distinct shared texts.
+	 * @param compressionLevel int The deflate level of the parts.
+	 * @throws IOException
+	 */
+	protected EEHDirectWorkbookWriter(OutputStream out, EEHRollover rollover, 
+			EEHColumnSizing columnSizing, int sharedStringLimit, int compressionLevel) throws IOException {
+		this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+		this.zip.setLevel(compressionLevel);
+		this.parts = this.zip;
+		this.xml = new EEHXmlWriter(this.zip);
+		this.rollover = rollover;
+		this.columnSizing = columnSizing;
+		this.sheetNames = new ArrayList<>();
+		this.sheetCount = 0;
+		this.headerStyle = HEADER_STYLE;
+		this.hyperlinkStyle = HYPERLINK_STYLE;
+		this.sharedStringLimit = sharedStringLimit;
+		this.sharedStrings = new HashMap<>();
+		this.sharedStringValues = new ArrayList<>();
+		this.sharedStringCount = 0;
+		this.columnNames = new byte[0][];
+		
+		writePart("_rels/.rels", ROOT_RELATIONSHIPS);
+		writePart("xl/styles.xml", STYLES);
+	}
+	
+	/**
+	 * Constructor for writing sheets into the archive of an existing workbook, 
+	 * which holds the other parts. Text is written in the cells, so the shared 
+	 * strings of the workbook are left as they are. 
+	 * @param archive ZipArchiveOutputStream The archive the parts are written to.
+	 * @param xml EEHXmlWriter The writer of the archive.
+	 * @param rollover EEHRollover Names the sheets and limits their rows.
+	 * @param columnSizing EEHColumnSizing 
+	 * @param sheetCount int The highest number of the sheet parts already in the archive.
+	 * @param headerStyle int The index of the cell style of header cells.
+	 * @param hyperlinkStyle int The index of the cell style of hyperlink cells.
+	 */
+	protected EEHDirectWorkbookWriter(ZipArchiveOutputStream archive, EEHXmlWriter xml, EEHRollover rollover, 
+			EEHColumnSizing columnSizing, int sheetCount, int headerStyle, int hyperlinkStyle) {
+		this.archive = archive;
+		this.parts = archive;
+		this.xml = xml;
+		this.rollover = rollover;
+		this.columnSizing = columnSizing;
+		this.sheetNames = new ArrayList<>();
+		this.sheetCount = sheetCount;
+		this.headerStyle = headerStyle;
+		this.hyperlinkStyle = hyperlinkStyle;
+		this.sharedStringLimit = 0;
+		this.sharedStrings = new HashMap<>();
+		this.sharedStringValues = new ArrayList<>();
+		this.sharedStringCount = 0;
+		this.columnNames = new byte[0][];
+	}
+	
+	/**
+	 * Returns a cell style that only sets the given font, as written to the styles.
+	 * @param fontId int The index of the font.
+	 * @return String 
+	 */
+	protected static String createFontStyle(int fontId) {
+		return "<xf numFmtId=\"0\" fontId=\"" + fontId + "\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>";
+	}
+	
+	/**
+	 * Writes the next sheet of the workbook with the rows of the cursor, 
+	 * until the rows run out or the sheet reaches its row limit. 
+	 * @param eehSheet EEHSheet 
+	 * @param rows EEHRowCursor The rows of the sheet. 
+	 * @param summary EEHSheetSummary The summary the timings and cell counts of the sheet are added to.
+	 * @return boolean True when the sheet is full and rows remain for a sheet that continues it.
+	 * @throws EEHException
+	 * @throws IOException
+	 */
+	protected boolean writeSheet(EEHSheet eehSheet, EEHRowCursor rows, 
+			EEHSheetSummary summary) throws EEHException, IOException {
+		
+		long mark = System.nanoTime();
+		String sheetName = this.rollover.startSheet(eehSheet);
+		this.sheetNames.add(sheetName);
+		summary.addWorkbookSheetName(sheetName);
+		
+		String partName = "xl/worksheets/sheet" + (++this.sheetCount) + ".xml";
+		Hyperlinks hyperlinks = new Hyperlinks(1);
+		boolean full;
+		
+		// the column widths come before the cells in the sheet, so when they are 
+		// only known once the rows have been read the cells are written to a temporary file
+		boolean widthsFixed = eehSheet.getFixedWidths() != null;
+		boolean widthsKnown = this.columnSizing == EEHColumnSizing.NONE || rows.isPrepared() || widthsFixed;
+		Path cells = null;
+		
+		try {
+			if (widthsKnown) {
+				putEntry(partName);
+				writeSheetStart(rows.getWidths(), rows.isPrepared() || widthsFixed);
+				EEHExcelFileWriter.addPhaseNanos(summary, EEHExportPhase.CREATE_SHEET, mark);
+				
+				full = writeSheetData(eehSheet, rows, hyperlinks, summary);
+				
+			} else {
+				cells = Files.createTempFile("eeh-sheet", ".xml");
+				try (OutputStream os = Files.newOutputStream(cells)) {
+					this.xml.setOutput(os);
+					EEHExcelFileWriter.addPhaseNanos(summary, EEHExportPhase.CREATE_SHEET, mark);
+					
+					full = writeSheetData(eehSheet, rows, hyperlinks, summary);
+					this.xml.setOutput(this.parts);
+				}
+				
+				mark = System.nanoTime();
+				putEntry(partName);
+				writeSheetStart(rows.getWidths(), true);
+				this.xml.flush();
+				Files.copy(cells, this.parts);
+				EEHExcelFileWriter.addPhaseNanos(summary, EEHExportPhase.SIZE_COLUMNS, mark);
+			}
+			
+			// the hyperlinks at the end of the sheet are part of its cells
+			mark = System.nanoTime();
+			writeSheetEnd(hyperlinks);
+			this.xml.flush();
+			closeEntry();
+			
+		} finally {
+			if (cells != null) {
+				Files.deleteIfExists(cells);
+			}
+		}
+		
+		if (hyperlinks.hasRelationships()) {
+			writeSheetRelationships(this.sheetCount, hyperlinks);
+		}
+		EEHExcelFileWriter.addPhaseNanos(summary, EEHExportPhase.POPULATE_CELLS, mark);
+		return full;
+	}
+	
+	/**
+	 * Writes the rows of the cursor below the rows a sheet already holds, 
+	 * until the rows run out or the sheet reaches its row limit. 
+	 * @param rows EEHRowCursor The rows to add.
+	 * @param rowCount int The number of rows the sheet already holds.
+	 * @param hyperlinks Hyperlinks The hyperlinks of the added rows.
+	 * @param summary EEHSheetSummary The summary the timings and cell counts are added to.
+	 * @return boolean True when the sheet is full and rows remain for a sheet that continues it.
+	 * @throws EEHException
+	 * @throws IOException
+	 */
+	protected boolean appendRows(EEHRowCursor rows, int rowCount, Hyperlinks hyperlinks, 
+			EEHSheetSummary summary) throws EEHException, IOException {
+		
+		long mark = System.nanoTime();
+		boolean full = writeRows(rows, rowCount, hyperlinks, summary);
+		EEHExcelFileWriter.addPhaseNanos(summary, EEHExportPhase.POPULATE_CELLS, mark);
+		return full;
+	}
+	
+	/**
+	 * Returns the names of the sheets written, in order.
+	 * @return List<String>
+	 */
+	protected List<String> getSheetNames() {
+		return this.sheetNames;
+	}
+	
+	/**
+	 * Writes the list of sheets and the shared strings, and completes the file. 
+	 * @throws IOException
+	 */
+	protected void finish() throws IOException {
+		// the sheets are only all known once they have been written
+		writeContentTypes();
+		writeWorkbook();
+		
+		this.zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+		this.xml.write(XML_DECLARATION).write("<sst xmlns=\"").write(MAIN_NAMESPACE)
+			.write("\" count=\"").write(this.sharedStringCount)
+			.write("\" uniqueCount=\"").write(this.sharedStringValues.size()).write("\">");
+		
+		for (String text : this.sharedStringValues) {
+			this.xml.write("<si>");
+			writeTextElement(text);
+			this.xml.write("</si>");
+		}
+		
+		this.xml.write("</sst>");
+		this.xml.flush();
+		this.zip.closeEntry();
+		this.zip.finish();
+		this.zip.flush();
+	}
+	
+	private void writeSheetStart(EEHColumnWidthTracker widths, boolean writeWidths) throws IOException {
+		this.xml.write(XML_DECLARATION).write("<worksheet xmlns=\"").write(MAIN_NAMESPACE)
+			.write("\" xmlns:r=\"").write(RELATIONSHIPS_NAMESPACE).write("\">");
+		
+		if (writeWidths && this.columnSizing != EEHColumnSizing.NONE) {
+			boolean started = false;
+			
+			for (int i = 0; i < widths.getColumnCount(); i++) {
+				int width = widths.getColumnWidth(i);
+				if (width == 0) {
+					continue;
+				}
+				if (!started) {
+					this.xml.write("<cols>");
+					started = true;
+				}
+				this.xml.write("<col min=\"").write(i + 1).write("\" max=\"").write(i + 1)
+					.write("\" width=\"").write(width / 256.0).write("\" customWidth=\"1\"/>");
+			}
+			if (started) {
+				this.xml.write("</cols>");
+			}
+		}
+	}
+	
+	private boolean writeSheetData(EEHSheet eehSheet, EEHRowCursor rows, 
+			Hyperlinks hyperlinks, EEHSheetSummary summary) throws EEHException, IOException {
+		
+		long mark = System.nanoTime();
+		this.xml.write("<sheetData>");
+		int rowNum = 0;
+		
+		// if we have a header row
+		if (!eehSheet.getHeaders().isEmpty()) {
+			byte[] headerRow = eehSheet.getHeaderRow();
+			
+			// a row encoded ahead uses the styles of a new workbook
+			if (headerRow != null && this.headerStyle == HEADER_STYLE) {
+				this.xml.write(headerRow);
+			} else {
+				writeHeaderRow(eehSheet.getHeaders());
+			}
+			rowNum++;
+		}
+		mark = EEHExcelFileWriter.addPhaseNanos(summary, EEHExportPhase.STYLE_HEADERS, mark);
+		
+		// set cell data
+		boolean full = writeRows(rows, rowNum, hyperlinks, summary);
+		
+		this.xml.write("</sheetData>");
+		EEHExcelFileWriter.addPhaseNanos(summary, EEHExportPhase.POPULATE_CELLS, mark);
+		return full;
+	}
+	
+	/**
+	 * Writes the header row, as the first row of a sheet. A null header 
+	 * is written as a blank cell with the header style, as POI does.
+	 * @param headers List<String> 
+	 * @throws IOException
+	 */
+	private void writeHeaderRow(List<String> headers) throws IOException {
+		this.xml.write("<row r=\"1\">");
+		
+		int colNum = 0;
+		for (String header : headers) {
+			if (header == null) {
+				writeCellStart(colNum++, 0).write("\" s=\"").write(this.headerStyle).write("\"/>");
+			} else {
+				writeTextCell(colNum++, 0, header, this.headerStyle);
+			}
+		}
+		this.xml.write("</row>");
+	}
+	
+	/**
+	 * Encodes a header row once, so it can be written to any number of new workbooks 
+	 * as it is. The text is written in the cells, so the row does not depend on the 
+	 * shared strings of a workbook. 
+	 * @param headers List<String> 
+	 * @return byte[] 
+	 * @throws IOException
+	 */
+	protected static byte[] encodeHeaderRow(List<String> headers) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EEHXmlWriter xml = new EEHXmlWriter(out);
+		
+		EEHDirectWorkbookWriter writer = new EEHDirectWorkbookWriter(null, xml, null, 
+				EEHColumnSizing.NONE, 0, HEADER_STYLE, HYPERLINK_STYLE);
+		writer.writeHeaderRow(headers);
+		xml.flush();
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Writes the rows of the cursor from the given row on, until the 
+	 * rows run out or the sheet reaches its row limit. 
+	 * @param rows EEHRowCursor 
+	 * @param firstRowNum int The index of the first row written, after the rows already in the sheet.
+	 * @param hyperlinks Hyperlinks 
+	 * @param summary EEHSheetSummary 
+	 * @return boolean True when the sheet is full and rows remain.
+	 * @throws EEHException
+	 * @throws IOException
+	 */
+	private boolean writeRows(EEHRowCursor rows, int firstRowNum, Hyperlinks hyperlinks, 
+			EEHSheetSummary summary) throws EEHException, IOException {
+		
+		int rowNum = firstRowNum;
+		int rowLimit = this.rollover.getSheetRowLimit(firstRowNum);
+		boolean full = false;
+		
+		EEHRow row;
+		while ((row = rows.next()) != null) {
+			if (rowNum >= rowLimit) {
+				// the row is left for the sheet that continues this one
+				rows.pushBack();
+				full = true;
+				break;
+			}
+			writeRow(rowNum++, row, hyperlinks);
+			summary.countRow(row);
+		}
+		this.rollover.addRows(rowNum - firstRowNum);
+		return full;
+	}
+	
+	private void writeRow(int rowNum, EEHRow row, Hyperlinks hyperlinks) throws IOException {
+		if (rowNum >= MAX_ROWS) {
+			throw new IllegalArgumentException(EXCEPTION_TOO_MANY_ROWS);
+		}
+		if (row.size() > MAX_COLUMNS) {
+			throw new IllegalArgumentException(EXCEPTION_TOO_MANY_COLUMNS);
+		}
+		
+		this.xml.write("<row r=\"").write(rowNum + 1).write("\">");
+		
+		for (int colNum = 0; colNum < row.size(); colNum++) {
+			
+			switch (row.getKind(colNum)) {
+			
+			case NUMBER:
+				writeNumberCell(colNum, rowNum, row.getNumber(colNum));
+				break;
+				
+			case BOOLEAN:
+				writeCellStart(colNum, rowNum).write("\" t=\"b\"><v>")
+					.write(row.getBoolean(colNum) ? "1" : "0").write("</v></c>");
+				break;
+				
+			case HYPERLINK:
+				writeTextCell(colNum, rowNum, row.getText(colNum), this.hyperlinkStyle);
+				hyperlinks.add(rowNum, colNum, row.getText(colNum));
+				break;
+				
+			case TEXT:
+				writeTextCell(colNum, rowNum, row.getText(colNum), 0);
+				break;
+				
+			case BLANK:
+			default:
+				writeCellStart(colNum, rowNum).write("\"/>");
+				break;
+			}
+		}
+		
+		this.xml.write("</row>");
+	}
+	
+	private void writeNumberCell(int colNum, int rowNum, double number) throws IOException {
+		if (Double.isInfinite(number)) {
+			// written as error values, as POI does
+			writeCellStart(colNum, rowNum).write("\" t=\"e\"><v>#DIV/0!</v></c>");
+		} else if (Double.isNaN(number)) {
+			writeCellStart(colNum, rowNum).write("\" t=\"e\"><v>#NUM!</v></c>");
+		} else {
+			writeCellStart(colNum, rowNum).write("\"><v>").write(number).write("</v></c>");
+		}
+	}
+	
+	/**
+	 * Writes a text cell, through the shared strings while the dictionary has room.
+	 * @param colNum int 
+	 * @param rowNum int 
+	 * @param text String 
+	 * @param style int The index of the cell style, or zero for the default style.
+	 * @throws IOException
+	 */
+	private void writeTextCell(int colNum, int rowNum, String text, int style) throws IOException {
+		if (text.length() > MAX_TEXT_LENGTH) {
+			throw new IllegalArgumentException(EXCEPTION_TEXT_TOO_LONG);
+		}
+		
+		writeCellStart(colNum, rowNum);
+		if (style != 0) {
+			this.xml.write("\" s=\"").write(style);
+		}
+		
+		int index = sharedStringIndex(text);
+		if (index >= 0) {
+			this.xml.write("\" t=\"s\"><v>").write(index).write("</v></c>");
+		} else {
+			this.xml.write("\" t=\"inlineStr\"><is>");
+			writeTextElement(text);
+			this.xml.write("</is></c>");
+		}
+	}
+	
+	/**
+	 * Writes the start of a cell element, up to the open quote after its reference.
+	 * @param colNum int 
+	 * @param rowNum int 
+	 * @return EEHXmlWriter
+	 * @throws IOException
+	 */
+	private EEHXmlWriter writeCellStart(int colNum, int rowNum) throws IOException {
+		return this.xml.write("<c r=\"").write(getColumnName(colNum)).write(rowNum + 1);
+	}
+	
+	private void writeTextElement(String text) throws IOException {
+		if (EEHXmlWriter.needsPreservedSpace(text)) {
+			this.xml.write("<t xml:space=\"preserve\">");
+		} else {
+			this.xml.write("<t>");
+		}
+		this.xml.writeText(text).write("</t>");
+	}
+	
+	/**
+	 * Returns the shared string index of the text, adding it when there is room. 
+	 * @param text String 
+	 * @return int The index, or -1 when the dictionary is full and does not hold the text.
+	 */
+	private int sharedStringIndex(String text) {
+		Integer index = this.sharedStrings.get(text);
+		
+		if (index == null) {
+			if (this.sharedStrings.size() >= this.sharedStringLimit) {
+				return -1;
+			}
+			index = this.sharedStringValues.size();
+			this.sharedStrings.put(text, index);
+			this.sharedStringValues.add(text);
+		}
+		this.sharedStringCount++;
+		return index;
+	}
+	
+	/**
+	 * Returns the reference of a column, such as "A" for the first column.
+	 * @param colNum int 
+	 * @return byte[]
+	 */
+	private byte[] getColumnName(int colNum) {
+		if (colNum >= this.columnNames.length) {
+			this.columnNames = Arrays.copyOf(this.columnNames, Math.max(colNum + 1, this.columnNames.length * 2));
+		}
+		byte[] name = this.columnNames[colNum];
+		
+		if (name == null) {
+			StringBuilder letters = new StringBuilder();
+			for (int n = colNum + 1; n > 0; n = (n - 1) / 26) {
+				letters.insert(0, (char) ('A' + (n - 1) % 26));
+			}
+			name = letters.toString().getBytes(StandardCharsets.US_ASCII);
+			this.columnNames[colNum] = name;
+		}
+		return name;
+	}
+	
+	private void writeSheetEnd(Hyperlinks hyperlinks) throws IOException {
+		if (hyperlinks.count > 0) {
+			this.xml.write("<hyperlinks>");
+			writeHyperlinks(hyperlinks);
+			this.xml.write("</hyperlinks>");
+		}
+		this.xml.write("</worksheet>");
+	}
+	
+	/**
+	 * Writes a hyperlink element for each hyperlink cell. 
+	 * @param hyperlinks Hyperlinks 
+	 * @throws IOException
+	 */
+	protected void writeHyperlinks(Hyperlinks hyperlinks) throws IOException {
+		int[] link = hyperlinks.links;
+		
+		for (int i = 0; i < hyperlinks.count; i++) {
+			this.xml.write("<hyperlink ref=\"").write(getColumnName(link[i * 3 + 1])).write(link[i * 3] + 1)
+				.write("\" r:id=\"rId").write(hyperlinks.firstId + link[i * 3 + 2]).write("\"/>");
+		}
+	}
+	
+	/**
+	 * Writes a relationship element for each distinct hyperlink address. 
+	 * @param hyperlinks Hyperlinks 
+	 * @throws IOException
+	 */
+	protected void writeHyperlinkRelationships(Hyperlinks hyperlinks) throws IOException {
+		for (int i = 0; i < hyperlinks.addresses.size(); i++) {
+			this.xml.write("<Relationship Id=\"rId").write(hyperlinks.firstId + i).write("\" Type=\"").write(HYPERLINK_RELATIONSHIP)
+				.write("\" Target=\"").writeAttribute(hyperlinks.addresses.get(i)).write("\" TargetMode=\"External\"/>");
+		}
+	}
+	
+	private void writeSheetRelationships(int sheetNum, Hyperlinks hyperlinks) throws IOException {
+		putEntry("xl/worksheets/_rels/sheet" + sheetNum + ".xml.rels");
+		this.xml.write(XML_DECLARATION).write("<Relationships xmlns=\"").write(PACKAGE_RELATIONSHIPS_NAMESPACE).write("\">");
+		writeHyperlinkRelationships(hyperlinks);
+		this.xml.write("</Relationships>");
+		this.xml.flush();
+		closeEntry();
+	}
+	
+	private void writeContentTypes() throws IOException {
+		this.zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+		this.xml.write(XML_DECLARATION)
+			.write("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+			.write("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+			.write("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+			.write("<Override PartName=\"/xl/workbook.xml\" ")
+			.write("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+		
+		for (int i = 1; i <= this.sheetNames.size(); i++) {
+			this.xml.write("<Override PartName=\"/xl/worksheets/sheet").write(i).write(".xml\" ")
+				.write("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+		}
+		
+		this.xml.write("<Override PartName=\"/xl/styles.xml\" ")
+			.write("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>")
+			.write("<Override PartName=\"/xl/sharedStrings.xml\" ")
+			.write("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>")
+			.write("</Types>");
+		this.xml.flush();
+		this.zip.closeEntry();
+	}
+	
+	private void writeWorkbook() throws IOException {
+		this.zip.putNextEntry(new ZipEntry("xl/workbook.xml"));
+		this.xml.write(XML_DECLARATION).write("<workbook xmlns=\"").write(MAIN_NAMESPACE)
+			.write("\" xmlns:r=\"").write(RELATIONSHIPS_NAMESPACE).write("\"><sheets>");
+		
+		for (int i = 1; i <= this.sheetNames.size(); i++) {
+			this.xml.write("<sheet name=\"").writeAttribute(this.sheetNames.get(i - 1))
+				.write("\" sheetId=\"").write(i).write("\" r:id=\"rId").write(i).write("\"/>");
+		}
+		this.xml.write("</sheets></workbook>");
+		this.xml.flush();
+		this.zip.closeEntry();
+		
+		// the sheets are followed by the styles and shared strings
+		int count = this.sheetNames.size();
+		this.zip.putNextEntry(new ZipEntry("xl/_rels/workbook.xml.rels"));
+		this.xml.write(XML_DECLARATION).write("<Relationships xmlns=\"").write(PACKAGE_RELATIONSHIPS_NAMESPACE).write("\">");
+		
+		for (int i = 1; i <= count; i++) {
+			this.xml.write("<Relationship Id=\"rId").write(i).write("\" Type=\"").write(RELATIONSHIPS_NAMESPACE)
+				.write("/worksheet\" Target=\"worksheets/sheet").write(i).write(".xml\"/>");
+		}
+		this.xml.write("<Relationship Id=\"rId").write(count + 1).write("\" Type=\"").write(RELATIONSHIPS_NAMESPACE)
+			.write("/styles\" Target=\"styles.xml\"/>")
+			.write("<Relationship Id=\"rId").write(count + 2).write("\" Type=\"").write(RELATIONSHIPS_NAMESPACE)
+			.write("/sharedStrings\" Target=\"sharedStrings.xml\"/>")
+			.write("</Relationships>");
+		this.xml.flush();
+		this.zip.closeEntry();
+	}
+	
+	/**
+	 * Writes a part whose content never changes.
+	 * @param name String 
+	 * @param content String ASCII markup.
+	 * @throws IOException
+	 */
+	private void writePart(String name, String content) throws IOException {
+		this.zip.putNextEntry(new ZipEntry(name));
+		this.xml.write(content);
+		this.xml.flush();
+		this.zip.closeEntry();
+	}
+	
+	/**
+	 * Starts a part of the archive, which the writer of the 
+	 * archive being written to writes through. 
+	 * @param name String 
+	 * @throws IOException
+	 */
+	private void putEntry(String name) throws IOException {
+		if (this.archive != null) {
+			this.archive.putArchiveEntry(new ZipArchiveEntry(name));
+		} else {
+			this.zip.putNextEntry(new ZipEntry(name));
+		}
+	}
+	
+	private void closeEntry() throws IOException {
+		if (this.archive != null) {
+			this.archive.closeArchiveEntry();
+		} else {
+			this.zip.closeEntry();
+		}
+	}
+	
+	/**
+	 * The hyperlink cells of a sheet, with one relationship per distinct address.
+	 */
+	protected static final class Hyperlinks {
+		
+		private Map<String, Integer> relationships = new HashMap<>();
+		private List<String> addresses = new ArrayList<>();
+		
+		/**
+		 * The row, column and relationship index of each hyperlink cell.
+		 */
+		private int[] links = new int[48];
+		private int count = 0;
+		
+		/**
+		 * The number in the id of the first relationship, as in "rId1".
+		 */
+		private int firstId;
+		
+		/**
+		 * Constructor. 
+		 * @param firstId int The number in the id of the first relationship, 
+		 * after those already used by the sheet.
+		 */
+		protected Hyperlinks(int firstId) {
+			this.firstId = firstId;
+		}
+		
+		/**
+		 * Returns true when there are hyperlink cells, 
+		 * which each need a relationship.
+		 * @return boolean 
+		 */
+		protected boolean hasRelationships() {
+			return this.count > 0;
+		}
+		
+		private void add(int rowNum, int colNum, String address) {
+			Integer relationship = this.relationships.get(address);
+			
+			if (relationship == null) {
+				try {
+					new URI(address);
+				} catch (URISyntaxException ex) {
+					throw new IllegalArgumentException(EXCEPTION_INVALID_ADDRESS + address, ex);
+				}
+				relationship = this.addresses.size();
+				this.relationships.put(address, relationship);
+				this.addresses.add(address);
+			}
+			
+			if ((this.count + 1) * 3 > this.links.length) {
+				this.links = Arrays.copyOf(this.links, this.links.length * 2);
+			}
+			this.links[this.count * 3] = rowNum;
+			this.links[this.count * 3 + 1] = colNum;
+			this.links[this.count * 3 + 2] = relationship;
+			this.count++;
+		}
+	}
+}
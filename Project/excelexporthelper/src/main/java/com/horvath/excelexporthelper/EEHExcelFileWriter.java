@@ -24,24 +24,41 @@
 
 package com.horvath.excelexporthelper;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.MalformedURLException;
-import java.net.URISyntaxException;
-import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Deflater;
 
-import org.apache.poi.common.usermodel.HyperlinkType;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.CreationHelper;
-import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Hyperlink;
-import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
@@ -51,7 +68,45 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 final public class EEHExcelFileWriter {
 	
 	private File file;
+	private File currentFile;
+	private OutputStream outputStream;
 	private List<EEHSheet> sheets;
+	private EEHWriteMode writeMode;
+	private int rowWindowSize;
+	private EEHColumnSizing columnSizing;
+	private ExecutorService executor;
+	private int sharedStringLimit;
+	private Set<String> hyperlinkSchemes;
+	private EEHSharedStringsTable sharedStrings;
+	private EEHCompression compression;
+	private ExecutorService compressionExecutor;
+	private List<EEHExportListener> listeners;
+	private EEHRollover rollover;
+	private int outputBufferSize;
+	private boolean atomicWrite;
+	private boolean syncToDisk;
+	private boolean append;
+	
+	/**
+	 * The hidden file beside the current file that is being written, 
+	 * which is moved into place once it is complete, or null.
+	 */
+	private Path pendingFile;
+	
+	/**
+	 * The complete pending files, each with the file it is moved to. They are 
+	 * moved into place together once the last file of the export is written. 
+	 */
+	private Map<Path, Path> completedFiles;
+	
+	/**
+	 * The uncompressed archive written before its parts are compressed 
+	 * on the compression executor, or null when it is not used. 
+	 */
+	private Path storedArchive;
+	
+	public static final String EXCEPTION_PREPARATION_INTERRUPTED = "Interrupted while preparing sheet data.";
+	public static final String EXCEPTION_PREPARATION_FAILED = "Unexpected failure while preparing sheet data. ";
 	
 	/**
 	 * Constructor. 
@@ -59,47 +114,466 @@ final public class EEHExcelFileWriter {
 	 * @param sheets List<EEHSheet>
 	 */
 	protected EEHExcelFileWriter(File file, List<EEHSheet> sheets) {
+		this(sheets);
 		this.file = file;
+		this.currentFile = file;
+	}
+	
+	/**
+	 * Constructor for writing the workbook to a stream. 
+	 * The stream is not closed when the workbook has been written. 
+	 * @param outputStream OutputStream
+	 * @param sheets List<EEHSheet>
+	 */
+	protected EEHExcelFileWriter(OutputStream outputStream, List<EEHSheet> sheets) {
+		this(sheets);
+		this.outputStream = outputStream;
+	}
+	
+	private EEHExcelFileWriter(List<EEHSheet> sheets) {
 		this.sheets = sheets;
+		this.writeMode = EEHWriteMode.IN_MEMORY;
+		this.rowWindowSize = ExcelExportHelper.DEFAULT_ROW_WINDOW_SIZE;
+		this.columnSizing = EEHColumnSizing.ESTIMATED;
+		this.executor = null;
+		this.sharedStringLimit = ExcelExportHelper.DEFAULT_SHARED_STRING_LIMIT;
+		this.compression = EEHCompression.DEFAULT;
+		this.compressionExecutor = null;
+		this.listeners = Collections.emptyList();
+		this.rollover = new EEHRollover(sheets);
+		this.outputBufferSize = ExcelExportHelper.DEFAULT_OUTPUT_BUFFER_SIZE;
+		this.atomicWrite = true;
+		this.syncToDisk = false;
+		this.append = false;
+		this.completedFiles = new LinkedHashMap<>();
 	}
 	
 	/**
 	 * Triggers operations to prepare data for Excel 
 	 * file generation and writes the file.
+	 * @return EEHExportSummary The timings and cell counts of the export.
 	 * @throws EEHException 
 	 */
-	protected void writeFile() throws EEHException {
+	protected EEHExportSummary writeFile() throws EEHException {
+		
+		long start = System.nanoTime();
+		EEHExportSummary summary = new EEHExportSummary(this.writeMode);
+		
+		// with an executor the sheets are prepared at the same time, 
+		// otherwise each row is prepared just before it is written
+		List<Future<List<EEHRow>>> preparedRows = null;
+		List<EEHSheetPreparer> preparers = new ArrayList<>(this.sheets.size());
+		List<EEHStoppableTask<List<EEHRow>>> preparations = new ArrayList<>(this.sheets.size());
 		
-        XSSFWorkbook workbook = new XSSFWorkbook();
+		for (EEHSheet eehSheet : this.sheets) {
+			preparers.add(new EEHSheetPreparer(eehSheet, this.hyperlinkSchemes));
+		}
+		if (this.executor != null) {
+			preparedRows = prepareSheets(preparers, preparations);
+		}
+		
+        Workbook workbook = null;
         
-        for (EEHSheet eehSheet : this.sheets) {
-        	// create and populate XSSFSheets 
-        	createSheet(eehSheet, workbook);
+        try {
+        	if (this.append) {
+        		// the sheets are added to the existing file
+        		appendDirect(preparers, preparedRows, summary);
+        		
+        	} else if (this.writeMode == EEHWriteMode.DIRECT) {
+        		// the file is written as the sheets are read, without a workbook
+        		writeDirect(preparers, preparedRows, summary);
+        		
+        	} else {
+        		workbook = createWorkbook();
+        		// styles are shared by all sheets of the workbook
+        		EEHStyleRegistry styles = new EEHStyleRegistry(workbook);
+        		
+        		for (int i = 0; i < this.sheets.size(); i++) {
+        			EEHSheet eehSheet = this.sheets.get(i);
+        			List<EEHRow> rows = preparedRows == null ? null : awaitPreparedRows(preparedRows.get(i));
+        			EEHSheetSummary sheetSummary = summary.addSheet(eehSheet.getSheetName());
+        			EEHRowCursor cursor = new EEHRowCursor(preparers.get(i), rows);
+        			
+        			// create and populate the sheets in order, continuing 
+        			// on new sheets and files once they are full
+        			boolean moreRows;
+        			do {
+        				if (this.rollover.isFileFull()) {
+        					completeWorkbook(workbook, summary);
+        					startNextFile();
+        					workbook = createWorkbook();
+        					styles = new EEHStyleRegistry(workbook);
+        				}
+        				moreRows = createSheet(eehSheet, cursor, workbook, styles, sheetSummary);
+        			} while (moreRows);
+        			sheetCompleted(sheetSummary);
+        		}
+        		
+        		// perform file writing operations 
+        		completeWorkbook(workbook, summary);
+        	}
+        	
+        	// every file is written, so the files of the export replace the old files together
+        	commitFiles();
+        	
+        	summary.setTotalNanos(System.nanoTime() - start);
+        	
+        } catch (EEHException | RuntimeException ex) {
+        	deleteRolloverFiles();
+        	summary.setTotalNanos(System.nanoTime() - start);
+        	exportFailed(summary, ex);
+        	throw ex;
+        	
+        } finally {
+        	if (preparedRows != null) {
+        		// stop any preparation still running after a failure
+        		for (Future<List<EEHRow>> future : preparedRows) {
+        			future.cancel(true);
+        		}
+        	}
+        	for (EEHStoppableTask<List<EEHRow>> preparation : preparations) {
+        		// a row source is only closed once nothing is reading it
+        		preparation.awaitStopped();
+        	}
+        	for (EEHSheetPreparer preparer : preparers) {
+        		// row sources are closed even if they were never read
+        		preparer.closeQuietly();
+        	}
+        	if (workbook instanceof SXSSFWorkbook) {
+        		// remove the temporary files backing the flushed rows
+        		((SXSSFWorkbook) workbook).dispose();
+        	}
+        	deleteStoredArchive();
+        	deletePendingFiles();
         }
         
-        // perform file writing operations 
-        generateFile(workbook);
+        // the export is complete, so a failing listener cannot undo it
+        exportCompleted(summary);
+        return summary;
 	}
 	
 	/**
-	 * Creates the Excel sheet and populates it data.
+	 * Tells the listeners the export is complete. A listener that 
+	 * throws does not change the outcome of the export. 
+	 * @param summary EEHExportSummary
+	 */
+	private void exportCompleted(EEHExportSummary summary) {
+		for (EEHExportListener listener : this.listeners) {
+			try {
+				listener.exportCompleted(summary);
+			} catch (RuntimeException ex) {
+				// the files are written, and the other listeners are still told
+			}
+		}
+	}
+	
+	/**
+	 * Tells the listeners the export failed. A listener that 
+	 * throws does not hide the failure of the export. 
+	 * @param summary EEHExportSummary
+	 * @param failure Exception 
+	 */
+	private void exportFailed(EEHExportSummary summary, Exception failure) {
+		for (EEHExportListener listener : this.listeners) {
+			try {
+				listener.exportFailed(summary, failure);
+			} catch (RuntimeException ex) {
+				// the failure of the export is the one reported
+			}
+		}
+	}
+	
+	/**
+	 * Writes the file directly as XML, one sheet after another. 
+	 * @param preparers List<EEHSheetPreparer>
+	 * @param preparedRows List<Future<List<EEHRow>>> The rows prepared on the executor, or null.
+	 * @param summary EEHExportSummary
+	 * @throws EEHException
+	 */
+	private void writeDirect(List<EEHSheetPreparer> preparers, List<Future<List<EEHRow>>> preparedRows, 
+			EEHExportSummary summary) throws EEHException {
+		
+		try {
+			OutputStream os = openArchiveOutput();
+			try {
+				EEHDirectWorkbookWriter writer = new EEHDirectWorkbookWriter(os, this.rollover, 
+						this.columnSizing, this.sharedStringLimit, archiveLevel());
+				
+				for (int i = 0; i < this.sheets.size(); i++) {
+					EEHSheet eehSheet = this.sheets.get(i);
+					List<EEHRow> rows = preparedRows == null ? null : awaitPreparedRows(preparedRows.get(i));
+					EEHSheetSummary sheetSummary = summary.addSheet(eehSheet.getSheetName());
+					EEHRowCursor cursor = new EEHRowCursor(preparers.get(i), rows);
+					
+					boolean moreRows;
+					do {
+						if (this.rollover.isFileFull()) {
+							completeDirect(writer, os, summary);
+							startNextFile();
+							os = openArchiveOutput();
+							writer = new EEHDirectWorkbookWriter(os, this.rollover, 
+									this.columnSizing, this.sharedStringLimit, archiveLevel());
+						}
+						moreRows = writer.writeSheet(eehSheet, cursor, sheetSummary);
+					} while (moreRows);
+					sheetCompleted(sheetSummary);
+				}
+				
+				completeDirect(writer, os, summary);
+				
+			} finally {
+				os.close();
+			}
+			
+		} catch (IOException ex) {
+			throw new EEHException("Unexpected IO exception. " + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Appends the sheets to the existing file, writing the new rows directly as XML. 
+	 * The rows of a sheet the file already holds are added after its last row, and 
+	 * other sheets are added after the sheets of the file. The appended file is 
+	 * always written beside the file and moved into place once it is complete. 
+	 * @param preparers List<EEHSheetPreparer>
+	 * @param preparedRows List<Future<List<EEHRow>>> The rows prepared on the executor, or null.
+	 * @param summary EEHExportSummary
+	 * @throws EEHException
+	 */
+	private void appendDirect(List<EEHSheetPreparer> preparers, List<Future<List<EEHRow>>> preparedRows, 
+			EEHExportSummary summary) throws EEHException {
+		
+		try {
+			long mark;
+			try (EEHWorkbookAppender appender = new EEHWorkbookAppender(this.file)) {
+				OutputStream os = openOutput();
+				try {
+					appender.start(os, this.rollover, this.columnSizing, this.compression.getLevel());
+					
+					for (int i = 0; i < this.sheets.size(); i++) {
+						EEHSheet eehSheet = this.sheets.get(i);
+						List<EEHRow> rows = preparedRows == null ? null : awaitPreparedRows(preparedRows.get(i));
+						EEHSheetSummary sheetSummary = summary.addSheet(eehSheet.getSheetName());
+						EEHRowCursor cursor = new EEHRowCursor(preparers.get(i), rows);
+						
+						// rows that do not fit continue on new sheets, as when writing a file
+						boolean moreRows = appender.hasSheet(eehSheet.getSheetName()) 
+								? appender.appendRows(eehSheet, cursor, sheetSummary) 
+								: appender.addSheet(eehSheet, cursor, sheetSummary);
+						while (moreRows) {
+							moreRows = appender.addSheet(eehSheet, cursor, sheetSummary);
+						}
+						sheetCompleted(sheetSummary);
+					}
+					
+					mark = System.nanoTime();
+					appender.finish();
+					
+				} finally {
+					os.close();
+				}
+			}
+			
+			// the file is only replaced once it has been closed
+			completeFile();
+			summary.addWriteFileNanos(System.nanoTime() - mark);
+			summary.addFile(this.file);
+			
+		} catch (IOException ex) {
+			throw new EEHException("Unexpected IO exception. " + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Completes a file written directly. 
+	 * @param writer EEHDirectWorkbookWriter
+	 * @param os OutputStream The stream the file is written to, which is closed.
+	 * @param summary EEHExportSummary
+	 * @throws IOException
+	 * @throws EEHException
+	 */
+	private void completeDirect(EEHDirectWorkbookWriter writer, OutputStream os, 
+			EEHExportSummary summary) throws IOException, EEHException {
+		
+		long mark = System.nanoTime();
+		writer.finish();
+		os.close();
+		completeArchive();
+		completeFile();
+		deleteStoredArchive();
+		summary.addWriteFileNanos(System.nanoTime() - mark);
+		
+		if (this.currentFile != null) {
+			summary.addFile(this.currentFile);
+		}
+	}
+	
+	/**
+	 * Writes a populated workbook to its file and releases it. 
+	 * @param workbook Workbook
+	 * @param summary EEHExportSummary
+	 * @throws EEHException
+	 */
+	private void completeWorkbook(Workbook workbook, EEHExportSummary summary) throws EEHException {
+		long mark = System.nanoTime();
+		generateFile(workbook);
+		
+		if (workbook instanceof SXSSFWorkbook) {
+			((SXSSFWorkbook) workbook).dispose();
+		}
+		deleteStoredArchive();
+		summary.addWriteFileNanos(System.nanoTime() - mark);
+		
+		if (this.currentFile != null) {
+			summary.addFile(this.currentFile);
+		}
+	}
+	
+	/**
+	 * Starts the next file once the current file holds its row budget. 
+	 */
+	private void startNextFile() {
+		if (this.file == null) {
+			throw new IllegalStateException(ExcelExportHelper.EXCEPTION_FILE_ROLLOVER_TO_STREAM);
+		}
+		this.rollover.startFile();
+		this.currentFile = this.rollover.getFile(this.file);
+	}
+	
+	/**
+	 * Deletes the files the rows continued in after a failure, so only 
+	 * the file of the export is left, as when no file was full. With atomic 
+	 * writes no file of the export has been moved into place, so the files 
+	 * of an earlier export are left as they were. 
+	 */
+	private void deleteRolloverFiles() {
+		if (this.file == null || this.atomicWrite) {
+			return;
+		}
+		for (File rolloverFile : this.rollover.getRolloverFiles(this.file)) {
+			try {
+				Files.deleteIfExists(rolloverFile.toPath());
+			} catch (IOException ex) {
+				// the failure that stopped the write is the one reported
+			}
+		}
+	}
+	
+	private void sheetCompleted(EEHSheetSummary sheetSummary) {
+		for (EEHExportListener listener : this.listeners) {
+			try {
+				listener.sheetCompleted(sheetSummary);
+			} catch (RuntimeException ex) {
+				// a listener cannot stop the export
+			}
+		}
+	}
+	
+	/**
+	 * Submits the preparation of every sheet to the executor. 
+	 * @param preparers List<EEHSheetPreparer>
+	 * @param preparations List<EEHStoppableTask<List<EEHRow>>> The submitted tasks are added to this list.
+	 * @return List<Future<List<EEHRow>>> The prepared rows of each sheet, in sheet order.
+	 */
+	private List<Future<List<EEHRow>>> prepareSheets(List<EEHSheetPreparer> preparers, 
+			List<EEHStoppableTask<List<EEHRow>>> preparations) {
+		List<Future<List<EEHRow>>> futures = new ArrayList<>(preparers.size());
+		
+		for (final EEHSheetPreparer preparer : preparers) {
+			EEHStoppableTask<List<EEHRow>> preparation = new EEHStoppableTask<>(new Callable<List<EEHRow>>() {
+				@Override
+				public List<EEHRow> call() throws EEHException {
+					return preparer.prepareAll();
+				}
+			});
+			futures.add(this.executor.submit(preparation));
+			preparations.add(preparation);
+		}
+		return futures;
+	}
+	
+	/**
+	 * Waits for the preparation of a sheet to complete. 
+	 * @param future Future<List<EEHRow>>
+	 * @return List<EEHRow>
+	 * @throws EEHException
+	 */
+	private List<EEHRow> awaitPreparedRows(Future<List<EEHRow>> future) throws EEHException {
+		try {
+			return future.get();
+			
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new EEHException(EXCEPTION_PREPARATION_INTERRUPTED, ex);
+			
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof EEHException) {
+				throw (EEHException) ex.getCause();
+			} else if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new EEHException(EXCEPTION_PREPARATION_FAILED + ex.getCause().getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Creates the workbook implementation for the current write mode.
+	 * @return Workbook
+	 */
+	protected Workbook createWorkbook() {
+		if (this.writeMode == EEHWriteMode.STREAMING) {
+			final int level = archiveLevel();
+			
+			// only the most recent rows are kept in memory, older rows are flushed to disk
+			return new SXSSFWorkbook(this.rowWindowSize) {
+				@Override
+				protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
+					ZipArchiveOutputStream zos = super.createArchiveOutputStream(out);
+					zos.setLevel(level);
+					return zos;
+				}
+			};
+		}
+		
+		// repeated text is written through a bounded dictionary of shared strings
+		XSSFWorkbook workbook = new XSSFWorkbook(new EEHSharedStringsTable.Factory(this.sharedStringLimit));
+		this.sharedStrings = (EEHSharedStringsTable) workbook.getSharedStringSource();
+		return workbook;
+	}
+	
+	/**
+	 * Creates the Excel sheet and populates it with the rows of the cursor, 
+	 * until the rows run out or the sheet reaches its row limit. 
 	 * @param eehSheet EEHSheet
-	 * @param workbook XSSFWorkbook
+	 * @param rows EEHRowCursor The rows of the sheet. 
+	 * @param workbook Workbook
+	 * @param styles EEHStyleRegistry
+	 * @param summary EEHSheetSummary The summary the timings and cell counts of the sheet are added to.
+	 * @return boolean True when the sheet is full and rows remain for a sheet that continues it.
+	 * @throws EEHException 
 	 */
-	private void createSheet(EEHSheet eehSheet, XSSFWorkbook workbook) {
+	protected boolean createSheet(EEHSheet eehSheet, EEHRowCursor rows, Workbook workbook, 
+			EEHStyleRegistry styles, EEHSheetSummary summary) throws EEHException {
 		
-		XSSFSheet xssfSheet = workbook.createSheet(eehSheet.getSheetName());
+		long mark = System.nanoTime();
+		String sheetName = this.rollover.startSheet(eehSheet);
+		Sheet sheet = workbook.createSheet(sheetName);
+		summary.addWorkbookSheetName(sheetName);
+		EEHHyperlinkRegistry hyperlinks = new EEHHyperlinkRegistry();
 		int rowNum = 0;
 		
+		if (sheet instanceof SXSSFSheet && this.columnSizing == EEHColumnSizing.EXACT) {
+			// flushed rows can no longer be measured, so track widths while rows are written
+			((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
+		}
+		mark = addPhaseNanos(summary, EEHExportPhase.CREATE_SHEET, mark);
+		
 		// if we have a header row
 		if (!eehSheet.getHeaders().isEmpty()) {
-            Row row = xssfSheet.createRow(rowNum++);
+            Row row = sheet.createRow(rowNum++);
             
-            // setup bold style for use in header row cells
-            CellStyle style = workbook.createCellStyle();
-            Font font = workbook.createFont();
-            font.setBold(true);
-            style.setFont(font);
+            // bold style for use in header row cells
+            CellStyle style = styles.getHeaderStyle();
             
             int colNum = 0;
             // set the header row cells
@@ -109,73 +583,151 @@ final public class EEHExcelFileWriter {
                 cell.setCellStyle(style);
             }
 		}
+		mark = addPhaseNanos(summary, EEHExportPhase.STYLE_HEADERS, mark);
 		
 		// set cell data
-		for (List<String> rowData : eehSheet.getData()) {
-            Row row = xssfSheet.createRow(rowNum++);
-
-            int colNum = 0;
-            for (String data : rowData) {
-                Cell cell = row.createCell(colNum++);
-            	
-                if (data == null) {
-                	continue;
-                	
-            	} else if (canParseDouble(data)) {
-        			double num = Double.parseDouble(data);
-        			cell.setCellValue(num);
-        			
-            	} else if (canParseUrl(data)) {
-            		// set the URL link data 
-            		CreationHelper createHelper = workbook.getCreationHelper();
-            		Hyperlink link = createHelper.createHyperlink(HyperlinkType.URL);
-            		link.setAddress(data);
-            		
-            		// set style for URL link
-            		CellStyle linkStyle = workbook.createCellStyle();
-            		Font linkFont = workbook.createFont();
-            		linkFont.setUnderline(Font.U_SINGLE);
-            		linkFont.setColor(IndexedColors.BLUE.getIndex());
-            		linkStyle.setFont(linkFont);
-            		
-            		// set the cell 
-            		cell.setCellValue(data);
-            		cell.setHyperlink(link);
-            		cell.setCellStyle(linkStyle);
-            		
-            	} else if (canParseBoolean(data.trim())) {
-            		boolean bool = Boolean.parseBoolean(data.trim());
-            		cell.setCellValue(bool);
-            		
-            	} else {
-            		// set data in the cell as a string
-                    cell.setCellValue(data);
-            	}
-            }
+		int headerRows = rowNum;
+		int rowLimit = this.rollover.getSheetRowLimit(headerRows);
+		boolean full = false;
+		
+		EEHRow row;
+		while ((row = rows.next()) != null) {
+			if (rowNum >= rowLimit) {
+				// the row is left for the sheet that continues this one
+				rows.pushBack();
+				full = true;
+				break;
+			}
+			writeRow(sheet.createRow(rowNum++), row, styles, hyperlinks);
+			summary.countRow(row);
+		}
+		this.rollover.addRows(rowNum - headerRows);
+		mark = addPhaseNanos(summary, EEHExportPhase.POPULATE_CELLS, mark);
+		
+		sizeColumns(sheet, rows.getWidths());
+		addPhaseNanos(summary, EEHExportPhase.SIZE_COLUMNS, mark);
+		return full;
+	}
+	
+	/**
+	 * Adds the time since the given mark to a phase of the sheet. 
+	 * @param summary EEHSheetSummary
+	 * @param phase EEHExportPhase
+	 * @param mark long The System.nanoTime() the phase started at.
+	 * @return long The System.nanoTime() the phase ended at, to start the next phase from.
+	 */
+	protected static long addPhaseNanos(EEHSheetSummary summary, EEHExportPhase phase, long mark) {
+		long now = System.nanoTime();
+		summary.addPhaseNanos(phase, now - mark);
+		return now;
+	}
+	
+	/**
+	 * Sets the cells of a sheet row from a prepared row. 
+	 * @param sheetRow Row 
+	 * @param row EEHRow 
+	 * @param styles EEHStyleRegistry
+	 * @param hyperlinks EEHHyperlinkRegistry The hyperlinks of the sheet.
+	 */
+	private void writeRow(Row sheetRow, EEHRow row, EEHStyleRegistry styles, EEHHyperlinkRegistry hyperlinks) {
+		
+		for (int colNum = 0; colNum < row.size(); colNum++) {
+			Cell cell = sheetRow.createCell(colNum);
+			
+			switch (row.getKind(colNum)) {
+			
+			case BLANK:
+				break;
+				
+			case NUMBER:
+				cell.setCellValue(row.getNumber(colNum));
+				break;
+				
+			case HYPERLINK:
+        		// set the URL link data 
+        		Hyperlink link = hyperlinks.createHyperlink(row.getText(colNum));
+        		
+        		// set the cell 
+        		setCellText(cell, row.getText(colNum));
+        		cell.setHyperlink(link);
+        		cell.setCellStyle(styles.getHyperlinkStyle());
+				break;
+				
+			case BOOLEAN:
+				cell.setCellValue(row.getBoolean(colNum));
+				break;
+				
+			case TEXT:
+			default:
+        		// set data in the cell as a string
+				setCellText(cell, row.getText(colNum));
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Sets the text of a cell, through the shared strings of the workbook when it has them.
+	 * @param cell Cell 
+	 * @param text String 
+	 */
+	private void setCellText(Cell cell, String text) {
+		if (this.sharedStrings != null) {
+			this.sharedStrings.setCellValue(cell, text);
+		} else {
+			cell.setCellValue(text);
 		}
+	}
+	
+	/**
+	 * Sets the column widths of a populated sheet. 
+	 * @param sheet Sheet 
+	 * @param widths EEHColumnWidthTracker
+	 */
+	protected void sizeColumns(Sheet sheet, EEHColumnWidthTracker widths) {
 		
-		// determine the largest number of columns in the current sheet
-		int maxCol = findLargestColumnCount(eehSheet);
+		switch (this.columnSizing) {
 		
-		// automatically size our columns for best visual fit
-		for (int i = 0; i < maxCol; i++) {
-			// Note: this action can have a negative speed performance impact
-			xssfSheet.autoSizeColumn(i);
+		case EXACT:
+			// automatically size our columns for best visual fit
+			for (int i = 0; i < widths.getColumnCount(); i++) {
+				// Note: this action can have a negative speed performance impact
+				sheet.autoSizeColumn(i);
+			}
+			break;
+			
+		case ESTIMATED:
+			widths.applyWidths(sheet);
+			break;
 			
+		case NONE:
+		default:
+			break;
 		}
 	}
 	
 	/**
-	 * Writes the Excel file to the disk.
-	 * @param workbook XSSFWorkbook
+	 * Writes the Excel file to the disk, or to the stream when one was given.
+	 * @param workbook Workbook
 	 * @throws EEHException
 	 */
-	private void generateFile(XSSFWorkbook workbook) throws EEHException {
+	protected void generateFile(Workbook workbook) throws EEHException {
 		
-        try (OutputStream os = Files.newOutputStream(this.file.toPath())) {
-        	
-            workbook.write(os);
-            workbook.close();
+        try {
+        	try (OutputStream os = openArchiveOutput()) {
+        		if (workbook instanceof SXSSFWorkbook) {
+        			// the streaming workbook creates its own archive with the level set
+        			workbook.write(os);
+        		} else {
+        			try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(os)) {
+        				zos.setLevel(archiveLevel());
+        				workbook.write(zos);
+        			}
+        		}
+        		workbook.close();
+        	}
+        	completeArchive();
+        	completeFile();
             
         } catch (IOException ex) {
             throw new EEHException("Unexpected IO exception. " + ex.getMessage(), ex);
@@ -183,75 +735,310 @@ final public class EEHExcelFileWriter {
 	}
 	
 	/**
-	 * Helper method to test if given string value 
-	 * can be parsed to a numeric value or not.
-	 * @param text String
-	 * @return boolean 
+	 * Returns true when the parts of the archive are compressed on the 
+	 * compression executor after the workbook is written. 
+	 * @return boolean
 	 */
-	private boolean canParseDouble(String text) {
-		boolean canParseDouble = true;
-		
-		try {
-			Double.parseDouble(text);
-		} catch (NumberFormatException ex) {
-			canParseDouble = false;
+	private boolean deflatesInParallel() {
+		return this.compressionExecutor != null && this.compression != EEHCompression.STORE;
+	}
+	
+	/**
+	 * Returns the deflate level the workbook is written with. 
+	 * @return int
+	 */
+	private int archiveLevel() {
+		// parts compressed in parallel are first written without compression
+		return deflatesInParallel() ? Deflater.NO_COMPRESSION : this.compression.getLevel();
+	}
+	
+	/**
+	 * Opens the stream the workbook archive is written to. This is the output itself, 
+	 * or a temporary file when the parts are compressed in parallel afterwards. 
+	 * @return OutputStream
+	 * @throws IOException
+	 */
+	private OutputStream openArchiveOutput() throws IOException {
+		if (!deflatesInParallel()) {
+			return openOutput();
 		}
-		return canParseDouble;
+		this.storedArchive = Files.createTempFile("eeh-workbook", ".zip");
+		return new BufferedOutputStream(Files.newOutputStream(this.storedArchive), this.outputBufferSize);
 	}
 	
 	/**
-	 * Helper method to test if given string value
-	 * can be parsed to a URL address or not.
-	 * @param text String 
-	 * @return boolean 
+	 * Compresses the parts of the stored archive on the compression 
+	 * executor and writes them to the output, if the archive was stored. 
+	 * @throws IOException
+	 * @throws EEHException
 	 */
-	private boolean canParseUrl(String text) {
-		boolean canParseUrl = true;
-
+	private void completeArchive() throws IOException, EEHException {
+		if (this.storedArchive == null) {
+			return;
+		}
+		try (OutputStream os = openOutput()) {
+			EEHParallelDeflater deflater = new EEHParallelDeflater(this.compressionExecutor, this.compression.getLevel());
+			deflater.deflate(this.storedArchive.toFile(), os);
+		}
+	}
+	
+	private void deleteStoredArchive() {
+		if (this.storedArchive == null) {
+			return;
+		}
 		try {
-			URL url = new URL(text);
-			url.toURI();
-		} catch (URISyntaxException | MalformedURLException ex) {
-			canParseUrl = false;
+			Files.deleteIfExists(this.storedArchive);
+		} catch (IOException ex) {
+			// the file is left in the temporary folder
 		}
-		return canParseUrl;
+		this.storedArchive = null;
 	}
 	
 	/**
-	 * Determines if the given string value can be 
-	 * parsed to a boolean value or not. 
-	 * @param text String
-	 * @return boolean 
+	 * Opens a buffered stream to the file, or to the stream when one was given. 
+	 * Closing the returned stream flushes the caller's stream but leaves it open.
+	 * @return OutputStream
+	 * @throws IOException
 	 */
-	private boolean canParseBoolean(String text) {
-		boolean canParseBoolean = false;
-
-		if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
-			canParseBoolean = true;
+	private OutputStream openOutput() throws IOException {
+		if (this.outputStream == null) {
+			return openFileOutput(this.currentFile.toPath());
 		}
-		return canParseBoolean;
+		
+		final OutputStream target = this.outputStream;
+		return new BufferedOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				target.write(b);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				target.write(b, off, len);
+			}
+			
+			@Override
+			public void flush() throws IOException {
+				target.flush();
+			}
+			
+			@Override
+			public void close() throws IOException {
+				// the caller's stream is flushed but left open
+				target.flush();
+			}
+		}, this.outputBufferSize);
 	}
-
+	
 	/**
-	 * Returns the largest column number of any row within the given sheet.
-	 * @param eehSheet EEHSheet
-	 * @return int 
+	 * Opens a buffered stream to a file through its channel. With atomic writes the 
+	 * stream writes to a hidden file beside the file, which is moved into place by 
+	 * commitFiles once every file of the export is complete. Appending always writes this way, as the file 
+	 * is read while the appended file is written. When set, the file is forced to 
+	 * the disk as the stream is closed. 
+	 * @param target Path 
+	 * @return OutputStream
+	 * @throws IOException
 	 */
-	private int findLargestColumnCount(EEHSheet eehSheet) {
+	private OutputStream openFileOutput(Path target) throws IOException {
+		final FileChannel channel;
+		if (this.atomicWrite || this.append) {
+			channel = createPendingFile(target);
+		} else {
+			channel = FileChannel.open(target, StandardOpenOption.WRITE, 
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
 		
-		int max = 0;
-		// cycle over the body data of the sheet
-		for (int i = 0; i < eehSheet.getData().size() ; i++){
-			int rowColumnCount =  eehSheet.getData().get(i).size();
-			// check if the current row of data has a larger number columns
-		    if ( max < rowColumnCount) {
-		        max = rowColumnCount;
-		    }
+		final OutputStream out = Channels.newOutputStream(channel);
+		final boolean sync = this.syncToDisk;
+		return new BufferedOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+			
+			@Override
+			public void close() throws IOException {
+				try {
+					if (sync && channel.isOpen()) {
+						channel.force(true);
+					}
+				} finally {
+					out.close();
+				}
+			}
+		}, this.outputBufferSize);
+	}
+	
+	/**
+	 * Creates a new hidden file with a random name beside the given file. 
+	 * The file is created with the same permissions as any new file. 
+	 * @param target Path 
+	 * @return FileChannel The open file.
+	 * @throws IOException
+	 */
+	private FileChannel createPendingFile(Path target) throws IOException {
+		Path folder = target.toAbsolutePath().getParent();
+		String prefix = "." + target.getFileName() + ".";
+		
+		while (true) {
+			Path pending = folder.resolve(prefix + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+			try {
+				FileChannel channel = FileChannel.open(pending, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+				this.pendingFile = pending;
+				return channel;
+				
+			} catch (FileAlreadyExistsException ex) {
+				// another name is tried
+			}
+		}
+	}
+	
+	/**
+	 * Keeps the completely written pending file until every file of the 
+	 * export is written, so a failure in a later file replaces none of them. 
+	 */
+	private void completeFile() {
+		if (this.pendingFile == null) {
+			return;
 		}
+		this.completedFiles.put(this.pendingFile, this.currentFile.toPath());
+		this.pendingFile = null;
+	}
+	
+	/**
+	 * Moves the completed pending files into place, replacing any existing files, 
+	 * so a file is never seen partly written, and the files rolled over to are only 
+	 * replaced once all of them are written. When set, the folder is then forced 
+	 * to the disk so the renames survive a crash too. 
+	 * @throws EEHException
+	 */
+	private void commitFiles() throws EEHException {
+		if (this.completedFiles.isEmpty()) {
+			return;
+		}
+		Path folder = null;
 		
-		// if the number of header columns is greater than the number of columns in any of the data rows
-		max = max > eehSheet.getHeaders().size() ? max : eehSheet.getHeaders().size();
+		try {
+			Iterator<Map.Entry<Path, Path>> files = this.completedFiles.entrySet().iterator();
+			while (files.hasNext()) {
+				Map.Entry<Path, Path> file = files.next();
+				folder = file.getValue().toAbsolutePath().getParent();
+				try {
+					Files.move(file.getKey(), file.getValue(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException ex) {
+					// the file system cannot rename atomically
+					Files.move(file.getKey(), file.getValue(), StandardCopyOption.REPLACE_EXISTING);
+				}
+				files.remove();
+			}
+			
+		} catch (IOException ex) {
+			throw new EEHException("Unexpected IO exception. " + ex.getMessage(), ex);
+		}
 		
-		return max;
+		if (this.syncToDisk) {
+			// the files of an export share one folder
+			syncFolder(folder);
+		}
+	}
+	
+	/**
+	 * Forces the entries of a folder to the disk, where the platform 
+	 * allows a folder to be opened. 
+	 * @param folder Path 
+	 */
+	private static void syncFolder(Path folder) {
+		try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException ex) {
+			// folders cannot be opened or forced on some platforms, such as Windows
+		}
+	}
+	
+	/**
+	 * Deletes the pending files that were not moved into place, 
+	 * including the file being written when the export failed. 
+	 */
+	private void deletePendingFiles() {
+		List<Path> pendingFiles = new ArrayList<>(this.completedFiles.keySet());
+		if (this.pendingFile != null) {
+			pendingFiles.add(this.pendingFile);
+		}
+		for (Path pending : pendingFiles) {
+			try {
+				Files.deleteIfExists(pending);
+			} catch (IOException ex) {
+				// the file is left beside the file of the export
+			}
+		}
+		this.pendingFile = null;
+		this.completedFiles.clear();
+	}
+	
+	protected void setWriteMode(EEHWriteMode writeMode) {
+		this.writeMode = writeMode;
 	}
+
+	protected void setRowWindowSize(int rowWindowSize) {
+		this.rowWindowSize = rowWindowSize;
+	}
+
+	protected void setColumnSizing(EEHColumnSizing columnSizing) {
+		this.columnSizing = columnSizing;
+	}
+
+	protected void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	protected void setSharedStringLimit(int sharedStringLimit) {
+		this.sharedStringLimit = sharedStringLimit;
+	}
+
+	protected void setHyperlinkSchemes(Set<String> hyperlinkSchemes) {
+		this.hyperlinkSchemes = hyperlinkSchemes;
+	}
+	
+	protected void setCompression(EEHCompression compression) {
+		this.compression = compression;
+	}
+	
+	protected void setCompressionExecutor(ExecutorService compressionExecutor) {
+		this.compressionExecutor = compressionExecutor;
+	}
+	
+	protected void setListeners(List<EEHExportListener> listeners) {
+		this.listeners = listeners;
+	}
+	
+	protected void setMaxRowsPerSheet(int maxRowsPerSheet) {
+		this.rollover.setMaxSheetRows(maxRowsPerSheet);
+	}
+	
+	protected void setMaxRowsPerFile(long maxRowsPerFile) {
+		this.rollover.setMaxFileRows(maxRowsPerFile);
+	}
+	
+	protected void setOutputBufferSize(int outputBufferSize) {
+		this.outputBufferSize = outputBufferSize;
+	}
+	
+	protected void setAtomicWrite(boolean atomicWrite) {
+		this.atomicWrite = atomicWrite;
+	}
+	
+	protected void setSyncToDisk(boolean syncToDisk) {
+		this.syncToDisk = syncToDisk;
+	}
+	
+	protected void setAppend(boolean append) {
+		this.append = append;
+	}
+
 }
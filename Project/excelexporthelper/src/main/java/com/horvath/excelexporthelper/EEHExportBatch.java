@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Writes the workbooks of many ExcelExportHelpers at the same time on an executor, 
+ * while keeping the heap held by the running exports within a budget. Each export 
+ * holds its estimated heap cost while it runs, and waiting exports start as soon as 
+ * enough of the budget is released, in the order they were added. An export that 
+ * costs more than the whole budget runs once no other export is running. 
+ * @author jhorvath
+ */
+final public class EEHExportBatch {
+	
+	private final Executor executor;
+	private final long heapBudget;
+	private final List<EEHExportJob> jobs;
+	
+	/**
+	 * Guards the heap in use and the number of running jobs, 
+	 * and is notified whenever a job releases its heap. 
+	 */
+	private final Object budgetLock;
+	private long heapInUse;
+	private int running;
+	
+	public static final String EXCEPTION_NULL_EXECUTOR = "Executor must not be null.";
+	public static final String EXCEPTION_INVALID_HEAP_BUDGET = "Heap budget must be greater than zero.";
+	public static final String EXCEPTION_NULL_EXPORT = "Export must not be null.";
+	public static final String EXCEPTION_NEGATIVE_HEAP_COST = "Heap cost must not be negative.";
+	public static final String EXCEPTION_BATCH_INTERRUPTED = "Interrupted while running the export batch.";
+	
+	/**
+	 * Constructor. 
+	 * @param executor Executor The executor the exports run on, usually a pool with 
+	 * one thread per core. The executor is not shut down by EEH. 
+	 * @param heapBudget long The heap the running exports may hold at once, in bytes.
+	 */
+	public EEHExportBatch(Executor executor, long heapBudget) {
+		if (executor == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_EXECUTOR);
+		}
+		if (heapBudget < 1) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_HEAP_BUDGET);
+		}
+		this.executor = executor;
+		this.heapBudget = heapBudget;
+		this.jobs = new ArrayList<>();
+		this.budgetLock = new Object();
+		this.heapInUse = 0;
+		this.running = 0;
+	}
+	
+	/**
+	 * Adds an export to the batch, with the heap cost estimated by the export. 
+	 * @param export ExcelExportHelper An export with a file to write to.
+	 * @return EEHExportJob The job reporting the status of the export.
+	 */
+	public EEHExportJob add(ExcelExportHelper export) {
+		if (export == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_EXPORT);
+		}
+		return add(export, export.estimateHeapCost());
+	}
+	
+	/**
+	 * Adds an export to the batch with a known heap cost, such as 
+	 * for exports whose rows are pulled from a row source. 
+	 * @param export ExcelExportHelper An export with a file to write to.
+	 * @param heapCost long The heap held while the export runs, in bytes.
+	 * @return EEHExportJob The job reporting the status of the export.
+	 */
+	public EEHExportJob add(ExcelExportHelper export, long heapCost) {
+		if (export == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_EXPORT);
+		}
+		if (export.getFile() == null) {
+			throw new IllegalArgumentException(ExcelExportHelper.EXCEPTION_NO_FILE);
+		}
+		if (heapCost < 0) {
+			throw new IllegalArgumentException(EXCEPTION_NEGATIVE_HEAP_COST);
+		}
+		
+		EEHExportJob job = new EEHExportJob(export, heapCost);
+		this.jobs.add(job);
+		return job;
+	}
+	
+	/**
+	 * Runs the pending exports of the batch and waits for all of them to complete. 
+	 * A failed export does not stop the others, and is reported by its job. 
+	 * If the waiting thread is interrupted, no further exports are started, 
+	 * and calling run again starts the exports that are still pending. 
+	 * @return List<EEHExportJob> The jobs of the batch, in the order they were added.
+	 * @throws EEHException
+	 */
+	public List<EEHExportJob> run() throws EEHException {
+		long start = System.nanoTime();
+		
+		List<EEHExportJob> pending = new LinkedList<>();
+		for (EEHExportJob job : this.jobs) {
+			if (job.getStatus() == EEHJobStatus.PENDING) {
+				pending.add(job);
+			}
+		}
+		
+		try {
+			while (!pending.isEmpty()) {
+				EEHExportJob job = admitNext(pending);
+				job.admit(System.nanoTime() - start);
+				submit(job);
+			}
+			
+			synchronized (this.budgetLock) {
+				while (this.running > 0) {
+					this.budgetLock.wait();
+				}
+			}
+			
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new EEHException(EXCEPTION_BATCH_INTERRUPTED, ex);
+		}
+		
+		return getJobs();
+	}
+	
+	/**
+	 * Waits until a pending job fits in the heap budget, reserves its heap 
+	 * and removes it from the pending jobs. The first job that fits is taken, 
+	 * so small jobs are not held up behind a large one. 
+	 * @param pending List<EEHExportJob>
+	 * @return EEHExportJob
+	 * @throws InterruptedException
+	 */
+	private EEHExportJob admitNext(List<EEHExportJob> pending) throws InterruptedException {
+		synchronized (this.budgetLock) {
+			while (true) {
+				Iterator<EEHExportJob> iterator = pending.iterator();
+				while (iterator.hasNext()) {
+					EEHExportJob job = iterator.next();
+					
+					// compared without adding, as a job over the budget may already hold the heap
+					if (this.running == 0 || job.getHeapCost() <= this.heapBudget - this.heapInUse) {
+						iterator.remove();
+						this.heapInUse += job.getHeapCost();
+						this.running++;
+						return job;
+					}
+				}
+				this.budgetLock.wait();
+			}
+		}
+	}
+	
+	/**
+	 * Runs a job on the executor, releasing its heap once it completes. 
+	 * @param job EEHExportJob
+	 */
+	private void submit(final EEHExportJob job) {
+		try {
+			this.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						job.run();
+					} finally {
+						release(job);
+					}
+				}
+			});
+			
+		} catch (RejectedExecutionException ex) {
+			job.fail(ex);
+			release(job);
+		}
+	}
+	
+	private void release(EEHExportJob job) {
+		synchronized (this.budgetLock) {
+			this.heapInUse -= job.getHeapCost();
+			this.running--;
+			this.budgetLock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Returns the jobs of the batch, in the order they were added. 
+	 * @return List<EEHExportJob>
+	 */
+	public List<EEHExportJob> getJobs() {
+		return Collections.unmodifiableList(new ArrayList<>(this.jobs));
+	}
+	
+	public long getHeapBudget() {
+		return this.heapBudget;
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+/**
+ * An export in an EEHExportBatch, with its status and timings. 
+ * @author jhorvath
+ */
+final public class EEHExportJob {
+	
+	private final ExcelExportHelper export;
+	private final long heapCost;
+	private volatile EEHJobStatus status;
+	private volatile Throwable failure;
+	private volatile EEHExportSummary summary;
+	private volatile long waitNanos;
+	private volatile long writeNanos;
+	
+	/**
+	 * Constructor. 
+	 * @param export ExcelExportHelper The export, which must have a file to write to.
+	 * @param heapCost long The heap held while the export runs, in bytes.
+	 */
+	protected EEHExportJob(ExcelExportHelper export, long heapCost) {
+		this.export = export;
+		this.heapCost = heapCost;
+		this.status = EEHJobStatus.PENDING;
+		this.failure = null;
+		this.summary = null;
+		this.waitNanos = 0;
+		this.writeNanos = 0;
+	}
+	
+	/**
+	 * Writes the workbook, and records the status and time taken. An error is 
+	 * recorded as the failure of the job and thrown on to the executor. 
+	 */
+	protected void run() {
+		long start = System.nanoTime();
+		
+		try {
+			this.summary = this.export.writeWorkBook();
+			this.status = EEHJobStatus.SUCCEEDED;
+			
+		} catch (EEHException | RuntimeException ex) {
+			fail(ex);
+			
+		} catch (Error ex) {
+			fail(ex);
+			throw ex;
+			
+		} finally {
+			this.writeNanos = System.nanoTime() - start;
+		}
+	}
+	
+	protected void fail(Throwable ex) {
+		this.failure = ex;
+		this.status = EEHJobStatus.FAILED;
+	}
+	
+	/**
+	 * Marks the job as running once it has been given its heap. 
+	 * @param waitNanos long The time the job waited for the heap.
+	 */
+	protected void admit(long waitNanos) {
+		this.waitNanos = waitNanos;
+		this.status = EEHJobStatus.RUNNING;
+	}
+	
+	public ExcelExportHelper getExport() {
+		return this.export;
+	}
+	
+	/**
+	 * Returns the heap held for the job while it runs. 
+	 * @return long The number of bytes.
+	 */
+	public long getHeapCost() {
+		return this.heapCost;
+	}
+	
+	public EEHJobStatus getStatus() {
+		return this.status;
+	}
+	
+	/**
+	 * Returns the EEHException, runtime exception or error of a failed job. 
+	 * @return Throwable The failure, or null when the job did not fail.
+	 */
+	public Throwable getFailure() {
+		return this.failure;
+	}
+	
+	/**
+	 * Returns the timings and cell counts of a job that succeeded. 
+	 * @return EEHExportSummary The summary, or null when the job did not succeed.
+	 */
+	public EEHExportSummary getSummary() {
+		return this.summary;
+	}
+	
+	/**
+	 * Returns the time the job waited for the heap budget before it started. 
+	 * @return long The number of milliseconds.
+	 */
+	public long getWaitMillis() {
+		return this.waitNanos / 1000000;
+	}
+	
+	/**
+	 * Returns the time taken to write the workbook of the job. 
+	 * @return long The number of milliseconds.
+	 */
+	public long getWriteMillis() {
+		return this.writeNanos / 1000000;
+	}
+
+	@Override
+	public String toString() {
+		return "EEHExportJob [file=" + export.getFile() + ", status=" + status + ", heapCost=" + heapCost
+				+ ", waitMillis=" + getWaitMillis() + ", writeMillis=" + getWriteMillis() + "]";
+	}
+}
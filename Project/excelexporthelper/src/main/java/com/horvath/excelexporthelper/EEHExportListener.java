@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+/**
+ * Receives the summaries of the exports of an ExcelExportHelper, for example 
+ * to feed their timings into monitoring. The methods are called on the thread 
+ * writing the workbook, so they should return quickly. A runtime exception 
+ * thrown by a listener is ignored, so it never changes the outcome of the export. 
+ * @author jhorvath
+ */
+public interface EEHExportListener {
+	
+	/**
+	 * Called when the cells of a sheet have been populated and its columns sized. 
+	 * @param sheet EEHSheetSummary
+	 */
+	default void sheetCompleted(EEHSheetSummary sheet) {
+	}
+	
+	/**
+	 * Called when the workbook has been written. 
+	 * @param summary EEHExportSummary
+	 */
+	default void exportCompleted(EEHExportSummary summary) {
+	}
+	
+	/**
+	 * Called when the export fails, with the summary of the work done before the failure. 
+	 * @param summary EEHExportSummary
+	 * @param failure Exception The EEHException or runtime exception of the failure.
+	 */
+	default void exportFailed(EEHExportSummary summary, Exception failure) {
+	}
+}
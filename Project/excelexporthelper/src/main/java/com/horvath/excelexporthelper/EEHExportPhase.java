@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+/**
+ * Defines the phases of an export that are timed in its summary.
+ * @author jhorvath
+ */
+public enum EEHExportPhase {
+	
+	/**
+	 * Creating each sheet in the workbook. 
+	 */
+	CREATE_SHEET,
+	
+	/**
+	 * Writing the header row of each sheet with its bold style. 
+	 */
+	STYLE_HEADERS,
+	
+	/**
+	 * Reading, typing and writing the cells of the data rows of each sheet. 
+	 * In streaming and direct mode this includes writing the rows to disk. 
+	 */
+	POPULATE_CELLS,
+	
+	/**
+	 * Setting the column widths of each sheet. In direct mode this includes 
+	 * copying the cells written while the widths were measured. 
+	 */
+	SIZE_COLUMNS,
+	
+	/**
+	 * Serializing, compressing and flushing the workbook once all sheets are populated. 
+	 */
+	WRITE_FILE
+}
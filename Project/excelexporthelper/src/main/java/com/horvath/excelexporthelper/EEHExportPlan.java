@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A workbook layout compiled once from the sheets and options of an ExcelExportHelper, 
+ * which exports new rows in that layout any number of times. The sheet names, headers, 
+ * column types and header row, and optionally the column widths, are worked out when 
+ * the plan is compiled, so an export only does the work of its rows. Unless the widths are 
+ * fixed, each export still sizes its columns, and so takes about as long as the workbook would. 
+ * A plan never changes once compiled, so exports can run from it at the same time, each 
+ * with its own row sources. 
+ * @author jhorvath
+ */
+final public class EEHExportPlan {
+	
+	public static final String EXCEPTION_ROW_SOURCE_COUNT = "Exactly one row source is needed for each sheet of the plan: ";
+	
+	private SheetPlan[] sheets;
+	private List<String> sheetNames;
+	private EEHColumnSizing columnSizing;
+	private ExecutorService executor;
+	private int sharedStringLimit;
+	private Set<String> hyperlinkSchemes;
+	private EEHCompression compression;
+	private ExecutorService compressionExecutor;
+	private List<EEHExportListener> listeners;
+	private int maxRowsPerSheet;
+	private long maxRowsPerFile;
+	private int outputBufferSize;
+	private boolean atomicWrite;
+	private boolean syncToDisk;
+	private boolean fixedWidths;
+	
+	/**
+	 * Constructor. Compiles the sheets of the helper with its current options. 
+	 * @param eeh ExcelExportHelper 
+	 * @param fixedWidths boolean True to size the columns once, from the rows the sheets hold.
+	 * @throws EEHException
+	 */
+	protected EEHExportPlan(ExcelExportHelper eeh, boolean fixedWidths) throws EEHException {
+		this.columnSizing = eeh.getColumnSizing();
+		this.executor = eeh.getExecutor();
+		this.sharedStringLimit = eeh.getSharedStringLimit();
+		this.hyperlinkSchemes = eeh.getHyperlinkSchemes();
+		this.compression = eeh.getCompression();
+		this.compressionExecutor = eeh.getCompressionExecutor();
+		this.listeners = Collections.unmodifiableList(new ArrayList<>(eeh.getListeners()));
+		this.maxRowsPerSheet = eeh.getMaxRowsPerSheet();
+		this.maxRowsPerFile = eeh.getMaxRowsPerFile();
+		this.outputBufferSize = eeh.getOutputBufferSize();
+		this.atomicWrite = eeh.isAtomicWrite();
+		this.syncToDisk = eeh.isSyncToDisk();
+		this.fixedWidths = fixedWidths;
+		
+		List<EEHSheet> templates = eeh.getSheets();
+		this.sheets = new SheetPlan[templates.size()];
+		List<String> names = new ArrayList<>(templates.size());
+		
+		for (int i = 0; i < this.sheets.length; i++) {
+			this.sheets[i] = compileSheet(templates.get(i));
+			names.add(this.sheets[i].name);
+		}
+		this.sheetNames = Collections.unmodifiableList(names);
+	}
+	
+	/**
+	 * Writes a workbook of the plan to the given file. 
+	 * @param file File 
+	 * @param rowSources EEHRowSource... The rows of each sheet of the plan, in order, 
+	 * or null for a sheet that only holds its header row.
+	 * @return EEHExportSummary The timings and cell counts of the export.
+	 * @throws EEHException
+	 */
+	public EEHExportSummary export(File file, EEHRowSource... rowSources) throws EEHException {
+		File target = ExcelExportHelper.toValidFile(file);
+		return write(new EEHExcelFileWriter(target, createSheets(rowSources)));
+	}
+	
+	/**
+	 * Writes a workbook of the plan to the given stream, which is flushed but not closed. 
+	 * @param outputStream OutputStream 
+	 * @param rowSources EEHRowSource... The rows of each sheet of the plan, in order, 
+	 * or null for a sheet that only holds its header row.
+	 * @return EEHExportSummary The timings and cell counts of the export.
+	 * @throws EEHException
+	 */
+	public EEHExportSummary export(OutputStream outputStream, EEHRowSource... rowSources) throws EEHException {
+		if (outputStream == null) {
+			throw new IllegalArgumentException(ExcelExportHelper.EXCEPTION_NULL_OUTPUT);
+		}
+		if (this.maxRowsPerFile > 0) {
+			throw new IllegalStateException(ExcelExportHelper.EXCEPTION_FILE_ROLLOVER_TO_STREAM);
+		}
+		return write(new EEHExcelFileWriter(outputStream, createSheets(rowSources)));
+	}
+	
+	/**
+	 * Returns the names of the sheets of the plan, in order.
+	 * @return List<String> 
+	 */
+	public List<String> getSheetNames() {
+		return this.sheetNames;
+	}
+	
+	/**
+	 * Creates the sheets of one export, which share everything but their rows with the plan.
+	 * @param rowSources EEHRowSource[] 
+	 * @return List<EEHSheet> 
+	 */
+	private List<EEHSheet> createSheets(EEHRowSource[] rowSources) {
+		if (rowSources == null || rowSources.length != this.sheets.length) {
+			throw new IllegalArgumentException(EXCEPTION_ROW_SOURCE_COUNT + this.sheets.length);
+		}
+		
+		List<EEHSheet> exportSheets = new ArrayList<>(this.sheets.length);
+		for (int i = 0; i < this.sheets.length; i++) {
+			SheetPlan plan = this.sheets[i];
+			exportSheets.add(new EEHSheet(plan.name, plan.headers, plan.columnTypes, 
+					plan.headerRow, plan.widths, rowSources[i]));
+		}
+		return exportSheets;
+	}
+	
+	/**
+	 * Writes the workbook directly, which leaves the least work for each export.
+	 * @param writer EEHExcelFileWriter 
+	 * @return EEHExportSummary 
+	 * @throws EEHException
+	 */
+	private EEHExportSummary write(EEHExcelFileWriter writer) throws EEHException {
+		writer.setWriteMode(EEHWriteMode.DIRECT);
+		writer.setColumnSizing(this.columnSizing);
+		writer.setExecutor(this.executor);
+		writer.setSharedStringLimit(this.sharedStringLimit);
+		writer.setHyperlinkSchemes(this.hyperlinkSchemes);
+		writer.setCompression(this.compression);
+		writer.setCompressionExecutor(this.compressionExecutor);
+		writer.setListeners(this.listeners);
+		writer.setMaxRowsPerSheet(this.maxRowsPerSheet);
+		writer.setMaxRowsPerFile(this.maxRowsPerFile);
+		writer.setOutputBufferSize(this.outputBufferSize);
+		writer.setAtomicWrite(this.atomicWrite);
+		writer.setSyncToDisk(this.syncToDisk);
+		return writer.writeFile();
+	}
+	
+	/**
+	 * Works out everything about a sheet that does not depend on the rows of an export. 
+	 * With fixed widths, the columns are sized to the headers and to any rows the sheet 
+	 * holds in getData(), which are not exported. Otherwise each export sizes its columns. 
+	 * @param template EEHSheet 
+	 * @return SheetPlan 
+	 * @throws EEHException
+	 */
+	private SheetPlan compileSheet(EEHSheet template) throws EEHException {
+		SheetPlan plan = new SheetPlan();
+		plan.name = template.getSheetName();
+		plan.headers = Collections.unmodifiableList(new ArrayList<>(template.getHeaders()));
+		plan.columnTypes = Collections.unmodifiableList(new ArrayList<>(template.getColumnTypes()));
+		
+		try {
+			plan.headerRow = plan.headers.isEmpty() ? null : EEHDirectWorkbookWriter.encodeHeaderRow(plan.headers);
+		} catch (IOException ex) {
+			throw new EEHException("Unexpected IO exception. " + ex.getMessage(), ex);
+		}
+		
+		if (this.fixedWidths && this.columnSizing != EEHColumnSizing.NONE) {
+			EEHSheet sample = new EEHSheet(plan.name, plan.headers, plan.columnTypes, null, null, 
+					new EEHIteratorRowSource(template.getData()));
+			EEHSheetPreparer preparer = new EEHSheetPreparer(sample, this.hyperlinkSchemes);
+			EEHRow row = new EEHRow();
+			
+			try {
+				preparer.prepareHeaders();
+				while (preparer.nextRow(row)) {
+					// only the widths of the rows are kept
+				}
+			} finally {
+				preparer.close();
+			}
+			plan.widths = preparer.getWidths();
+		}
+		return plan;
+	}
+	
+	/**
+	 * The compiled layout of a sheet, which is only read once the plan is compiled.
+	 */
+	private static final class SheetPlan {
+		private String name;
+		private List<String> headers;
+		private List<EEHColumnType> columnTypes;
+		private byte[] headerRow;
+		private EEHColumnWidthTracker widths;
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The timings and cell counts of an export, and of each of its sheets. 
+ * @author jhorvath
+ */
+final public class EEHExportSummary {
+	
+	private final EEHWriteMode writeMode;
+	private final List<EEHSheetSummary> sheets;
+	private final List<File> files;
+	private long writeFileNanos;
+	private long totalNanos;
+	
+	/**
+	 * Constructor. 
+	 * @param writeMode EEHWriteMode The write mode of the export.
+	 */
+	protected EEHExportSummary(EEHWriteMode writeMode) {
+		this.writeMode = writeMode;
+		this.sheets = new ArrayList<>();
+		this.files = new ArrayList<>();
+		this.writeFileNanos = 0;
+		this.totalNanos = 0;
+	}
+	
+	/**
+	 * Adds the summary of the next sheet written. 
+	 * @param sheetName String
+	 * @return EEHSheetSummary
+	 */
+	protected EEHSheetSummary addSheet(String sheetName) {
+		EEHSheetSummary sheet = new EEHSheetSummary(sheetName);
+		this.sheets.add(sheet);
+		return sheet;
+	}
+	
+	protected void addFile(File file) {
+		this.files.add(file);
+	}
+	
+	protected void addWriteFileNanos(long nanos) {
+		this.writeFileNanos += nanos;
+	}
+	
+	protected void setTotalNanos(long totalNanos) {
+		this.totalNanos = totalNanos;
+	}
+	
+	public EEHWriteMode getWriteMode() {
+		return this.writeMode;
+	}
+	
+	/**
+	 * Returns the summaries of the sheets written, in sheet order. 
+	 * After a failure, only the sheets started before the failure are included. 
+	 * @return List<EEHSheetSummary>
+	 */
+	public List<EEHSheetSummary> getSheets() {
+		return Collections.unmodifiableList(this.sheets);
+	}
+	
+	/**
+	 * Returns the files written, in order. This is the file of the export, 
+	 * followed by any files the rows continued in once a file held its row 
+	 * budget. It is empty when the workbook was written to a stream. 
+	 * @return List<File>
+	 */
+	public List<File> getFiles() {
+		return Collections.unmodifiableList(this.files);
+	}
+	
+	/**
+	 * Returns the time spent on a phase, over all sheets of the workbook. 
+	 * @param phase EEHExportPhase
+	 * @return long The number of nanoseconds.
+	 */
+	public long getPhaseNanos(EEHExportPhase phase) {
+		if (phase == EEHExportPhase.WRITE_FILE) {
+			return this.writeFileNanos;
+		}
+		long nanos = 0;
+		for (EEHSheetSummary sheet : this.sheets) {
+			nanos += sheet.getPhaseNanos(phase);
+		}
+		return nanos;
+	}
+	
+	/**
+	 * Returns the time taken by the whole export, including 
+	 * the work that is not part of any phase, such as waiting 
+	 * for sheets prepared on an executor. 
+	 * @return long The number of nanoseconds.
+	 */
+	public long getTotalNanos() {
+		return this.totalNanos;
+	}
+	
+	public long getRowCount() {
+		long count = 0;
+		for (EEHSheetSummary sheet : this.sheets) {
+			count += sheet.getRowCount();
+		}
+		return count;
+	}
+	
+	public long getNumericCells() {
+		long count = 0;
+		for (EEHSheetSummary sheet : this.sheets) {
+			count += sheet.getNumericCells();
+		}
+		return count;
+	}
+	
+	public long getHyperlinkCells() {
+		long count = 0;
+		for (EEHSheetSummary sheet : this.sheets) {
+			count += sheet.getHyperlinkCells();
+		}
+		return count;
+	}
+	
+	public long getBooleanCells() {
+		long count = 0;
+		for (EEHSheetSummary sheet : this.sheets) {
+			count += sheet.getBooleanCells();
+		}
+		return count;
+	}
+	
+	public long getTextCells() {
+		long count = 0;
+		for (EEHSheetSummary sheet : this.sheets) {
+			count += sheet.getTextCells();
+		}
+		return count;
+	}
+	
+	public long getBlankCells() {
+		long count = 0;
+		for (EEHSheetSummary sheet : this.sheets) {
+			count += sheet.getBlankCells();
+		}
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder phases = new StringBuilder();
+		for (EEHExportPhase phase : EEHExportPhase.values()) {
+			phases.append(", ").append(phase).append('=').append(getPhaseNanos(phase) / 1000000).append(" ms");
+		}
+		return "EEHExportSummary [writeMode=" + writeMode + ", sheets=" + sheets.size() + ", rowCount=" + getRowCount() 
+				+ ", numericCells=" + getNumericCells() + ", hyperlinkCells=" + getHyperlinkCells() 
+				+ ", booleanCells=" + getBooleanCells() + ", textCells=" + getTextCells() 
+				+ ", blankCells=" + getBlankCells() + phases + ", total=" + totalNanos / 1000000 + " ms]";
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.common.usermodel.HyperlinkType;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.Hyperlink;
+import org.apache.poi.xssf.usermodel.XSSFHyperlink;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+
+/**
+ * Hands out the hyperlinks of a sheet. Each cell needs its own hyperlink, 
+ * but hyperlinks to the same address share one relationship in the 
+ * relationships part of the sheet, so repeated URLs do not add 
+ * duplicate entries to the file. 
+ * @author jhorvath
+ */
+final class EEHHyperlinkRegistry {
+	
+	private Map<String, String> relationshipIds;
+	
+	/**
+	 * Constructor. 
+	 */
+	protected EEHHyperlinkRegistry() {
+		this.relationshipIds = new HashMap<>();
+	}
+	
+	/**
+	 * Creates a hyperlink to the given URL. 
+	 * @param address String 
+	 * @return Hyperlink
+	 */
+	protected Hyperlink createHyperlink(String address) {
+		EEHHyperlink link = new EEHHyperlink(this);
+		link.setAddress(address);
+		return link;
+	}
+	
+	/**
+	 * Returns the id of the relationship to the address, adding the relationship 
+	 * to the sheet when it is the first hyperlink to the address. 
+	 * @param sheetPart PackagePart 
+	 * @param address String 
+	 * @return String 
+	 */
+	private String getRelationshipId(PackagePart sheetPart, String address) {
+		String id = this.relationshipIds.get(address);
+		
+		if (id == null) {
+			id = sheetPart.addExternalRelationship(address, XSSFRelation.SHEET_HYPERLINKS.getRelation()).getId();
+			this.relationshipIds.put(address, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * A URL hyperlink that takes its relationship from the registry when the sheet is written.
+	 */
+	private static final class EEHHyperlink extends XSSFHyperlink {
+		
+		private EEHHyperlinkRegistry registry;
+		
+		private EEHHyperlink(EEHHyperlinkRegistry registry) {
+			super(HyperlinkType.URL);
+			this.registry = registry;
+		}
+		
+		@Override
+		protected void generateRelationIfNeeded(PackagePart sheetPart) {
+			getCTHyperlink().setId(this.registry.getRelationshipId(sheetPart, getAddress()));
+		}
+	}
+}
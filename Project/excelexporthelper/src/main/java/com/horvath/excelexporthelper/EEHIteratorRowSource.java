@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Adapts an Iterator or Iterable of string rows to an EEHRowSource. 
+ * Each string is typed in the same way as the strings of getData(). 
+ * @author jhorvath
+ */
+final class EEHIteratorRowSource implements EEHRowSource, AutoCloseable {
+	
+	private Iterable<? extends List<String>> iterable;
+	private Iterator<? extends List<String>> iterator;
+	
+	/**
+	 * Constructor for rows from an iterator.
+	 * @param iterator Iterator<? extends List<String>>
+	 */
+	protected EEHIteratorRowSource(Iterator<? extends List<String>> iterator) {
+		this.iterable = null;
+		this.iterator = iterator;
+	}
+	
+	/**
+	 * Constructor for rows from an iterable. The iterator is 
+	 * only requested when the first row is needed. 
+	 * @param iterable Iterable<? extends List<String>>
+	 */
+	protected EEHIteratorRowSource(Iterable<? extends List<String>> iterable) {
+		this.iterable = iterable;
+		this.iterator = null;
+	}
+	
+	@Override
+	public boolean nextRow(EEHRow row) {
+		if (this.iterator == null) {
+			this.iterator = this.iterable.iterator();
+		}
+		
+		if (!this.iterator.hasNext()) {
+			return false;
+		}
+		
+		List<String> rowData = this.iterator.next();
+		if (rowData != null) {
+			for (String data : rowData) {
+				row.addValue(data);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Closes the iterator and the iterable, if they can be closed. 
+	 * @throws EEHException When either fails to close.
+	 */
+	@Override
+	public void close() throws EEHException {
+		try {
+			if (this.iterator instanceof AutoCloseable) {
+				((AutoCloseable) this.iterator).close();
+			}
+			if (this.iterable instanceof AutoCloseable) {
+				((AutoCloseable) this.iterable).close();
+			}
+		} catch (RuntimeException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			throw new EEHException(EEHSheetRows.EXCEPTION_CLOSE_FAILED + ex.getMessage(), ex);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ScatterZipOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+
+/**
+ * Compresses the parts of a stored workbook at the same time on an executor, 
+ * and assembles the compressed parts into the file in their original order. 
+ * @author jhorvath
+ */
+final class EEHParallelDeflater {
+	
+	public static final String EXCEPTION_DEFLATE_INTERRUPTED = "Interrupted while compressing the workbook.";
+	public static final String EXCEPTION_DEFLATE_FAILED = "Unexpected failure while compressing the workbook. ";
+	
+	private final ExecutorService executor;
+	private final int level;
+	
+	/**
+	 * The compressed parts not yet removed, guarded by the list itself.
+	 */
+	private final List<ScatterZipOutputStream> compressedParts;
+	
+	/**
+	 * Constructor. 
+	 * @param executor ExecutorService The executor the parts are compressed on, which is not shut down.
+	 * @param level int The deflate level of the parts.
+	 */
+	protected EEHParallelDeflater(ExecutorService executor, int level) {
+		this.executor = executor;
+		this.level = level;
+		this.compressedParts = new ArrayList<>();
+	}
+	
+	/**
+	 * Compresses each part of the stored archive as a separate task, and writes 
+	 * the compressed parts to the stream as they complete, in archive order. 
+	 * A deflater compresses only one archive. 
+	 * @param storedArchive File A zip archive whose parts are not compressed.
+	 * @param out OutputStream The stream the compressed archive is written to, which is not closed.
+	 * @throws IOException
+	 * @throws EEHException
+	 */
+	protected void deflate(File storedArchive, OutputStream out) throws IOException, EEHException {
+		List<Future<ScatterZipOutputStream>> parts = new ArrayList<>();
+		List<EEHStoppableTask<ScatterZipOutputStream>> tasks = new ArrayList<>();
+		
+		try (ZipFile archive = new ZipFile(storedArchive)) {
+			try {
+				// reads of separate entries do not share a position, so the parts are read at the same time
+				for (ZipArchiveEntry entry : Collections.list(archive.getEntriesInPhysicalOrder())) {
+					EEHStoppableTask<ScatterZipOutputStream> task = new EEHStoppableTask<>(deflatePart(archive, entry));
+					parts.add(this.executor.submit(task));
+					tasks.add(task);
+				}
+				
+				try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(keepOpen(out))) {
+					for (Future<ScatterZipOutputStream> part : parts) {
+						try (ScatterZipOutputStream scatter = awaitPart(part)) {
+							// the compressed bytes are copied as they are, without deflating them again
+							scatter.writeTo(zos);
+						}
+					}
+				}
+				
+			} finally {
+				for (Future<ScatterZipOutputStream> part : parts) {
+					part.cancel(true);
+				}
+				for (EEHStoppableTask<ScatterZipOutputStream> task : tasks) {
+					// the archive is only closed once no part is reading it
+					task.awaitStopped();
+				}
+				discardParts();
+			}
+		}
+	}
+	
+	/**
+	 * Wraps the stream so that closing the archive only flushes it.
+	 * @param out OutputStream
+	 * @return OutputStream
+	 */
+	private static OutputStream keepOpen(OutputStream out) {
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				this.out.write(b, off, len);
+			}
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+	}
+	
+	/**
+	 * Creates the task that compresses one part into its own temporary file. 
+	 * @param archive ZipFile
+	 * @param entry ZipArchiveEntry
+	 * @return Callable<ScatterZipOutputStream>
+	 */
+	private Callable<ScatterZipOutputStream> deflatePart(final ZipFile archive, final ZipArchiveEntry entry) {
+		return new Callable<ScatterZipOutputStream>() {
+			@Override
+			public ScatterZipOutputStream call() throws IOException {
+				File target = Files.createTempFile("eeh-part", ".deflate").toFile();
+				ScatterZipOutputStream scatter = ScatterZipOutputStream.fileBased(target, level);
+				
+				ZipArchiveEntry compressed = new ZipArchiveEntry(entry.getName());
+				compressed.setMethod(ZipEntry.DEFLATED);
+				compressed.setTime(entry.getTime());
+				
+				try (final InputStream in = archive.getInputStream(entry)) {
+					scatter.addArchiveEntry(ZipArchiveEntryRequest.createZipArchiveEntryRequest(compressed, 
+							new InputStreamSupplier() {
+								@Override
+								public InputStream get() {
+									return in;
+								}
+							}));
+					
+				} catch (IOException | RuntimeException ex) {
+					// the temporary file is removed when the scatter stream is closed
+					scatter.close();
+					throw ex;
+				}
+				
+				synchronized (compressedParts) {
+					compressedParts.add(scatter);
+				}
+				return scatter;
+			}
+		};
+	}
+	
+	/**
+	 * Waits for a part to be compressed. 
+	 * @param part Future<ScatterZipOutputStream>
+	 * @return ScatterZipOutputStream
+	 * @throws IOException
+	 * @throws EEHException
+	 */
+	private ScatterZipOutputStream awaitPart(Future<ScatterZipOutputStream> part) throws IOException, EEHException {
+		try {
+			return part.get();
+			
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new EEHException(EXCEPTION_DEFLATE_INTERRUPTED, ex);
+			
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			} else if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new EEHException(EXCEPTION_DEFLATE_FAILED + ex.getCause().getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Removes the temporary files of the parts that were compressed, 
+	 * including any parts that were never written. 
+	 */
+	private void discardParts() {
+		synchronized (this.compressedParts) {
+			for (ScatterZipOutputStream scatter : this.compressedParts) {
+				try {
+					// closing a part that was already written has no effect
+					scatter.close();
+				} catch (IOException ex) {
+					// the file of the part is already gone
+				}
+			}
+			this.compressedParts.clear();
+		}
+	}
+}
@@ -0,0 +1,389 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import javax.sql.DataSource;
+
+/**
+ * Reads the rows of a sheet from the results of a database query while the workbook 
+ * is written. The cells are typed from the SQL types of the columns, without turning 
+ * values into text and back: numbers become numeric cells, booleans become Boolean 
+ * cells, nulls become empty cells, whole numbers and decimals that a numeric cell 
+ * cannot hold exactly become text cells, and text and any other values become text cells. 
+ * The rows are fetched from the database in batches of the fetch size, so a result 
+ * of any size is exported without being held in memory. 
+ * @author jhorvath
+ */
+final public class EEHResultSetRowSource implements EEHRowSource, AutoCloseable {
+	
+	/**
+	 * The default number of rows fetched from the database at a time.
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+	
+	/**
+	 * Larger whole numbers are written as text, as a double cannot hold them exactly.
+	 */
+	private static final long MAX_EXACT_NUMBER = 1L << 53;
+	
+	public static final String EXCEPTION_NULL_RESULT_SET = "Result set must not be null.";
+	public static final String EXCEPTION_NULL_DATA_SOURCE = "Data source must not be null.";
+	public static final String EXCEPTION_NULL_QUERY = "Query must not be null or empty.";
+	public static final String EXCEPTION_NULL_SHEET = "Sheet must not be null.";
+	public static final String EXCEPTION_NEGATIVE_FETCH_SIZE = "Fetch size must not be negative.";
+	public static final String EXCEPTION_ALREADY_READ = "The options of a result set source cannot be changed once it has been read.";
+	public static final String EXCEPTION_QUERY_FAILED = "Unable to read the query results. ";
+	
+	/**
+	 * How the values of a column are read and written.
+	 */
+	private static final int NUMBER = 0;
+	private static final int WHOLE_NUMBER = 1;
+	private static final int DECIMAL = 2;
+	private static final int BOOLEAN = 3;
+	private static final int TEXT = 4;
+	
+	private DataSource dataSource;
+	private String query;
+	private Connection connection;
+	private boolean restoreAutoCommit;
+	private PreparedStatement statement;
+	private ResultSet resultSet;
+	private int fetchSize;
+	private boolean typeText;
+	
+	private int[] columnKinds;
+	private String[] columnLabels;
+	private boolean opened;
+	private boolean closed;
+	
+	/**
+	 * Constructor for the rows of an open result set, which is 
+	 * closed with the source. Its statement and connection are left 
+	 * open for the caller to close. 
+	 * @param resultSet ResultSet 
+	 */
+	public EEHResultSetRowSource(ResultSet resultSet) {
+		if (resultSet == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_RESULT_SET);
+		}
+		this.resultSet = resultSet;
+		this.fetchSize = DEFAULT_FETCH_SIZE;
+		this.typeText = false;
+	}
+	
+	/**
+	 * Constructor for the results of a query, which is run on a connection of the 
+	 * data source when the first row is read. The connection is closed with the source. 
+	 * @param dataSource DataSource 
+	 * @param query String The SELECT statement.
+	 */
+	public EEHResultSetRowSource(DataSource dataSource, String query) {
+		if (dataSource == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_DATA_SOURCE);
+		}
+		if (query == null || query.trim().isEmpty()) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_QUERY);
+		}
+		this.dataSource = dataSource;
+		this.query = query;
+		this.fetchSize = DEFAULT_FETCH_SIZE;
+		this.typeText = false;
+	}
+	
+	/**
+	 * Sets the number of rows the driver fetches from the database at a time. 
+	 * Zero leaves the fetch size to the driver. 
+	 * @param fetchSize int 
+	 */
+	public void setFetchSize(int fetchSize) {
+		checkNotRead();
+		if (fetchSize < 0) {
+			throw new IllegalArgumentException(EXCEPTION_NEGATIVE_FETCH_SIZE);
+		}
+		this.fetchSize = fetchSize;
+	}
+	
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+	
+	/**
+	 * Sets whether the values of text columns are typed in the same way as the 
+	 * strings of getData(), so that URLs become hyperlinks and numbers held as text 
+	 * become numeric cells. By default text columns are written as text. 
+	 * @param typeText boolean 
+	 */
+	public void setTypeText(boolean typeText) {
+		checkNotRead();
+		this.typeText = typeText;
+	}
+	
+	public boolean isTypeText() {
+		return this.typeText;
+	}
+	
+	/**
+	 * Sets the labels of the columns of the results as the header row of the given 
+	 * sheet, replacing its headers. For a query, this runs the query ahead of the export. 
+	 * @param sheet EEHSheet 
+	 * @throws EEHException
+	 */
+	public void readHeaders(EEHSheet sheet) throws EEHException {
+		if (sheet == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_SHEET);
+		}
+		open();
+		
+		sheet.getHeaders().clear();
+		for (String label : this.columnLabels) {
+			sheet.getHeaders().add(label);
+		}
+	}
+	
+	@Override
+	public boolean nextRow(EEHRow row) throws EEHException {
+		open();
+		if (this.closed) {
+			return false;
+		}
+		
+		try {
+			if (!this.resultSet.next()) {
+				return false;
+			}
+			
+			for (int column = 0; column < this.columnKinds.length; column++) {
+				int index = column + 1;
+				
+				switch (this.columnKinds[column]) {
+				
+				case WHOLE_NUMBER:
+					long whole = this.resultSet.getLong(index);
+					if (this.resultSet.wasNull()) {
+						row.addBlank();
+					} else if (Math.abs(whole) > MAX_EXACT_NUMBER) {
+						row.addText(Long.toString(whole));
+					} else {
+						row.addNumber(whole);
+					}
+					break;
+					
+				case DECIMAL:
+					BigDecimal decimal = this.resultSet.getBigDecimal(index);
+					if (decimal == null) {
+						row.addBlank();
+					} else {
+						addDecimal(decimal, row);
+					}
+					break;
+					
+				case NUMBER:
+					double number = this.resultSet.getDouble(index);
+					if (this.resultSet.wasNull()) {
+						row.addBlank();
+					} else {
+						row.addNumber(number);
+					}
+					break;
+					
+				case BOOLEAN:
+					boolean bool = this.resultSet.getBoolean(index);
+					if (this.resultSet.wasNull()) {
+						row.addBlank();
+					} else {
+						row.addBoolean(bool);
+					}
+					break;
+					
+				case TEXT:
+				default:
+					String text = this.resultSet.getString(index);
+					if (text == null || text.isEmpty()) {
+						row.addBlank();
+					} else if (this.typeText) {
+						row.addValue(text);
+					} else {
+						row.addText(text);
+					}
+					break;
+				}
+			}
+			return true;
+			
+		} catch (SQLException ex) {
+			throw new EEHException(EXCEPTION_QUERY_FAILED + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Closes the result set, and for a query its statement and connection.
+	 * @throws SQLException 
+	 */
+	@Override
+	public void close() throws SQLException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.opened = true;
+		
+		SQLException failure = null;
+		try {
+			if (this.resultSet != null) {
+				this.resultSet.close();
+			}
+		} catch (SQLException ex) {
+			failure = ex;
+		}
+		
+		if (this.dataSource != null) {
+			try {
+				if (this.statement != null) {
+					this.statement.close();
+				}
+				if (this.connection != null && this.restoreAutoCommit) {
+					// the connection may go back to a pool
+					this.connection.setAutoCommit(true);
+				}
+			} catch (SQLException ex) {
+				failure = failure == null ? ex : failure;
+			} finally {
+				if (this.connection != null) {
+					try {
+						this.connection.close();
+					} catch (SQLException ex) {
+						failure = failure == null ? ex : failure;
+					}
+				}
+			}
+		}
+		
+		if (failure != null) {
+			throw failure;
+		}
+	}
+	
+	/**
+	 * Runs the query if there is one, and works out how each column is written. 
+	 * @throws EEHException
+	 */
+	private void open() throws EEHException {
+		if (this.opened) {
+			return;
+		}
+		this.opened = true;
+		
+		try {
+			if (this.dataSource != null) {
+				this.connection = this.dataSource.getConnection();
+				if (this.fetchSize > 0 && this.connection.getAutoCommit()) {
+					// some drivers only fetch in batches outside auto-commit mode
+					this.connection.setAutoCommit(false);
+					this.restoreAutoCommit = true;
+				}
+				this.statement = this.connection.prepareStatement(this.query, 
+						ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				this.statement.setFetchSize(this.fetchSize);
+				this.resultSet = this.statement.executeQuery();
+			} else {
+				this.resultSet.setFetchSize(this.fetchSize);
+			}
+			
+			ResultSetMetaData metaData = this.resultSet.getMetaData();
+			int columnCount = metaData.getColumnCount();
+			this.columnKinds = new int[columnCount];
+			this.columnLabels = new String[columnCount];
+			
+			for (int column = 0; column < columnCount; column++) {
+				this.columnKinds[column] = getColumnKind(metaData.getColumnType(column + 1));
+				this.columnLabels[column] = metaData.getColumnLabel(column + 1);
+			}
+			
+		} catch (SQLException ex) {
+			throw new EEHException(EXCEPTION_QUERY_FAILED + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Adds a cell for a decimal value, as a number when the double read back from 
+	 * the cell is the same value, or as its text when a double cannot hold it.
+	 * @param decimal BigDecimal 
+	 * @param row EEHRow 
+	 */
+	private static void addDecimal(BigDecimal decimal, EEHRow row) {
+		double number = decimal.doubleValue();
+		if (!Double.isInfinite(number) && BigDecimal.valueOf(number).compareTo(decimal) == 0) {
+			row.addNumber(number);
+		} else {
+			row.addText(decimal.toPlainString());
+		}
+	}
+	
+	/**
+	 * Returns how the values of a column of the given SQL type are written.
+	 * @param sqlType int A type of java.sql.Types.
+	 * @return int 
+	 */
+	private static int getColumnKind(int sqlType) {
+		switch (sqlType) {
+		
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+		case Types.BIGINT:
+			return WHOLE_NUMBER;
+			
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return NUMBER;
+			
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			return DECIMAL;
+			
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return BOOLEAN;
+			
+		default:
+			return TEXT;
+		}
+	}
+	
+	private void checkNotRead() {
+		if (this.opened) {
+			throw new IllegalStateException(EXCEPTION_ALREADY_READ);
+		}
+	}
+}
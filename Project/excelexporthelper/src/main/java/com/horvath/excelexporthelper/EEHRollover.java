@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps track of where the rows of an export go once a sheet or a file is full. 
+ * The rows of a sheet that reaches the row limit continue on a new sheet named 
+ * after it, and once a file holds its row budget the rows that follow go to a 
+ * new file named after the first. The names of the sheets are unique within 
+ * each file. 
+ * @author jhorvath
+ */
+final class EEHRollover {
+	
+	private Set<String> sheetNames;
+	private int maxSheetRows;
+	private long maxFileRows;
+	
+	private Set<String> usedNames;
+	private EEHSheet lastSheet;
+	private int sheetsInFile;
+	private long rowsInFile;
+	private int fileCount;
+	
+	/**
+	 * Constructor. Starts the first file. 
+	 * @param sheets List<EEHSheet> The sheets of the export.
+	 */
+	protected EEHRollover(List<EEHSheet> sheets) {
+		this.sheetNames = new HashSet<>();
+		for (EEHSheet sheet : sheets) {
+			this.sheetNames.add(sheet.getSheetName());
+		}
+		this.maxSheetRows = EEHSheet.MAX_ROW_COUNT;
+		this.maxFileRows = 0;
+		this.fileCount = 0;
+		startFile();
+	}
+	
+	protected void setMaxSheetRows(int maxSheetRows) {
+		this.maxSheetRows = maxSheetRows;
+	}
+	
+	/**
+	 * Sets the number of rows written to a file before the rows that follow go to a new file. 
+	 * @param maxFileRows long The number of rows, or zero for no limit.
+	 */
+	protected void setMaxFileRows(long maxFileRows) {
+		this.maxFileRows = maxFileRows;
+	}
+	
+	/**
+	 * Starts the next file, which holds no sheets yet. 
+	 */
+	protected void startFile() {
+		this.usedNames = new HashSet<>(this.sheetNames);
+		this.sheetsInFile = 0;
+		this.rowsInFile = 0;
+		this.fileCount++;
+	}
+	
+	/**
+	 * Returns true once the current file holds its row budget. 
+	 * @return boolean 
+	 */
+	protected boolean isFileFull() {
+		return this.maxFileRows > 0 && this.rowsInFile >= this.maxFileRows;
+	}
+	
+	/**
+	 * Starts a sheet in the current file for the given sheet of the export. 
+	 * A sheet that continues the rows of the previous sheet gets a new name. 
+	 * @param eehSheet EEHSheet 
+	 * @return String The name of the sheet.
+	 * @throws EEHException
+	 */
+	protected String startSheet(EEHSheet eehSheet) throws EEHException {
+		if (this.sheetsInFile >= EEHSheet.MAX_SHEET_COUNT) {
+			throw new EEHException(EEHSheet.EXCEPTION_MAX_NUMBER_SHEETS_EXCEEDED);
+		}
+		this.sheetsInFile++;
+		
+		String name = eehSheet.getSheetName();
+		if (eehSheet == this.lastSheet) {
+			name = EEHSheet.createRolloverName(name, this.usedNames);
+		}
+		this.lastSheet = eehSheet;
+		this.usedNames.add(name);
+		return name;
+	}
+	
+	/**
+	 * Adds the sheets a file being appended to already holds, so they count 
+	 * towards the sheets of the file and their names are not used again. 
+	 * @param names Collection<String> The names of the sheets.
+	 */
+	protected void addExistingSheets(Collection<String> names) {
+		this.sheetNames.addAll(names);
+		this.usedNames.addAll(names);
+		this.sheetsInFile += names.size();
+	}
+	
+	/**
+	 * Continues an existing sheet of the file for the given sheet of the export, 
+	 * so rows that do not fit continue on a new sheet named after it. 
+	 * @param eehSheet EEHSheet 
+	 */
+	protected void resumeSheet(EEHSheet eehSheet) {
+		this.lastSheet = eehSheet;
+	}
+	
+	/**
+	 * Returns the number of rows, counting the header row, the sheet being 
+	 * started can hold before the rows that follow go to a new sheet. 
+	 * @param headerRows int The number of header rows of the sheet.
+	 * @return int 
+	 */
+	protected int getSheetRowLimit(int headerRows) {
+		if (this.maxFileRows <= 0) {
+			return this.maxSheetRows;
+		}
+		// every sheet holds at least one row, so the rows always move on
+		long remaining = Math.max(this.maxFileRows - this.rowsInFile, 1);
+		return (int) Math.min(this.maxSheetRows, headerRows + remaining);
+	}
+	
+	/**
+	 * Adds the rows written to a sheet to the rows of the current file. 
+	 * @param rows int The number of rows, without the header row.
+	 */
+	protected void addRows(int rows) {
+		this.rowsInFile += rows;
+	}
+	
+	/**
+	 * Returns the file the current file is written to. 
+	 * @param file File The file the first file is written to.
+	 * @return File 
+	 */
+	protected File getFile(File file) {
+		return this.fileCount == 1 ? file : FileUtility.createRolloverFile(file, this.fileCount);
+	}
+	
+	/**
+	 * Returns the files written after the first file, including the current file. 
+	 * @param file File The file the first file is written to.
+	 * @return List<File> 
+	 */
+	protected List<File> getRolloverFiles(File file) {
+		List<File> files = new ArrayList<>();
+		for (int i = 2; i <= this.fileCount; i++) {
+			files.add(FileUtility.createRolloverFile(file, i));
+		}
+		return files;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.Arrays;
+
+/**
+ * A row of cell values, ready to be written to an Excel sheet. 
+ * Cells are added in column order. Values added with addValue are typed 
+ * by EEH in the same way as the strings of getData(), while the other 
+ * methods set the type of the cell directly. 
+ * The storage is reused when the row is cleared, so one instance can 
+ * carry any number of rows one after another. 
+ * @author jhorvath
+ */
+final public class EEHRow {
+	
+	private EEHCellKind[] kinds;
+	private double[] numbers;
+	private String[] texts;
+	private int size;
+	
+	/**
+	 * Constructor. 
+	 */
+	protected EEHRow() {
+		this(16);
+	}
+	
+	/**
+	 * Constructor. 
+	 * @param capacity int The number of cells to allocate room for.
+	 */
+	protected EEHRow(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.kinds = new EEHCellKind[capacity];
+		this.numbers = new double[capacity];
+		this.texts = new String[capacity];
+		this.size = 0;
+	}
+	
+	/**
+	 * Removes all cells from the row.
+	 */
+	protected void clear() {
+		// drop references to the previous text values
+		Arrays.fill(this.texts, 0, this.size, null);
+		this.size = 0;
+	}
+	
+	/**
+	 * Adds an empty cell.
+	 */
+	public void addBlank() {
+		add(EEHCellKind.BLANK, 0, null);
+	}
+	
+	/**
+	 * Adds a cell whose type is worked out from the text, in the same way as 
+	 * the strings of getData(): numbers, URLs and true or false become numeric, 
+	 * hyperlink and boolean cells. A null value adds an empty cell. 
+	 * @param value String 
+	 */
+	public void addValue(String value) {
+		add(value == null ? EEHCellKind.BLANK : EEHCellKind.VALUE, 0, value);
+	}
+	
+	/**
+	 * Adds a numeric cell. 
+	 * @param number double
+	 */
+	public void addNumber(double number) {
+		add(EEHCellKind.NUMBER, number, null);
+	}
+	
+	/**
+	 * Adds a boolean cell.
+	 * @param bool boolean
+	 */
+	public void addBoolean(boolean bool) {
+		add(EEHCellKind.BOOLEAN, bool ? 1 : 0, null);
+	}
+	
+	/**
+	 * Adds a cell holding a clickable hyperlink to the given address. 
+	 * An address that is not a valid URL, or whose scheme is not allowed, 
+	 * is written as text. A null address adds an empty cell. 
+	 * @param address String
+	 */
+	public void addHyperlink(String address) {
+		add(address == null ? EEHCellKind.BLANK : EEHCellKind.HYPERLINK, 0, address);
+	}
+	
+	/**
+	 * Adds a text cell, which is never converted to a number, link or boolean. 
+	 * A null value adds an empty cell. 
+	 * @param text String
+	 */
+	public void addText(String text) {
+		add(text == null ? EEHCellKind.BLANK : EEHCellKind.TEXT, 0, text);
+	}
+	
+	/**
+	 * Replaces the value of an existing cell.
+	 * @param column int 
+	 * @param kind EEHCellKind
+	 * @param number double 
+	 * @param text String 
+	 */
+	protected void set(int column, EEHCellKind kind, double number, String text) {
+		this.kinds[column] = kind;
+		this.numbers[column] = number;
+		this.texts[column] = text;
+	}
+	
+	/**
+	 * Appends a cell to the end of the row.
+	 * @param kind EEHCellKind
+	 * @param number double 
+	 * @param text String 
+	 */
+	private void add(EEHCellKind kind, double number, String text) {
+		if (this.size == this.kinds.length) {
+			int capacity = this.size * 2;
+			this.kinds = Arrays.copyOf(this.kinds, capacity);
+			this.numbers = Arrays.copyOf(this.numbers, capacity);
+			this.texts = Arrays.copyOf(this.texts, capacity);
+		}
+		this.kinds[this.size] = kind;
+		this.numbers[this.size] = number;
+		this.texts[this.size] = text;
+		this.size++;
+	}
+	
+	/**
+	 * Returns an independent copy of the row, sized to fit its cells.
+	 * @return EEHRow
+	 */
+	protected EEHRow copy() {
+		EEHRow copy = new EEHRow(this.size);
+		System.arraycopy(this.kinds, 0, copy.kinds, 0, this.size);
+		System.arraycopy(this.numbers, 0, copy.numbers, 0, this.size);
+		System.arraycopy(this.texts, 0, copy.texts, 0, this.size);
+		copy.size = this.size;
+		return copy;
+	}
+	
+	/**
+	 * Returns the number of cells in the row.
+	 * @return int 
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	protected EEHCellKind getKind(int column) {
+		return this.kinds[column];
+	}
+	
+	protected double getNumber(int column) {
+		return this.numbers[column];
+	}
+	
+	protected boolean getBoolean(int column) {
+		return this.numbers[column] != 0;
+	}
+	
+	protected String getText(int column) {
+		return this.texts[column];
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.List;
+
+/**
+ * Reads the typed rows of a sheet in order, either from the rows prepared 
+ * ahead on an executor or from the preparer as each row is needed. The last 
+ * row read can be put back, so a sheet that is full leaves the row for the 
+ * sheet that continues it. 
+ * @author jhorvath
+ */
+final class EEHRowCursor {
+	
+	private EEHSheetPreparer preparer;
+	private List<EEHRow> preparedRows;
+	private int index;
+	private EEHRow row;
+	private boolean pushedBack;
+	private boolean finished;
+	
+	/**
+	 * Constructor. 
+	 * @param preparer EEHSheetPreparer The preparer for the sheet.
+	 * @param preparedRows List<EEHRow> The already prepared rows, or null to prepare them here.
+	 */
+	protected EEHRowCursor(EEHSheetPreparer preparer, List<EEHRow> preparedRows) {
+		this.preparer = preparer;
+		this.preparedRows = preparedRows;
+		this.index = 0;
+		this.pushedBack = false;
+		this.finished = false;
+		
+		if (preparedRows == null) {
+			this.row = new EEHRow();
+			preparer.prepareHeaders();
+		}
+	}
+	
+	/**
+	 * Returns the next row of the sheet. The rows of the preparer are 
+	 * read into the same row, which is only valid until the next call. 
+	 * The rows of the sheet are closed once they have all been read. 
+	 * @return EEHRow The row, or null when there are no more rows.
+	 * @throws EEHException
+	 */
+	protected EEHRow next() throws EEHException {
+		if (this.pushedBack) {
+			this.pushedBack = false;
+			return this.row;
+		}
+		
+		if (this.preparedRows != null) {
+			if (this.index >= this.preparedRows.size()) {
+				return null;
+			}
+			this.row = this.preparedRows.get(this.index++);
+			return this.row;
+		}
+		
+		if (this.finished) {
+			return null;
+		}
+		if (!this.preparer.nextRow(this.row)) {
+			this.finished = true;
+			this.preparer.close();
+			return null;
+		}
+		return this.row;
+	}
+	
+	/**
+	 * Returns true when the rows were prepared ahead, 
+	 * so the widths of all the cells are already known.
+	 * @return boolean 
+	 */
+	protected boolean isPrepared() {
+		return this.preparedRows != null;
+	}
+	
+	protected EEHColumnWidthTracker getWidths() {
+		return this.preparer.getWidths();
+	}
+	
+	/**
+	 * Puts back the last row read, so the next call to next() returns it again. 
+	 */
+	protected void pushBack() {
+		this.pushedBack = true;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+/**
+ * Supplies the rows of an EEHSheet one at a time while the workbook is written, 
+ * so the data of the sheet never has to be held in memory all at once. 
+ * A row source is read exactly once. If it also implements AutoCloseable, 
+ * it is closed once it has been read, or when writing fails. 
+ * @author jhorvath
+ */
+public interface EEHRowSource {
+	
+	/**
+	 * Fills the given row with the cells of the next row of the sheet. 
+	 * The row is empty when this method is called. 
+	 * @param row EEHRow The row to add cells to. 
+	 * @return boolean True if a row was produced, false when there are no more rows.
+	 * @throws EEHException
+	 */
+	boolean nextRow(EEHRow row) throws EEHException;
+}
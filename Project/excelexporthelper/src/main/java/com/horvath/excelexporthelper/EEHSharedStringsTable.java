@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.ooxml.POIXMLRelation;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFFactory;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+/**
+ * The shared strings table of a workbook written by EEH. Each distinct text 
+ * is added to the table once and later cells reference it by index, 
+ * avoiding the rich text object and XML serialization POI otherwise makes 
+ * for every cell. The number of distinct texts is bounded, and once it is 
+ * reached new texts are written inline in their cells, so columns of 
+ * unique values do not grow the table. 
+ * @author jhorvath
+ */
+final class EEHSharedStringsTable extends SharedStringsTable {
+	
+	private static final int MAX_TEXT_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+	
+	private Map<String, Integer> indexes;
+	private int maxSize;
+	
+	/**
+	 * Constructor. 
+	 * @param maxSize int The maximum number of distinct texts in the table.
+	 */
+	protected EEHSharedStringsTable(int maxSize) {
+		super();
+		this.indexes = new HashMap<>();
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Sets the cell to the given text, through the table when possible.
+	 * @param cell Cell 
+	 * @param text String 
+	 */
+	protected void setCellValue(Cell cell, String text) {
+		
+		if (!(cell instanceof XSSFCell) || text.length() > MAX_TEXT_LENGTH) {
+			// let POI handle other cells, and reject text that is too long
+			cell.setCellValue(text);
+			return;
+		}
+		
+		CTCell ctCell = ((XSSFCell) cell).getCTCell();
+		int index = indexOf(text);
+		
+		if (index >= 0) {
+			ctCell.setT(STCellType.S);
+			ctCell.setV(Integer.toString(index));
+		} else {
+			ctCell.setT(STCellType.INLINE_STR);
+			ctCell.setIs(new XSSFRichTextString(text).getCTRst());
+		}
+	}
+	
+	/**
+	 * Returns the index of the text in the table, adding it if needed. 
+	 * @param text String 
+	 * @return int The index, or -1 when the table is full and does not hold the text.
+	 */
+	protected int indexOf(String text) {
+		Integer index = this.indexes.get(text);
+		
+		if (index != null) {
+			// the table records the total number of references
+			this.count++;
+			return index;
+		}
+		if (this.indexes.size() >= this.maxSize) {
+			return -1;
+		}
+		
+		int added = addSharedStringItem(new XSSFRichTextString(text));
+		this.indexes.put(text, added);
+		return added;
+	}
+	
+	/**
+	 * Creates the parts of a new workbook, using an EEHSharedStringsTable 
+	 * as its shared strings table. 
+	 */
+	protected static final class Factory extends XSSFFactory {
+		
+		private int maxSize;
+		
+		/**
+		 * Constructor. 
+		 * @param maxSize int The maximum number of distinct texts in the table.
+		 */
+		protected Factory(int maxSize) {
+			super();
+			this.maxSize = maxSize;
+		}
+		
+		@Override
+		public POIXMLDocumentPart newDocumentPart(POIXMLRelation descriptor) {
+			if (descriptor == XSSFRelation.SHARED_STRINGS) {
+				return new EEHSharedStringsTable(this.maxSize);
+			}
+			return super.newDocumentPart(descriptor);
+		}
+	}
+}
@@ -25,6 +25,8 @@
 package com.horvath.excelexporthelper;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.poi.ss.util.WorkbookUtil;
@@ -38,9 +40,24 @@ final public class EEHSheet {
 	private String sheetName;
 	private List<ArrayList<String>> data;
 	private List<String> headers;
+	private EEHSheetStorage storage;
+	private EEHRowSource rowSource;
+	private boolean rowsOpened;
+	private List<EEHColumnType> columnTypes;
+	private byte[] headerRow;
+	private EEHColumnWidthTracker fixedWidths;
 	
 	public static final String EXCEPTION_EMPTY_OR_NULL_SHEETNAME = "Sheet name not be null or empty.";
 	public static final String EXCEPTION_MAX_NUMBER_SHEETS_EXCEEDED = "The maximum number of sheets in an Excel file has been exceeded.";
+	public static final String EXCEPTION_NULL_STORAGE = "Sheet storage must not be null.";
+	public static final String EXCEPTION_ROWS_ALREADY_READ = "The row source of the sheet has already been read.";
+	public static final String EXCEPTION_SPILLED_ROWS_RELEASED = "The rows of a spilling sheet are released once written, and must be added again.";
+	public static final String EXCEPTION_NEGATIVE_COLUMN = "Column index must not be negative.";
+	public static final String EXCEPTION_NULL_COLUMN_TYPE = "Column type must not be null.";
+	public static final String EXCEPTION_COLUMN_TYPE_AFTER_DATA = "Column types of a columnar sheet must be set before any rows are added.";
+	public static final String EXCEPTION_NOT_SPILLING = "Spill settings only apply to sheets with spilling storage.";
+	public static final String EXCEPTION_NEGATIVE_SPILL_THRESHOLD = "Spill threshold must not be negative.";
+	public static final String EXCEPTION_SPILL_COMPRESSION_AFTER_SPILL = "Spill compression must be set before any rows are spilled.";
 	
 	/**
 	 * The maximum number of sheets allowed in an Excel file.
@@ -52,6 +69,11 @@ final public class EEHSheet {
 	 */
 	public static final int MAX_NAME_LENGTH = 31;
 	
+	/**
+	 * The maximum number of rows in an Excel sheet, including the header row.
+	 */
+	public static final int MAX_ROW_COUNT = 1048576;
+	
 	/**
 	 * Constructor for a sheet. 
 	 * @param sheetName String Name for the sheet. 
@@ -59,14 +81,60 @@ final public class EEHSheet {
 	 * @throws EEHException
 	 */
 	protected EEHSheet(String sheetName, List<EEHSheet> sheets) throws EEHException {
+		this(sheetName, sheets, EEHSheetStorage.ROWS);
+	}
+	
+	/**
+	 * Constructor for a sheet with the given kind of data storage. 
+	 * @param sheetName String Name for the sheet. 
+	 * @param sheets List<EEHSheet> Existing sheets in current instance. 
+	 * @param storage EEHSheetStorage How the rows of the sheet are held in memory.
+	 * @throws EEHException
+	 */
+	protected EEHSheet(String sheetName, List<EEHSheet> sheets, EEHSheetStorage storage) throws EEHException {
 		
 		if (sheets.size() >= MAX_SHEET_COUNT) {
 			throw new EEHException(EXCEPTION_MAX_NUMBER_SHEETS_EXCEEDED);
 		}
+		if (storage == null) {
+			throw new EEHException(EXCEPTION_NULL_STORAGE);
+		}
 		
 		this.sheetName = createSafeSheetName(sheetName, sheets);
-		this.data = new ArrayList<ArrayList<String>>();
+		this.storage = storage;
 		this.headers = new ArrayList<String>();
+		this.columnTypes = new ArrayList<>();
+		
+		if (storage == EEHSheetStorage.COLUMNAR) {
+			this.data = new EEHColumnarData();
+		} else if (storage == EEHSheetStorage.SPILLING) {
+			this.data = new EEHSpillingData();
+		} else {
+			this.data = new ArrayList<ArrayList<String>>();
+		}
+	}
+	
+	/**
+	 * Constructor for a sheet exported by a compiled plan. The name is already safe, 
+	 * and the headers, column types, encoded header row and column widths are 
+	 * shared with the plan, which never changes them. 
+	 * @param sheetName String 
+	 * @param headers List<String> 
+	 * @param columnTypes List<EEHColumnType> 
+	 * @param headerRow byte[] The header row as written directly, or null.
+	 * @param fixedWidths EEHColumnWidthTracker The widths of the columns, or null to size them to the rows.
+	 * @param rowSource EEHRowSource The rows of the sheet, or null for none.
+	 */
+	protected EEHSheet(String sheetName, List<String> headers, List<EEHColumnType> columnTypes, 
+			byte[] headerRow, EEHColumnWidthTracker fixedWidths, EEHRowSource rowSource) {
+		this.sheetName = sheetName;
+		this.storage = EEHSheetStorage.ROWS;
+		this.headers = headers;
+		this.columnTypes = columnTypes;
+		this.data = new ArrayList<ArrayList<String>>(0);
+		this.headerRow = headerRow;
+		this.fixedWidths = fixedWidths;
+		this.rowSource = rowSource;
 	}
 	
 	/**
@@ -109,11 +177,11 @@ final public class EEHSheet {
 	 * If the given name is a name that already exists, 
 	 * then append the given integer to end of name.
 	 * @param sheetName String 
-	 * @param currentSheetNames List<String> 
+	 * @param currentSheetNames Collection<String> 
 	 * @param count int 
 	 * @return String 
 	 */
-	private String fixDuplicateName(String sheetName, List<String> currentSheetNames, int count) {
+	private static String fixDuplicateName(String sheetName, Collection<String> currentSheetNames, int count) {
 		// update the name
 		String newName = sheetName + count;
 		
@@ -128,6 +196,22 @@ final public class EEHSheet {
 		return newName;
 	}
 	
+	/**
+	 * Creates the name of a sheet that continues the rows of the given sheet 
+	 * once it is full, by appending the lowest number that gives a new name. 
+	 * The name is shortened as needed to leave room for the number. 
+	 * @param sheetName String The name of the sheet being continued.
+	 * @param currentSheetNames Collection<String> The names already in use.
+	 * @return String 
+	 */
+	protected static String createRolloverName(String sheetName, Collection<String> currentSheetNames) {
+		String base = sheetName;
+		if (base.length() > MAX_NAME_LENGTH - 3) {
+			base = base.substring(0, MAX_NAME_LENGTH - 3);
+		}
+		return fixDuplicateName(base, currentSheetNames, 1);
+	}
+	
 	public String getSheetName() {
 		return this.sheetName;
 	}
@@ -139,6 +223,171 @@ final public class EEHSheet {
 	public List<String> getHeaders() {
 		return headers;
 	}
+	
+	public EEHSheetStorage getStorage() {
+		return this.storage;
+	}
+	
+	/**
+	 * Declares how the values of a column are written. Values of a declared 
+	 * column are converted directly to the declared type instead of testing 
+	 * each value for a number, URL and boolean, and values that cannot be 
+	 * converted are written as text. Columns are inferred by default. 
+	 * Columnar sheets type their values as they are added, so their 
+	 * column types must be set before any rows are added. 
+	 * @param column int The zero based column index.
+	 * @param type EEHColumnType
+	 */
+	public void setColumnType(int column, EEHColumnType type) {
+		if (column < 0) {
+			throw new IllegalArgumentException(EXCEPTION_NEGATIVE_COLUMN);
+		}
+		if (type == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_COLUMN_TYPE);
+		}
+		
+		if (this.data instanceof EEHColumnarData) {
+			if (!this.data.isEmpty()) {
+				throw new IllegalStateException(EXCEPTION_COLUMN_TYPE_AFTER_DATA);
+			}
+			((EEHColumnarData) this.data).setColumnType(column, type);
+		}
+		
+		while (this.columnTypes.size() <= column) {
+			this.columnTypes.add(EEHColumnType.INFERRED);
+		}
+		this.columnTypes.set(column, type);
+	}
+	
+	/**
+	 * Returns the declared type of a column. 
+	 * @param column int The zero based column index.
+	 * @return EEHColumnType INFERRED when no type has been declared.
+	 */
+	public EEHColumnType getColumnType(int column) {
+		if (column < 0) {
+			throw new IllegalArgumentException(EXCEPTION_NEGATIVE_COLUMN);
+		}
+		return column < this.columnTypes.size() ? this.columnTypes.get(column) : EEHColumnType.INFERRED;
+	}
+	
+	/**
+	 * Returns the declared column types, by column index.
+	 * @return List<EEHColumnType> 
+	 */
+	protected List<EEHColumnType> getColumnTypes() {
+		return this.columnTypes;
+	}
+	
+	/**
+	 * Sets the estimated number of bytes of rows a spilling sheet keeps in memory. 
+	 * Rows added once the threshold is reached are written to a temporary file. 
+	 * The default is 64 MB, and zero spills every row. 
+	 * @param bytes long 
+	 */
+	public void setSpillThreshold(long bytes) {
+		if (bytes < 0) {
+			throw new IllegalArgumentException(EXCEPTION_NEGATIVE_SPILL_THRESHOLD);
+		}
+		getSpillingData().setThreshold(bytes);
+	}
+	
+	public long getSpillThreshold() {
+		return getSpillingData().getThreshold();
+	}
+	
+	/**
+	 * Sets whether the spill file of a spilling sheet is deflated. This makes 
+	 * the file several times smaller for typical data, at some cost in speed. 
+	 * @param compressed boolean 
+	 */
+	public void setSpillCompression(boolean compressed) {
+		EEHSpillingData spilling = getSpillingData();
+		if (spilling.isSpilling()) {
+			throw new IllegalStateException(EXCEPTION_SPILL_COMPRESSION_AFTER_SPILL);
+		}
+		spilling.setCompressed(compressed);
+	}
+	
+	public boolean isSpillCompression() {
+		return getSpillingData().isCompressed();
+	}
+	
+	private EEHSpillingData getSpillingData() {
+		if (!(this.data instanceof EEHSpillingData)) {
+			throw new IllegalStateException(EXCEPTION_NOT_SPILLING);
+		}
+		return (EEHSpillingData) this.data;
+	}
+	
+	/**
+	 * Sets a source the rows of the sheet are pulled from while the workbook is written, 
+	 * after any rows held in getData(). The source is read exactly once, so together with 
+	 * the streaming write mode a sheet of any size can be written in constant memory. 
+	 * @param rowSource EEHRowSource The source, or null to remove it.
+	 */
+	public void setRowSource(EEHRowSource rowSource) {
+		this.rowSource = rowSource;
+		this.rowsOpened = false;
+	}
+	
+	/**
+	 * Sets an iterator the rows of the sheet are pulled from while the workbook is written, 
+	 * after any rows held in getData(). The strings of each row are typed in the same way 
+	 * as the strings of getData(). 
+	 * @param rows Iterator<? extends List<String>>
+	 */
+	public void setRowSource(Iterator<? extends List<String>> rows) {
+		setRowSource(rows == null ? null : new EEHIteratorRowSource(rows));
+	}
+	
+	/**
+	 * Sets an iterable the rows of the sheet are pulled from while the workbook is written, 
+	 * after any rows held in getData(). Only one iterator is requested from it. 
+	 * @param rows Iterable<? extends List<String>>
+	 */
+	public void setRowSource(Iterable<? extends List<String>> rows) {
+		setRowSource(rows == null ? null : new EEHIteratorRowSource(rows));
+	}
+	
+	public EEHRowSource getRowSource() {
+		return this.rowSource;
+	}
+	
+	/**
+	 * Returns the header row as written directly, when it was encoded ahead by an export plan.
+	 * @return byte[] The encoded row, or null.
+	 */
+	protected byte[] getHeaderRow() {
+		return this.headerRow;
+	}
+	
+	/**
+	 * Returns the column widths set ahead by an export plan, which 
+	 * are used instead of sizing the columns to the rows written.
+	 * @return EEHColumnWidthTracker The widths, or null.
+	 */
+	protected EEHColumnWidthTracker getFixedWidths() {
+		return this.fixedWidths;
+	}
+	
+	/**
+	 * Starts reading the rows of the sheet. Rows held in getData() can be read any 
+	 * number of times, but a row source can only be read once, and the rows of a 
+	 * spilling sheet are released once they have been written. 
+	 * @return EEHSheetRows
+	 */
+	protected synchronized EEHSheetRows openRows() {
+		if (this.rowSource != null && this.rowsOpened) {
+			throw new IllegalStateException(EXCEPTION_ROWS_ALREADY_READ);
+		}
+		if (this.data instanceof EEHSpillingData && ((EEHSpillingData) this.data).isReleased()) {
+			throw new IllegalStateException(EXCEPTION_SPILLED_ROWS_RELEASED);
+		}
+		this.rowsOpened = true;
+		
+		return new EEHSheetRows(this.data, this.rowSource);
+	}
 
 	@Override
 	public String toString() {
@@ -0,0 +1,237 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the rows of an EEHSheet as typed rows and works out the column widths, 
+ * without touching the workbook. A preparer only reads its own sheet, 
+ * so preparers for different sheets can run at the same time.
+ * @author jhorvath
+ */
+final class EEHSheetPreparer {
+	
+	private EEHSheet eehSheet;
+	private EEHCellClassifier classifier;
+	private EEHColumnWidthTracker widths;
+	private boolean trackWidths;
+	private EEHSheetRows rows;
+	
+	public static final String EXCEPTION_INTERRUPTED = "Interrupted while writing sheet data.";
+	
+	/**
+	 * Constructor. 
+	 * @param eehSheet EEHSheet The sheet to prepare.
+	 */
+	protected EEHSheetPreparer(EEHSheet eehSheet) {
+		this(eehSheet, null);
+	}
+	
+	/**
+	 * Constructor for a preparer that only writes hyperlinks with the given schemes. 
+	 * @param eehSheet EEHSheet The sheet to prepare.
+	 * @param hyperlinkSchemes Set<String> The lower case schemes, or null for any scheme the runtime supports.
+	 */
+	protected EEHSheetPreparer(EEHSheet eehSheet, Set<String> hyperlinkSchemes) {
+		this.eehSheet = eehSheet;
+		this.classifier = new EEHCellClassifier(hyperlinkSchemes);
+		
+		// widths set ahead are shared, so they are only read
+		this.widths = eehSheet.getFixedWidths();
+		this.trackWidths = this.widths == null;
+		if (this.trackWidths) {
+			this.widths = new EEHColumnWidthTracker();
+		}
+	}
+	
+	/**
+	 * Records the widths of the header row cells. 
+	 */
+	protected void prepareHeaders() {
+		if (!this.trackWidths) {
+			return;
+		}
+		int colNum = 0;
+		for (String header : this.eehSheet.getHeaders()) {
+			this.widths.trackHeader(colNum++, header);
+		}
+	}
+	
+	/**
+	 * Reads the next row of the sheet into the given row, and works out 
+	 * the type of any cell added as a plain value. 
+	 * @param row EEHRow The row to fill, any previous cells are removed. 
+	 * @return boolean False when there are no more rows.
+	 * @throws EEHException
+	 */
+	protected boolean nextRow(EEHRow row) throws EEHException {
+		if (this.rows == null) {
+			this.rows = this.eehSheet.openRows();
+		}
+		
+		if (Thread.currentThread().isInterrupted()) {
+			// the export was cancelled, the flag is left set for the caller
+			throw new EEHException(EXCEPTION_INTERRUPTED);
+		}
+		
+		row.clear();
+		if (!this.rows.nextRow(row)) {
+			return false;
+		}
+		
+		classifyValues(row);
+		if (this.trackWidths) {
+			trackWidths(row);
+		}
+		return true;
+	}
+	
+	/**
+	 * Sets the type of each cell of the row that was added as a plain value, 
+	 * following the declared type of its column. Hyperlinks that are not valid 
+	 * URLs, or have a scheme that is not allowed, are written as text, as values 
+	 * typed as hyperlinks are.
+	 * @param row EEHRow 
+	 */
+	private void classifyValues(EEHRow row) {
+		for (int column = 0; column < row.size(); column++) {
+			if (row.getKind(column) != EEHCellKind.VALUE) {
+				if (row.getKind(column) == EEHCellKind.HYPERLINK && !this.classifier.isUrl(row.getText(column))) {
+					// added as a link without being checked
+					row.set(column, EEHCellKind.TEXT, 0, row.getText(column));
+				}
+				continue;
+			}
+			String data = row.getText(column);
+			
+			switch (this.classifier.classify(data, this.eehSheet.getColumnType(column))) {
+			
+			case NUMBER:
+				row.set(column, EEHCellKind.NUMBER, this.classifier.getNumber(), null);
+				break;
+				
+			case HYPERLINK:
+				row.set(column, EEHCellKind.HYPERLINK, 0, data);
+				break;
+				
+			case BOOLEAN:
+				row.set(column, EEHCellKind.BOOLEAN, this.classifier.getBoolean() ? 1 : 0, null);
+				break;
+				
+			case BLANK:
+				row.set(column, EEHCellKind.BLANK, 0, null);
+				break;
+				
+			case TEXT:
+			default:
+				row.set(column, EEHCellKind.TEXT, 0, data);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Records the widths of the cells of a prepared row. 
+	 * @param row EEHRow 
+	 */
+	private void trackWidths(EEHRow row) {
+		for (int column = 0; column < row.size(); column++) {
+			
+			switch (row.getKind(column)) {
+			
+			case NUMBER:
+				this.widths.trackNumber(column, row.getNumber(column));
+				break;
+				
+			case BOOLEAN:
+				this.widths.trackBoolean(column, row.getBoolean(column));
+				break;
+				
+			case HYPERLINK:
+			case TEXT:
+				this.widths.trackText(column, row.getText(column));
+				break;
+				
+			case BLANK:
+			default:
+				this.widths.trackBlank(column);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Prepares the header row and every row of the sheet. 
+	 * The rows of the sheet are closed once they have been read. 
+	 * @return List<EEHRow> The typed rows, in sheet order. 
+	 * @throws EEHException
+	 */
+	protected List<EEHRow> prepareAll() throws EEHException {
+		prepareHeaders();
+		
+		List<EEHRow> prepared = new ArrayList<>(this.eehSheet.getData().size());
+		EEHRow row = new EEHRow();
+		
+		try {
+			while (nextRow(row)) {
+				prepared.add(row.copy());
+			}
+		} finally {
+			close();
+		}
+		return prepared;
+	}
+	
+	/**
+	 * Closes the rows of the sheet. A row source that was never read is 
+	 * marked as read, so every row source is used for exactly one write. 
+	 * @throws EEHException
+	 */
+	protected void close() throws EEHException {
+		if (this.rows == null) {
+			this.rows = this.eehSheet.openRows();
+		}
+		this.rows.close();
+	}
+	
+	/**
+	 * Closes the rows of the sheet after writing has failed, 
+	 * without hiding the original failure. 
+	 */
+	protected void closeQuietly() {
+		try {
+			close();
+		} catch (EEHException | RuntimeException ex) {
+			// the failure that stopped the write is the one reported
+		}
+	}
+	
+	protected EEHColumnWidthTracker getWidths() {
+		return this.widths;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads all rows of an EEHSheet in order: first the rows held in 
+ * getData(), followed by the rows of the row source of the sheet, if any. 
+ * @author jhorvath
+ */
+final class EEHSheetRows implements EEHRowSource {
+	
+	protected static final String EXCEPTION_CLOSE_FAILED = "Unable to close the row source. ";
+	
+	private List<ArrayList<String>> data;
+	private EEHRowSource source;
+	private int index;
+	private boolean closed;
+	
+	/**
+	 * Constructor. 
+	 * @param data List<ArrayList<String>> The rows held by the sheet.
+	 * @param source EEHRowSource The row source of the sheet, or null.
+	 */
+	protected EEHSheetRows(List<ArrayList<String>> data, EEHRowSource source) {
+		this.data = data;
+		this.source = source;
+		this.index = 0;
+		this.closed = false;
+	}
+	
+	@Override
+	public boolean nextRow(EEHRow row) throws EEHException {
+		
+		if (this.index < this.data.size()) {
+			if (this.data instanceof EEHColumnarData) {
+				// columnar rows are already typed
+				((EEHColumnarData) this.data).readRow(this.index, row);
+				
+			} else if (this.data instanceof EEHSpillingData) {
+				// spilled rows are read back from their file in order
+				((EEHSpillingData) this.data).readRow(this.index, row);
+				
+			} else {
+				List<String> rowData = this.data.get(this.index);
+				for (String value : rowData) {
+					row.addValue(value);
+				}
+			}
+			this.index++;
+			return true;
+		}
+		
+		return this.source != null && this.source.nextRow(row);
+	}
+	
+	/**
+	 * Closes the row source, if it can be closed, and releases the rows of 
+	 * a spilling sheet along with their spill file. 
+	 * Calling this method more than once has no further effect.
+	 * @throws EEHException
+	 */
+	protected synchronized void close() throws EEHException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		
+		if (this.data instanceof EEHSpillingData) {
+			((EEHSpillingData) this.data).release();
+		}
+		
+		if (this.source instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) this.source).close();
+			} catch (EEHException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				throw new EEHException(EXCEPTION_CLOSE_FAILED + ex.getMessage(), ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+/**
+ * Defines how the rows of data of an EEHSheet are held in memory.
+ * @author jhorvath
+ */
+public enum EEHSheetStorage {
+	
+	/**
+	 * Each row is kept as the list of strings it was added as. 
+	 */
+	ROWS,
+	
+	/**
+	 * Each value is typed as it is added and stored by column: numbers as 
+	 * primitive doubles, booleans as bits and repeated text through a 
+	 * per-column dictionary. This uses several times less memory for large 
+	 * sheets, but rows read back from getData() are copies rebuilt from the 
+	 * typed values, so numbers and booleans come back in their canonical form 
+	 * (for example "5" for "005" and "true" for " TRUE ").
+	 */
+	COLUMNAR,
+	
+	/**
+	 * Rows are kept as lists of strings until their estimated size passes 
+	 * the spill threshold of the sheet, and every later row is appended to a 
+	 * temporary file that is read back in order while the workbook is written. 
+	 * The rows are released and the file deleted once the workbook has been 
+	 * written, whether or not writing succeeded, so each sheet is written once. 
+	 */
+	SPILLING
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The timings and cell counts of one sheet of an export. 
+ * @author jhorvath
+ */
+final public class EEHSheetSummary {
+	
+	private final String sheetName;
+	private final long[] phaseNanos;
+	private final long[] cellCounts;
+	private final List<String> workbookSheetNames;
+	private long rowCount;
+	
+	/**
+	 * Constructor. 
+	 * @param sheetName String
+	 */
+	protected EEHSheetSummary(String sheetName) {
+		this.sheetName = sheetName;
+		this.phaseNanos = new long[EEHExportPhase.values().length];
+		this.cellCounts = new long[EEHCellKind.values().length];
+		this.workbookSheetNames = new ArrayList<>();
+		this.rowCount = 0;
+	}
+	
+	protected void addWorkbookSheetName(String workbookSheetName) {
+		this.workbookSheetNames.add(workbookSheetName);
+	}
+	
+	protected void addPhaseNanos(EEHExportPhase phase, long nanos) {
+		this.phaseNanos[phase.ordinal()] += nanos;
+	}
+	
+	/**
+	 * Counts a written data row and the kind of each of its cells. 
+	 * @param row EEHRow
+	 */
+	protected void countRow(EEHRow row) {
+		this.rowCount++;
+		for (int i = 0; i < row.size(); i++) {
+			this.cellCounts[row.getKind(i).ordinal()]++;
+		}
+	}
+	
+	public String getSheetName() {
+		return this.sheetName;
+	}
+	
+	/**
+	 * Returns the names of the sheets the rows were written to. A sheet whose 
+	 * rows reach the row limit is continued on further sheets with new names. 
+	 * @return List<String>
+	 */
+	public List<String> getWorkbookSheetNames() {
+		return Collections.unmodifiableList(this.workbookSheetNames);
+	}
+	
+	/**
+	 * Returns the number of data rows written, not counting the header row. 
+	 * @return long
+	 */
+	public long getRowCount() {
+		return this.rowCount;
+	}
+	
+	public long getNumericCells() {
+		return this.cellCounts[EEHCellKind.NUMBER.ordinal()];
+	}
+	
+	public long getHyperlinkCells() {
+		return this.cellCounts[EEHCellKind.HYPERLINK.ordinal()];
+	}
+	
+	public long getBooleanCells() {
+		return this.cellCounts[EEHCellKind.BOOLEAN.ordinal()];
+	}
+	
+	public long getTextCells() {
+		return this.cellCounts[EEHCellKind.TEXT.ordinal()];
+	}
+	
+	/**
+	 * Returns the number of data cells written empty, for null values. 
+	 * @return long
+	 */
+	public long getBlankCells() {
+		return this.cellCounts[EEHCellKind.BLANK.ordinal()];
+	}
+	
+	/**
+	 * Returns the time spent on a phase for this sheet. The file 
+	 * is written for the whole workbook, so its time is only 
+	 * reported by the summary of the export. 
+	 * @param phase EEHExportPhase
+	 * @return long The number of nanoseconds.
+	 */
+	public long getPhaseNanos(EEHExportPhase phase) {
+		return this.phaseNanos[phase.ordinal()];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder phases = new StringBuilder();
+		for (EEHExportPhase phase : EEHExportPhase.values()) {
+			phases.append(", ").append(phase).append('=').append(getPhaseNanos(phase) / 1000000).append(" ms");
+		}
+		return "EEHSheetSummary [sheetName=" + sheetName + ", rowCount=" + rowCount 
+				+ ", numericCells=" + getNumericCells() + ", hyperlinkCells=" + getHyperlinkCells() 
+				+ ", booleanCells=" + getBooleanCells() + ", textCells=" + getTextCells() 
+				+ ", blankCells=" + getBlankCells() + phases + "]";
+	}
+}
@@ -0,0 +1,482 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Storage for the rows of an EEHSheet that keeps rows in memory until their 
+ * estimated size passes a threshold, and appends every later row to a 
+ * temporary file. Each spilled row is written as its number of values followed 
+ * by the length and UTF-8 bytes of each value, optionally deflated. 
+ * Spilled rows are read back in order while the workbook is written, and 
+ * rows read back from the list view are copies. The list view only supports 
+ * adding rows to the end and clearing, and clearing deletes the file. 
+ * Once written, the rows are released, and must be added again to be written again. 
+ * @author jhorvath
+ */
+final class EEHSpillingData extends AbstractList<ArrayList<String>> {
+	
+	/**
+	 * Rows are kept in memory until they are estimated to use 64 MB.
+	 */
+	protected static final long DEFAULT_SPILL_THRESHOLD = 64L * 1024 * 1024;
+	
+	/**
+	 * Estimated heap bytes of a row list, and of a string besides its characters.
+	 */
+	private static final long ROW_HEAP_BYTES = 56;
+	private static final long VALUE_HEAP_BYTES = 48;
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	protected static final String EXCEPTION_SPILL_WRITE_FAILED = "Unable to write rows to the spill file. ";
+	protected static final String EXCEPTION_SPILL_READ_FAILED = "Unable to read rows from the spill file. ";
+	protected static final String EXCEPTION_SPILL_BROKEN = "Rows cannot be added after writing to the spill file has failed.";
+	
+	private List<ArrayList<String>> heldRows;
+	private long heldBytes;
+	private int firstRowSize;
+	private long threshold;
+	private boolean compressed;
+	
+	private Path spillFile;
+	private OutputStream spillOut;
+	private Deflater deflater;
+	private int spilledRows;
+	private boolean broken;
+	private boolean released;
+	private SpillReader cursor;
+	
+	/**
+	 * Constructor. 
+	 */
+	protected EEHSpillingData() {
+		this.heldRows = new ArrayList<>();
+		this.threshold = DEFAULT_SPILL_THRESHOLD;
+		this.compressed = false;
+	}
+	
+	protected long getThreshold() {
+		return this.threshold;
+	}
+	
+	/**
+	 * Sets the estimated number of bytes of rows kept in memory. 
+	 * Only affects rows added from then on. 
+	 * @param threshold long
+	 */
+	protected void setThreshold(long threshold) {
+		this.threshold = threshold;
+	}
+	
+	protected boolean isCompressed() {
+		return this.compressed;
+	}
+	
+	protected void setCompressed(boolean compressed) {
+		this.compressed = compressed;
+	}
+	
+	/**
+	 * Returns true once the first row has been written to the spill file.
+	 * @return boolean
+	 */
+	protected boolean isSpilling() {
+		return this.spillOut != null;
+	}
+	
+	protected int getSpilledRows() {
+		return this.spilledRows;
+	}
+	
+	@Override
+	public boolean add(ArrayList<String> rowData) {
+		if (this.broken) {
+			throw new IllegalStateException(EXCEPTION_SPILL_BROKEN);
+		}
+		if (size() == 0) {
+			this.firstRowSize = rowData.size();
+		}
+		this.released = false;
+		
+		if (this.spillOut == null) {
+			long bytes = estimateBytes(rowData);
+			if (this.heldBytes + bytes <= this.threshold) {
+				this.heldRows.add(rowData);
+				this.heldBytes += bytes;
+				this.modCount++;
+				return true;
+			}
+		}
+		
+		try {
+			if (this.spillOut == null) {
+				openSpillFile();
+			}
+			writeRow(rowData);
+		} catch (IOException ex) {
+			this.broken = true;
+			throw new UncheckedIOException(EXCEPTION_SPILL_WRITE_FAILED + ex.getMessage(), ex);
+		}
+		this.spilledRows++;
+		this.modCount++;
+		return true;
+	}
+	
+	@Override
+	public void add(int index, ArrayList<String> rowData) {
+		if (index != size()) {
+			// rows can only be appended
+			throw new UnsupportedOperationException();
+		}
+		add(rowData);
+	}
+	
+	@Override
+	public ArrayList<String> get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		if (index < this.heldRows.size()) {
+			return this.heldRows.get(index);
+		}
+		
+		try {
+			return seek(index - this.heldRows.size()).readRow();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(EXCEPTION_SPILL_READ_FAILED + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Reads the values of a row into the given row. 
+	 * Reading the rows in order reads the spill file once. 
+	 * @param index int 
+	 * @param row EEHRow 
+	 * @throws EEHException
+	 */
+	protected void readRow(int index, EEHRow row) throws EEHException {
+		if (index < this.heldRows.size()) {
+			for (String value : this.heldRows.get(index)) {
+				row.addValue(value);
+			}
+			return;
+		}
+		
+		try {
+			seek(index - this.heldRows.size()).readRow(row);
+		} catch (IOException ex) {
+			throw new EEHException(EXCEPTION_SPILL_READ_FAILED + ex.getMessage(), ex);
+		}
+	}
+	
+	/**
+	 * Removes all rows and deletes the spill file once the rows have been written, 
+	 * so that writing them again fails instead of writing no rows. 
+	 */
+	protected void release() {
+		clear();
+		this.released = true;
+	}
+	
+	/**
+	 * Returns true when the rows were released by a write, 
+	 * and no rows have been added since. 
+	 * @return boolean
+	 */
+	protected boolean isReleased() {
+		return this.released;
+	}
+	
+	/**
+	 * Returns the number of values in the first row, without reading it back 
+	 * from the spill file. 
+	 * @return int The number of values, or zero when there are no rows.
+	 */
+	protected int getFirstRowSize() {
+		return this.firstRowSize;
+	}
+	
+	@Override
+	public int size() {
+		return this.heldRows.size() + this.spilledRows;
+	}
+	
+	/**
+	 * Removes all rows and deletes the spill file. 
+	 */
+	@Override
+	public void clear() {
+		closeCursor();
+		
+		if (this.spillOut != null) {
+			try {
+				this.spillOut.close();
+			} catch (IOException ex) {
+				// the file is deleted either way
+			}
+			this.spillOut = null;
+		}
+		if (this.deflater != null) {
+			this.deflater.end();
+			this.deflater = null;
+		}
+		deleteSpillFile();
+		
+		this.heldRows = new ArrayList<>();
+		this.heldBytes = 0;
+		this.firstRowSize = 0;
+		this.spilledRows = 0;
+		this.broken = false;
+		this.released = false;
+		this.modCount++;
+	}
+	
+	/**
+	 * Estimates the heap bytes used by a row of strings.
+	 * @param rowData List<String> 
+	 * @return long 
+	 */
+	private static long estimateBytes(List<String> rowData) {
+		long bytes = ROW_HEAP_BYTES + 8L * rowData.size();
+		for (String value : rowData) {
+			if (value != null) {
+				bytes += VALUE_HEAP_BYTES + 2L * value.length();
+			}
+		}
+		return bytes;
+	}
+	
+	private void openSpillFile() throws IOException {
+		this.spillFile = Files.createTempFile("eeh-spill", ".bin");
+		
+		try {
+			OutputStream out = new FileOutputStream(this.spillFile.toFile());
+			if (this.compressed) {
+				// sync flushing lets rows be read back while more are appended
+				this.deflater = new Deflater(Deflater.BEST_SPEED);
+				out = new DeflaterOutputStream(out, this.deflater, BUFFER_SIZE, true);
+			}
+			this.spillOut = new BufferedOutputStream(out, BUFFER_SIZE);
+			
+		} catch (IOException | RuntimeException ex) {
+			deleteSpillFile();
+			throw ex;
+		}
+	}
+	
+	private void deleteSpillFile() {
+		if (this.spillFile != null) {
+			try {
+				Files.deleteIfExists(this.spillFile);
+			} catch (IOException ex) {
+				this.spillFile.toFile().deleteOnExit();
+			}
+			this.spillFile = null;
+		}
+	}
+	
+	/**
+	 * Writes the number of values of a row, then for each value its length 
+	 * plus one, or zero for null, followed by its UTF-8 bytes.
+	 * @param rowData List<String> 
+	 * @throws IOException
+	 */
+	private void writeRow(List<String> rowData) throws IOException {
+		OutputStream out = this.spillOut;
+		writeVarInt(out, rowData.size());
+		
+		for (String value : rowData) {
+			if (value == null) {
+				out.write(0);
+			} else {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(out, bytes.length + 1);
+				out.write(bytes);
+			}
+		}
+	}
+	
+	private static void writeVarInt(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+	
+	/**
+	 * Returns a reader positioned at the given spilled row. The current reader 
+	 * is reused when reading forward through rows it can see. 
+	 * @param spilledIndex int 
+	 * @return SpillReader 
+	 * @throws IOException
+	 */
+	private SpillReader seek(int spilledIndex) throws IOException {
+		if (this.cursor == null || this.cursor.next > spilledIndex || this.cursor.limit <= spilledIndex) {
+			closeCursor();
+			this.spillOut.flush();
+			this.cursor = new SpillReader(this.spilledRows);
+		}
+		while (this.cursor.next < spilledIndex) {
+			this.cursor.skipRow();
+		}
+		return this.cursor;
+	}
+	
+	private void closeCursor() {
+		if (this.cursor != null) {
+			this.cursor.close();
+			this.cursor = null;
+		}
+	}
+	
+	/**
+	 * Reads spilled rows in order.
+	 */
+	private final class SpillReader implements Closeable {
+		
+		private InputStream in;
+		private Inflater inflater;
+		private byte[] buffer;
+		private int next;
+		private int limit;
+		
+		/**
+		 * Constructor. 
+		 * @param limit int The number of rows written to the file.
+		 * @throws IOException
+		 */
+		private SpillReader(int limit) throws IOException {
+			InputStream file = new FileInputStream(spillFile.toFile());
+			if (compressed) {
+				this.inflater = new Inflater();
+				file = new InflaterInputStream(file, this.inflater, BUFFER_SIZE);
+			}
+			this.in = new BufferedInputStream(file, BUFFER_SIZE);
+			this.buffer = new byte[256];
+			this.next = 0;
+			this.limit = limit;
+		}
+		
+		private ArrayList<String> readRow() throws IOException {
+			int count = readVarInt();
+			ArrayList<String> rowData = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				rowData.add(readValue());
+			}
+			this.next++;
+			return rowData;
+		}
+		
+		private void readRow(EEHRow row) throws IOException {
+			int count = readVarInt();
+			for (int i = 0; i < count; i++) {
+				row.addValue(readValue());
+			}
+			this.next++;
+		}
+		
+		private void skipRow() throws IOException {
+			int count = readVarInt();
+			for (int i = 0; i < count; i++) {
+				int length = readVarInt();
+				if (length > 0) {
+					readBytes(length - 1);
+				}
+			}
+			this.next++;
+		}
+		
+		private String readValue() throws IOException {
+			int length = readVarInt();
+			if (length == 0) {
+				return null;
+			}
+			readBytes(length - 1);
+			return new String(this.buffer, 0, length - 1, StandardCharsets.UTF_8);
+		}
+		
+		private void readBytes(int length) throws IOException {
+			if (this.buffer.length < length) {
+				this.buffer = new byte[Math.max(length, this.buffer.length * 2)];
+			}
+			int offset = 0;
+			while (offset < length) {
+				int read = this.in.read(this.buffer, offset, length - offset);
+				if (read < 0) {
+					throw new EOFException();
+				}
+				offset += read;
+			}
+		}
+		
+		private int readVarInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; ; shift += 7) {
+				int b = this.in.read();
+				if (b < 0) {
+					throw new EOFException();
+				}
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+		}
+		
+		@Override
+		public void close() {
+			try {
+				this.in.close();
+			} catch (IOException ex) {
+				// nothing was written through the reader
+			}
+			if (this.inflater != null) {
+				this.inflater.end();
+			}
+		}
+	}
+}
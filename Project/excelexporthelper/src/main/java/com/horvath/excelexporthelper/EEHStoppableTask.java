@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A task for an executor that can be waited on after its future is cancelled. 
+ * Cancelling a future only interrupts a running task, so anything the task reads 
+ * or writes is only released once awaitStopped() returns. 
+ * @author jhorvath
+ * @param <V> The result of the task.
+ */
+final class EEHStoppableTask<V> implements Callable<V> {
+	
+	private final Callable<V> task;
+	private final AtomicBoolean started;
+	private final CountDownLatch stopped;
+	
+	/**
+	 * Constructor. 
+	 * @param task Callable<V> The work of the task.
+	 */
+	protected EEHStoppableTask(Callable<V> task) {
+		this.task = task;
+		this.started = new AtomicBoolean(false);
+		this.stopped = new CountDownLatch(1);
+	}
+	
+	@Override
+	public V call() throws Exception {
+		if (!this.started.compareAndSet(false, true)) {
+			// the task was stopped before it started
+			return null;
+		}
+		try {
+			return this.task.call();
+		} finally {
+			this.stopped.countDown();
+		}
+	}
+	
+	/**
+	 * Waits for a started task to stop, and keeps a task that has not 
+	 * started from ever starting. An interrupt does not end the wait, 
+	 * and is kept for the caller. 
+	 */
+	protected void awaitStopped() {
+		if (this.started.compareAndSet(false, true)) {
+			return;
+		}
+		boolean interrupted = false;
+		while (true) {
+			try {
+				this.stopped.await();
+				break;
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Hands out the cell styles used by EEH for a workbook. 
+ * Each distinct style is created once and shared by every cell and sheet 
+ * that uses it, so the number of styles in the file does not grow with 
+ * the number of rows. 
+ * @author jhorvath
+ */
+final class EEHStyleRegistry {
+	
+	private Workbook workbook;
+	private CellStyle headerStyle;
+	private CellStyle hyperlinkStyle;
+	
+	/**
+	 * Constructor. 
+	 * @param workbook Workbook The workbook the styles belong to.
+	 */
+	protected EEHStyleRegistry(Workbook workbook) {
+		this.workbook = workbook;
+	}
+	
+	/**
+	 * Returns the bold style used for header row cells.
+	 * @return CellStyle 
+	 */
+	protected CellStyle getHeaderStyle() {
+		if (this.headerStyle == null) {
+            Font font = this.workbook.createFont();
+            font.setBold(true);
+            
+            this.headerStyle = this.workbook.createCellStyle();
+            this.headerStyle.setFont(font);
+		}
+		return this.headerStyle;
+	}
+	
+	/**
+	 * Returns the underlined blue style used for hyperlink cells. 
+	 * @return CellStyle 
+	 */
+	protected CellStyle getHyperlinkStyle() {
+		if (this.hyperlinkStyle == null) {
+    		Font font = this.workbook.createFont();
+    		font.setUnderline(Font.U_SINGLE);
+    		font.setColor(IndexedColors.BLUE.getIndex());
+    		
+    		this.hyperlinkStyle = this.workbook.createCellStyle();
+    		this.hyperlinkStyle.setFont(font);
+		}
+		return this.hyperlinkStyle;
+	}
+}
@@ -0,0 +1,843 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * Appends sheets and rows to an existing workbook by writing a new archive. 
+ * The parts that do not change, such as the sheets that are not appended to, 
+ * are copied to the new archive as they are, without being read or compressed 
+ * again. The part of a sheet that rows are appended to is read, rewritten and 
+ * compressed again with the new rows, so appending to an existing sheet takes 
+ * time that grows with the rows that sheet already holds. The rows added to an existing sheet follow its last row, and their 
+ * text is written in the cells so the shared strings of the workbook are kept. 
+ * @author jhorvath
+ */
+final class EEHWorkbookAppender implements Closeable {
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private static final String CONTENT_TYPES_PART = "[Content_Types].xml";
+	private static final String ROOT_RELATIONSHIPS_PART = "_rels/.rels";
+	private static final String WORKSHEET_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml";
+	
+	private static final Pattern SHEET_ELEMENT = Pattern.compile("<sheet\\s[^>]*>");
+	private static final Pattern RELATIONSHIP_ELEMENT = Pattern.compile("<Relationship\\s[^>]*>");
+	private static final Pattern ATTRIBUTE = Pattern.compile("([\\w:.-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+	private static final Pattern SHEET_PART = Pattern.compile("xl/worksheets/sheet(\\d+)\\.xml");
+	private static final Pattern NUMBERED_ID = Pattern.compile("rId(\\d+)");
+	private static final Pattern FONT_ELEMENT = Pattern.compile("<font\\b(?:[^>]*/>|.*?</font>)", Pattern.DOTALL);
+	private static final Pattern STYLE_ELEMENT = Pattern.compile("<xf\\b(?:[^>]*/>|.*?</xf>)", Pattern.DOTALL);
+	private static final Pattern COUNT_ATTRIBUTE = Pattern.compile("\\scount=\"\\d*\"");
+	
+	/**
+	 * The elements that follow the hyperlinks of a sheet, so new hyperlinks 
+	 * go before the first of them when the sheet has none yet.
+	 */
+	private static final Set<String> AFTER_HYPERLINKS = new HashSet<>(Arrays.asList("printOptions", "pageMargins", 
+			"pageSetup", "headerFooter", "rowBreaks", "colBreaks", "customProperties", "cellWatches", "ignoredErrors", 
+			"smartTags", "drawing", "legacyDrawing", "legacyDrawingHF", "drawingHF", "picture", "oleObjects", 
+			"controls", "webPublishItems", "tableParts", "extLst", "/worksheet"));
+	
+	private static final byte[] WORKSHEET_TAG = ascii("<worksheet");
+	private static final byte[] DIMENSION_TAG = ascii("<dimension");
+	private static final byte[] ROW_TAG = ascii("<row");
+	private static final byte[] SHEET_DATA_TAG = ascii("<sheetData");
+	private static final byte[] SHEET_DATA_END_TAG = ascii("</sheetData");
+	private static final byte[] HYPERLINKS_END_TAG = ascii("</hyperlinks");
+	
+	protected static final String EXCEPTION_NOT_A_WORKBOOK = "The file is not a workbook that can be appended to: ";
+	protected static final String EXCEPTION_NO_SHEET_DATA = "The rows of the sheet could not be found to append to: ";
+	
+	private ZipFile source;
+	private List<String> sheetNames;
+	private Map<String, String> sheetParts;
+	private int sheetPartCount;
+	private int nextSheetId;
+	private String sheetIdAttribute;
+	
+	private String workbookPart;
+	private String workbook;
+	private String workbookRelationshipsPart;
+	private String workbookRelationships;
+	private int nextRelationshipId;
+	private String worksheetRelationshipType;
+	private String contentTypes;
+	
+	private String stylesPart;
+	private String styles;
+	private boolean stylesChanged;
+	private int headerStyle;
+	private int hyperlinkStyle;
+	
+	private ZipArchiveOutputStream archive;
+	private EEHXmlWriter xml;
+	private EEHDirectWorkbookWriter writer;
+	private EEHRollover rollover;
+	private Set<String> writtenParts;
+	
+	/**
+	 * Constructor. Opens the workbook and reads the list of its sheets and its styles. 
+	 * @param file File The workbook to append to.
+	 * @throws EEHException When the file is not a workbook.
+	 * @throws IOException
+	 */
+	protected EEHWorkbookAppender(File file) throws EEHException, IOException {
+		try {
+			this.source = new ZipFile(file);
+		} catch (IOException ex) {
+			throw new EEHException(EXCEPTION_NOT_A_WORKBOOK + file.getName(), ex);
+		}
+		
+		try {
+			readWorkbook(file);
+			readStyles(file);
+		} catch (EEHException | IOException | RuntimeException ex) {
+			this.source.close();
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Starts the archive of the appended workbook. 
+	 * @param out OutputStream The stream the archive is written to, which is not closed.
+	 * @param rollover EEHRollover Names the new sheets and limits the rows of the sheets.
+	 * @param columnSizing EEHColumnSizing The sizing of the columns of new sheets.
+	 * @param compressionLevel int The deflate level of the parts that are written.
+	 */
+	protected void start(OutputStream out, EEHRollover rollover, EEHColumnSizing columnSizing, int compressionLevel) {
+		this.archive = new ZipArchiveOutputStream(out);
+		this.archive.setLevel(compressionLevel);
+		this.xml = new EEHXmlWriter(this.archive);
+		this.rollover = rollover;
+		this.rollover.addExistingSheets(this.sheetNames);
+		this.writer = new EEHDirectWorkbookWriter(this.archive, this.xml, rollover, columnSizing, 
+				this.sheetPartCount, this.headerStyle, this.hyperlinkStyle);
+		this.writtenParts = new HashSet<>();
+	}
+	
+	/**
+	 * Tests if the workbook holds a sheet with the given name, ignoring case as Excel does.
+	 * @param sheetName String 
+	 * @return boolean 
+	 */
+	protected boolean hasSheet(String sheetName) {
+		return this.sheetParts.containsKey(sheetName);
+	}
+	
+	/**
+	 * Adds the rows of the cursor after the last row of the existing sheet with 
+	 * the name of the given sheet, until the rows run out or the sheet is full. 
+	 * The header row of the given sheet is not written again. 
+	 * @param eehSheet EEHSheet 
+	 * @param rows EEHRowCursor 
+	 * @param summary EEHSheetSummary 
+	 * @return boolean True when the sheet is full and rows remain for a sheet that continues it.
+	 * @throws EEHException
+	 * @throws IOException
+	 */
+	protected boolean appendRows(EEHSheet eehSheet, EEHRowCursor rows, 
+			EEHSheetSummary summary) throws EEHException, IOException {
+		
+		long mark = System.nanoTime();
+		String sheetName = eehSheet.getSheetName();
+		for (String name : this.sheetNames) {
+			if (name.equalsIgnoreCase(sheetName)) {
+				summary.addWorkbookSheetName(name);
+			}
+		}
+		this.rollover.resumeSheet(eehSheet);
+		
+		String part = this.sheetParts.get(sheetName);
+		ZipArchiveEntry entry = part == null ? null : this.source.getEntry(part);
+		if (entry == null) {
+			throw new EEHException(EXCEPTION_NO_SHEET_DATA + sheetName);
+		}
+		
+		// new hyperlinks use the relationship ids after those of the sheet
+		String relationshipsPart = getRelationshipsPart(part);
+		String relationships = readPart(relationshipsPart);
+		EEHDirectWorkbookWriter.Hyperlinks hyperlinks = new EEHDirectWorkbookWriter.Hyperlinks(
+				relationships == null ? 1 : getNextNumberedId(relationships));
+		
+		this.archive.putArchiveEntry(new ZipArchiveEntry(part));
+		boolean full;
+		
+		try (InputStream in = this.source.getInputStream(entry)) {
+			SheetCopy copy = new SheetCopy(rows, hyperlinks, summary);
+			full = copy.copy(in, mark, sheetName);
+		}
+		this.xml.flush();
+		this.archive.closeArchiveEntry();
+		this.writtenParts.add(part);
+		
+		if (hyperlinks.hasRelationships()) {
+			writeRelationships(relationshipsPart, relationships, hyperlinks);
+		}
+		return full;
+	}
+	
+	/**
+	 * Adds a new sheet after the sheets of the workbook with the rows of the cursor, 
+	 * until the rows run out or the sheet is full. 
+	 * @param eehSheet EEHSheet 
+	 * @param rows EEHRowCursor 
+	 * @param summary EEHSheetSummary 
+	 * @return boolean True when the sheet is full and rows remain for a sheet that continues it.
+	 * @throws EEHException
+	 * @throws IOException
+	 */
+	protected boolean addSheet(EEHSheet eehSheet, EEHRowCursor rows, 
+			EEHSheetSummary summary) throws EEHException, IOException {
+		return this.writer.writeSheet(eehSheet, rows, summary);
+	}
+	
+	/**
+	 * Copies the parts that did not change, adds the new sheets to the 
+	 * workbook and completes the archive. 
+	 * @throws IOException
+	 */
+	protected void finish() throws IOException {
+		List<String> addedSheets = this.writer.getSheetNames();
+		Set<String> changedParts = new HashSet<>(this.writtenParts);
+		
+		if (!addedSheets.isEmpty()) {
+			changedParts.add(this.workbookPart);
+			changedParts.add(this.workbookRelationshipsPart);
+			changedParts.add(CONTENT_TYPES_PART);
+		}
+		if (this.stylesChanged) {
+			changedParts.add(this.stylesPart);
+		}
+		
+		// the compressed data of the other parts is copied without being inflated
+		for (ZipArchiveEntry entry : Collections.list(this.source.getEntriesInPhysicalOrder())) {
+			if (!changedParts.contains(entry.getName())) {
+				this.archive.addRawArchiveEntry(entry, this.source.getRawInputStream(entry));
+			}
+		}
+		
+		if (!addedSheets.isEmpty()) {
+			StringBuilder sheets = new StringBuilder();
+			StringBuilder relationships = new StringBuilder();
+			StringBuilder overrides = new StringBuilder();
+			
+			for (int i = 0; i < addedSheets.size(); i++) {
+				int partNumber = this.sheetPartCount + i + 1;
+				String id = "rId" + (this.nextRelationshipId + i);
+				
+				sheets.append("<sheet name=\"").append(escapeAttribute(addedSheets.get(i)))
+					.append("\" sheetId=\"").append(this.nextSheetId + i)
+					.append("\" ").append(this.sheetIdAttribute).append("=\"").append(id).append("\"/>");
+				relationships.append("<Relationship Id=\"").append(id)
+					.append("\" Type=\"").append(this.worksheetRelationshipType)
+					.append("\" Target=\"/xl/worksheets/sheet").append(partNumber).append(".xml\"/>");
+				overrides.append("<Override PartName=\"/xl/worksheets/sheet").append(partNumber)
+					.append(".xml\" ContentType=\"").append(WORKSHEET_CONTENT_TYPE).append("\"/>");
+			}
+			
+			writePart(this.workbookPart, insertBefore(this.workbook, "</sheets>", sheets));
+			writePart(this.workbookRelationshipsPart, insertBefore(this.workbookRelationships, "</Relationships>", relationships));
+			writePart(CONTENT_TYPES_PART, insertBefore(this.contentTypes, "</Types>", overrides));
+		}
+		if (this.stylesChanged) {
+			writePart(this.stylesPart, this.styles);
+		}
+		
+		this.archive.finish();
+		this.archive.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.source.close();
+	}
+	
+	/**
+	 * Reads the sheets of the workbook and the parts they are held in.
+	 * @param file File 
+	 * @throws EEHException
+	 * @throws IOException
+	 */
+	private void readWorkbook(File file) throws EEHException, IOException {
+		String rootRelationships = readPart(ROOT_RELATIONSHIPS_PART);
+		this.contentTypes = readPart(CONTENT_TYPES_PART);
+		if (rootRelationships == null || this.contentTypes == null || !this.contentTypes.contains("</Types>")) {
+			throw new EEHException(EXCEPTION_NOT_A_WORKBOOK + file.getName());
+		}
+		
+		for (Map<String, String> relationship : readElements(RELATIONSHIP_ELEMENT, rootRelationships)) {
+			if (relationship.getOrDefault("Type", "").endsWith("/officeDocument")) {
+				this.workbookPart = resolvePart("", relationship.get("Target"));
+			}
+		}
+		if (this.workbookPart != null) {
+			this.workbook = readPart(this.workbookPart);
+			this.workbookRelationshipsPart = getRelationshipsPart(this.workbookPart);
+			this.workbookRelationships = readPart(this.workbookRelationshipsPart);
+		}
+		if (this.workbook == null || !this.workbook.contains("</sheets>") 
+				|| this.workbookRelationships == null || !this.workbookRelationships.contains("</Relationships>")) {
+			throw new EEHException(EXCEPTION_NOT_A_WORKBOOK + file.getName());
+		}
+		
+		Map<String, String> targets = new HashMap<>();
+		this.worksheetRelationshipType = EEHDirectWorkbookWriter.RELATIONSHIPS_NAMESPACE + "/worksheet";
+		
+		for (Map<String, String> relationship : readElements(RELATIONSHIP_ELEMENT, this.workbookRelationships)) {
+			String type = relationship.getOrDefault("Type", "");
+			String target = resolvePart(this.workbookPart, relationship.get("Target"));
+			targets.put(relationship.get("Id"), target);
+			
+			if (type.endsWith("/styles")) {
+				this.stylesPart = target;
+			} else if (type.endsWith("/worksheet")) {
+				this.worksheetRelationshipType = type;
+			}
+		}
+		this.nextRelationshipId = getNextNumberedId(this.workbookRelationships);
+		
+		// names of sheets are unique in a workbook regardless of case
+		this.sheetNames = new ArrayList<>();
+		this.sheetParts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		this.nextSheetId = 1;
+		
+		for (Map<String, String> sheet : readElements(SHEET_ELEMENT, this.workbook)) {
+			String name = sheet.get("name");
+			String id = null;
+			
+			for (Map.Entry<String, String> attribute : sheet.entrySet()) {
+				if (attribute.getKey().endsWith(":id")) {
+					this.sheetIdAttribute = attribute.getKey();
+					id = attribute.getValue();
+				}
+			}
+			if (name == null || id == null) {
+				throw new EEHException(EXCEPTION_NOT_A_WORKBOOK + file.getName());
+			}
+			
+			this.sheetNames.add(name);
+			this.sheetParts.put(name, targets.get(id));
+			try {
+				this.nextSheetId = Math.max(this.nextSheetId, Integer.parseInt(sheet.getOrDefault("sheetId", "0")) + 1);
+			} catch (NumberFormatException ex) {
+				throw new EEHException(EXCEPTION_NOT_A_WORKBOOK + file.getName(), ex);
+			}
+		}
+		if (this.sheetNames.isEmpty()) {
+			throw new EEHException(EXCEPTION_NOT_A_WORKBOOK + file.getName());
+		}
+		
+		// new sheets are numbered after every sheet part in the archive
+		this.sheetPartCount = 0;
+		for (ZipArchiveEntry entry : Collections.list(this.source.getEntries())) {
+			Matcher matcher = SHEET_PART.matcher(entry.getName());
+			if (matcher.matches()) {
+				this.sheetPartCount = Math.max(this.sheetPartCount, Integer.parseInt(matcher.group(1)));
+			}
+		}
+	}
+	
+	/**
+	 * Finds the header and hyperlink cell styles in the styles of the workbook, 
+	 * and adds them when the workbook does not have them yet. 
+	 * @param file File 
+	 * @throws EEHException
+	 * @throws IOException
+	 */
+	private void readStyles(File file) throws EEHException, IOException {
+		this.styles = this.stylesPart == null ? null : readPart(this.stylesPart);
+		if (this.styles == null) {
+			throw new EEHException(EXCEPTION_NOT_A_WORKBOOK + file.getName());
+		}
+		this.stylesChanged = false;
+		
+		int headerFont = findStyleElement("fonts", FONT_ELEMENT, EEHDirectWorkbookWriter.HEADER_FONT, file);
+		int hyperlinkFont = findStyleElement("fonts", FONT_ELEMENT, EEHDirectWorkbookWriter.HYPERLINK_FONT, file);
+		this.headerStyle = findStyleElement("cellXfs", STYLE_ELEMENT, EEHDirectWorkbookWriter.createFontStyle(headerFont), file);
+		this.hyperlinkStyle = findStyleElement("cellXfs", STYLE_ELEMENT, EEHDirectWorkbookWriter.createFontStyle(hyperlinkFont), file);
+	}
+	
+	/**
+	 * Returns the index of an element in a list of the styles, adding it to the 
+	 * end of the list when it is not there, so appending again adds nothing. 
+	 * @param listName String The name of the list, such as "fonts".
+	 * @param elementPattern Pattern Matches the elements of the list.
+	 * @param element String The element as EEH writes it.
+	 * @param file File 
+	 * @return int 
+	 * @throws EEHException
+	 */
+	private int findStyleElement(String listName, Pattern elementPattern, String element, File file) throws EEHException {
+		Matcher start = Pattern.compile("<" + listName + "\\b[^>]*>").matcher(this.styles);
+		int end = this.styles.indexOf("</" + listName + ">");
+		if (!start.find() || end < start.end()) {
+			throw new EEHException(EXCEPTION_NOT_A_WORKBOOK + file.getName());
+		}
+		
+		Matcher elements = elementPattern.matcher(this.styles).region(start.end(), end);
+		int count = 0;
+		while (elements.find()) {
+			if (elements.group().equals(element)) {
+				return count;
+			}
+			count++;
+		}
+		
+		String startTag = start.group();
+		Matcher countAttribute = COUNT_ATTRIBUTE.matcher(startTag);
+		if (countAttribute.find()) {
+			startTag = countAttribute.replaceFirst(" count=\"" + (count + 1) + "\"");
+		} else {
+			startTag = startTag.substring(0, startTag.length() - 1) + " count=\"" + (count + 1) + "\">";
+		}
+		
+		this.styles = this.styles.substring(0, start.start()) + startTag 
+				+ this.styles.substring(start.end(), end) + element + this.styles.substring(end);
+		this.stylesChanged = true;
+		return count;
+	}
+	
+	/**
+	 * Writes the relationships of a sheet with those of its new hyperlinks added.
+	 * @param part String 
+	 * @param relationships String The existing relationships, or null when the sheet has none.
+	 * @param hyperlinks Hyperlinks 
+	 * @throws IOException
+	 */
+	private void writeRelationships(String part, String relationships, 
+			EEHDirectWorkbookWriter.Hyperlinks hyperlinks) throws IOException {
+		
+		int end = relationships == null ? -1 : relationships.lastIndexOf("</Relationships>");
+		this.archive.putArchiveEntry(new ZipArchiveEntry(part));
+		
+		if (end < 0) {
+			this.xml.write(EEHDirectWorkbookWriter.XML_DECLARATION).write("<Relationships xmlns=\"")
+				.write(EEHDirectWorkbookWriter.PACKAGE_RELATIONSHIPS_NAMESPACE).write("\">");
+			this.writer.writeHyperlinkRelationships(hyperlinks);
+			this.xml.write("</Relationships>");
+		} else {
+			this.xml.write(relationships.substring(0, end).getBytes(StandardCharsets.UTF_8));
+			this.writer.writeHyperlinkRelationships(hyperlinks);
+			this.xml.write(relationships.substring(end).getBytes(StandardCharsets.UTF_8));
+		}
+		
+		this.xml.flush();
+		this.archive.closeArchiveEntry();
+		this.writtenParts.add(part);
+	}
+	
+	private void writePart(String name, String content) throws IOException {
+		this.archive.putArchiveEntry(new ZipArchiveEntry(name));
+		this.xml.write(content.getBytes(StandardCharsets.UTF_8));
+		this.xml.flush();
+		this.archive.closeArchiveEntry();
+	}
+	
+	/**
+	 * Reads a part of the workbook as text.
+	 * @param name String 
+	 * @return String The text, or null when the workbook has no such part.
+	 * @throws IOException
+	 */
+	private String readPart(String name) throws IOException {
+		ZipArchiveEntry entry = this.source.getEntry(name);
+		if (entry == null) {
+			return null;
+		}
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		try (InputStream in = this.source.getInputStream(entry)) {
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, n);
+			}
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Returns the attributes of each element the pattern finds in the text.
+	 * @param elementPattern Pattern 
+	 * @param text String 
+	 * @return List<Map<String, String>>
+	 */
+	private static List<Map<String, String>> readElements(Pattern elementPattern, String text) {
+		List<Map<String, String>> elements = new ArrayList<>();
+		Matcher element = elementPattern.matcher(text);
+		
+		while (element.find()) {
+			Map<String, String> attributes = new HashMap<>();
+			Matcher attribute = ATTRIBUTE.matcher(element.group());
+			while (attribute.find()) {
+				String value = attribute.group(2) != null ? attribute.group(2) : attribute.group(3);
+				attributes.put(attribute.group(1), unescape(value));
+			}
+			elements.add(attributes);
+		}
+		return elements;
+	}
+	
+	/**
+	 * Returns the number after the highest numbered relationship id, such as "rId3", in the text.
+	 * @param relationships String 
+	 * @return int 
+	 */
+	private static int getNextNumberedId(String relationships) {
+		int next = 1;
+		Matcher id = NUMBERED_ID.matcher(relationships);
+		while (id.find()) {
+			try {
+				next = Math.max(next, Integer.parseInt(id.group(1)) + 1);
+			} catch (NumberFormatException ex) {
+				// too large to be one of the ids used
+			}
+		}
+		return next;
+	}
+	
+	/**
+	 * Returns the name of the part a relationship target refers to. 
+	 * @param sourcePart String The part the relationship belongs to, or "" for the package.
+	 * @param target String 
+	 * @return String 
+	 */
+	private static String resolvePart(String sourcePart, String target) {
+		if (target == null) {
+			return null;
+		}
+		if (target.startsWith("/")) {
+			return target.substring(1);
+		}
+		
+		List<String> segments = new ArrayList<>(Arrays.asList(sourcePart.split("/")));
+		segments.remove(segments.size() - 1);
+		for (String segment : target.split("/")) {
+			if (segment.equals("..")) {
+				if (!segments.isEmpty()) {
+					segments.remove(segments.size() - 1);
+				}
+			} else if (!segment.isEmpty() && !segment.equals(".")) {
+				segments.add(segment);
+			}
+		}
+		return String.join("/", segments);
+	}
+	
+	/**
+	 * Returns the name of the part that holds the relationships of a part. 
+	 * @param part String 
+	 * @return String 
+	 */
+	private static String getRelationshipsPart(String part) {
+		int slash = part.lastIndexOf('/');
+		return part.substring(0, slash + 1) + "_rels/" + part.substring(slash + 1) + ".rels";
+	}
+	
+	private static String insertBefore(String text, String tag, CharSequence insert) {
+		int index = text.lastIndexOf(tag);
+		return text.substring(0, index) + insert + text.substring(index);
+	}
+	
+	private static String unescape(String value) {
+		if (value.indexOf('&') < 0) {
+			return value;
+		}
+		
+		StringBuilder text = new StringBuilder(value.length());
+		int i = 0;
+		while (i < value.length()) {
+			char c = value.charAt(i);
+			int end = value.indexOf(';', i);
+			
+			if (c != '&' || end < 0) {
+				text.append(c);
+				i++;
+				continue;
+			}
+			
+			String entity = value.substring(i + 1, end);
+			if (entity.equals("amp")) {
+				text.append('&');
+			} else if (entity.equals("lt")) {
+				text.append('<');
+			} else if (entity.equals("gt")) {
+				text.append('>');
+			} else if (entity.equals("quot")) {
+				text.append('"');
+			} else if (entity.equals("apos")) {
+				text.append('\'');
+			} else if (entity.startsWith("#x")) {
+				text.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+			} else if (entity.startsWith("#")) {
+				text.appendCodePoint(Integer.parseInt(entity.substring(1)));
+			} else {
+				text.append(value, i, end + 1);
+			}
+			i = end + 1;
+		}
+		return text.toString();
+	}
+	
+	private static String escapeAttribute(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+				.replace("\"", "&quot;").replace("'", "&apos;");
+	}
+	
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * Copies an existing sheet to the archive tag by tag, without parsing it, adding 
+	 * the new rows before the end of its rows and their hyperlinks after its own. 
+	 * Everything else is copied as it is, apart from the dimension of the sheet, 
+	 * which is left out as it no longer covers the rows. 
+	 */
+	private final class SheetCopy {
+		
+		private EEHRowCursor rows;
+		private EEHDirectWorkbookWriter.Hyperlinks hyperlinks;
+		private EEHSheetSummary summary;
+		
+		private byte[] tag;
+		private int tagLength;
+		private int rowCount;
+		private boolean rowsAdded;
+		private boolean hyperlinksAdded;
+		private boolean full;
+		private long mark;
+		
+		private SheetCopy(EEHRowCursor rows, EEHDirectWorkbookWriter.Hyperlinks hyperlinks, EEHSheetSummary summary) {
+			this.rows = rows;
+			this.hyperlinks = hyperlinks;
+			this.summary = summary;
+			this.tag = new byte[256];
+			this.tagLength = 0;
+			this.rowCount = 0;
+			this.rowsAdded = false;
+			this.hyperlinksAdded = false;
+			this.full = false;
+		}
+		
+		/**
+		 * Copies the sheet. 
+		 * @param in InputStream The part of the sheet.
+		 * @param mark long The time the sheet was started.
+		 * @param sheetName String 
+		 * @return boolean True when the sheet is full and rows remain.
+		 * @throws IOException
+		 * @throws EEHException
+		 */
+		private boolean copy(InputStream in, long mark, String sheetName) throws IOException, EEHException {
+			this.mark = mark;
+			byte[] buffer = new byte[BUFFER_SIZE];
+			boolean inTag = false;
+			byte quote = 0;
+			int n;
+			
+			while ((n = in.read(buffer)) != -1) {
+				int start = 0;
+				
+				for (int i = 0; i < n; i++) {
+					byte b = buffer[i];
+					
+					if (!inTag) {
+						if (b == '<') {
+							xml.write(buffer, start, i - start);
+							inTag = true;
+							this.tagLength = 0;
+							addToTag(b);
+						}
+						continue;
+					}
+					
+					addToTag(b);
+					if (quote != 0) {
+						if (b == quote) {
+							quote = 0;
+						}
+					} else if (b == '"' || b == '\'') {
+						// a quoted attribute value may hold a '>'
+						quote = b;
+					} else if (b == '>') {
+						inTag = false;
+						copyTag();
+						start = i + 1;
+					}
+				}
+				if (!inTag) {
+					xml.write(buffer, start, n - start);
+				}
+			}
+			
+			if (!this.rowsAdded || (this.hyperlinks.hasRelationships() && !this.hyperlinksAdded)) {
+				throw new EEHException(EXCEPTION_NO_SHEET_DATA + sheetName);
+			}
+			EEHExcelFileWriter.addPhaseNanos(this.summary, EEHExportPhase.CREATE_SHEET, this.mark);
+			return this.full;
+		}
+		
+		private void copyTag() throws IOException, EEHException {
+			if (!this.rowsAdded) {
+				if (isTag(ROW_TAG)) {
+					readRowNumber();
+					
+				} else if (isTag(DIMENSION_TAG)) {
+					return;
+					
+				} else if (isTag(WORKSHEET_TAG)) {
+					declareRelationshipsNamespace();
+					
+				} else if (isTag(SHEET_DATA_END_TAG)) {
+					addRows();
+					
+				} else if (isTag(SHEET_DATA_TAG) && this.tag[this.tagLength - 2] == '/') {
+					// a sheet without rows
+					xml.write("<sheetData>");
+					addRows();
+					xml.write("</sheetData>");
+					return;
+				}
+				
+			} else if (this.hyperlinks.hasRelationships() && !this.hyperlinksAdded) {
+				if (isTag(HYPERLINKS_END_TAG)) {
+					writer.writeHyperlinks(this.hyperlinks);
+					this.hyperlinksAdded = true;
+					
+				} else if (AFTER_HYPERLINKS.contains(getTagName())) {
+					xml.write("<hyperlinks>");
+					writer.writeHyperlinks(this.hyperlinks);
+					xml.write("</hyperlinks>");
+					this.hyperlinksAdded = true;
+				}
+			}
+			xml.write(this.tag, 0, this.tagLength);
+		}
+		
+		private void addRows() throws IOException, EEHException {
+			EEHExcelFileWriter.addPhaseNanos(this.summary, EEHExportPhase.CREATE_SHEET, this.mark);
+			this.full = writer.appendRows(this.rows, this.rowCount, this.hyperlinks, this.summary);
+			this.rowsAdded = true;
+			this.mark = System.nanoTime();
+		}
+		
+		/**
+		 * Reads the number of a row of the sheet, which is the 
+		 * one after the previous row when it is not given.
+		 */
+		private void readRowNumber() {
+			for (int i = ROW_TAG.length; i + 3 < this.tagLength; i++) {
+				if (this.tag[i] == 'r' && isSpace(this.tag[i - 1]) && this.tag[i + 1] == '=' 
+						&& (this.tag[i + 2] == '"' || this.tag[i + 2] == '\'')) {
+					
+					int number = 0;
+					for (int j = i + 3; j < this.tagLength && this.tag[j] >= '0' && this.tag[j] <= '9'; j++) {
+						number = number * 10 + (this.tag[j] - '0');
+					}
+					this.rowCount = number;
+					return;
+				}
+			}
+			this.rowCount++;
+		}
+		
+		/**
+		 * Declares the prefix of the relationship ids of the new 
+		 * hyperlinks on the sheet, when the sheet does not.
+		 * @throws IOException
+		 */
+		private void declareRelationshipsNamespace() throws IOException {
+			String startTag = new String(this.tag, 0, this.tagLength, StandardCharsets.UTF_8);
+			if (startTag.contains("xmlns:r=")) {
+				return;
+			}
+			
+			xml.write(this.tag, 0, this.tagLength - 1);
+			xml.write(" xmlns:r=\"").write(EEHDirectWorkbookWriter.RELATIONSHIPS_NAMESPACE).write("\"");
+			this.tag[0] = '>';
+			this.tagLength = 1;
+		}
+		
+		private boolean isTag(byte[] name) {
+			if (this.tagLength <= name.length) {
+				return false;
+			}
+			for (int i = 0; i < name.length; i++) {
+				if (this.tag[i] != name[i]) {
+					return false;
+				}
+			}
+			byte next = this.tag[name.length];
+			return next == '>' || next == '/' || isSpace(next);
+		}
+		
+		/**
+		 * Returns the name of the tag, with a leading '/' for an end tag.
+		 * @return String 
+		 */
+		private String getTagName() {
+			int end = 1;
+			while (end < this.tagLength && this.tag[end] != '>' && !isSpace(this.tag[end]) 
+					&& (this.tag[end] != '/' || end == 1)) {
+				end++;
+			}
+			return new String(this.tag, 1, end - 1, StandardCharsets.UTF_8);
+		}
+		
+		private void addToTag(byte b) {
+			if (this.tagLength == this.tag.length) {
+				this.tag = Arrays.copyOf(this.tag, this.tag.length * 2);
+			}
+			this.tag[this.tagLength++] = b;
+		}
+		
+		private boolean isSpace(byte b) {
+			return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+		}
+	}
+}
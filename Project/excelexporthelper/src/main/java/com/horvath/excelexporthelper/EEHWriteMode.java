@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+/**
+ * Defines how the workbook is built in memory while the Excel file is written.
+ * @author jhorvath
+ */
+public enum EEHWriteMode {
+	
+	/**
+	 * The complete workbook is held in memory until it is written. 
+	 */
+	IN_MEMORY,
+	
+	/**
+	 * Rows are flushed to temporary storage once they leave a bounded row window, 
+	 * so memory use depends on the window size rather than the number of rows. 
+	 */
+	STREAMING,
+	
+	/**
+	 * The parts of the file are written directly as XML without building a 
+	 * POI workbook, which is several times faster and keeps only the shared 
+	 * strings and hyperlink targets in memory. Exact column sizing is not 
+	 * available in this mode, and columns are sized with estimated widths instead.
+	 */
+	DIRECT
+}
@@ -0,0 +1,342 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes XML markup and escaped text as UTF-8 through a reusable buffer, 
+ * without creating objects for each value written. 
+ * Characters that XML does not allow are written with the _xHHHH_ 
+ * escapes used by Excel. Attribute values, such as hyperlink targets, are 
+ * not read back through those escapes, so text in them is left as it is. 
+ * @author jhorvath
+ */
+final class EEHXmlWriter {
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Room kept free in the buffer for the longest encoding of one character.
+	 */
+	private static final int MAX_CHARACTER_BYTES = 12;
+	
+	private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', 
+			'8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+	
+	/**
+	 * Integral numbers below this size are written without a fraction.
+	 */
+	private static final double MAX_INTEGRAL_NUMBER = 1e15;
+	
+	private OutputStream out;
+	private byte[] buffer;
+	private int position;
+	
+	/**
+	 * Constructor. 
+	 * @param out OutputStream 
+	 */
+	protected EEHXmlWriter(OutputStream out) {
+		this.out = out;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.position = 0;
+	}
+	
+	/**
+	 * Flushes anything buffered and writes to the given stream from now on.
+	 * @param out OutputStream 
+	 * @throws IOException
+	 */
+	protected void setOutput(OutputStream out) throws IOException {
+		flush();
+		this.out = out;
+	}
+	
+	/**
+	 * Writes markup that only holds ASCII characters, as it is.
+	 * @param markup String 
+	 * @return EEHXmlWriter
+	 * @throws IOException
+	 */
+	protected EEHXmlWriter write(String markup) throws IOException {
+		int length = markup.length();
+		
+		for (int i = 0; i < length; i++) {
+			if (this.position == this.buffer.length) {
+				flushBuffer();
+			}
+			this.buffer[this.position++] = (byte) markup.charAt(i);
+		}
+		return this;
+	}
+	
+	/**
+	 * Writes already encoded bytes, as they are.
+	 * @param bytes byte[]
+	 * @return EEHXmlWriter
+	 * @throws IOException
+	 */
+	protected EEHXmlWriter write(byte[] bytes) throws IOException {
+		return write(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Writes part of an array of already encoded bytes, as they are.
+	 * @param bytes byte[]
+	 * @param offset int 
+	 * @param length int 
+	 * @return EEHXmlWriter
+	 * @throws IOException
+	 */
+	protected EEHXmlWriter write(byte[] bytes, int offset, int length) throws IOException {
+		if (this.position + length > this.buffer.length) {
+			flushBuffer();
+		}
+		if (length > this.buffer.length) {
+			this.out.write(bytes, offset, length);
+		} else {
+			System.arraycopy(bytes, offset, this.buffer, this.position, length);
+			this.position += length;
+		}
+		return this;
+	}
+	
+	/**
+	 * Writes a whole number.
+	 * @param value long 
+	 * @return EEHXmlWriter
+	 * @throws IOException
+	 */
+	protected EEHXmlWriter write(long value) throws IOException {
+		if (this.position + 20 > this.buffer.length) {
+			flushBuffer();
+		}
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				return write(Long.toString(value));
+			}
+			this.buffer[this.position++] = '-';
+			value = -value;
+		}
+		
+		// write the digits backwards, then move them into place
+		int start = this.position;
+		do {
+			this.buffer[this.position++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		
+		for (int i = start, j = this.position - 1; i < j; i++, j--) {
+			byte digit = this.buffer[i];
+			this.buffer[i] = this.buffer[j];
+			this.buffer[j] = digit;
+		}
+		return this;
+	}
+	
+	/**
+	 * Writes a finite number in a form Excel reads back as the same value.
+	 * @param value double 
+	 * @return EEHXmlWriter
+	 * @throws IOException
+	 */
+	protected EEHXmlWriter write(double value) throws IOException {
+		if (value == Math.rint(value) && Math.abs(value) < MAX_INTEGRAL_NUMBER) {
+			return write((long) value);
+		}
+		return write(Double.toString(value));
+	}
+	
+	/**
+	 * Writes text as the content of an element.
+	 * @param text String 
+	 * @return EEHXmlWriter
+	 * @throws IOException
+	 */
+	protected EEHXmlWriter writeText(String text) throws IOException {
+		return writeEscaped(text, false);
+	}
+	
+	/**
+	 * Writes text as the value of an attribute in double quotes.
+	 * @param text String 
+	 * @return EEHXmlWriter
+	 * @throws IOException
+	 */
+	protected EEHXmlWriter writeAttribute(String text) throws IOException {
+		return writeEscaped(text, true);
+	}
+	
+	/**
+	 * Tests if the text starts or ends with whitespace, which 
+	 * XML readers only keep when space is preserved.
+	 * @param text String 
+	 * @return boolean 
+	 */
+	protected static boolean needsPreservedSpace(String text) {
+		int length = text.length();
+		return length > 0 && (isSpace(text.charAt(0)) || isSpace(text.charAt(length - 1)));
+	}
+	
+	/**
+	 * Writes out anything still buffered. 
+	 * @throws IOException
+	 */
+	protected void flush() throws IOException {
+		flushBuffer();
+		this.out.flush();
+	}
+	
+	private EEHXmlWriter writeEscaped(String text, boolean attribute) throws IOException {
+		int length = text.length();
+		
+		for (int i = 0; i < length; i++) {
+			if (this.position + MAX_CHARACTER_BYTES > this.buffer.length) {
+				flushBuffer();
+			}
+			char c = text.charAt(i);
+			
+			if (c < 0x80) {
+				switch (c) {
+				case '&':
+					put("&amp;");
+					break;
+				case '<':
+					put("&lt;");
+					break;
+				case '>':
+					put("&gt;");
+					break;
+				case '"':
+					put(attribute ? "&quot;" : "\"");
+					break;
+				case '\r':
+					// a literal carriage return would be read back as a line feed
+					put("&#13;");
+					break;
+				case '\n':
+				case '\t':
+					if (attribute) {
+						putCharacterReference(c);
+					} else {
+						this.buffer[this.position++] = (byte) c;
+					}
+					break;
+				case '_':
+					if (!attribute && isEscapeSequence(text, i)) {
+						// keep text that looks like an escape from being read back as one
+						put("_x005F_");
+					} else {
+						this.buffer[this.position++] = '_';
+					}
+					break;
+				default:
+					if (c < 0x20) {
+						putEscape(c);
+					} else {
+						this.buffer[this.position++] = (byte) c;
+					}
+					break;
+				}
+				
+			} else if (c < 0x800) {
+				this.buffer[this.position++] = (byte) (0xC0 | (c >> 6));
+				this.buffer[this.position++] = (byte) (0x80 | (c & 0x3F));
+				
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, text.charAt(++i));
+				this.buffer[this.position++] = (byte) (0xF0 | (codePoint >> 18));
+				this.buffer[this.position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				this.buffer[this.position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				this.buffer[this.position++] = (byte) (0x80 | (codePoint & 0x3F));
+				
+			} else if (Character.isSurrogate(c) || c == 0xFFFE || c == 0xFFFF) {
+				// unpaired surrogates and non-characters are not allowed in XML
+				putEscape(c);
+				
+			} else {
+				this.buffer[this.position++] = (byte) (0xE0 | (c >> 12));
+				this.buffer[this.position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				this.buffer[this.position++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * Tests if the text holds an _xHHHH_ escape at the given index.
+	 * @param text String 
+	 * @param index int 
+	 * @return boolean 
+	 */
+	private static boolean isEscapeSequence(String text, int index) {
+		if (index + 6 >= text.length() || text.charAt(index + 1) != 'x' || text.charAt(index + 6) != '_') {
+			return false;
+		}
+		for (int i = index + 2; i < index + 6; i++) {
+			if (Character.digit(text.charAt(i), 16) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+	
+	private void put(String ascii) {
+		for (int i = 0; i < ascii.length(); i++) {
+			this.buffer[this.position++] = (byte) ascii.charAt(i);
+		}
+	}
+	
+	private void putEscape(char c) {
+		put("_x");
+		putHex(c);
+		this.buffer[this.position++] = '_';
+	}
+	
+	private void putCharacterReference(char c) {
+		put("&#x");
+		putHex(c);
+		this.buffer[this.position++] = ';';
+	}
+	
+	private void putHex(char c) {
+		this.buffer[this.position++] = HEX_DIGITS[(c >> 12) & 0xF];
+		this.buffer[this.position++] = HEX_DIGITS[(c >> 8) & 0xF];
+		this.buffer[this.position++] = HEX_DIGITS[(c >> 4) & 0xF];
+		this.buffer[this.position++] = HEX_DIGITS[c & 0xF];
+	}
+	
+	private void flushBuffer() throws IOException {
+		if (this.position > 0) {
+			this.out.write(this.buffer, 0, this.position);
+			this.position = 0;
+		}
+	}
+}
@@ -25,18 +25,114 @@
 package com.horvath.excelexporthelper;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Main class for EEH library. 
  * @author jhorvath
  */
-final public class ExcelExportHelper {
+final public class ExcelExportHelper implements AutoCloseable {
 
 	private List<EEHSheet> sheets;
 	private File file;
+	private EEHWriteMode writeMode;
+	private int rowWindowSize;
+	private EEHColumnSizing columnSizing;
+	private ExecutorService executor;
+	private int sharedStringLimit;
+	private Set<String> hyperlinkSchemes;
+	private EEHCompression compression;
+	private ExecutorService compressionExecutor;
+	private List<EEHExportListener> listeners;
+	private int maxRowsPerSheet;
+	private long maxRowsPerFile;
+	private int outputBufferSize;
+	private boolean atomicWrite;
+	private boolean syncToDisk;
+	
 	public static final String EXCEPTION_NO_SHEETS_TO_WRITE = "There are no sheets to write to the file.";
+	public static final String EXCEPTION_NULL_WRITE_MODE = "Write mode must not be null.";
+	public static final String EXCEPTION_INVALID_ROW_WINDOW_SIZE = "Row window size must be greater than zero.";
+	public static final String EXCEPTION_NULL_COLUMN_SIZING = "Column sizing must not be null.";
+	public static final String EXCEPTION_NO_FILE = "There is no file set to write the workbook to.";
+	public static final String EXCEPTION_NULL_OUTPUT = "Output stream or channel must not be null.";
+	public static final String EXCEPTION_INVALID_SHARED_STRING_LIMIT = "Shared string limit must not be negative.";
+	public static final String EXCEPTION_INVALID_HYPERLINK_SCHEME = "Hyperlink schemes must not be null or empty.";
+	public static final String EXCEPTION_NULL_COMPRESSION = "Compression must not be null.";
+	public static final String EXCEPTION_NULL_ASYNC_EXECUTOR = "Executor must not be null.";
+	public static final String EXCEPTION_NULL_EXPORT_LISTENER = "Export listener must not be null.";
+	public static final String EXCEPTION_INVALID_MAX_ROWS_PER_SHEET = "Rows per sheet must be from 2 to " + EEHSheet.MAX_ROW_COUNT + ".";
+	public static final String EXCEPTION_NEGATIVE_MAX_ROWS_PER_FILE = "Rows per file must not be negative.";
+	public static final String EXCEPTION_FILE_ROLLOVER_TO_STREAM = "Rows per file can only be limited when writing to a file.";
+	public static final String EXCEPTION_INVALID_OUTPUT_BUFFER_SIZE = "Output buffer size must be greater than zero.";
+	public static final String EXCEPTION_FILE_ROLLOVER_APPEND = "Rows per file cannot be limited when appending to a file.";
+	
+	/**
+	 * The default number of rows kept in memory per sheet in streaming mode.
+	 */
+	public static final int DEFAULT_ROW_WINDOW_SIZE = 100;
+	
+	/**
+	 * The default number of distinct texts held in the shared strings of a workbook.
+	 */
+	public static final int DEFAULT_SHARED_STRING_LIMIT = 1 << 16;
+	
+	/**
+	 * The default size of the buffer placed in front of the file or stream being written.
+	 */
+	public static final int DEFAULT_OUTPUT_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * The estimated heap used by a workbook being written, besides its cells. 
+	 */
+	private static final long WORKBOOK_HEAP_BYTES = 4L << 20;
+	
+	/**
+	 * The estimated heap used by each POI cell held while the workbook is written. 
+	 */
+	private static final long CELL_HEAP_BYTES = 1024;
+	
+	/**
+	 * The estimated heap used by each cell prepared ahead on an executor. 
+	 */
+	private static final long PREPARED_CELL_HEAP_BYTES = 64;
+	
+	/**
+	 * The estimated heap used by each distinct text held in the shared strings. 
+	 */
+	private static final long SHARED_STRING_HEAP_BYTES = 96;
+	
+	/**
+	 * Constructor for a workbook that is only written to 
+	 * an OutputStream or a WritableByteChannel. 
+	 */
+	public ExcelExportHelper() {
+		this.file = null;
+		this.sheets = new ArrayList<>();
+		this.writeMode = EEHWriteMode.IN_MEMORY;
+		this.rowWindowSize = DEFAULT_ROW_WINDOW_SIZE;
+		this.columnSizing = EEHColumnSizing.ESTIMATED;
+		this.sharedStringLimit = DEFAULT_SHARED_STRING_LIMIT;
+		this.compression = EEHCompression.DEFAULT;
+		this.listeners = new ArrayList<>();
+		this.maxRowsPerSheet = EEHSheet.MAX_ROW_COUNT;
+		this.maxRowsPerFile = 0;
+		this.outputBufferSize = DEFAULT_OUTPUT_BUFFER_SIZE;
+		this.atomicWrite = true;
+		this.syncToDisk = false;
+	}
 	
 	/**
 	 * Constructor that accepts a filename with a file path as a string.
@@ -52,18 +148,19 @@ final public class ExcelExportHelper {
 	 */
 	public ExcelExportHelper(File file) {
 		
-		String fileName = file.getName();
-		String parent = file.getParent();
-		
-		try {
-			fileName = FileUtility.validateFileName(fileName);
-			FileUtility.testFileLocationWriteable(file);
-		} catch (EEHException ex) {
-			throw new IllegalArgumentException(ex.getMessage(), ex);
-		}
-
-		this.file = new File(parent + File.separator + fileName);
+		this.file = toValidFile(file);
 		this.sheets = new ArrayList<>();
+		this.writeMode = EEHWriteMode.IN_MEMORY;
+		this.rowWindowSize = DEFAULT_ROW_WINDOW_SIZE;
+		this.columnSizing = EEHColumnSizing.ESTIMATED;
+		this.sharedStringLimit = DEFAULT_SHARED_STRING_LIMIT;
+		this.compression = EEHCompression.DEFAULT;
+		this.listeners = new ArrayList<>();
+		this.maxRowsPerSheet = EEHSheet.MAX_ROW_COUNT;
+		this.maxRowsPerFile = 0;
+		this.outputBufferSize = DEFAULT_OUTPUT_BUFFER_SIZE;
+		this.atomicWrite = true;
+		this.syncToDisk = false;
 	}
 	
 	/**
@@ -72,9 +169,21 @@ final public class ExcelExportHelper {
 	 * @return EEHSheet
 	 */
 	public EEHSheet createSheet(String sheetName) {
+		return createSheet(sheetName, EEHSheetStorage.ROWS);
+	}
+	
+	/**
+	 * Creates and returns an EEHSheet that holds its data with the given storage. 
+	 * Columnar storage uses much less memory for large sheets, and spilling 
+	 * storage moves the rows past a threshold to a temporary file. 
+	 * @param sheetName String 
+	 * @param storage EEHSheetStorage
+	 * @return EEHSheet
+	 */
+	public EEHSheet createSheet(String sheetName, EEHSheetStorage storage) {
 		EEHSheet sheet = null;
 		try {
-			sheet = new EEHSheet(sheetName, this.sheets);
+			sheet = new EEHSheet(sheetName, this.sheets, storage);
 			this.sheets.add(sheet);
 		} catch (EEHException ex) {
 			throw new IllegalArgumentException(ex.getMessage(), ex);
@@ -84,25 +193,523 @@ final public class ExcelExportHelper {
 	
 	/**
 	 * Triggers operations for writing the Excel file to disk.
+	 * @return EEHExportSummary The timings and cell counts of the export.
 	 * @throws EEHException
 	 */
-	public void writeWorkBook() throws EEHException {
+	public EEHExportSummary writeWorkBook() throws EEHException {
+		if (this.file == null) {
+			throw new IllegalStateException(EXCEPTION_NO_FILE);
+		}
+		checkSheets();
+		
+		return write(new EEHExcelFileWriter(this.file, this.sheets));
+	}
+	
+	/**
+	 * Appends the sheets to the existing Excel file instead of replacing it. The rows 
+	 * of a sheet named as a sheet of the file (ignoring case) are added after the last 
+	 * row of that sheet, without its header row, and other sheets are added after the 
+	 * sheets of the file. The parts of the file that do not change, such as the other 
+	 * sheets, are copied as they are, without being read or compressed again, and the 
+	 * text of the new cells is written in the cells. A sheet that rows are added to is 
+	 * read and compressed again as its part is rewritten, so the time taken grows with 
+	 * the size of that sheet. The file is replaced once the appended file is complete. When 
+	 * the file does not exist yet, the workbook is written as by writeWorkBook(). 
+	 * @return EEHExportSummary The timings and cell counts of the export.
+	 * @throws EEHException When the file is not a workbook that can be appended to.
+	 */
+	public EEHExportSummary appendWorkBook() throws EEHException {
+		if (this.file == null) {
+			throw new IllegalStateException(EXCEPTION_NO_FILE);
+		}
+		if (this.maxRowsPerFile > 0) {
+			throw new IllegalStateException(EXCEPTION_FILE_ROLLOVER_APPEND);
+		}
+		checkSheets();
+		
+		EEHExcelFileWriter writer = new EEHExcelFileWriter(this.file, this.sheets);
+		writer.setAppend(this.file.exists());
+		return write(writer);
+	}
+	
+	/**
+	 * Compiles the sheets and the current options into a plan that exports new rows in 
+	 * the same layout any number of times, such as the same report for different customers. 
+	 * The sheet names, headers, column types and header row are worked out once here 
+	 * instead of in every export, and the columns are sized to the rows of each export. 
+	 * That setup is small next to writing and sizing the rows, so an export of this plan 
+	 * takes about as long as writing the workbook itself; only compilePlan(true) saves 
+	 * the sizing of each export. Exports of a plan are always written directly. Later 
+	 * changes to the sheets or options do not change the plan. 
+	 * @return EEHExportPlan
+	 * @throws EEHException
+	 */
+	public EEHExportPlan compilePlan() throws EEHException {
+		return compilePlan(false);
+	}
+	
+	/**
+	 * Compiles the sheets and the current options into a plan, as compilePlan() does. 
+	 * With fixed widths, the columns are sized once here to the headers and to any rows 
+	 * the sheets hold in getData(), which only serve as a sample and are not exported. 
+	 * Every export then uses those widths without sizing its own rows, so values longer 
+	 * than the sample are not given wider columns. 
+	 * @param fixedWidths boolean True to size the columns once, from the sample rows.
+	 * @return EEHExportPlan
+	 * @throws EEHException
+	 */
+	public EEHExportPlan compilePlan(boolean fixedWidths) throws EEHException {
+		checkSheets();
+		return new EEHExportPlan(this, fixedWidths);
+	}
+	
+	/**
+	 * Writes the Excel file on the given executor, and returns a future that completes 
+	 * with the file once it is written. A failed export completes the future with its 
+	 * EEHException or runtime exception. The export uses the options set when this 
+	 * method is called, and the sheets must not be changed until the future completes. 
+	 * Cancelling the future stops the export at the next row and removes its temporary 
+	 * files, so with atomic writes an existing file is left as it was. A cancel that comes 
+	 * once the file is complete leaves the file in place. On Java 21 and later, an executor of virtual 
+	 * threads (Executors.newVirtualThreadPerTaskExecutor()) runs each export on a thread 
+	 * of its own. The executor is not shut down by EEH. 
+	 * @param executor Executor
+	 * @return CompletableFuture<File>
+	 */
+	public CompletableFuture<File> writeWorkBookAsync(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_ASYNC_EXECUTOR);
+		}
+		if (this.file == null) {
+			throw new IllegalStateException(EXCEPTION_NO_FILE);
+		}
+		checkSheets();
+		
+		EEHExcelFileWriter writer = new EEHExcelFileWriter(this.file, this.sheets);
+		configure(writer);
+		
+		EEHAsyncExport export = new EEHAsyncExport(writer, this.file);
+		executor.execute(export);
+		return export.getFuture();
+	}
+	
+	/**
+	 * Writes the workbook to the given stream, such as an HTTP response, 
+	 * without creating a file. The stream is flushed but not closed. 
+	 * @param outputStream OutputStream
+	 * @return EEHExportSummary The timings and cell counts of the export.
+	 * @throws EEHException
+	 */
+	public EEHExportSummary writeWorkBook(OutputStream outputStream) throws EEHException {
+		if (outputStream == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_OUTPUT);
+		}
+		if (this.maxRowsPerFile > 0) {
+			throw new IllegalStateException(EXCEPTION_FILE_ROLLOVER_TO_STREAM);
+		}
+		checkSheets();
+		
+		return write(new EEHExcelFileWriter(outputStream, this.sheets));
+	}
+	
+	/**
+	 * Checks that a file can be written, with a valid name at a writable location. 
+	 * @param file File 
+	 * @return File The file, with its name made valid. 
+	 */
+	protected static File toValidFile(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException(FileUtility.EXCEPTION_EMPTY_STRING);
+		}
+		String fileName = file.getName();
+		String parent = file.getParent();
+		
+		try {
+			fileName = FileUtility.validateFileName(fileName);
+			FileUtility.testFileLocationWriteable(file);
+		} catch (EEHException ex) {
+			throw new IllegalArgumentException(ex.getMessage(), ex);
+		}
+		return new File(parent + File.separator + fileName);
+	}
+	
+	/**
+	 * Writes the workbook to the given channel without creating a file. 
+	 * The channel is not closed. 
+	 * @param channel WritableByteChannel
+	 * @return EEHExportSummary The timings and cell counts of the export.
+	 * @throws EEHException
+	 */
+	public EEHExportSummary writeWorkBook(WritableByteChannel channel) throws EEHException {
+		if (channel == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_OUTPUT);
+		}
+		// the adapter is never closed, as that would close the channel
+		return writeWorkBook(Channels.newOutputStream(channel));
+	}
+	
+	private void checkSheets() {
 		if (this.sheets.isEmpty()) {
 			throw new IllegalStateException(EXCEPTION_NO_SHEETS_TO_WRITE);
 		}
+	}
+	
+	private EEHExportSummary write(EEHExcelFileWriter writer) throws EEHException {
+		configure(writer);
+		return writer.writeFile();
+	}
+	
+	private void configure(EEHExcelFileWriter writer) {
+		writer.setWriteMode(this.writeMode);
+		writer.setRowWindowSize(this.rowWindowSize);
+		writer.setColumnSizing(this.columnSizing);
+		writer.setExecutor(this.executor);
+		writer.setSharedStringLimit(this.sharedStringLimit);
+		writer.setHyperlinkSchemes(this.hyperlinkSchemes);
+		writer.setCompression(this.compression);
+		writer.setCompressionExecutor(this.compressionExecutor);
+		writer.setListeners(new ArrayList<>(this.listeners));
+		writer.setMaxRowsPerSheet(this.maxRowsPerSheet);
+		writer.setMaxRowsPerFile(this.maxRowsPerFile);
+		writer.setOutputBufferSize(this.outputBufferSize);
+		writer.setAtomicWrite(this.atomicWrite);
+		writer.setSyncToDisk(this.syncToDisk);
+	}
+	
+	/**
+	 * Sets how the workbook is built while it is written. 
+	 * Streaming mode keeps only a window of rows per sheet 
+	 * in memory, which allows very large exports. 
+	 * @param writeMode EEHWriteMode
+	 */
+	public void setWriteMode(EEHWriteMode writeMode) {
+		if (writeMode == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_WRITE_MODE);
+		}
+		this.writeMode = writeMode;
+	}
+	
+	public EEHWriteMode getWriteMode() {
+		return this.writeMode;
+	}
+	
+	/**
+	 * Sets the number of rows per sheet kept in memory in streaming mode.
+	 * @param rowWindowSize int 
+	 */
+	public void setRowWindowSize(int rowWindowSize) {
+		if (rowWindowSize < 1) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_ROW_WINDOW_SIZE);
+		}
+		this.rowWindowSize = rowWindowSize;
+	}
+	
+	public int getRowWindowSize() {
+		return this.rowWindowSize;
+	}
+	
+	/**
+	 * Sets how the column widths of each sheet are set. By default widths 
+	 * are estimated while the cells are written. Exact sizing measures every 
+	 * cell with its font after the sheet is populated, and is best kept for small sheets.
+	 * @param columnSizing EEHColumnSizing
+	 */
+	public void setColumnSizing(EEHColumnSizing columnSizing) {
+		if (columnSizing == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_COLUMN_SIZING);
+		}
+		this.columnSizing = columnSizing;
+	}
+	
+	public EEHColumnSizing getColumnSizing() {
+		return this.columnSizing;
+	}
+	
+	/**
+	 * Sets an executor, such as a thread pool or a ForkJoinPool, used to prepare 
+	 * the data of the sheets at the same time. The cell values and column widths 
+	 * of every sheet are worked out on the executor, and the sheets are then 
+	 * written to the workbook in order, giving the same file as without an executor. 
+	 * All sheets are prepared before writing starts, so this uses more memory 
+	 * than preparing each row as it is written. The executor is not shut down by EEH. 
+	 * Pass null to prepare the sheets on the calling thread, which is the default. 
+	 * @param executor ExecutorService
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	public ExecutorService getExecutor() {
+		return this.executor;
+	}
+	
+	/**
+	 * Sets the maximum number of distinct texts kept in the shared strings 
+	 * of the workbook. Each distinct text is stored once and referenced by 
+	 * the cells that repeat it, which keeps files and memory small for 
+	 * columns with few distinct values. Once the limit is reached, new texts 
+	 * are written in their cells, so columns of unique values do not keep 
+	 * growing the shared strings. A limit of zero writes all texts in their cells. 
+	 * Streaming mode always writes texts in their cells. 
+	 * @param sharedStringLimit int 
+	 */
+	public void setSharedStringLimit(int sharedStringLimit) {
+		if (sharedStringLimit < 0) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_SHARED_STRING_LIMIT);
+		}
+		this.sharedStringLimit = sharedStringLimit;
+	}
+	
+	public int getSharedStringLimit() {
+		return this.sharedStringLimit;
+	}
+	
+	/**
+	 * Sets the URL schemes, such as "http", "https" and "mailto", of the values 
+	 * written as hyperlinks. Values with any other scheme are written as text, 
+	 * which keeps links such as "file:" or "jar:" out of the workbook. Only URLs 
+	 * that java.net.URL accepts are written as hyperlinks with either setting. 
+	 * Pass null to allow any scheme the runtime supports, which is the default. 
+	 * @param hyperlinkSchemes Collection<String> The schemes, without the colon, regardless of case.
+	 */
+	public void setHyperlinkSchemes(Collection<String> hyperlinkSchemes) {
+		if (hyperlinkSchemes == null) {
+			this.hyperlinkSchemes = null;
+			return;
+		}
 		
-		EEHExcelFileWriter writer = new EEHExcelFileWriter(this.file, this.sheets);
-		writer.writeFile();
+		Set<String> schemes = new LinkedHashSet<>();
+		for (String scheme : hyperlinkSchemes) {
+			if (scheme == null || scheme.isEmpty()) {
+				throw new IllegalArgumentException(EXCEPTION_INVALID_HYPERLINK_SCHEME);
+			}
+			schemes.add(scheme.toLowerCase(Locale.ROOT));
+		}
+		this.hyperlinkSchemes = Collections.unmodifiableSet(schemes);
+	}
+	
+	/**
+	 * Returns the URL schemes of the values written as hyperlinks. 
+	 * @return Set<String> The lower case schemes, or null when any scheme is allowed.
+	 */
+	public Set<String> getHyperlinkSchemes() {
+		return this.hyperlinkSchemes;
+	}
+	
+	/**
+	 * Sets how strongly the parts of the workbook are compressed. Faster levels 
+	 * write large workbooks in less time, at the cost of larger files. 
+	 * @param compression EEHCompression
+	 */
+	public void setCompression(EEHCompression compression) {
+		if (compression == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_COMPRESSION);
+		}
+		this.compression = compression;
+	}
+	
+	public EEHCompression getCompression() {
+		return this.compression;
+	}
+	
+	/**
+	 * Sets an executor used to compress the parts of the workbook at the same time, 
+	 * such as the sheets, which spreads the compression of large workbooks across cores. 
+	 * The workbook is first written to a temporary file without compression, and its 
+	 * parts are then compressed on the executor and written in order. This costs an 
+	 * extra write of the uncompressed workbook, so it pays off for workbooks with 
+	 * several large sheets. It has no effect when the parts are stored without compression. 
+	 * The executor is not shut down by EEH. Pass null to compress the parts as they 
+	 * are written, which is the default. 
+	 * @param compressionExecutor ExecutorService
+	 */
+	public void setCompressionExecutor(ExecutorService compressionExecutor) {
+		this.compressionExecutor = compressionExecutor;
+	}
+	
+	public ExecutorService getCompressionExecutor() {
+		return this.compressionExecutor;
+	}
+	
+	/**
+	 * Adds a listener that receives the timings and cell counts of each sheet 
+	 * and of the whole export, each time the workbook is written. 
+	 * @param listener EEHExportListener
+	 */
+	public void addExportListener(EEHExportListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException(EXCEPTION_NULL_EXPORT_LISTENER);
+		}
+		this.listeners.add(listener);
+	}
+	
+	public void removeExportListener(EEHExportListener listener) {
+		this.listeners.remove(listener);
+	}
+	
+	/**
+	 * Sets the number of rows of each sheet of the workbook, counting the header row. 
+	 * The rows of a sheet that has more rows continue on a new sheet, with the header 
+	 * row repeated and the name of the sheet followed by a number, such as "Orders1". 
+	 * The default is the most rows an Excel sheet can hold. 
+	 * @param maxRowsPerSheet int 
+	 */
+	public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+		if (maxRowsPerSheet < 2 || maxRowsPerSheet > EEHSheet.MAX_ROW_COUNT) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_MAX_ROWS_PER_SHEET);
+		}
+		this.maxRowsPerSheet = maxRowsPerSheet;
+	}
+	
+	public int getMaxRowsPerSheet() {
+		return this.maxRowsPerSheet;
+	}
+	
+	/**
+	 * Sets the number of data rows written to a file before the rows that follow 
+	 * continue in a new file, named after the file with the number of the file 
+	 * appended, such as "Orders-2.xlsx". The sheet being written when a file is full 
+	 * continues on a new sheet in the next file. The files written are listed by 
+	 * the summary of the export, and the files after the first are deleted when 
+	 * the export fails. This only applies when writing to a file. 
+	 * A limit of zero writes all rows to one file, which is the default. 
+	 * @param maxRowsPerFile long 
+	 */
+	public void setMaxRowsPerFile(long maxRowsPerFile) {
+		if (maxRowsPerFile < 0) {
+			throw new IllegalArgumentException(EXCEPTION_NEGATIVE_MAX_ROWS_PER_FILE);
+		}
+		this.maxRowsPerFile = maxRowsPerFile;
+	}
+	
+	public long getMaxRowsPerFile() {
+		return this.maxRowsPerFile;
+	}
+	
+	/**
+	 * Sets the size of the buffer placed in front of the file or stream being written. 
+	 * Larger buffers make fewer, larger writes, which is faster on network file systems. 
+	 * @param outputBufferSize int The number of bytes.
+	 */
+	public void setOutputBufferSize(int outputBufferSize) {
+		if (outputBufferSize < 1) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_OUTPUT_BUFFER_SIZE);
+		}
+		this.outputBufferSize = outputBufferSize;
+	}
+	
+	public int getOutputBufferSize() {
+		return this.outputBufferSize;
+	}
+	
+	/**
+	 * Sets whether a file is first written to a hidden file beside it, which is 
+	 * renamed to the file once it is complete. The file is then never seen partly 
+	 * written, and an existing file is only replaced by a complete file. When the rows 
+	 * continue in several files, the files are renamed together once the last is written. 
+	 * The hidden files are deleted when the export fails. This is the default, and can be turned 
+	 * off to write straight to the file. 
+	 * @param atomicWrite boolean 
+	 */
+	public void setAtomicWrite(boolean atomicWrite) {
+		this.atomicWrite = atomicWrite;
 	}
 	
+	public boolean isAtomicWrite() {
+		return this.atomicWrite;
+	}
+	
+	/**
+	 * Sets whether a file is forced to the disk before it is closed, and before it 
+	 * is renamed when writes are atomic, so a complete file survives a crash of the 
+	 * system. After the rename, its folder is also forced to the disk where the 
+	 * platform allows it, so the rename survives a crash too. This makes each write 
+	 * wait for the disk, and is off by default. 
+	 * @param syncToDisk boolean 
+	 */
+	public void setSyncToDisk(boolean syncToDisk) {
+		this.syncToDisk = syncToDisk;
+	}
+	
+	public boolean isSyncToDisk() {
+		return this.syncToDisk;
+	}
+	
+	/**
+	 * Estimates the heap used while the workbook is written with the current options, 
+	 * on top of the sheet data already held. The estimate counts the rows in getData() 
+	 * of each sheet, but not rows pulled from a row source, whose number is not known. 
+	 * In memory, every cell is held by the workbook until it is written, so the estimate 
+	 * grows with the number of cells. In streaming mode only the row window of each 
+	 * sheet is held, and in direct mode only the shared strings. 
+	 * @return long The estimated number of bytes.
+	 */
+	public long estimateHeapCost() {
+		long cells = 0;
+		long windowCells = 0;
+		
+		for (EEHSheet sheet : this.sheets) {
+			List<ArrayList<String>> data = sheet.getData();
+			// the first row stands in for the others, as columnar rows are built when read
+			// and spilled rows are read back from their file
+			int firstRowSize;
+			if (data instanceof EEHSpillingData) {
+				firstRowSize = ((EEHSpillingData) data).getFirstRowSize();
+			} else {
+				firstRowSize = data.isEmpty() ? 0 : data.get(0).size();
+			}
+			long columns = Math.max(sheet.getHeaders().size(), firstRowSize);
+			cells += (data.size() + 1) * columns;
+			windowCells += Math.min(data.size() + 1, this.rowWindowSize) * columns;
+		}
+		
+		long cost = WORKBOOK_HEAP_BYTES;
+		if (this.writeMode == EEHWriteMode.IN_MEMORY) {
+			cost += cells * CELL_HEAP_BYTES;
+		} else if (this.writeMode == EEHWriteMode.STREAMING) {
+			cost += windowCells * CELL_HEAP_BYTES;
+		} else {
+			cost += Math.min(cells, this.sharedStringLimit) * SHARED_STRING_HEAP_BYTES;
+		}
+		
+		if (this.executor != null) {
+			// all sheets are prepared before writing starts
+			cost += cells * PREPARED_CELL_HEAP_BYTES;
+		}
+		return cost;
+	}
+	
+	/**
+	 * Returns the file the workbook is written to, 
+	 * or null when the EEH only writes to streams. 
+	 * @return File
+	 */
 	public File getFile() {
 		return this.file;
 	}
 	
+	protected List<EEHExportListener> getListeners() {
+		return this.listeners;
+	}
+	
 	public List<EEHSheet> getSheets() {
 		return this.sheets;
 	}
 
+	/**
+	 * Deletes the spill files of spilling sheets that have not been written, along 
+	 * with their rows. A written sheet releases its spill file once the workbook is 
+	 * written, so this is only needed when a workbook is not written after all. 
+	 */
+	@Override
+	public void close() {
+		for (EEHSheet sheet : this.sheets) {
+			if (sheet.getData() instanceof EEHSpillingData) {
+				sheet.getData().clear();
+			}
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return "ExcelExportHelper [sheets=" + sheets + ", file=" + file + "]";
@@ -103,4 +103,19 @@ final class FileUtility {
 		}
 	}
 	
+	/**
+	 * Returns the file a workbook continues in once the given file is full, 
+	 * by appending the number of the file to its name. 
+	 * @param file File The first file.
+	 * @param number int The number of the file, from two.
+	 * @return File 
+	 */
+	protected static File createRolloverFile(File file, int number) {
+		String name = file.getName();
+		if (name.endsWith(EXCEL_SUFFIX)) {
+			name = name.substring(0, name.length() - EXCEL_SUFFIX.length());
+		}
+		return new File(file.getParentFile(), name + "-" + number + EXCEL_SUFFIX);
+	}
+	
 }
@@ -0,0 +1,263 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for writing beans as the rows of a sheet.
+ * @author jhorvath
+ */
+public class EEHBeanMapperTest {
+	
+	@Test
+	public void forClass_AnnotatedBean_ColumnsOrdered() {
+		EEHBeanMapper<Order> mapper = EEHBeanMapper.forClass(Order.class);
+		
+		Assert.assertEquals(Arrays.asList("Id", "Customer", "Total", "Paid", "Placed", "Code", "Reference", "Status", "Website"), 
+				mapper.getHeaders());
+		Assert.assertSame(mapper, EEHBeanMapper.forClass(Order.class));
+	}
+	
+	@Test
+	public void mapRow_TypedMembers_CellsTyped() {
+		Order order = new Order(7, "Ann", 12.5, true);
+		order.placed = LocalDate.of(2021, 3, 4);
+		order.code = 123;
+		order.reference = 9007199254740993L;
+		order.status = Status.OPEN;
+		
+		try {
+			EEHRow row = new EEHRow();
+			EEHBeanMapper.forClass(Order.class).mapRow(order, row);
+			
+			Assert.assertEquals(9, row.size());
+			Assert.assertEquals(EEHCellKind.NUMBER, row.getKind(0));
+			Assert.assertEquals(7, row.getNumber(0), 0);
+			Assert.assertEquals(EEHCellKind.VALUE, row.getKind(1));
+			Assert.assertEquals("Ann", row.getText(1));
+			Assert.assertEquals(12.5, row.getNumber(2), 0);
+			Assert.assertEquals(EEHCellKind.BOOLEAN, row.getKind(3));
+			Assert.assertTrue(row.getBoolean(3));
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(4));
+			Assert.assertEquals("04/03/2021", row.getText(4));
+			
+			// a number declared as text keeps its text
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(5));
+			Assert.assertEquals("123", row.getText(5));
+			
+			// too large to be held exactly by a numeric cell
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(6));
+			Assert.assertEquals("9007199254740993", row.getText(6));
+			
+			Assert.assertEquals(EEHCellKind.VALUE, row.getKind(7));
+			Assert.assertEquals("OPEN", row.getText(7));
+			Assert.assertEquals(EEHCellKind.BLANK, row.getKind(8));
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void mapRow_FormattedInstants_TextInDefaultZone() {
+		Instant instant = Instant.parse("2021-03-04T10:15:30Z");
+		Event event = new Event();
+		event.started = instant;
+		event.ended = Date.from(instant);
+		
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+		
+		try {
+			EEHRow row = new EEHRow();
+			EEHBeanMapper.forClass(Event.class).mapRow(event, row);
+			
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(0));
+			Assert.assertEquals(formatter.format(instant), row.getText(0));
+			Assert.assertEquals(formatter.format(instant), row.getText(1));
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void mapRow_FloatMembers_DecimalDigitsKept() {
+		Measure measure = new Measure();
+		measure.weight = 19.99f;
+		measure.price = 0.1f;
+		
+		try {
+			EEHRow row = new EEHRow();
+			EEHBeanMapper.forClass(Measure.class).mapRow(measure, row);
+			
+			// written as the digits of the float, not as its exact binary value
+			Assert.assertEquals(EEHCellKind.NUMBER, row.getKind(0));
+			Assert.assertEquals(19.99, row.getNumber(0), 0);
+			Assert.assertEquals(EEHCellKind.NUMBER, row.getKind(1));
+			Assert.assertEquals(0.1, row.getNumber(1), 0);
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void forClass_InvalidBeans_IllegalArgumentException() {
+		try {
+			EEHBeanMapper.forClass(String.class);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(EEHBeanMapper.EXCEPTION_NO_COLUMNS + String.class.getName(), ex.getMessage());
+		}
+		
+		try {
+			EEHBeanMapper.forClass(FormattedText.class);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertTrue(ex.getMessage().startsWith(EEHBeanMapper.EXCEPTION_INVALID_FORMAT));
+		}
+	}
+	
+	@Test
+	public void writeWorkBook_StreamOfBeans_Written() {
+		File file = TestUtility.createValidFile("BeanExport", "BeanExportTest.xlsx");
+		AtomicBoolean closed = new AtomicBoolean(false);
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			EEHSheet sheet = eeh.createSheet("Orders");
+			
+			Stream<Order> orders = IntStream.range(0, 3000)
+					.mapToObj(i -> new Order(i, "Customer " + i, i * 0.5, i % 2 == 0))
+					.onClose(() -> closed.set(true));
+			EEHBeanMapper.forClass(Order.class).mapRows(sheet, orders);
+			
+			List<Order> websites = new ArrayList<>();
+			websites.add(new Order(1, "Poi", 1, false));
+			websites.get(0).website = "https://poi.apache.org/";
+			EEHBeanMapper.forClass(Order.class).mapRows(eeh.createSheet("Websites"), websites);
+			
+			eeh.writeWorkBook();
+			Assert.assertTrue(closed.get());
+			
+			List<String> customers = TestUtility.readColumn(file, 0, 1);
+			Assert.assertEquals(3001, customers.size());
+			Assert.assertEquals("Customer", customers.get(0));
+			Assert.assertEquals("Customer 2999", customers.get(3000));
+			Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, 0, 3000, 0));
+			Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, 0, 3000, 2));
+			Assert.assertEquals(CellType.BOOLEAN, TestUtility.readCellType(file, 0, 3000, 3));
+			Assert.assertEquals(1, TestUtility.countHyperlinks(file, 1));
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	private enum Status {
+		OPEN
+	}
+	
+	private static class Entity {
+		@EEHColumn(name = "Id", order = 1)
+		private long id;
+	}
+	
+	private static class Order extends Entity {
+		@EEHColumn(name = "Customer", order = 2)
+		private String customer;
+		
+		private double total;
+		
+		@EEHColumn(name = "Paid", order = 4)
+		private boolean paid;
+		
+		@EEHColumn(name = "Placed", order = 5, format = "dd/MM/yyyy")
+		private LocalDate placed;
+		
+		@EEHColumn(name = "Code", order = 6, type = EEHColumnType.TEXT)
+		private int code;
+		
+		@EEHColumn(name = "Reference", order = 7)
+		private Long reference;
+		
+		@EEHColumn(name = "Status", order = 8)
+		private Status status;
+		
+		@EEHColumn(name = "Website", order = 9, type = EEHColumnType.HYPERLINK)
+		private String website;
+		
+		private Order(long id, String customer, double total, boolean paid) {
+			((Entity) this).id = id;
+			this.customer = customer;
+			this.total = total;
+			this.paid = paid;
+		}
+		
+		@EEHColumn(name = "Total", order = 3)
+		public double getTotal() {
+			return this.total;
+		}
+	}
+	
+	private static class Event {
+		@EEHColumn(name = "Started", order = 1, format = "yyyy-MM-dd HH:mm")
+		private Instant started;
+		
+		@EEHColumn(name = "Ended", order = 2, format = "yyyy-MM-dd HH:mm")
+		private Date ended;
+	}
+	
+	private static class Measure {
+		@EEHColumn(name = "Weight", order = 1)
+		private float weight;
+		
+		@EEHColumn(name = "Price", order = 2)
+		private Float price;
+	}
+	
+	private static class FormattedText {
+		@EEHColumn(format = "yyyy")
+		private String year;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the cell classifier. The classifier is compared against 
+ * the original exception based parsing rules used by the file writer.
+ * @author jhorvath
+ */
+public class EEHCellClassifierTest {
+	
+	private static final String[] SAMPLES = {
+		"", " ", "One", "Two", "News", "tizenketto", "Nine 9", "Ten 10.0",
+		"5", "6", "7.0", "7.1", "11", "-3", "+3", "-0", "0", "007", "00123", " 5 ", "\t42\n",
+		".5", "5.", ".", "-.", "+", "-", "1.2.3", "1e5", "1E-5", "1e+5", "1e", "1e+", "e5", 
+		"1.5f", "1.5F", "2d", "2D", "2x", "1f ", "1ff", "1.0e10d", "12345678901234567890", 
+		"123456789012345", "1234567890123456", "-123456789012345678", "9007199254740993",
+		"NaN", "-NaN", "+NaN", "NaNa", "Infinity", "-Infinity", " Infinity ", "Inf", "infinity",
+		"0x1p3", "0X1.8P1", "-0x1p-2", "0x1", "0x", "0xp1", "0x.8p1", "0x1.p1", "0x1p1f", "0xGp1",
+		"https://poi.apache.org/", "https://www.google.com/", "https://slashdot.org/", 
+		"http://a b/", "http:foo", "url:http://example.com", "  http://example.com  ", 
+		"HTTP://EXAMPLE.COM", "ftp://example.com/file.txt", "mailto:someone@example.com", 
+		"mailto:a b", "file:/tmp/x", "jar:file:/x.jar!/a", "jar:nothing", "note: see here", 
+		"Re: hello", "1abc:x", ":x", "a/b:c", "#http://x", "http://x.com/#frag", 
+		"http://host:99999999999/", "http://[::1]/", "https://wdaoradio.com/", "", 
+		"True", "TRUE", "true", "False", "FALSE", "  True", "TRUE  ", "  true  ", 
+		"1 True", "TRUE  2 ", "1  true  a", "truee", "fals", "t", "yes"
+	};
+	
+	private static final String[] FRAGMENTS = {
+		"0", "1", "9", "5", ".", "-", "+", "e", "E", "x", "X", "p", "f", "d", "D", " ", "\t",
+		"NaN", "Infinity", "0x", "a", "F", "http", "://", ":", "/", "www.", ".com", "#", "?",
+		"url:", "mailto:", "true", "TRUE", "false", "[", "%", "é"
+	};
+	
+	@Test
+	public void classify_Samples_MatchesOriginalRules() {
+		EEHCellClassifier classifier = new EEHCellClassifier();
+		
+		for (String sample : SAMPLES) {
+			assertSameAsOriginal(classifier, sample);
+		}
+	}
+	
+	@Test
+	public void classify_RandomText_MatchesOriginalRules() {
+		EEHCellClassifier classifier = new EEHCellClassifier();
+		Random random = new Random(20210521L);
+		
+		for (int i = 0; i < 200000; i++) {
+			StringBuilder text = new StringBuilder();
+			int parts = 1 + random.nextInt(6);
+			
+			for (int j = 0; j < parts; j++) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			assertSameAsOriginal(classifier, text.toString());
+		}
+	}
+	
+	@Test
+	public void classify_Null_Blank() {
+		EEHCellClassifier classifier = new EEHCellClassifier();
+		Assert.assertEquals(EEHCellKind.BLANK, classifier.classify(null));
+	}
+	
+	@Test
+	public void classify_AllowedSchemes_OtherSchemesText() {
+		EEHCellClassifier classifier = new EEHCellClassifier(Arrays.asList("https", "mailto"));
+		
+		Assert.assertEquals(EEHCellKind.HYPERLINK, classifier.classify("https://poi.apache.org/"));
+		Assert.assertEquals(EEHCellKind.HYPERLINK, classifier.classify(" HTTPS://poi.apache.org/ "));
+		Assert.assertEquals(EEHCellKind.HYPERLINK, classifier.classify("url:https://poi.apache.org/"));
+		Assert.assertEquals(EEHCellKind.HYPERLINK, classifier.classify("mailto:someone@example.com"));
+		Assert.assertEquals(EEHCellKind.TEXT, classifier.classify("http://poi.apache.org/"));
+		Assert.assertEquals(EEHCellKind.TEXT, classifier.classify("file:///etc/passwd"));
+		Assert.assertEquals(EEHCellKind.TEXT, classifier.classify("httpsx://poi.apache.org/"));
+		
+		Assert.assertTrue(classifier.hasAllowedScheme("https://poi.apache.org/"));
+		Assert.assertFalse(classifier.hasAllowedScheme("jar:file:/app.jar!/"));
+		Assert.assertTrue(new EEHCellClassifier().hasAllowedScheme("jar:file:/app.jar!/"));
+	}
+	
+	/**
+	 * Checks that the classifier gives the same type and value as the original rules.
+	 * @param classifier EEHCellClassifier
+	 * @param text String 
+	 */
+	private static void assertSameAsOriginal(EEHCellClassifier classifier, String text) {
+		EEHCellKind actual = classifier.classify(text);
+		
+		if (canParseDouble(text)) {
+			Assert.assertEquals(text, EEHCellKind.NUMBER, actual);
+			Assert.assertEquals(text, Double.doubleToLongBits(Double.parseDouble(text)), 
+					Double.doubleToLongBits(classifier.getNumber()));
+			
+		} else if (canParseUrl(text)) {
+			Assert.assertEquals(text, EEHCellKind.HYPERLINK, actual);
+			
+		} else if (canParseBoolean(text.trim())) {
+			Assert.assertEquals(text, EEHCellKind.BOOLEAN, actual);
+			Assert.assertEquals(text, Boolean.parseBoolean(text.trim()), classifier.getBoolean());
+			
+		} else {
+			Assert.assertEquals(text, EEHCellKind.TEXT, actual);
+		}
+	}
+	
+	private static boolean canParseDouble(String text) {
+		boolean canParseDouble = true;
+		
+		try {
+			Double.parseDouble(text);
+		} catch (NumberFormatException ex) {
+			canParseDouble = false;
+		}
+		return canParseDouble;
+	}
+	
+	private static boolean canParseUrl(String text) {
+		boolean canParseUrl = true;
+
+		try {
+			URL url = new URL(text);
+			url.toURI();
+		} catch (URISyntaxException | MalformedURLException ex) {
+			canParseUrl = false;
+		}
+		return canParseUrl;
+	}
+	
+	private static boolean canParseBoolean(String text) {
+		boolean canParseBoolean = false;
+
+		if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+			canParseBoolean = true;
+		}
+		return canParseBoolean;
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for reading the rows of a sheet from CSV and TSV data.
+ * @author jhorvath
+ */
+public class EEHCsvRowSourceTest {
+	
+	private static final String CSV = "\uFEFFName,Amount,Note\r\n"
+			+ "Alpha,12.5,\"Contains, comma\"\r\n"
+			+ "\"Bravo \"\"B\"\"\",-3,\"Two\r\nlines\"\n"
+			+ "\n"
+			+ "Charlie,,\r"
+			+ "\"\",7,\"\"\"quoted\"\" end\"x\n"
+			+ "Delta,https://poi.apache.org/,last";
+	
+	@Test
+	public void nextRow_Rfc4180Records_ValuesRead() {
+		List<List<String>> expected = Arrays.asList(
+				Arrays.asList("Name", "Amount", "Note"),
+				Arrays.asList("Alpha", "12.5", "Contains, comma"),
+				Arrays.asList("Bravo \"B\"", "-3", "Two\r\nlines"),
+				Arrays.asList("Charlie", null, null),
+				Arrays.asList(null, "7", "\"quoted\" endx"),
+				Arrays.asList("Delta", "https://poi.apache.org/", "last"));
+		
+		try {
+			Assert.assertEquals(expected, readAll(new EEHCsvRowSource(new StringReader(CSV))));
+			
+			// values split across reads of the data are read the same way
+			Assert.assertEquals(expected, readAll(new EEHCsvRowSource(new OneCharacterReader(CSV))));
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void readHeaders_TabSeparated_HeadersSetAndTextKept() {
+		EEHSheet sheet = new ExcelExportHelper().createSheet("Codes");
+		sheet.getHeaders().add("Replaced");
+		
+		EEHCsvRowSource source = new EEHCsvRowSource(new StringReader("Code\tSize \"in\"\n00123\t\"5\"\n"));
+		source.setDelimiter(EEHCsvRowSource.TAB);
+		source.setQuoting(false);
+		source.setTypeValues(false);
+		
+		try {
+			source.readHeaders(sheet);
+			Assert.assertEquals(Arrays.asList("Code", "Size \"in\""), sheet.getHeaders());
+			
+			EEHRow row = new EEHRow();
+			Assert.assertTrue(source.nextRow(row));
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(0));
+			Assert.assertEquals("00123", row.getText(0));
+			Assert.assertEquals("\"5\"", row.getText(1));
+			Assert.assertFalse(source.nextRow(new EEHRow()));
+			Assert.assertEquals(2, source.getRecordCount());
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		
+		try {
+			source.readHeaders(sheet);
+			Assert.fail();
+		} catch (IllegalStateException ex) {
+			Assert.assertEquals(EEHCsvRowSource.EXCEPTION_HEADERS_AFTER_ROWS, ex.getMessage());
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void nextRow_UnclosedQuote_EEHException() {
+		EEHCsvRowSource source = new EEHCsvRowSource(new StringReader("a,b\nc,\"never closed\n"));
+		
+		try {
+			Assert.assertTrue(source.nextRow(new EEHRow()));
+			source.nextRow(new EEHRow());
+			Assert.fail();
+		} catch (EEHException ex) {
+			Assert.assertEquals(EEHCsvRowSource.EXCEPTION_UNCLOSED_QUOTE + 2, ex.getMessage());
+		}
+	}
+	
+	@Test
+	public void setDelimiter_InvalidOrAfterReading_Exception() {
+		EEHCsvRowSource source = new EEHCsvRowSource(new StringReader("a;b\n"));
+		
+		try {
+			source.setDelimiter('"');
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(EEHCsvRowSource.EXCEPTION_INVALID_DELIMITER, ex.getMessage());
+		}
+		Assert.assertEquals(EEHCsvRowSource.COMMA, source.getDelimiter());
+		
+		try {
+			source.setDelimiter(';');
+			EEHRow row = new EEHRow();
+			Assert.assertTrue(source.nextRow(row));
+			Assert.assertEquals(2, row.size());
+			
+			source.setDelimiter(',');
+			Assert.fail();
+		} catch (IllegalStateException ex) {
+			Assert.assertEquals(EEHCsvRowSource.EXCEPTION_ALREADY_READ, ex.getMessage());
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void writeWorkBook_CsvFile_Converted() {
+		File file = TestUtility.createValidFile("CsvConvert", "CsvConvertTest.xlsx");
+		File csv = new File(file.getParentFile(), "orders.csv");
+		
+		try {
+			StringBuilder data = new StringBuilder("Order,Amount,Paid\n");
+			for (int i = 0; i < 5000; i++) {
+				data.append("\"Order ").append(i).append(", item\",").append(i * 0.5).append(',').append(i % 2 == 0).append('\n');
+			}
+			Files.write(csv.toPath(), data.toString().getBytes(StandardCharsets.UTF_8));
+			
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			EEHSheet sheet = eeh.createSheet("Orders");
+			EEHCsvRowSource source = new EEHCsvRowSource(csv);
+			source.readHeaders(sheet);
+			sheet.setRowSource(source);
+			eeh.writeWorkBook();
+			
+			List<String> orders = TestUtility.readColumn(file, 0, 0);
+			Assert.assertEquals(5001, orders.size());
+			Assert.assertEquals("Order", orders.get(0));
+			Assert.assertEquals("Order 4999, item", orders.get(5000));
+			Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, 0, 5000, 1));
+			Assert.assertEquals(CellType.BOOLEAN, TestUtility.readCellType(file, 0, 5000, 2));
+			
+			// the file is closed once the sheet is written
+			Assert.assertTrue(csv.delete());
+			
+		} catch (EEHException | IOException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	/**
+	 * Reads every row of the source, with null for empty cells.
+	 * @param source EEHCsvRowSource 
+	 * @return List<List<String>>
+	 * @throws EEHException
+	 */
+	private static List<List<String>> readAll(EEHCsvRowSource source) throws EEHException {
+		List<List<String>> rows = new ArrayList<>();
+		EEHRow row = new EEHRow();
+		
+		while (source.nextRow(row)) {
+			List<String> values = new ArrayList<>();
+			for (int column = 0; column < row.size(); column++) {
+				values.add(row.getText(column));
+			}
+			rows.add(values);
+			row.clear();
+		}
+		return rows;
+	}
+	
+	/**
+	 * Hands out the text one character per read.
+	 */
+	private static final class OneCharacterReader extends Reader {
+		
+		private final StringReader reader;
+		
+		private OneCharacterReader(String text) {
+			this.reader = new StringReader(text);
+		}
+		
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			return this.reader.read(buffer, offset, Math.min(length, 1));
+		}
+		
+		@Override
+		public void close() {
+			this.reader.close();
+		}
+	}
+}
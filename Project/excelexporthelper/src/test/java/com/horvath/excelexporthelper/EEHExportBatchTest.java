@@ -0,0 +1,272 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Performs tests on the export batch class. 
+ * @author jhorvath
+ */
+public class EEHExportBatchTest {
+	
+	@Test
+	public void EEHExportBatch_InvalidArguments_IllegalArgumentException() {
+		try {
+			new EEHExportBatch(null, 100);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(EEHExportBatch.EXCEPTION_NULL_EXECUTOR, ex.getMessage());
+		}
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			new EEHExportBatch(executor, 0);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(EEHExportBatch.EXCEPTION_INVALID_HEAP_BUDGET, ex.getMessage());
+		}
+		
+		try {
+			new EEHExportBatch(executor, 100).add(new ExcelExportHelper());
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_NO_FILE, ex.getMessage());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void run_ManyExports_RunningCostWithinBudget() {
+		File folder = TestUtility.createValidFile("BatchBudget", "Export0.xlsx").getParentFile();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+
+		try {
+			EEHExportBatch batch = new EEHExportBatch(pool, 250);
+			List<ExcelExportHelper> exports = new ArrayList<>();
+			List<ExcelExportHelper> expected = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				ExcelExportHelper eeh = new ExcelExportHelper(new File(folder, "Export" + i + ".xlsx"));
+				populateSheet(eeh, 100 + i * 50);
+				
+				ExcelExportHelper twin = new ExcelExportHelper(eeh.getFile());
+				populateSheet(twin, 100 + i * 50);
+				expected.add(twin);
+				
+				// counts the exports running at the same time, from their first row until they close
+				final List<ArrayList<String>> rows = eeh.getSheets().get(0).getData();
+				eeh.getSheets().get(0).setRowSource(new CountingSource(rows, active, maxActive));
+				exports.add(eeh);
+				batch.add(eeh, 100);
+			}
+			
+			List<EEHExportJob> jobs = batch.run();
+			
+			Assert.assertEquals(8, jobs.size());
+			Assert.assertTrue(maxActive.get() <= 2);
+			for (int i = 0; i < jobs.size(); i++) {
+				EEHExportJob job = jobs.get(i);
+				Assert.assertSame(exports.get(i), job.getExport());
+				Assert.assertEquals(EEHJobStatus.SUCCEEDED, job.getStatus());
+				Assert.assertNull(job.getFailure());
+				Assert.assertTrue(job.getWriteMillis() >= 0);
+				TestUtility.compareFileToData(expected.get(i), job.getExport().getFile());
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		} finally {
+			pool.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(new File(folder, "Export0.xlsx"));
+	}
+	
+	@Test
+	public void run_ExportOverBudgetAndFailingExport_OthersWritten() {
+		File folder = TestUtility.createValidFile("BatchFailure", "Large.xlsx").getParentFile();
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		final EEHException failure = new EEHException("Source failed.");
+
+		try {
+			EEHExportBatch batch = new EEHExportBatch(pool, 1 << 20);
+			
+			ExcelExportHelper large = new ExcelExportHelper(new File(folder, "Large.xlsx"));
+			populateSheet(large, 500);
+			EEHExportJob largeJob = batch.add(large);
+			Assert.assertTrue(largeJob.getHeapCost() > batch.getHeapBudget());
+			
+			ExcelExportHelper failing = new ExcelExportHelper(new File(folder, "Failing.xlsx"));
+			failing.createSheet("Failing").setRowSource(new EEHRowSource() {
+				@Override
+				public boolean nextRow(EEHRow row) throws EEHException {
+					throw failure;
+				}
+			});
+			EEHExportJob failingJob = batch.add(failing, 0);
+			
+			ExcelExportHelper small = new ExcelExportHelper(new File(folder, "Small.xlsx"));
+			populateSheet(small, 10);
+			EEHExportJob smallJob = batch.add(small, 1024);
+			
+			Assert.assertEquals(EEHJobStatus.PENDING, largeJob.getStatus());
+			batch.run();
+			
+			Assert.assertEquals(EEHJobStatus.SUCCEEDED, largeJob.getStatus());
+			Assert.assertEquals(EEHJobStatus.FAILED, failingJob.getStatus());
+			Assert.assertSame(failure, failingJob.getFailure());
+			Assert.assertEquals(EEHJobStatus.SUCCEEDED, smallJob.getStatus());
+			TestUtility.compareFileToData(large, large.getFile());
+			TestUtility.compareFileToData(small, small.getFile());
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		} finally {
+			pool.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(new File(folder, "Large.xlsx"));
+	}
+	
+	@Test
+	public void run_ExportThrowsError_FailureRecorded() {
+		File file = TestUtility.createValidFile("BatchError", "Error.xlsx");
+		final Error failure = new Error("Source error.");
+		final AtomicReference<Throwable> uncaught = new AtomicReference<>();
+		final CountDownLatch thrown = new CountDownLatch(1);
+		
+		// the error reaches the handler of the pool thread instead of the console
+		ExecutorService pool = Executors.newFixedThreadPool(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task);
+				thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+					@Override
+					public void uncaughtException(Thread t, Throwable ex) {
+						uncaught.set(ex);
+						thrown.countDown();
+					}
+				});
+				return thread;
+			}
+		});
+
+		try {
+			EEHExportBatch batch = new EEHExportBatch(pool, 1 << 20);
+			
+			ExcelExportHelper failing = new ExcelExportHelper(file);
+			failing.createSheet("Failing").setRowSource(new EEHRowSource() {
+				@Override
+				public boolean nextRow(EEHRow row) throws EEHException {
+					throw failure;
+				}
+			});
+			EEHExportJob failingJob = batch.add(failing, 0);
+			
+			ExcelExportHelper small = new ExcelExportHelper(new File(file.getParentFile(), "Small.xlsx"));
+			populateSheet(small, 10);
+			EEHExportJob smallJob = batch.add(small, 1024);
+			
+			// the error is thrown on to the pool, and the batch runs the next export
+			batch.run();
+			
+			Assert.assertEquals(EEHJobStatus.FAILED, failingJob.getStatus());
+			Assert.assertSame(failure, failingJob.getFailure());
+			Assert.assertEquals(EEHJobStatus.SUCCEEDED, smallJob.getStatus());
+			
+			Assert.assertTrue(thrown.await(10, TimeUnit.SECONDS));
+			Assert.assertSame(failure, uncaught.get());
+
+		} catch (EEHException | InterruptedException ex) {
+			Assert.fail();
+		} finally {
+			pool.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	/**
+	 * Row source that moves the rows out of the data of a sheet, 
+	 * and counts the sources open at the same time. 
+	 */
+	private static class CountingSource implements EEHRowSource, AutoCloseable {
+		private final List<ArrayList<String>> rows;
+		private final AtomicInteger active;
+		private final AtomicInteger maxActive;
+		private int next = -1;
+		
+		CountingSource(List<ArrayList<String>> rows, AtomicInteger active, AtomicInteger maxActive) {
+			this.rows = new ArrayList<>(rows);
+			this.active = active;
+			this.maxActive = maxActive;
+			rows.clear();
+		}
+		
+		@Override
+		public boolean nextRow(EEHRow row) {
+			if (next < 0) {
+				maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+				next = 0;
+			}
+			if (next == rows.size()) {
+				return false;
+			}
+			for (String value : rows.get(next++)) {
+				row.addValue(value);
+			}
+			return true;
+		}
+		
+		@Override
+		public void close() {
+			active.decrementAndGet();
+		}
+	}
+	
+	private static void populateSheet(ExcelExportHelper eeh, int rowCount) {
+		EEHSheet sheet = eeh.createSheet("Batch");
+		sheet.getHeaders().add("Name");
+		sheet.getHeaders().add("Amount");
+		
+		for (int i = 0; i < rowCount; i++) {
+			ArrayList<String> data = new ArrayList<>();
+			data.add("Customer " + i);
+			data.add(String.valueOf(i * 1.5));
+			sheet.getData().add(data);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for exporting workbooks from a compiled plan.
+ * @author jhorvath
+ */
+public class EEHExportPlanTest {
+	
+	@Test
+	public void export_SampleRows_SameAsWorkBook() {
+		File expected = TestUtility.createValidFile("PlanExport", "Expected.xlsx");
+		File actual = new File(expected.getParentFile(), "Actual.xlsx");
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(expected);
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			populateSheet(eeh.createSheet("Orders"), "Order", 300);
+			populateSheet(eeh.createSheet("Orders"), "Refund", 40);
+			eeh.getSheets().get(1).setColumnType(0, EEHColumnType.TEXT);
+			eeh.writeWorkBook();
+			
+			EEHExportPlan plan = eeh.compilePlan();
+			Assert.assertEquals(Arrays.asList("Orders", "Orders1"), plan.getSheetNames());
+			
+			plan.export(actual, new EEHIteratorRowSource(eeh.getSheets().get(0).getData()), 
+					new EEHIteratorRowSource(eeh.getSheets().get(1).getData()));
+			
+			TestUtility.assertSameCells(expected, actual);
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(expected);
+	}
+	
+	@Test
+	public void export_ConcurrentExports_EachWritten() {
+		File file = TestUtility.createValidFile("PlanConcurrent", "Customer0.xlsx");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper();
+			EEHSheet template = eeh.createSheet("Report");
+			template.getHeaders().addAll(Arrays.asList("Id", "Customer", "Amount"));
+			template.setColumnType(0, EEHColumnType.TEXT);
+			EEHExportPlan plan = eeh.compilePlan();
+			
+			// the plan keeps the layout it was compiled with
+			template.getHeaders().set(0, "Changed");
+			
+			List<Future<EEHExportSummary>> exports = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				final int customer = i;
+				exports.add(executor.submit(() -> {
+					List<List<String>> rows = new ArrayList<>();
+					for (int r = 0; r < 500; r++) {
+						rows.add(Arrays.asList("00" + r, "Customer " + customer, String.valueOf(r * 1.5)));
+					}
+					return plan.export(new File(file.getParentFile(), "Customer" + customer + ".xlsx"), 
+							new EEHIteratorRowSource(rows));
+				}));
+			}
+			
+			for (int i = 0; i < exports.size(); i++) {
+				Assert.assertEquals(500, exports.get(i).get().getRowCount());
+				
+				File customerFile = new File(file.getParentFile(), "Customer" + i + ".xlsx");
+				List<String> ids = TestUtility.readColumn(customerFile, 0, 0);
+				Assert.assertEquals("Id", ids.get(0));
+				Assert.assertEquals("00499", ids.get(500));
+				Assert.assertEquals("Customer " + i, TestUtility.readColumn(customerFile, 0, 1).get(500));
+				Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(customerFile, 0, 500, 2));
+				
+				// the columns are sized to the rows of each export
+				Assert.assertEquals(11 * 256, TestUtility.readColumnWidth(customerFile, 0, 1));
+				Assert.assertEquals(8 * 256, TestUtility.readColumnWidth(customerFile, 0, 2));
+			}
+			
+		} catch (EEHException | InterruptedException | ExecutionException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdown();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test
+	public void export_FixedWidths_SizedToSample() {
+		File file = TestUtility.createValidFile("PlanWidths", "Fixed.xlsx");
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper();
+			EEHSheet template = eeh.createSheet("Report");
+			template.getHeaders().add("Id");
+			template.getData().add(new ArrayList<>(Arrays.asList("Sample text")));
+			
+			// the rows held by the sheet size the columns of every export
+			EEHExportPlan plan = eeh.compilePlan(true);
+			
+			List<List<String>> rows = new ArrayList<>();
+			rows.add(Arrays.asList("Much longer text than the sample"));
+			plan.export(file, new EEHIteratorRowSource(rows));
+			
+			Assert.assertEquals(Arrays.asList("Id", "Much longer text than the sample"), TestUtility.readColumn(file, 0, 0));
+			Assert.assertEquals(12 * 256, TestUtility.readColumnWidth(file, 0, 0));
+			
+			try {
+				plan.export((File) null, new EEHIteratorRowSource(rows));
+				Assert.fail();
+			} catch (IllegalArgumentException ex) {
+				Assert.assertEquals(FileUtility.EXCEPTION_EMPTY_STRING, ex.getMessage());
+			}
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test
+	public void export_InvalidRowSources_Exception() {
+		ExcelExportHelper eeh = new ExcelExportHelper();
+		eeh.createSheet("First");
+		eeh.createSheet("Second");
+		
+		try {
+			EEHExportPlan plan = eeh.compilePlan();
+			
+			try {
+				plan.export(new ByteArrayOutputStream(), new EEHIteratorRowSource(new ArrayList<List<String>>()));
+				Assert.fail();
+			} catch (IllegalArgumentException ex) {
+				Assert.assertEquals(EEHExportPlan.EXCEPTION_ROW_SOURCE_COUNT + 2, ex.getMessage());
+			}
+			
+			// a sheet without a row source is left empty
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			Assert.assertEquals(0, plan.export(out, null, null).getRowCount());
+			Assert.assertTrue(out.size() > 0);
+			
+			eeh.setMaxRowsPerFile(10);
+			try {
+				eeh.compilePlan().export(new ByteArrayOutputStream(), null, null);
+				Assert.fail();
+			} catch (IllegalStateException ex) {
+				Assert.assertEquals(ExcelExportHelper.EXCEPTION_FILE_ROLLOVER_TO_STREAM, ex.getMessage());
+			}
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		
+		try {
+			new ExcelExportHelper().compilePlan();
+			Assert.fail();
+		} catch (IllegalStateException ex) {
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_NO_SHEETS_TO_WRITE, ex.getMessage());
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+	}
+	
+	private static void populateSheet(EEHSheet sheet, String name, int rowCount) {
+		sheet.getHeaders().addAll(Arrays.asList("Id", "Description", "Amount", "Link", "Paid"));
+		
+		for (int i = 0; i < rowCount; i++) {
+			ArrayList<String> data = new ArrayList<>();
+			data.add("00" + i);
+			data.add(name + " " + i);
+			data.add(String.valueOf(i * 0.25));
+			data.add(i % 3 == 0 ? "https://poi.apache.org/" + name : null);
+			data.add(i % 2 == 0 ? "TRUE" : "false");
+			sheet.getData().add(data);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2021 Joshua Horvath
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.horvath.excelexporthelper;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for reading the rows of a sheet from the results of a query, 
+ * against an in-memory database.
+ * @author jhorvath
+ */
+public class EEHResultSetRowSourceTest {
+	
+	@Test
+	public void nextRow_SqlTypes_CellsTyped() {
+		JdbcDataSource dataSource = createDataSource("types");
+		
+		try (Connection connection = dataSource.getConnection()) {
+			execute(connection, "CREATE TABLE ITEMS (ID INT, BIG BIGINT, PRICE DECIMAL(10, 2), "
+					+ "ACTIVE BOOLEAN, NAME VARCHAR(40), ADDED DATE, EXACT DECIMAL(30, 4))");
+			execute(connection, "INSERT INTO ITEMS VALUES (1, 9007199254740993, 12.25, TRUE, "
+					+ "'https://poi.apache.org/', DATE '2021-03-04', 12345678901234567890.1234)");
+			execute(connection, "INSERT INTO ITEMS VALUES (2, NULL, NULL, NULL, NULL, NULL, NULL)");
+			
+			EEHResultSetRowSource source = new EEHResultSetRowSource(dataSource, 
+					"SELECT ID, BIG, PRICE, ACTIVE, NAME AS ITEM_NAME, ADDED, EXACT FROM ITEMS ORDER BY ID");
+			EEHSheet sheet = new ExcelExportHelper().createSheet("Items");
+			source.readHeaders(sheet);
+			Assert.assertEquals(Arrays.asList("ID", "BIG", "PRICE", "ACTIVE", "ITEM_NAME", "ADDED", "EXACT"), sheet.getHeaders());
+			
+			EEHRow row = new EEHRow();
+			Assert.assertTrue(source.nextRow(row));
+			Assert.assertEquals(EEHCellKind.NUMBER, row.getKind(0));
+			Assert.assertEquals(1, row.getNumber(0), 0);
+			
+			// too large to be held exactly by a numeric cell
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(1));
+			Assert.assertEquals("9007199254740993", row.getText(1));
+			
+			Assert.assertEquals(EEHCellKind.NUMBER, row.getKind(2));
+			Assert.assertEquals(12.25, row.getNumber(2), 0);
+			Assert.assertEquals(EEHCellKind.BOOLEAN, row.getKind(3));
+			Assert.assertTrue(row.getBoolean(3));
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(4));
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(5));
+			Assert.assertEquals("2021-03-04", row.getText(5));
+			
+			// too precise to be held exactly by a numeric cell
+			Assert.assertEquals(EEHCellKind.TEXT, row.getKind(6));
+			Assert.assertEquals("12345678901234567890.1234", row.getText(6));
+			
+			row.clear();
+			Assert.assertTrue(source.nextRow(row));
+			for (int column = 1; column < row.size(); column++) {
+				Assert.assertEquals(EEHCellKind.BLANK, row.getKind(column));
+			}
+			Assert.assertFalse(source.nextRow(new EEHRow()));
+			
+			source.close();
+			
+		} catch (EEHException | SQLException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void nextRow_OpenResultSet_TextTypedAndResultSetClosed() {
+		JdbcDataSource dataSource = createDataSource("open");
+		
+		try (Connection connection = dataSource.getConnection()) {
+			execute(connection, "CREATE TABLE LINKS (URL VARCHAR(40))");
+			execute(connection, "INSERT INTO LINKS VALUES ('https://poi.apache.org/')");
+			
+			try (PreparedStatement statement = connection.prepareStatement("SELECT URL FROM LINKS")) {
+				ResultSet resultSet = statement.executeQuery();
+				EEHResultSetRowSource source = new EEHResultSetRowSource(resultSet);
+				source.setTypeText(true);
+				source.setFetchSize(10);
+				
+				EEHRow row = new EEHRow();
+				Assert.assertTrue(source.nextRow(row));
+				Assert.assertEquals(EEHCellKind.VALUE, row.getKind(0));
+				
+				try {
+					source.setFetchSize(100);
+					Assert.fail();
+				} catch (IllegalStateException ex) {
+					Assert.assertEquals(EEHResultSetRowSource.EXCEPTION_ALREADY_READ, ex.getMessage());
+				}
+				
+				source.close();
+				Assert.assertTrue(resultSet.isClosed());
+				Assert.assertFalse(statement.isClosed());
+			}
+			
+		} catch (EEHException | SQLException ex) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void nextRow_InvalidQuery_EEHException() {
+		EEHResultSetRowSource source = new EEHResultSetRowSource(createDataSource("invalid"), "SELECT * FROM MISSING");
+		
+		try {
+			source.nextRow(new EEHRow());
+			Assert.fail();
+		} catch (EEHException ex) {
+			Assert.assertTrue(ex.getMessage().startsWith(EEHResultSetRowSource.EXCEPTION_QUERY_FAILED));
+		}
+		
+		try {
+			new EEHResultSetRowSource(createDataSource("empty"), " ");
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(EEHResultSetRowSource.EXCEPTION_NULL_QUERY, ex.getMessage());
+		}
+	}
+	
+	@Test
+	public void writeWorkBook_QueryResults_Exported() {
+		File file = TestUtility.createValidFile("QueryExport", "QueryExportTest.xlsx");
+		JdbcDataSource dataSource = createDataSource("export");
+		
+		try (Connection connection = dataSource.getConnection()) {
+			execute(connection, "CREATE TABLE ORDERS AS SELECT X AS ORDER_ID, 'Order ' || X AS DESCRIPTION, "
+					+ "X * 0.5 AS AMOUNT, MOD(X, 2) = 0 AS PAID FROM SYSTEM_RANGE(1, 5000)");
+			
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			EEHSheet sheet = eeh.createSheet("Orders");
+			EEHResultSetRowSource source = new EEHResultSetRowSource(dataSource, 
+					"SELECT ORDER_ID, DESCRIPTION, AMOUNT, PAID FROM ORDERS ORDER BY ORDER_ID");
+			source.setFetchSize(100);
+			source.readHeaders(sheet);
+			sheet.setRowSource(source);
+			eeh.writeWorkBook();
+			
+			List<String> descriptions = TestUtility.readColumn(file, 0, 1);
+			Assert.assertEquals(5001, descriptions.size());
+			Assert.assertEquals("DESCRIPTION", descriptions.get(0));
+			Assert.assertEquals("Order 5000", descriptions.get(5000));
+			Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, 0, 5000, 0));
+			Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, 0, 5000, 2));
+			Assert.assertEquals(CellType.BOOLEAN, TestUtility.readCellType(file, 0, 5000, 3));
+			
+		} catch (EEHException | SQLException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	/**
+	 * Creates a data source for an in-memory database that lasts until the JVM exits.
+	 * @param name String 
+	 * @return JdbcDataSource
+	 */
+	private static JdbcDataSource createDataSource(String name) {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+		return dataSource;
+	}
+	
+	private static void execute(Connection connection, String sql) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+}
@@ -25,6 +25,7 @@
 package com.horvath.excelexporthelper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
@@ -235,4 +236,192 @@ public class EEHSheetTest {
 		Assert.assertTrue(caughtException);
 	}
 	
+	@Test
+	public void EEHSheet_ColumnarStorage_RowsReadBack() {
+		try {
+			EEHSheet sheet = new EEHSheet("Columnar", new ArrayList<EEHSheet>(), EEHSheetStorage.COLUMNAR);
+			Assert.assertEquals(EEHSheetStorage.COLUMNAR, sheet.getStorage());
+			
+			ArrayList<String> data = new ArrayList<>();
+			data.add("Text");
+			data.add("005");
+			data.add("-2.5");
+			data.add(" TRUE ");
+			data.add(null);
+			data.add("https://poi.apache.org/");
+			sheet.getData().add(data);
+			
+			data = new ArrayList<>();
+			data.add("Short row");
+			sheet.getData().add(data);
+			
+			Assert.assertEquals(2, sheet.getData().size());
+			
+			List<String> actual = sheet.getData().get(0);
+			Assert.assertEquals(6, actual.size());
+			Assert.assertEquals("Text", actual.get(0));
+			Assert.assertEquals("5", actual.get(1));
+			Assert.assertEquals("-2.5", actual.get(2));
+			Assert.assertEquals("true", actual.get(3));
+			Assert.assertNull(actual.get(4));
+			Assert.assertEquals("https://poi.apache.org/", actual.get(5));
+			
+			actual = sheet.getData().get(1);
+			Assert.assertEquals(1, actual.size());
+			Assert.assertEquals("Short row", actual.get(0));
+			
+			sheet.getData().clear();
+			Assert.assertTrue(sheet.getData().isEmpty());
+			
+		} catch (EEHException e) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void EEHSheet_ColumnarStorageManyDistinctValues_RowsReadBack() {
+		try {
+			EEHSheet sheet = new EEHSheet("Columnar", new ArrayList<EEHSheet>(), EEHSheetStorage.COLUMNAR);
+			final int rowCount = EEHColumnarData.MAX_DICTIONARY_SIZE + 5000;
+			
+			for (int i = 0; i < rowCount; i++) {
+				ArrayList<String> data = new ArrayList<>();
+				// a repeated value, a unique value and a number
+				data.add(i % 2 == 0 ? "Even" : "Odd");
+				data.add("Value " + i);
+				data.add(String.valueOf(i));
+				sheet.getData().add(data);
+			}
+			
+			Assert.assertEquals(rowCount, sheet.getData().size());
+			
+			int i = 0;
+			for (List<String> actual : sheet.getData()) {
+				Assert.assertEquals(i % 2 == 0 ? "Even" : "Odd", actual.get(0));
+				Assert.assertEquals("Value " + i, actual.get(1));
+				Assert.assertEquals(String.valueOf(i), actual.get(2));
+				i++;
+			}
+			
+		} catch (EEHException e) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void EEHSheet_ColumnType_DefaultsToInferred() {
+		try {
+			EEHSheet sheet = new EEHSheet("Types", new ArrayList<EEHSheet>());
+			sheet.setColumnType(2, EEHColumnType.TEXT);
+			
+			Assert.assertEquals(EEHColumnType.INFERRED, sheet.getColumnType(0));
+			Assert.assertEquals(EEHColumnType.TEXT, sheet.getColumnType(2));
+			Assert.assertEquals(EEHColumnType.INFERRED, sheet.getColumnType(10));
+			
+		} catch (EEHException e) {
+			Assert.fail();
+		}
+	}
+	
+	@Test
+	public void EEHSheet_ColumnTypeNegativeColumn_IllegalArgumentException() {
+		boolean caughtException = false;
+		try {
+			EEHSheet sheet = new EEHSheet("Types", new ArrayList<EEHSheet>());
+			sheet.setColumnType(-1, EEHColumnType.TEXT);
+			Assert.fail(); // should not get here
+			
+		} catch (IllegalArgumentException actual) {
+			caughtException = true;
+			Assert.assertEquals(EEHSheet.EXCEPTION_NEGATIVE_COLUMN, actual.getMessage());
+		} catch (EEHException e) {
+			Assert.fail();
+		}
+		Assert.assertTrue(caughtException);
+	}
+	
+	@Test
+	public void EEHSheet_ColumnarStorageColumnTypes_ValuesTyped() {
+		boolean caughtException = false;
+		try {
+			EEHSheet sheet = new EEHSheet("Columnar", new ArrayList<EEHSheet>(), EEHSheetStorage.COLUMNAR);
+			sheet.setColumnType(0, EEHColumnType.TEXT);
+			sheet.setColumnType(1, EEHColumnType.NUMERIC);
+			
+			ArrayList<String> data = new ArrayList<>();
+			data.add("00123");
+			data.add("not a number");
+			data.add("00123");
+			sheet.getData().add(data);
+			
+			List<String> actual = sheet.getData().get(0);
+			Assert.assertEquals("00123", actual.get(0));
+			Assert.assertEquals("not a number", actual.get(1));
+			Assert.assertEquals("123", actual.get(2));
+			
+			// values have already been typed 
+			sheet.setColumnType(2, EEHColumnType.TEXT);
+			Assert.fail(); // should not get here
+			
+		} catch (IllegalStateException actual) {
+			caughtException = true;
+			Assert.assertEquals(EEHSheet.EXCEPTION_COLUMN_TYPE_AFTER_DATA, actual.getMessage());
+		} catch (EEHException e) {
+			Assert.fail();
+		}
+		Assert.assertTrue(caughtException);
+	}
+
+	@Test
+	public void EEHSheet_SpillSettingsOnRowStorage_IllegalStateException() {
+		boolean caughtException = false;
+		try {
+			EEHSheet sheet = new EEHSheet("Rows", new ArrayList<EEHSheet>());
+			sheet.setSpillThreshold(1024);
+			Assert.fail(); // should not get here
+			
+		} catch (IllegalStateException actual) {
+			caughtException = true;
+			Assert.assertEquals(EEHSheet.EXCEPTION_NOT_SPILLING, actual.getMessage());
+		} catch (EEHException e) {
+			Assert.fail();
+		}
+		Assert.assertTrue(caughtException);
+	}
+	
+	@Test
+	public void EEHSheet_SpillingStorage_RowsReadBackInOrder() {
+		try {
+			EEHSheet sheet = new EEHSheet("Spilling", new ArrayList<EEHSheet>(), EEHSheetStorage.SPILLING);
+			sheet.setSpillThreshold(0);
+			sheet.setSpillCompression(true);
+			
+			for (int i = 0; i < 100; i++) {
+				ArrayList<String> data = new ArrayList<>();
+				data.add("Row " + i + " \u00e9\u20ac");
+				data.add(i % 2 == 0 ? null : "");
+				data.add(String.valueOf(i));
+				sheet.getData().add(data);
+			}
+			
+			Assert.assertEquals(100, sheet.getData().size());
+			Assert.assertEquals(Arrays.asList("Row 7 \u00e9\u20ac", "", "7"), sheet.getData().get(7));
+			Assert.assertEquals(Arrays.asList("Row 2 \u00e9\u20ac", null, "2"), sheet.getData().get(2));
+			Assert.assertEquals(Arrays.asList("Row 99 \u00e9\u20ac", "", "99"), sheet.getData().get(99));
+			
+			try {
+				sheet.setSpillCompression(false);
+				Assert.fail(); // should not get here
+			} catch (IllegalStateException actual) {
+				Assert.assertEquals(EEHSheet.EXCEPTION_SPILL_COMPRESSION_AFTER_SPILL, actual.getMessage());
+			}
+			
+			sheet.getData().clear();
+			Assert.assertTrue(sheet.getData().isEmpty());
+			
+		} catch (EEHException e) {
+			Assert.fail();
+		}
+	}
+	
 }
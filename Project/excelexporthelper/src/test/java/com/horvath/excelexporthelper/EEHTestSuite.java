@@ -32,7 +32,13 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
    FileUtilityTest.class,
    ExcelExportHelperTest.class,
-   EEHSheetTest.class
+   EEHSheetTest.class,
+   EEHCellClassifierTest.class,
+   EEHExportBatchTest.class,
+   EEHCsvRowSourceTest.class,
+   EEHResultSetRowSourceTest.class,
+   EEHBeanMapperTest.class,
+   EEHExportPlanTest.class
 })
 
 public class EEHTestSuite { }
@@ -24,9 +24,31 @@
 
 package com.horvath.excelexporthelper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.poi.ss.usermodel.CellType;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -430,5 +452,1981 @@ public class ExcelExportHelperTest {
 		}
 		TestUtility.cleanupParentFolder(file);
 	}
+	
+	@Test
+	public void setRowWindowSize_Zero_IllegalArgumentException() {
+		boolean caughtException = false;
+		File file = TestUtility.createValidFile("WindowSize", "WindowSizeTest.xlsx");
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file.getAbsolutePath());
+			eeh.setRowWindowSize(0); // test
+			Assert.fail(); // should not get here
+		} catch (IllegalArgumentException actual) {
+			caughtException = true;
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_INVALID_ROW_WINDOW_SIZE, actual.getMessage());
+		}
+		Assert.assertTrue(caughtException);
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_StreamingMode_FileWritten() {
+		File file = TestUtility.createValidFile("StreamingWrite", "StreamingWriteTest.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file.getAbsolutePath());
+			eeh.setWriteMode(EEHWriteMode.STREAMING);
+			// use a window smaller than the row count so rows are flushed during the write
+			eeh.setRowWindowSize(10);
+			
+			EEHSheet sheet = eeh.createSheet("Streaming Sheet");
+			sheet.getHeaders().add("Name");
+			sheet.getHeaders().add("Number");
+			sheet.getHeaders().add("Link");
+			sheet.getHeaders().add("Flag");
+			
+			for (int i = 0; i < 250; i++) {
+				ArrayList<String> data = new ArrayList<>();
+				data.add("Row " + i);
+				data.add(String.valueOf(i * 1.5));
+				data.add("https://poi.apache.org/");
+				data.add(i % 2 == 0 ? "True" : "false");
+				sheet.getData().add(data);
+			}
+			
+			EEHSheet second = eeh.createSheet("Streaming Sheet");
+			ArrayList<String> data = new ArrayList<>();
+			data.add("One");
+			data.add(null);
+			data.add("3");
+			second.getData().add(data);
+
+			eeh.writeWorkBook();
+			
+			Assert.assertTrue(file.exists());
+			
+			TestUtility.compareFileToData(eeh, file);
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_ManyUrlCells_StylesShared() {
+		File file = TestUtility.createValidFile("SharedStyles", "SharedStylesTest.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file.getAbsolutePath());
+			
+			for (int s = 0; s < 3; s++) {
+				EEHSheet sheet = eeh.createSheet("Links");
+				sheet.getHeaders().add("Link");
+				sheet.getHeaders().add("Other Link");
+				
+				for (int i = 0; i < 500; i++) {
+					ArrayList<String> data = new ArrayList<>();
+					data.add("https://poi.apache.org/" + i);
+					data.add("https://www.google.com/");
+					sheet.getData().add(data);
+				}
+			}
+
+			eeh.writeWorkBook();
+			
+			TestUtility.compareFileToData(eeh, file);
+			
+			// the default style, the header style and the hyperlink style
+			Assert.assertEquals(3, TestUtility.countCellStyles(file));
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_EstimatedColumnSizing_WidthsSet() {
+		File file = TestUtility.createValidFile("EstimatedWidths", "EstimatedWidthsTest.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file.getAbsolutePath());
+			Assert.assertEquals(EEHColumnSizing.ESTIMATED, eeh.getColumnSizing());
+			
+			EEHSheet sheet = eeh.createSheet("Widths");
+			sheet.getHeaders().add("Id");
+			sheet.getHeaders().add("Description");
+			
+			for (int i = 0; i < 20; i++) {
+				ArrayList<String> data = new ArrayList<>();
+				data.add(String.valueOf(i));
+				data.add("A much longer description for row " + i);
+				sheet.getData().add(data);
+			}
+			
+			eeh.writeWorkBook();
+			TestUtility.compareFileToData(eeh, file);
+			
+			int narrow = TestUtility.readColumnWidth(file, 0, 0);
+			int wide = TestUtility.readColumnWidth(file, 0, 1);
+			
+			Assert.assertTrue(wide >= "A much longer description for row 19".length() * 256);
+			Assert.assertTrue(narrow < wide);
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_ExactColumnSizingStreaming_FileWritten() {
+		File file = TestUtility.createValidFile("ExactWidths", "ExactWidthsTest.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file.getAbsolutePath());
+			eeh.setColumnSizing(EEHColumnSizing.EXACT);
+			eeh.setWriteMode(EEHWriteMode.STREAMING);
+			eeh.setRowWindowSize(5);
+			
+			EEHSheet sheet = eeh.createSheet("Widths");
+			for (int i = 0; i < 50; i++) {
+				ArrayList<String> data = new ArrayList<>();
+				data.add(String.valueOf(i));
+				data.add("A much longer description for row " + i);
+				sheet.getData().add(data);
+			}
+			
+			eeh.writeWorkBook();
+			TestUtility.compareFileToData(eeh, file);
+			
+			Assert.assertTrue(TestUtility.readColumnWidth(file, 0, 1) > TestUtility.readColumnWidth(file, 0, 0));
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_WithExecutor_SameAsSequential() {
+		File sequentialFile = TestUtility.createValidFile("ParallelWrite", "Sequential.xlsx");
+		File parallelFile = new File(sequentialFile.getParentFile(), "Parallel.xlsx");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			ExcelExportHelper sequential = new ExcelExportHelper(sequentialFile);
+			populateMixedSheets(sequential, 6, 300);
+			sequential.writeWorkBook();
+			
+			ExcelExportHelper parallel = new ExcelExportHelper(parallelFile);
+			parallel.setExecutor(executor);
+			populateMixedSheets(parallel, 6, 300);
+			parallel.writeWorkBook();
+			
+			TestUtility.compareFileToData(parallel, parallelFile);
+			TestUtility.assertSameWorkbookContent(sequentialFile, parallelFile);
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdown();
+		}
+		TestUtility.cleanupParentFolder(sequentialFile);
+	}
+	
+	/**
+	 * Adds sheets with a header row and rows of mixed cell types.
+	 * @param eeh ExcelExportHelper
+	 * @param sheetCount int 
+	 * @param rowCount int 
+	 */
+	private static void populateMixedSheets(ExcelExportHelper eeh, int sheetCount, int rowCount) {
+		for (int s = 0; s < sheetCount; s++) {
+			populateMixedSheet(eeh.createSheet("Mixed"), s, rowCount);
+		}
+	}
+	
+	private static void populateMixedSheet(EEHSheet sheet, int s, int rowCount) {
+		sheet.getHeaders().add("Text");
+		sheet.getHeaders().add("Number");
+		sheet.getHeaders().add("Link");
+		sheet.getHeaders().add("Flag");
+		
+		for (int i = 0; i < rowCount; i++) {
+			ArrayList<String> data = new ArrayList<>();
+			data.add("Sheet " + s + " row " + i);
+			data.add(String.valueOf(i * 0.25));
+			data.add(i % 3 == 0 ? "https://poi.apache.org/" : null);
+			data.add(i % 2 == 0 ? "TRUE" : "false");
+			sheet.getData().add(data);
+		}
+	}
+	
+	@Test 
+	public void writeWorkBook_ColumnarStorage_SameAsRowStorage() {
+		File rowsFile = TestUtility.createValidFile("ColumnarWrite", "Rows.xlsx");
+		File columnarFile = new File(rowsFile.getParentFile(), "Columnar.xlsx");
+
+		try {
+			ExcelExportHelper rows = new ExcelExportHelper(rowsFile);
+			populateMixedSheets(rows, 2, 5000);
+			rows.writeWorkBook();
+			
+			ExcelExportHelper columnar = new ExcelExportHelper(columnarFile);
+			for (EEHSheet source : rows.getSheets()) {
+				EEHSheet sheet = columnar.createSheet(source.getSheetName(), EEHSheetStorage.COLUMNAR);
+				sheet.getHeaders().addAll(source.getHeaders());
+				sheet.getData().addAll(source.getData());
+			}
+			columnar.writeWorkBook();
+			
+			TestUtility.compareFileToData(columnar, columnarFile);
+			TestUtility.assertSameWorkbookContent(rowsFile, columnarFile);
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(rowsFile);
+	}
+	
+	@Test 
+	public void writeWorkBook_IteratorRowSource_SameAsData() {
+		File dataFile = TestUtility.createValidFile("IteratorSource", "Data.xlsx");
+		File sourceFile = new File(dataFile.getParentFile(), "Source.xlsx");
+
+		try {
+			ExcelExportHelper data = new ExcelExportHelper(dataFile);
+			data.setWriteMode(EEHWriteMode.STREAMING);
+			populateMixedSheets(data, 1, 500);
+			data.writeWorkBook();
+			
+			ExcelExportHelper source = new ExcelExportHelper(sourceFile);
+			source.setWriteMode(EEHWriteMode.STREAMING);
+			source.setRowWindowSize(20);
+			
+			EEHSheet sheet = source.createSheet("Mixed");
+			sheet.getHeaders().addAll(data.getSheets().get(0).getHeaders());
+			// the first rows are held by the sheet, the rest are pulled from the source
+			sheet.getData().addAll(data.getSheets().get(0).getData().subList(0, 10));
+			sheet.setRowSource(data.getSheets().get(0).getData().subList(10, 500).iterator());
+			
+			source.writeWorkBook();
+			
+			TestUtility.assertSameWorkbookContent(dataFile, sourceFile);
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(dataFile);
+	}
+	
+	@Test 
+	public void writeWorkBook_TypedRowSource_CellTypesKept() {
+		File file = TestUtility.createValidFile("TypedSource", "TypedSourceTest.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			EEHSheet sheet = eeh.createSheet("Typed");
+			
+			sheet.setRowSource(new EEHRowSource() {
+				private int count = 0;
+				
+				@Override
+				public boolean nextRow(EEHRow row) {
+					if (count == 100) {
+						return false;
+					}
+					row.addText("00" + count);
+					row.addNumber(count * 2);
+					row.addBoolean(count % 2 == 0);
+					row.addHyperlink("https://poi.apache.org/");
+					row.addValue("12.5");
+					row.addBlank();
+					count++;
+					return true;
+				}
+			});
+			
+			eeh.writeWorkBook();
+			
+			Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, 0, 5, 0));
+			Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, 0, 5, 1));
+			Assert.assertEquals(CellType.BOOLEAN, TestUtility.readCellType(file, 0, 5, 2));
+			Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, 0, 5, 3));
+			Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, 0, 5, 4));
+			Assert.assertEquals(CellType.BLANK, TestUtility.readCellType(file, 0, 5, 5));
+			Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, 0, 99, 0));
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_MalformedHyperlinkAdded_WrittenAsText() {
+		File file = TestUtility.createValidFile("BadLink", "BadLinkTest.xlsx");
+
+		try {
+			for (EEHWriteMode writeMode : EEHWriteMode.values()) {
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(writeMode);
+				EEHSheet sheet = eeh.createSheet("Links");
+				
+				sheet.setRowSource(new EEHRowSource() {
+					private int count = 0;
+					
+					@Override
+					public boolean nextRow(EEHRow row) {
+						if (count == 10) {
+							return false;
+						}
+						row.addHyperlink("https://poi.apache.org/");
+						row.addHyperlink("https://exa mple.com/" + count);
+						count++;
+						return true;
+					}
+				});
+				
+				eeh.writeWorkBook();
+				
+				Assert.assertEquals(10, TestUtility.countHyperlinks(file, 0));
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, 0, 9, 1));
+				Assert.assertEquals("https://exa mple.com/9", TestUtility.readColumn(file, 0, 1).get(9));
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_RowSourceWrittenTwice_IllegalStateException() {
+		boolean caughtException = false;
+		File file = TestUtility.createValidFile("SourceTwice", "SourceTwiceTest.xlsx");
+		final boolean[] closed = { false };
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			EEHSheet sheet = eeh.createSheet("Source");
+			
+			List<ArrayList<String>> rows = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				ArrayList<String> data = new ArrayList<>();
+				data.add("Row " + i);
+				rows.add(data);
+			}
+			final Iterator<ArrayList<String>> iterator = rows.iterator();
+			
+			class ClosingIterator implements Iterator<ArrayList<String>>, AutoCloseable {
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+				@Override
+				public ArrayList<String> next() {
+					return iterator.next();
+				}
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+				@Override
+				public void close() {
+					closed[0] = true;
+				}
+			}
+			sheet.setRowSource(new ClosingIterator());
+			
+			eeh.writeWorkBook();
+			Assert.assertTrue(closed[0]);
+			
+			// the source has been read, so it cannot be written again
+			eeh.writeWorkBook();
+			Assert.fail(); // should not get here
+			
+		} catch (IllegalStateException actual) {
+			caughtException = true;
+			Assert.assertEquals(EEHSheet.EXCEPTION_ROWS_ALREADY_READ, actual.getMessage());
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		Assert.assertTrue(caughtException);
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_OutputStream_SameAsFile() {
+		File file = TestUtility.createValidFile("OutputStream", "File.xlsx");
+		File streamFile = new File(file.getParentFile(), "Stream.xlsx");
+		final boolean[] closed = { false };
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			populateMixedSheets(eeh, 2, 200);
+			eeh.writeWorkBook();
+			
+			ExcelExportHelper stream = new ExcelExportHelper();
+			populateMixedSheets(stream, 2, 200);
+			
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream() {
+				@Override
+				public void close() {
+					closed[0] = true;
+				}
+			};
+			stream.writeWorkBook(bytes);
+			
+			Assert.assertFalse(closed[0]);
+			Assert.assertNull(stream.getFile());
+			
+			try (OutputStream os = new FileOutputStream(streamFile)) {
+				bytes.writeTo(os);
+			}
+			TestUtility.assertSameWorkbookContent(file, streamFile);
+
+		} catch (EEHException | IOException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_ChannelStreaming_SameAsFile() {
+		File file = TestUtility.createValidFile("Channel", "File.xlsx");
+		File channelFile = new File(file.getParentFile(), "Channel.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.STREAMING);
+			populateMixedSheets(eeh, 2, 200);
+			eeh.writeWorkBook();
+			
+			ExcelExportHelper channel = new ExcelExportHelper();
+			channel.setWriteMode(EEHWriteMode.STREAMING);
+			populateMixedSheets(channel, 2, 200);
+			
+			try (FileChannel fileChannel = FileChannel.open(channelFile.toPath(), 
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				channel.writeWorkBook(fileChannel);
+				Assert.assertTrue(fileChannel.isOpen());
+			}
+			TestUtility.assertSameWorkbookContent(file, channelFile);
+
+		} catch (EEHException | IOException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_NoFile_IllegalStateException() {
+		boolean caughtException = false;
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper();
+			eeh.createSheet("Sheet");
+			eeh.writeWorkBook();
+			Assert.fail(); // should not get here
+			
+		} catch (IllegalStateException actual) {
+			caughtException = true;
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_NO_FILE, actual.getMessage());
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		Assert.assertTrue(caughtException);
+	}
+	
+	@Test 
+	public void writeWorkBook_NullOutputStream_IllegalArgumentException() {
+		boolean caughtException = false;
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper();
+			eeh.createSheet("Sheet");
+			eeh.writeWorkBook((OutputStream) null);
+			Assert.fail(); // should not get here
+			
+		} catch (IllegalArgumentException actual) {
+			caughtException = true;
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_NULL_OUTPUT, actual.getMessage());
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		Assert.assertTrue(caughtException);
+	}
+	
+	@Test 
+	public void writeWorkBook_DeclaredColumnTypes_CellTypesKept() {
+		File file = TestUtility.createValidFile("ColumnTypes", "ColumnTypesTest.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			
+			for (EEHSheetStorage storage : EEHSheetStorage.values()) {
+				EEHSheet sheet = eeh.createSheet(storage.name(), storage);
+				sheet.setColumnType(0, EEHColumnType.TEXT);
+				sheet.setColumnType(1, EEHColumnType.NUMERIC);
+				sheet.setColumnType(2, EEHColumnType.BOOLEAN);
+				sheet.setColumnType(3, EEHColumnType.HYPERLINK);
+				sheet.setColumnType(4, EEHColumnType.INFERRED);
+				
+				ArrayList<String> data = new ArrayList<>();
+				data.add("00123");
+				data.add("19.99");
+				data.add("TRUE");
+				data.add("https://poi.apache.org/");
+				data.add("00123");
+				sheet.getData().add(data);
+				
+				// values that do not match the declared type are written as text
+				data = new ArrayList<>();
+				data.add("true");
+				data.add("n/a");
+				data.add("12");
+				data.add("12");
+				data.add("https://poi.apache.org/");
+				sheet.getData().add(data);
+			}
+			
+			eeh.writeWorkBook();
+			
+			for (int sheet = 0; sheet < 2; sheet++) {
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, sheet, 0, 0));
+				Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, sheet, 0, 1));
+				Assert.assertEquals(CellType.BOOLEAN, TestUtility.readCellType(file, sheet, 0, 2));
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, sheet, 0, 3));
+				Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, sheet, 0, 4));
+				
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, sheet, 1, 0));
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, sheet, 1, 1));
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, sheet, 1, 2));
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, sheet, 1, 3));
+			}
+			Assert.assertEquals(4, TestUtility.countHyperlinks(file, 0) + TestUtility.countHyperlinks(file, 1));
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test
+	public void setSharedStringLimit_Negative_IllegalArgumentException() {
+		boolean caughtException = false;
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper();
+			eeh.setSharedStringLimit(-1); // test
+			Assert.fail(); // should not get here
+		} catch (IllegalArgumentException actual) {
+			caughtException = true;
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_INVALID_SHARED_STRING_LIMIT, actual.getMessage());
+		}
+		Assert.assertTrue(caughtException);
+	}
+	
+	@Test 
+	public void writeWorkBook_SharedStringLimit_TextKept() {
+		File file = TestUtility.createValidFile("SharedStrings", "SharedStringsTest.xlsx");
+		
+		// the limit is the number of distinct texts held, zero writes all texts in their cells 
+		final int[] limits = { ExcelExportHelper.DEFAULT_SHARED_STRING_LIMIT, 15, 0 };
+		final int[] expectedUnique = { 220, 15, 0 };
+
+		try {
+			for (int i = 0; i < limits.length; i++) {
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setSharedStringLimit(limits[i]);
+				
+				EEHSheet sheet = eeh.createSheet("Text");
+				for (int row = 0; row < 200; row++) {
+					ArrayList<String> data = new ArrayList<>();
+					data.add("Status " + (row % 10));
+					data.add(" Id " + row + " ");
+					data.add("https://poi.apache.org/" + (row % 10));
+					sheet.getData().add(data);
+				}
+				
+				eeh.writeWorkBook();
+				
+				TestUtility.compareFileToData(eeh, file);
+				Assert.assertEquals(expectedUnique[i], TestUtility.countSharedStrings(file));
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_RepeatedUrls_RelationshipsShared() {
+		File file = TestUtility.createValidFile("RepeatedUrls", "RepeatedUrlsTest.xlsx");
+
+		try {
+			for (EEHWriteMode writeMode : EEHWriteMode.values()) {
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(writeMode);
+				
+				EEHSheet sheet = eeh.createSheet("Links");
+				for (int row = 0; row < 300; row++) {
+					ArrayList<String> data = new ArrayList<>();
+					data.add("https://poi.apache.org/" + (row % 3));
+					data.add("mailto:someone@example.com");
+					sheet.getData().add(data);
+				}
+				
+				eeh.writeWorkBook();
+				
+				TestUtility.compareFileToData(eeh, file);
+				Assert.assertEquals(600, TestUtility.countHyperlinks(file, 0));
+				Assert.assertEquals(4, TestUtility.countRelationships(file, "xl/worksheets/_rels/sheet1.xml.rels"));
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_HyperlinkSchemes_OtherSchemesText() {
+		File file = TestUtility.createValidFile("HyperlinkSchemes", "HyperlinkSchemesTest.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setHyperlinkSchemes(Arrays.asList("HTTPS"));
+			Assert.assertTrue(eeh.getHyperlinkSchemes().contains("https"));
+			
+			for (EEHSheetStorage storage : new EEHSheetStorage[] { EEHSheetStorage.ROWS, EEHSheetStorage.COLUMNAR }) {
+				EEHSheet sheet = eeh.createSheet(storage.name(), storage);
+				
+				ArrayList<String> data = new ArrayList<>();
+				data.add("https://poi.apache.org/");
+				data.add("http://poi.apache.org/");
+				data.add("file:///etc/hosts");
+				sheet.getData().add(data);
+			}
+			
+			eeh.writeWorkBook();
+			
+			TestUtility.compareFileToData(eeh, file);
+			for (int sheet = 0; sheet < 2; sheet++) {
+				Assert.assertEquals(1, TestUtility.countHyperlinks(file, sheet));
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, sheet, 0, 1));
+				Assert.assertEquals(CellType.STRING, TestUtility.readCellType(file, sheet, 0, 2));
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test
+	public void setHyperlinkSchemes_EmptyScheme_IllegalArgumentException() {
+		boolean caughtException = false;
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper();
+			eeh.setHyperlinkSchemes(Arrays.asList("https", "")); // test
+			Assert.fail(); // should not get here
+		} catch (IllegalArgumentException actual) {
+			caughtException = true;
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_INVALID_HYPERLINK_SCHEME, actual.getMessage());
+		}
+		Assert.assertTrue(caughtException);
+	}
+	
+	@Test 
+	public void writeWorkBook_DirectMode_SameAsInMemory() {
+		File file = TestUtility.createValidFile("DirectMode", "InMemory.xlsx");
+		File directFile = new File(file.getParentFile(), "Direct.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			populateMixedSheets(eeh, 3, 300);
+			eeh.writeWorkBook();
+			
+			ExcelExportHelper direct = new ExcelExportHelper(directFile);
+			direct.setWriteMode(EEHWriteMode.DIRECT);
+			populateMixedSheets(direct, 3, 300);
+			direct.writeWorkBook();
+			
+			TestUtility.compareFileToData(direct, directFile);
+			TestUtility.assertSameCells(file, directFile);
+			Assert.assertEquals(1, TestUtility.countRelationships(directFile, "xl/worksheets/_rels/sheet1.xml.rels"));
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_DirectModeSpecialText_TextKept() {
+		File file = TestUtility.createValidFile("DirectText", "InMemory.xlsx");
+		File directFile = new File(file.getParentFile(), "Direct.xlsx");
+		
+		final String[] texts = { "  leading and trailing  ", "Fish & Chips <b>\"quoted\"</b>", 
+				"Line one\nLine two\r\nLine three\tTabbed", 
+				"Caf\u00e9 \u65e5\u672c \ud83d\ude00", "00123", "" };
+
+		try {
+			for (File target : new File[] { file, directFile }) {
+				ExcelExportHelper eeh = new ExcelExportHelper(target);
+				if (target == directFile) {
+					eeh.setWriteMode(EEHWriteMode.DIRECT);
+				}
+				
+				EEHSheet sheet = eeh.createSheet("R&D <Sheet>");
+				sheet.setColumnType(0, EEHColumnType.TEXT);
+				sheet.getHeaders().add("Text & more");
+				for (String text : texts) {
+					ArrayList<String> data = new ArrayList<>();
+					data.add(text);
+					sheet.getData().add(data);
+				}
+				
+				eeh.writeWorkBook();
+				TestUtility.compareFileToData(eeh, target);
+			}
+			
+			TestUtility.assertSameCells(file, directFile);
+			
+			// text that looks like an escaped character is kept as written
+			ExcelExportHelper direct = new ExcelExportHelper(directFile);
+			direct.setWriteMode(EEHWriteMode.DIRECT);
+			EEHSheet sheet = direct.createSheet("Escapes");
+			sheet.getHeaders().add("_x0041_");
+			ArrayList<String> data = new ArrayList<>();
+			data.add("_x005F_x0041_ and _x0009_");
+			sheet.getData().add(data);
+			direct.writeWorkBook();
+			TestUtility.compareFileToData(direct, directFile);
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_DirectModeNullHeaderAndLink_SameAsInMemory() {
+		File file = TestUtility.createValidFile("DirectNulls", "InMemory.xlsx");
+		File directFile = new File(file.getParentFile(), "Direct.xlsx");
+
+		try {
+			for (File target : new File[] { file, directFile }) {
+				ExcelExportHelper eeh = new ExcelExportHelper(target);
+				if (target == directFile) {
+					eeh.setWriteMode(EEHWriteMode.DIRECT);
+				}
+				EEHSheet sheet = eeh.createSheet("Nulls");
+				sheet.getHeaders().add("Link");
+				sheet.getHeaders().add(null);
+				ArrayList<String> data = new ArrayList<>();
+				data.add("https://poi.apache.org/");
+				data.add("Text");
+				sheet.getData().add(data);
+				eeh.writeWorkBook();
+			}
+			
+			TestUtility.assertSameCells(file, directFile);
+			
+			// the target of a link is not read back through the escapes of cell text
+			final String link = "https://poi.apache.org/a_x0041_b";
+			ExcelExportHelper direct = new ExcelExportHelper(directFile);
+			direct.setWriteMode(EEHWriteMode.DIRECT);
+			ArrayList<String> data = new ArrayList<>();
+			data.add(link);
+			direct.createSheet("Links").getData().add(data);
+			direct.writeWorkBook();
+			
+			Assert.assertEquals(Arrays.asList(link), TestUtility.readColumn(directFile, 0, 0));
+			Assert.assertEquals(Arrays.asList(link), TestUtility.readHyperlinks(directFile, 0));
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_DirectModeOptions_SameAsInMemory() {
+		File file = TestUtility.createValidFile("DirectOptions", "InMemory.xlsx");
+		File directFile = new File(file.getParentFile(), "Direct.xlsx");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			for (EEHColumnSizing columnSizing : new EEHColumnSizing[] { EEHColumnSizing.ESTIMATED, EEHColumnSizing.NONE }) {
+				for (boolean parallel : new boolean[] { false, true }) {
+					ExcelExportHelper eeh = new ExcelExportHelper(file);
+					eeh.setColumnSizing(columnSizing);
+					populateMixedSheets(eeh, 2, 100);
+					eeh.writeWorkBook();
+					
+					ExcelExportHelper direct = new ExcelExportHelper(directFile);
+					direct.setWriteMode(EEHWriteMode.DIRECT);
+					direct.setColumnSizing(columnSizing);
+					direct.setSharedStringLimit(10);
+					direct.setExecutor(parallel ? executor : null);
+					populateMixedSheets(direct, 2, 100);
+					direct.writeWorkBook();
+					
+					TestUtility.assertSameCells(file, directFile);
+				}
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void setCompression_Null_IllegalArgumentException() {
+		ExcelExportHelper eeh = new ExcelExportHelper();
+		try {
+			eeh.setCompression(null);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_NULL_COMPRESSION, ex.getMessage());
+		}
+		Assert.assertEquals(EEHCompression.DEFAULT, eeh.getCompression());
+	}
+	
+	@Test 
+	public void writeWorkBook_CompressionLevels_SameCells() {
+		File file = TestUtility.createValidFile("CompressionLevels", "Default.xlsx");
+		final String sheetPart = "xl/worksheets/sheet1.xml";
+
+		try {
+			for (EEHWriteMode writeMode : EEHWriteMode.values()) {
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(writeMode);
+				populateMixedSheets(eeh, 2, 500);
+				eeh.writeWorkBook();
+				
+				long previousSize = Long.MAX_VALUE;
+				for (EEHCompression compression : new EEHCompression[] { 
+						EEHCompression.STORE, EEHCompression.FAST, EEHCompression.BEST }) {
+					File levelFile = new File(file.getParentFile(), compression + ".xlsx");
+					
+					ExcelExportHelper level = new ExcelExportHelper(levelFile);
+					level.setWriteMode(writeMode);
+					level.setCompression(compression);
+					populateMixedSheets(level, 2, 500);
+					level.writeWorkBook();
+					
+					TestUtility.assertSameCells(file, levelFile);
+					
+					long size = TestUtility.readCompressedSize(levelFile, sheetPart);
+					Assert.assertTrue(writeMode + " " + compression, size < previousSize);
+					previousSize = size;
+				}
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_CompressionExecutor_SameAsSequential() {
+		File file = TestUtility.createValidFile("CompressionExecutor", "Sequential.xlsx");
+		File parallelFile = new File(file.getParentFile(), "Parallel.xlsx");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			for (EEHWriteMode writeMode : EEHWriteMode.values()) {
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(writeMode);
+				eeh.setCompression(EEHCompression.FAST);
+				populateMixedSheets(eeh, 3, 500);
+				eeh.writeWorkBook();
+				
+				ExcelExportHelper parallel = new ExcelExportHelper(parallelFile);
+				parallel.setWriteMode(writeMode);
+				parallel.setCompression(EEHCompression.FAST);
+				parallel.setCompressionExecutor(executor);
+				populateMixedSheets(parallel, 3, 500);
+				parallel.writeWorkBook();
+				
+				TestUtility.compareFileToData(parallel, parallelFile);
+				TestUtility.assertSameCells(file, parallelFile);
+				Assert.assertEquals(TestUtility.readPartNames(file), TestUtility.readPartNames(parallelFile));
+				Assert.assertEquals(TestUtility.readCompressedSize(file, "xl/worksheets/sheet2.xml"), 
+						TestUtility.readCompressedSize(parallelFile, "xl/worksheets/sheet2.xml"));
+				
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				parallel.writeWorkBook(bytes);
+				Assert.assertTrue(bytes.size() > 0);
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_CompressionOutputFails_PartsRemoved() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		int tempFiles = TestUtility.countTempFiles();
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper();
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			eeh.setCompressionExecutor(executor);
+			populateMixedSheets(eeh, 6, 2000);
+			
+			// the output fails while the later parts are still being compressed
+			eeh.writeWorkBook(new OutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					throw new IOException("Output failed.");
+				}
+			});
+			Assert.fail();
+			
+		} catch (EEHException ex) {
+			// every part has stopped, and its temporary file is removed
+			Assert.assertEquals(tempFiles, TestUtility.countTempFiles());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test 
+	public void writeWorkBookAsync_NullExecutor_IllegalArgumentException() {
+		File file = TestUtility.createValidFile("AsyncNull", "AsyncNullTest.xlsx");
+		ExcelExportHelper eeh = new ExcelExportHelper(file);
+		eeh.createSheet("Sheet");
+		
+		try {
+			eeh.writeWorkBookAsync(null);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_NULL_ASYNC_EXECUTOR, ex.getMessage());
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBookAsync_Completes_FileWritten() {
+		File file = TestUtility.createValidFile("AsyncWrite", "AsyncWriteTest.xlsx");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			populateMixedSheets(eeh, 2, 200);
+			
+			CompletableFuture<File> future = eeh.writeWorkBookAsync(executor);
+			Assert.assertEquals(eeh.getFile(), future.get(30, TimeUnit.SECONDS));
+			TestUtility.compareFileToData(eeh, file);
+
+		} catch (InterruptedException | ExecutionException | TimeoutException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBookAsync_ExportFails_EEHExceptionPassedThrough() {
+		File file = TestUtility.createValidFile("AsyncFailure", "AsyncFailureTest.xlsx");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final EEHException failure = new EEHException("Source failed.");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			EEHSheet sheet = eeh.createSheet("Failing");
+			sheet.setRowSource(new EEHRowSource() {
+				@Override
+				public boolean nextRow(EEHRow row) throws EEHException {
+					throw failure;
+				}
+			});
+			
+			eeh.writeWorkBookAsync(executor).get(30, TimeUnit.SECONDS);
+			Assert.fail();
+
+		} catch (ExecutionException ex) {
+			Assert.assertSame(failure, ex.getCause());
+		} catch (InterruptedException | TimeoutException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBookAsync_Cancelled_ExportStoppedAndCleanedUp() {
+		File file = TestUtility.createValidFile("AsyncCancel", "AsyncCancelTest.xlsx");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final CountDownLatch started = new CountDownLatch(1);
+		final boolean[] closed = { false };
+		
+		class EndlessSource implements EEHRowSource, AutoCloseable {
+			private int count = 0;
+			@Override
+			public boolean nextRow(EEHRow row) {
+				if (++count == 1000) {
+					started.countDown();
+				}
+				row.addNumber(count);
+				row.addText("Row " + count);
+				return true;
+			}
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		}
+
+		try {
+			int tempFiles = TestUtility.countTempFiles();
+			
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.STREAMING);
+			eeh.createSheet("Endless").setRowSource(new EndlessSource());
+			
+			CompletableFuture<File> future = eeh.writeWorkBookAsync(executor);
+			Assert.assertTrue(started.await(30, TimeUnit.SECONDS));
+			Assert.assertTrue(future.cancel(true));
+			Assert.assertTrue(future.isCancelled());
+			
+			// the next task on the same thread runs once the export has stopped
+			Future<Boolean> interrupted = executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return Thread.currentThread().isInterrupted();
+				}
+			});
+			Assert.assertFalse(interrupted.get(30, TimeUnit.SECONDS));
+			
+			Assert.assertTrue(closed[0]);
+			Assert.assertFalse(file.exists());
+			Assert.assertEquals(tempFiles, TestUtility.countTempFiles());
+
+		} catch (InterruptedException | ExecutionException | TimeoutException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBookAsync_CancelledOverExistingFile_FileKept() {
+		File file = TestUtility.createValidFile("AsyncCancelExisting", "AsyncCancelKeep.xlsx");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final CountDownLatch started = new CountDownLatch(1);
+		
+		try {
+			ExcelExportHelper previous = new ExcelExportHelper(file);
+			populateMixedSheets(previous, 1, 10);
+			previous.writeWorkBook();
+			byte[] content = Files.readAllBytes(file.toPath());
+			
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			eeh.createSheet("Endless").setRowSource(new EEHRowSource() {
+				private int count = 0;
+				@Override
+				public boolean nextRow(EEHRow row) {
+					if (++count == 1000) {
+						started.countDown();
+					}
+					row.addNumber(count);
+					return true;
+				}
+			});
+			
+			CompletableFuture<File> future = eeh.writeWorkBookAsync(executor);
+			Assert.assertTrue(started.await(30, TimeUnit.SECONDS));
+			Assert.assertTrue(future.cancel(true));
+			
+			// wait for the export to stop
+			executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return true;
+				}
+			}).get(30, TimeUnit.SECONDS);
+			
+			Assert.assertTrue(Arrays.equals(content, Files.readAllBytes(file.toPath())));
+			Assert.assertTrue(listPendingFiles(file).isEmpty());
+			
+		} catch (EEHException | IOException | InterruptedException | ExecutionException | TimeoutException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void estimateHeapCost_WriteModes_InMemoryHighest() {
+		ExcelExportHelper eeh = new ExcelExportHelper();
+		populateMixedSheets(eeh, 2, 5000);
+		
+		long inMemory = eeh.estimateHeapCost();
+		eeh.setWriteMode(EEHWriteMode.STREAMING);
+		long streaming = eeh.estimateHeapCost();
+		eeh.setWriteMode(EEHWriteMode.DIRECT);
+		long direct = eeh.estimateHeapCost();
+		
+		Assert.assertTrue(inMemory > streaming);
+		Assert.assertTrue(inMemory > direct);
+		Assert.assertTrue(streaming > 0);
+		
+		// direct mode holds only the shared strings
+		eeh.setSharedStringLimit(0);
+		long noSharedStrings = eeh.estimateHeapCost();
+		Assert.assertTrue(noSharedStrings < direct);
+		
+		// preparing the sheets ahead holds every cell
+		eeh.setExecutor(Executors.newSingleThreadExecutor());
+		Assert.assertTrue(eeh.estimateHeapCost() > noSharedStrings);
+		eeh.getExecutor().shutdownNow();
+	}
+	
+	@Test 
+	public void addExportListener_Null_IllegalArgumentException() {
+		try {
+			new ExcelExportHelper().addExportListener(null);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_NULL_EXPORT_LISTENER, ex.getMessage());
+		}
+	}
+	
+	@Test 
+	public void writeWorkBook_Summary_CellsCountedAndPhasesTimed() {
+		File file = TestUtility.createValidFile("ExportSummary", "ExportSummaryTest.xlsx");
+		final List<EEHSheetSummary> completedSheets = new ArrayList<>();
+		final List<EEHExportSummary> completedExports = new ArrayList<>();
+		
+		EEHExportListener listener = new EEHExportListener() {
+			@Override
+			public void sheetCompleted(EEHSheetSummary sheet) {
+				completedSheets.add(sheet);
+			}
+			@Override
+			public void exportCompleted(EEHExportSummary summary) {
+				completedExports.add(summary);
+			}
+		};
+
+		try {
+			for (EEHWriteMode writeMode : EEHWriteMode.values()) {
+				completedSheets.clear();
+				completedExports.clear();
+				
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(writeMode);
+				eeh.addExportListener(listener);
+				populateMixedSheets(eeh, 2, 30);
+				
+				EEHExportSummary summary = eeh.writeWorkBook();
+				
+				Assert.assertEquals(writeMode, summary.getWriteMode());
+				Assert.assertEquals(2, summary.getSheets().size());
+				Assert.assertEquals(summary.getSheets(), completedSheets);
+				Assert.assertEquals(1, completedExports.size());
+				Assert.assertSame(summary, completedExports.get(0));
+				
+				for (EEHSheetSummary sheet : summary.getSheets()) {
+					Assert.assertTrue(sheet.getSheetName().startsWith("Mixed"));
+					Assert.assertEquals(30, sheet.getRowCount());
+					Assert.assertEquals(30, sheet.getTextCells());
+					Assert.assertEquals(30, sheet.getNumericCells());
+					Assert.assertEquals(10, sheet.getHyperlinkCells());
+					Assert.assertEquals(20, sheet.getBlankCells());
+					Assert.assertEquals(30, sheet.getBooleanCells());
+					Assert.assertTrue(sheet.getPhaseNanos(EEHExportPhase.POPULATE_CELLS) > 0);
+					Assert.assertEquals(0, sheet.getPhaseNanos(EEHExportPhase.WRITE_FILE));
+				}
+				Assert.assertEquals(60, summary.getRowCount());
+				Assert.assertEquals(20, summary.getHyperlinkCells());
+				Assert.assertTrue(summary.getPhaseNanos(EEHExportPhase.WRITE_FILE) > 0);
+				
+				long phases = 0;
+				for (EEHExportPhase phase : EEHExportPhase.values()) {
+					phases += summary.getPhaseNanos(phase);
+				}
+				Assert.assertTrue(summary.getTotalNanos() >= phases);
+				
+				eeh.removeExportListener(listener);
+				eeh.writeWorkBook();
+				Assert.assertEquals(1, completedExports.size());
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_ExportFails_ListenerNotified() {
+		File file = TestUtility.createValidFile("ExportFailure", "ExportFailureTest.xlsx");
+		final EEHException failure = new EEHException("Source failed.");
+		final List<Exception> failures = new ArrayList<>();
+		final List<EEHExportSummary> summaries = new ArrayList<>();
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			populateMixedSheets(eeh, 1, 10);
+			eeh.createSheet("Failing").setRowSource(new EEHRowSource() {
+				@Override
+				public boolean nextRow(EEHRow row) throws EEHException {
+					throw failure;
+				}
+			});
+			eeh.addExportListener(new EEHExportListener() {
+				@Override
+				public void exportFailed(EEHExportSummary summary, Exception ex) {
+					summaries.add(summary);
+					failures.add(ex);
+				}
+			});
+			
+			eeh.writeWorkBook();
+			Assert.fail();
+
+		} catch (EEHException ex) {
+			Assert.assertSame(failure, ex);
+		}
+		
+		Assert.assertEquals(1, failures.size());
+		Assert.assertSame(failure, failures.get(0));
+		Assert.assertEquals(2, summaries.get(0).getSheets().size());
+		Assert.assertEquals(10, summaries.get(0).getSheets().get(0).getRowCount());
+		Assert.assertEquals(0, summaries.get(0).getSheets().get(1).getRowCount());
+		TestUtility.cleanupParentFolder(file);
+	}
+
+	@Test 
+	public void writeWorkBook_CompletedListenerThrows_ExportKept() {
+		File file = TestUtility.createValidFile("ListenerThrows", "ListenerThrowsTest.xlsx");
+		final List<EEHExportSummary> completed = new ArrayList<>();
+		final List<Exception> failures = new ArrayList<>();
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			eeh.setMaxRowsPerFile(10);
+			populateMixedSheets(eeh, 1, 25);
+			eeh.addExportListener(new EEHExportListener() {
+				@Override
+				public void exportCompleted(EEHExportSummary summary) {
+					throw new IllegalStateException("Listener failed.");
+				}
+			});
+			eeh.addExportListener(new EEHExportListener() {
+				@Override
+				public void exportCompleted(EEHExportSummary summary) {
+					completed.add(summary);
+				}
+				@Override
+				public void exportFailed(EEHExportSummary summary, Exception ex) {
+					failures.add(ex);
+				}
+			});
+			
+			EEHExportSummary summary = eeh.writeWorkBook();
+			
+			Assert.assertEquals(3, summary.getFiles().size());
+			for (File written : summary.getFiles()) {
+				Assert.assertTrue(written.exists());
+			}
+			Assert.assertEquals(1, completed.size());
+			Assert.assertTrue(failures.isEmpty());
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_SpillingStorage_SameAsRowStorage() {
+		File rowsFile = TestUtility.createValidFile("SpillingWrite", "Rows.xlsx");
+		File spillingFile = new File(rowsFile.getParentFile(), "Spilling.xlsx");
+
+		try {
+			for (EEHWriteMode mode : EEHWriteMode.values()) {
+				ExcelExportHelper rows = new ExcelExportHelper(rowsFile);
+				rows.setWriteMode(mode);
+				populateMixedSheets(rows, 2, 500);
+				rows.writeWorkBook();
+				
+				for (boolean compressed : new boolean[] { false, true }) {
+					int tempFiles = TestUtility.countTempFiles();
+					
+					ExcelExportHelper spilling = new ExcelExportHelper(spillingFile);
+					spilling.setWriteMode(mode);
+					for (int s = 0; s < 2; s++) {
+						EEHSheet sheet = spilling.createSheet("Mixed", EEHSheetStorage.SPILLING);
+						sheet.setSpillThreshold(20000);
+						sheet.setSpillCompression(compressed);
+						populateMixedSheet(sheet, s, 500);
+						Assert.assertEquals(500, sheet.getData().size());
+					}
+					Assert.assertEquals(tempFiles + 2, TestUtility.countTempFiles());
+					
+					spilling.writeWorkBook();
+					
+					TestUtility.assertSameWorkbookContent(rowsFile, spillingFile);
+					Assert.assertTrue(spilling.getSheets().get(0).getData().isEmpty());
+					Assert.assertEquals(tempFiles, TestUtility.countTempFiles());
+					
+					// the released rows are not written again as an empty sheet
+					try {
+						spilling.writeWorkBook();
+						Assert.fail();
+					} catch (IllegalStateException ex) {
+						Assert.assertEquals(EEHSheet.EXCEPTION_SPILLED_ROWS_RELEASED, ex.getMessage());
+					}
+					TestUtility.assertSameWorkbookContent(rowsFile, spillingFile);
+				}
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(rowsFile);
+	}
+	
+	@Test 
+	public void writeWorkBook_SpillingExportFails_SpillFileDeleted() {
+		File file = TestUtility.createValidFile("SpillingFailure", "SpillingFailureTest.xlsx");
+		final EEHException failure = new EEHException("Source failed.");
+		int tempFiles = TestUtility.countTempFiles();
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			EEHSheet sheet = eeh.createSheet("Spilling", EEHSheetStorage.SPILLING);
+			sheet.setSpillThreshold(0);
+			populateMixedSheet(sheet, 0, 100);
+			sheet.setRowSource(new EEHRowSource() {
+				@Override
+				public boolean nextRow(EEHRow row) throws EEHException {
+					throw failure;
+				}
+			});
+			
+			eeh.writeWorkBook();
+			Assert.fail();
+
+		} catch (EEHException ex) {
+			Assert.assertSame(failure, ex);
+		}
+		
+		Assert.assertEquals(tempFiles, TestUtility.countTempFiles());
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void close_SpillingSheetNotWritten_SpillFileDeleted() {
+		int tempFiles = TestUtility.countTempFiles();
+		
+		ExcelExportHelper eeh = new ExcelExportHelper();
+		EEHSheet sheet = eeh.createSheet("Spilling", EEHSheetStorage.SPILLING);
+		sheet.setSpillThreshold(0);
+		populateMixedSheet(sheet, 0, 100);
+		Assert.assertEquals(tempFiles + 1, TestUtility.countTempFiles());
+		
+		// the cost is estimated without reading the rows back from the spill file
+		ExcelExportHelper rows = new ExcelExportHelper();
+		populateMixedSheet(rows.createSheet("Rows"), 0, 100);
+		Assert.assertEquals(rows.estimateHeapCost(), eeh.estimateHeapCost());
+		
+		eeh.close();
+		Assert.assertEquals(tempFiles, TestUtility.countTempFiles());
+		Assert.assertTrue(sheet.getData().isEmpty());
+	}
+	
+	@Test 
+	public void writeWorkBookAsync_SpillingCancelled_SpillFileDeleted() {
+		File file = TestUtility.createValidFile("SpillingCancel", "SpillingCancelTest.xlsx");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final CountDownLatch started = new CountDownLatch(1);
+
+		try {
+			int tempFiles = TestUtility.countTempFiles();
+			
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.STREAMING);
+			EEHSheet sheet = eeh.createSheet("Spilling", EEHSheetStorage.SPILLING);
+			sheet.setSpillThreshold(0);
+			sheet.setSpillCompression(true);
+			populateMixedSheet(sheet, 0, 100);
+			sheet.setRowSource(new EEHRowSource() {
+				private int count = 0;
+				@Override
+				public boolean nextRow(EEHRow row) {
+					if (++count == 1000) {
+						started.countDown();
+					}
+					row.addNumber(count);
+					return true;
+				}
+			});
+			
+			CompletableFuture<File> future = eeh.writeWorkBookAsync(executor);
+			Assert.assertTrue(started.await(30, TimeUnit.SECONDS));
+			Assert.assertTrue(future.cancel(true));
+			
+			// the next task on the same thread runs once the export has stopped
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+				}
+			}).get(30, TimeUnit.SECONDS);
+			
+			Assert.assertFalse(file.exists());
+			Assert.assertTrue(sheet.getData().isEmpty());
+			Assert.assertEquals(tempFiles, TestUtility.countTempFiles());
+
+		} catch (InterruptedException | ExecutionException | TimeoutException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	private static EEHSheet populateNumberedSheet(ExcelExportHelper eeh, String sheetName, int rowCount) {
+		EEHSheet sheet = eeh.createSheet(sheetName);
+		sheet.getHeaders().add("Id");
+		for (int i = 0; i < rowCount; i++) {
+			ArrayList<String> data = new ArrayList<>();
+			data.add(sheetName + " row " + i);
+			sheet.getData().add(data);
+		}
+		return sheet;
+	}
+	
+	@Test 
+	public void setMaxRowsPerSheet_HeaderOnly_IllegalArgumentException() {
+		ExcelExportHelper eeh = new ExcelExportHelper();
+		try {
+			eeh.setMaxRowsPerSheet(1);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_INVALID_MAX_ROWS_PER_SHEET, ex.getMessage());
+		}
+		Assert.assertEquals(EEHSheet.MAX_ROW_COUNT, eeh.getMaxRowsPerSheet());
+	}
+	
+	@Test 
+	public void writeWorkBook_OutputStreamMaxRowsPerFile_IllegalStateException() {
+		boolean caughtException = false;
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper();
+			eeh.createSheet("Sheet");
+			eeh.setMaxRowsPerFile(10);
+			eeh.writeWorkBook(new ByteArrayOutputStream());
+			Assert.fail(); // should not get here
+			
+		} catch (IllegalStateException actual) {
+			caughtException = true;
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_FILE_ROLLOVER_TO_STREAM, actual.getMessage());
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		Assert.assertTrue(caughtException);
+	}
+	
+	@Test 
+	public void writeWorkBook_PreparationFailsWhileOtherSheetReads_SourceClosedAfterRead() {
+		File file = TestUtility.createValidFile("PrepareFailure", "PrepareFailure.xlsx");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		final EEHException failure = new EEHException("Source failed.");
+		final CountDownLatch reading = new CountDownLatch(1);
+		final AtomicBoolean inRead = new AtomicBoolean(false);
+		final AtomicBoolean closedInRead = new AtomicBoolean(false);
+		final AtomicBoolean closed = new AtomicBoolean(false);
+
+		class SlowSource implements EEHRowSource, AutoCloseable {
+			@Override
+			public boolean nextRow(EEHRow row) {
+				inRead.set(true);
+				reading.countDown();
+				
+				// a read that does not stop when interrupted, as a blocking driver call
+				long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+				boolean interrupted = false;
+				while (System.nanoTime() < end) {
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException ex) {
+						interrupted = true;
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				inRead.set(false);
+				row.addValue("Slow");
+				return true;
+			}
+			
+			@Override
+			public void close() {
+				closedInRead.compareAndSet(false, inRead.get());
+				closed.set(true);
+			}
+		}
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setExecutor(executor);
+			eeh.createSheet("Failing").setRowSource(new EEHRowSource() {
+				@Override
+				public boolean nextRow(EEHRow row) throws EEHException {
+					try {
+						reading.await();
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+					throw failure;
+				}
+			});
+			eeh.createSheet("Slow").setRowSource(new SlowSource());
+			
+			eeh.writeWorkBook();
+			Assert.fail();
+
+		} catch (EEHException ex) {
+			Assert.assertSame(failure, ex);
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		Assert.assertTrue(closed.get());
+		Assert.assertFalse(closedInRead.get());
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_MaxRowsPerSheet_RowsContinuedOnNewSheets() {
+		File file = TestUtility.createValidFile("SheetRollover", "SheetRolloverTest.xlsx");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			for (EEHWriteMode mode : EEHWriteMode.values()) {
+				for (ExecutorService sheetExecutor : new ExecutorService[] { null, executor }) {
+					ExcelExportHelper eeh = new ExcelExportHelper(file);
+					eeh.setWriteMode(mode);
+					eeh.setExecutor(sheetExecutor);
+					eeh.setMaxRowsPerSheet(11);
+					populateNumberedSheet(eeh, "Orders", 25);
+					populateNumberedSheet(eeh, "Orders1", 1);
+					
+					EEHExportSummary summary = eeh.writeWorkBook();
+					
+					// the continued sheets skip the name of the sheet that follows
+					Assert.assertEquals(Arrays.asList("Orders", "Orders2", "Orders3", "Orders1"), TestUtility.readSheetNames(file));
+					Assert.assertEquals(Arrays.asList("Orders", "Orders2", "Orders3"), summary.getSheets().get(0).getWorkbookSheetNames());
+					Assert.assertEquals(25, summary.getSheets().get(0).getRowCount());
+					Assert.assertEquals(Arrays.asList(file), summary.getFiles());
+					
+					List<String> continued = TestUtility.readColumn(file, 1, 0);
+					Assert.assertEquals(11, continued.size());
+					Assert.assertEquals("Id", continued.get(0));
+					Assert.assertEquals("Orders row 10", continued.get(1));
+					Assert.assertEquals("Orders row 19", continued.get(10));
+					Assert.assertEquals(Arrays.asList("Id", "Orders row 20", "Orders row 21", "Orders row 22", 
+							"Orders row 23", "Orders row 24"), TestUtility.readColumn(file, 2, 0));
+				}
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		} finally {
+			executor.shutdownNow();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_MaxRowsPerFile_RowsContinuedInNewFiles() {
+		File file = TestUtility.createValidFile("FileRollover", "FileRolloverTest.xlsx");
+		File second = new File(file.getParentFile(), "FileRolloverTest-2.xlsx");
+		File third = new File(file.getParentFile(), "FileRolloverTest-3.xlsx");
+
+		try {
+			for (EEHWriteMode mode : EEHWriteMode.values()) {
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(mode);
+				eeh.setMaxRowsPerFile(10);
+				populateNumberedSheet(eeh, "A", 25);
+				populateNumberedSheet(eeh, "B", 5);
+				
+				EEHExportSummary summary = eeh.writeWorkBook();
+				
+				Assert.assertEquals(Arrays.asList(file, second, third), summary.getFiles());
+				Assert.assertEquals(Arrays.asList("A"), TestUtility.readSheetNames(file));
+				Assert.assertEquals(Arrays.asList("A1"), TestUtility.readSheetNames(second));
+				Assert.assertEquals(Arrays.asList("A1", "B"), TestUtility.readSheetNames(third));
+				
+				Assert.assertEquals(11, TestUtility.readColumn(file, 0, 0).size());
+				Assert.assertEquals("A row 10", TestUtility.readColumn(second, 0, 0).get(1));
+				Assert.assertEquals(Arrays.asList("Id", "A row 20", "A row 21", "A row 22", 
+						"A row 23", "A row 24"), TestUtility.readColumn(third, 0, 0));
+				Assert.assertEquals(6, TestUtility.readColumn(third, 1, 0).size());
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_MaxRowsPerFileExportFails_NewFilesDeleted() {
+		File file = TestUtility.createValidFile("FileRolloverFailure", "FileRolloverFailureTest.xlsx");
+		File second = new File(file.getParentFile(), "FileRolloverFailureTest-2.xlsx");
+		final EEHException failure = new EEHException("Source failed.");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.STREAMING);
+			eeh.setMaxRowsPerFile(10);
+			populateNumberedSheet(eeh, "A", 15).setRowSource(new EEHRowSource() {
+				@Override
+				public boolean nextRow(EEHRow row) throws EEHException {
+					throw failure;
+				}
+			});
+			
+			eeh.writeWorkBook();
+			Assert.fail();
+
+		} catch (EEHException ex) {
+			Assert.assertSame(failure, ex);
+		}
+		
+		Assert.assertFalse(second.exists());
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_MaxRowsPerFileLaterFileFails_EarlierFilesKept() {
+		File file = TestUtility.createValidFile("RolloverKept", "RolloverKeptTest.xlsx");
+		File second = new File(file.getParentFile(), "RolloverKeptTest-2.xlsx");
+		final EEHException failure = new EEHException("Source failed.");
+
+		try {
+			for (EEHWriteMode mode : EEHWriteMode.values()) {
+				ExcelExportHelper earlier = new ExcelExportHelper(file);
+				earlier.setWriteMode(mode);
+				earlier.setMaxRowsPerFile(10);
+				populateNumberedSheet(earlier, "Old", 15);
+				earlier.writeWorkBook();
+				
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(mode);
+				eeh.setMaxRowsPerFile(10);
+				eeh.createSheet("New").setRowSource(new EEHRowSource() {
+					private int count = 0;
+					
+					@Override
+					public boolean nextRow(EEHRow row) throws EEHException {
+						if (count == 15) {
+							throw failure;
+						}
+						row.addText("New row " + count++);
+						return true;
+					}
+				});
+				
+				try {
+					eeh.writeWorkBook();
+					Assert.fail();
+				} catch (EEHException ex) {
+					Assert.assertSame(failure, ex);
+				}
+				
+				Assert.assertEquals(Arrays.asList("Old"), TestUtility.readSheetNames(file));
+				Assert.assertEquals(Arrays.asList("Old1"), TestUtility.readSheetNames(second));
+				Assert.assertTrue(listPendingFiles(file).isEmpty());
+				Assert.assertTrue(listPendingFiles(second).isEmpty());
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	private static List<String> listPendingFiles(File file) {
+		List<String> pending = new ArrayList<>();
+		for (String name : file.getParentFile().list()) {
+			if (name.startsWith("." + file.getName() + ".") && name.endsWith(".tmp")) {
+				pending.add(name);
+			}
+		}
+		return pending;
+	}
+	
+	@Test 
+	public void setOutputBufferSize_Zero_IllegalArgumentException() {
+		ExcelExportHelper eeh = new ExcelExportHelper();
+		try {
+			eeh.setOutputBufferSize(0);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			Assert.assertEquals(ExcelExportHelper.EXCEPTION_INVALID_OUTPUT_BUFFER_SIZE, ex.getMessage());
+		}
+		Assert.assertEquals(ExcelExportHelper.DEFAULT_OUTPUT_BUFFER_SIZE, eeh.getOutputBufferSize());
+	}
+	
+	@Test 
+	public void writeWorkBook_AtomicWrite_ExistingFileReplacedWhenComplete() {
+		final File file = TestUtility.createValidFile("AtomicWrite", "AtomicWriteTest.xlsx");
+		final List<String> pendingWhileWriting = new ArrayList<>();
+
+		try {
+			ExcelExportHelper first = new ExcelExportHelper(file);
+			populateMixedSheets(first, 1, 10);
+			first.writeWorkBook();
+			final byte[][] complete = new byte[1][];
+			
+			for (final boolean fails : new boolean[] { false, true }) {
+				complete[0] = Files.readAllBytes(file.toPath());
+				
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(EEHWriteMode.DIRECT);
+				eeh.setColumnSizing(EEHColumnSizing.NONE);
+				eeh.setOutputBufferSize(16);
+				eeh.createSheet("Rows").setRowSource(new EEHRowSource() {
+					private int count = 0;
+					@Override
+					public boolean nextRow(EEHRow row) throws EEHException {
+						if (++count == 1000) {
+							try {
+								// the file being replaced is untouched until the new file is complete
+								Assert.assertArrayEquals(complete[0], Files.readAllBytes(file.toPath()));
+							} catch (IOException ex) {
+								Assert.fail();
+							}
+							pendingWhileWriting.addAll(listPendingFiles(file));
+							if (fails) {
+								throw new EEHException("Source failed.");
+							}
+						}
+						row.addNumber(count);
+						return count < 2000;
+					}
+				});
+				
+				try {
+					eeh.writeWorkBook();
+					Assert.assertFalse(fails);
+					Assert.assertEquals(1999, TestUtility.readColumn(file, 0, 0).size());
+					
+				} catch (EEHException ex) {
+					// the file written before is left as it was
+					Assert.assertTrue(fails);
+					Assert.assertArrayEquals(complete[0], Files.readAllBytes(file.toPath()));
+				}
+				Assert.assertEquals(1, pendingWhileWriting.size());
+				Assert.assertTrue(listPendingFiles(file).isEmpty());
+				pendingWhileWriting.clear();
+			}
+			
+		} catch (EEHException | IOException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void writeWorkBook_OutputOptions_SameContent() {
+		File file = TestUtility.createValidFile("OutputOptions", "Default.xlsx");
+		File optionsFile = new File(file.getParentFile(), "Options.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			populateMixedSheets(eeh, 2, 300);
+			eeh.writeWorkBook();
 			
+			ExcelExportHelper options = new ExcelExportHelper(optionsFile);
+			options.setAtomicWrite(false);
+			options.setSyncToDisk(true);
+			options.setOutputBufferSize(1 << 20);
+			populateMixedSheets(options, 2, 300);
+			options.writeWorkBook();
+			
+			TestUtility.assertSameWorkbookContent(file, optionsFile);
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void appendWorkBook_ExistingWorkbook_RowsAndSheetsAppended() {
+		File file = TestUtility.createValidFile("Append", "AppendTest.xlsx");
+
+		try {
+			for (EEHWriteMode writeMode : new EEHWriteMode[] { EEHWriteMode.IN_MEMORY, EEHWriteMode.DIRECT }) {
+				ExcelExportHelper eeh = new ExcelExportHelper(file);
+				eeh.setWriteMode(writeMode);
+				populateMixedSheet(eeh.createSheet("Orders"), 0, 30);
+				populateNumberedSheet(eeh, "Other", 20);
+				eeh.writeWorkBook();
+				long otherSize = TestUtility.readCompressedSize(file, "xl/worksheets/sheet2.xml");
+				
+				for (int append = 1; append <= 2; append++) {
+					ExcelExportHelper appended = new ExcelExportHelper(file);
+					// sheets are matched ignoring case, as in Excel
+					populateMixedSheet(appended.createSheet("ORDERS"), append, 12);
+					populateNumberedSheet(appended, "Extra" + append, 5);
+					EEHExportSummary summary = appended.appendWorkBook();
+					
+					Assert.assertEquals(17, summary.getRowCount());
+					Assert.assertEquals(Arrays.asList("Orders"), summary.getSheets().get(0).getWorkbookSheetNames());
+					Assert.assertEquals(Arrays.asList(file), summary.getFiles());
+					Assert.assertTrue(listPendingFiles(file).isEmpty());
+				}
+				
+				Assert.assertEquals(Arrays.asList("Orders", "Other", "Extra1", "Extra2"), TestUtility.readSheetNames(file));
+				List<String> orders = TestUtility.readColumn(file, 0, 0);
+				Assert.assertEquals(1 + 30 + 12 + 12, orders.size());
+				Assert.assertEquals("Text", orders.get(0));
+				Assert.assertEquals("Sheet 0 row 29", orders.get(30));
+				Assert.assertEquals("Sheet 1 row 0", orders.get(31));
+				Assert.assertEquals("Sheet 2 row 11", orders.get(54));
+				Assert.assertEquals(CellType.NUMERIC, TestUtility.readCellType(file, 0, 54, 1));
+				Assert.assertEquals(CellType.BOOLEAN, TestUtility.readCellType(file, 0, 54, 3));
+				Assert.assertEquals(10 + 4 + 4, TestUtility.countHyperlinks(file, 0));
+				Assert.assertEquals(Arrays.asList("Id", "Extra2 row 0", "Extra2 row 1", "Extra2 row 2", "Extra2 row 3", 
+						"Extra2 row 4"), TestUtility.readColumn(file, 3, 0));
+				
+				// the sheet that was not appended to is copied without being compressed again
+				Assert.assertEquals(21, TestUtility.readColumn(file, 1, 0).size());
+				Assert.assertEquals(otherSize, TestUtility.readCompressedSize(file, "xl/worksheets/sheet2.xml"));
+			}
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void appendWorkBook_StylesAdded_OnlyOnce() {
+		File file = TestUtility.createValidFile("AppendStyles", "AppendStylesTest.xlsx");
+
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			populateMixedSheet(eeh.createSheet("Orders"), 0, 10);
+			eeh.writeWorkBook();
+			
+			int styles = 0;
+			for (int append = 1; append <= 3; append++) {
+				ExcelExportHelper appended = new ExcelExportHelper(file);
+				populateMixedSheet(appended.createSheet("Orders"), append, 10);
+				appended.appendWorkBook();
+				
+				if (append == 1) {
+					styles = TestUtility.countCellStyles(file);
+				}
+				Assert.assertEquals(styles, TestUtility.countCellStyles(file));
+			}
+			Assert.assertEquals(41, TestUtility.readColumn(file, 0, 0).size());
+
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void appendWorkBook_SheetFull_RowsContinuedOnNewSheet() {
+		File file = TestUtility.createValidFile("AppendRollover", "AppendRolloverTest.xlsx");
+		
+		try {
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			eeh.setWriteMode(EEHWriteMode.DIRECT);
+			populateNumberedSheet(eeh, "Orders", 7);
+			populateNumberedSheet(eeh, "Orders1", 1);
+			eeh.writeWorkBook();
+			
+			ExcelExportHelper appended = new ExcelExportHelper(file);
+			appended.setMaxRowsPerSheet(10);
+			populateNumberedSheet(appended, "Orders", 5);
+			EEHExportSummary summary = appended.appendWorkBook();
+			
+			// the continuation is named after the sheets already in the file
+			Assert.assertEquals(Arrays.asList("Orders", "Orders1", "Orders2"), TestUtility.readSheetNames(file));
+			Assert.assertEquals(Arrays.asList("Orders", "Orders2"), summary.getSheets().get(0).getWorkbookSheetNames());
+			Assert.assertEquals(10, TestUtility.readColumn(file, 0, 0).size());
+			Assert.assertEquals(Arrays.asList("Id", "Orders row 2", "Orders row 3", "Orders row 4"), 
+					TestUtility.readColumn(file, 2, 0));
+			
+		} catch (EEHException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
+	@Test 
+	public void appendWorkBook_NotAWorkbook_EEHException() {
+		File file = TestUtility.createValidFile("AppendInvalid", "AppendInvalidTest.xlsx");
+		
+		try {
+			Files.write(file.toPath(), "not a workbook".getBytes(StandardCharsets.UTF_8));
+			
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			populateNumberedSheet(eeh, "Orders", 5);
+			eeh.appendWorkBook();
+			Assert.fail();
+			
+		} catch (EEHException ex) {
+			Assert.assertEquals(EEHWorkbookAppender.EXCEPTION_NOT_A_WORKBOOK + file.getName(), ex.getMessage());
+		} catch (IOException ex) {
+			Assert.fail();
+		}
+		
+		try {
+			Assert.assertEquals("not a workbook", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+			Assert.assertTrue(listPendingFiles(file).isEmpty());
+			
+			// a file that does not exist yet is written as a new workbook
+			Files.delete(file.toPath());
+			ExcelExportHelper eeh = new ExcelExportHelper(file);
+			populateNumberedSheet(eeh, "Orders", 5);
+			eeh.appendWorkBook();
+			TestUtility.compareFileToData(eeh, file);
+			
+		} catch (EEHException | IOException ex) {
+			Assert.fail();
+		}
+		TestUtility.cleanupParentFolder(file);
+	}
+	
 }
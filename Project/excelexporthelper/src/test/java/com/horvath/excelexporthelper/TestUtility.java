@@ -26,12 +26,22 @@ package com.horvath.excelexporthelper;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFHyperlink;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Assert;
@@ -120,6 +130,368 @@ public class TestUtility {
 		}
 	}
 
+	/**
+	 * Returns the number of cell styles in the given Excel file.
+	 * @param file File 
+	 * @return int 
+	 */
+	public static int countCellStyles(File file) {
+		XSSFWorkbook workBook = readWorkbook(file);
+		int count = workBook.getNumCellStyles();
+		
+		try {
+			workBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the width of a column in the given Excel file.
+	 * @param file File 
+	 * @param sheetIndex int 
+	 * @param column int 
+	 * @return int 
+	 */
+	public static int readColumnWidth(File file, int sheetIndex, int column) {
+		XSSFWorkbook workBook = readWorkbook(file);
+		int width = workBook.getSheetAt(sheetIndex).getColumnWidth(column);
+		
+		try {
+			workBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return width;
+	}
+
+	/**
+	 * Returns the type of a cell in the given Excel file.
+	 * @param file File 
+	 * @param sheetIndex int 
+	 * @param rowIndex int 
+	 * @param column int 
+	 * @return CellType
+	 */
+	public static CellType readCellType(File file, int sheetIndex, int rowIndex, int column) {
+		XSSFWorkbook workBook = readWorkbook(file);
+		CellType type = workBook.getSheetAt(sheetIndex).getRow(rowIndex).getCell(column).getCellType();
+		
+		try {
+			workBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return type;
+	}
+
+	/**
+	 * Returns the number of hyperlinks in a sheet of the given Excel file.
+	 * @param file File 
+	 * @param sheetIndex int 
+	 * @return int
+	 */
+	public static int countHyperlinks(File file, int sheetIndex) {
+		XSSFWorkbook workBook = readWorkbook(file);
+		int count = workBook.getSheetAt(sheetIndex).getHyperlinkList().size();
+		
+		try {
+			workBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the addresses of the hyperlinks in a sheet of the given Excel file.
+	 * @param file File 
+	 * @param sheetIndex int 
+	 * @return List<String>
+	 */
+	public static List<String> readHyperlinks(File file, int sheetIndex) {
+		XSSFWorkbook workBook = readWorkbook(file);
+		List<String> addresses = new ArrayList<>();
+		for (XSSFHyperlink hyperlink : workBook.getSheetAt(sheetIndex).getHyperlinkList()) {
+			addresses.add(hyperlink.getAddress());
+		}
+		
+		try {
+			workBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return addresses;
+	}
+
+	/**
+	 * Returns the number of distinct texts in the shared strings of the given Excel file.
+	 * @param file File 
+	 * @return int
+	 */
+	public static int countSharedStrings(File file) {
+		XSSFWorkbook workBook = readWorkbook(file);
+		int count = workBook.getSharedStringSource().getUniqueCount();
+		
+		try {
+			workBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return count;
+	}
+
+	/**
+	 * Asserts that two Excel files hold the same sheets, cells, fonts, 
+	 * hyperlinks and column widths, however their parts are written. 
+	 * @param expected File 
+	 * @param actual File 
+	 */
+	public static void assertSameCells(File expected, File actual) {
+		XSSFWorkbook expectedBook = readWorkbook(expected);
+		XSSFWorkbook actualBook = readWorkbook(actual);
+		
+		Assert.assertEquals(expectedBook.getNumberOfSheets(), actualBook.getNumberOfSheets());
+		
+		for (int i = 0; i < expectedBook.getNumberOfSheets(); i++) {
+			XSSFSheet expectedSheet = expectedBook.getSheetAt(i);
+			XSSFSheet actualSheet = actualBook.getSheetAt(i);
+			
+			Assert.assertEquals(expectedSheet.getSheetName(), actualSheet.getSheetName());
+			Assert.assertEquals(expectedSheet.getLastRowNum(), actualSheet.getLastRowNum());
+			Assert.assertEquals(expectedSheet.getHyperlinkList().size(), actualSheet.getHyperlinkList().size());
+			
+			for (int r = 0; r <= expectedSheet.getLastRowNum(); r++) {
+				Row expectedRow = expectedSheet.getRow(r);
+				Row actualRow = actualSheet.getRow(r);
+				Assert.assertEquals(expectedRow.getLastCellNum(), actualRow.getLastCellNum());
+				
+				for (int c = 0; c < expectedRow.getLastCellNum(); c++) {
+					String at = expectedSheet.getSheetName() + " " + r + ":" + c;
+					Cell expectedCell = expectedRow.getCell(c);
+					Cell actualCell = actualRow.getCell(c);
+					
+					Assert.assertEquals(at, expectedCell.getCellType(), actualCell.getCellType());
+					Assert.assertEquals(at, expectedCell.toString(), actualCell.toString());
+					
+					Font expectedFont = expectedBook.getFontAt(expectedCell.getCellStyle().getFontIndex());
+					Font actualFont = actualBook.getFontAt(actualCell.getCellStyle().getFontIndex());
+					Assert.assertEquals(at, expectedFont.getBold(), actualFont.getBold());
+					Assert.assertEquals(at, expectedFont.getUnderline(), actualFont.getUnderline());
+					Assert.assertEquals(at, expectedFont.getColor(), actualFont.getColor());
+					
+					if (expectedCell.getHyperlink() == null) {
+						Assert.assertNull(at, actualCell.getHyperlink());
+					} else {
+						Assert.assertEquals(at, expectedCell.getHyperlink().getAddress(), actualCell.getHyperlink().getAddress());
+					}
+				}
+			}
+			
+			for (int c = 0; c < expectedSheet.getRow(0).getLastCellNum(); c++) {
+				Assert.assertEquals(expectedSheet.getColumnWidth(c), actualSheet.getColumnWidth(c));
+			}
+		}
+		
+		try {
+			expectedBook.close();
+			actualBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+	}
+
+	/**
+	 * Asserts that two Excel files have the same parts with identical content. 
+	 * The document properties are skipped, as they hold the creation time. 
+	 * @param expected File 
+	 * @param actual File 
+	 */
+	public static void assertSameWorkbookContent(File expected, File actual) {
+		try (ZipFile expectedZip = new ZipFile(expected); ZipFile actualZip = new ZipFile(actual)) {
+			
+			Assert.assertEquals(expectedZip.size(), actualZip.size());
+			
+			Enumeration<? extends ZipEntry> entries = expectedZip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.getName().equals("docProps/core.xml")) {
+					continue;
+				}
+				
+				ZipEntry actualEntry = actualZip.getEntry(entry.getName());
+				Assert.assertNotNull(entry.getName(), actualEntry);
+				Assert.assertTrue(entry.getName(), Arrays.equals(
+						readEntry(expectedZip, entry), readEntry(actualZip, actualEntry)));
+			}
+			
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+	}
+	
+	/**
+	 * Returns the number of relationships in a relationships part of the given Excel file.
+	 * @param file File 
+	 * @param partName String The name of the part, such as "xl/worksheets/_rels/sheet1.xml.rels".
+	 * @return int
+	 */
+	public static int countRelationships(File file, String partName) {
+		int count = 0;
+		
+		try (ZipFile zip = new ZipFile(file)) {
+			ZipEntry entry = zip.getEntry(partName);
+			Assert.assertNotNull(partName, entry);
+			
+			String content = new String(readEntry(zip, entry), StandardCharsets.UTF_8);
+			for (int i = content.indexOf("<Relationship "); i >= 0; i = content.indexOf("<Relationship ", i + 1)) {
+				count++;
+			}
+			
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the number of temporary files created by EEH or by POI streaming workbooks.
+	 * @return int
+	 */
+	public static int countTempFiles() {
+		File tempFolder = new File(System.getProperty("java.io.tmpdir"));
+		int count = 0;
+		
+		for (File folder : new File[] { tempFolder, new File(tempFolder, "poifiles") }) {
+			String[] names = folder.list();
+			if (names == null) {
+				continue;
+			}
+			for (String name : names) {
+				if (name.startsWith("eeh-") || name.startsWith("poi-sxssf-")) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns the compressed size of a part of the given Excel file.
+	 * @param file File 
+	 * @param partName String The name of the part, such as "xl/worksheets/sheet1.xml".
+	 * @return long
+	 */
+	public static long readCompressedSize(File file, String partName) {
+		long size = -1;
+		
+		try (ZipFile zip = new ZipFile(file)) {
+			ZipEntry entry = zip.getEntry(partName);
+			Assert.assertNotNull(partName, entry);
+			size = entry.getCompressedSize();
+			
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return size;
+	}
+	
+	/**
+	 * Returns the names of the sheets of the given Excel file, in order.
+	 * @param file File 
+	 * @return List<String>
+	 */
+	public static List<String> readSheetNames(File file) {
+		XSSFWorkbook workBook = readWorkbook(file);
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < workBook.getNumberOfSheets(); i++) {
+			names.add(workBook.getSheetName(i));
+		}
+		
+		try {
+			workBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return names;
+	}
+	
+	/**
+	 * Returns the text of the cells of one column of a sheet, from the first row.
+	 * @param file File 
+	 * @param sheetIndex int 
+	 * @param column int 
+	 * @return List<String>
+	 */
+	public static List<String> readColumn(File file, int sheetIndex, int column) {
+		XSSFWorkbook workBook = readWorkbook(file);
+		XSSFSheet sheet = workBook.getSheetAt(sheetIndex);
+		List<String> values = new ArrayList<>();
+		for (int r = 0; r <= sheet.getLastRowNum(); r++) {
+			values.add(sheet.getRow(r).getCell(column).toString());
+		}
+		
+		try {
+			workBook.close();
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return values;
+	}
+	
+	/**
+	 * Returns the names of the parts of the given Excel file, in the order they are stored.
+	 * @param file File 
+	 * @return List<String>
+	 */
+	public static List<String> readPartNames(File file) {
+		List<String> names = new ArrayList<>();
+		
+		try (ZipFile zip = new ZipFile(file)) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				names.add(entries.nextElement().getName());
+			}
+			
+		} catch (IOException ex) {
+            System.err.println(ex.getMessage());
+			Assert.fail();
+		}
+		return names;
+	}
+	
+	/**
+	 * Reads the uncompressed content of a zip entry.
+	 * @param zip ZipFile 
+	 * @param entry ZipEntry
+	 * @return byte[]
+	 * @throws IOException
+	 */
+	private static byte[] readEntry(ZipFile zip, ZipEntry entry) throws IOException {
+		try (InputStream is = zip.getInputStream(entry)) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = is.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		}
+	}
+
 	/**
 	 * Reads in the file from disk and returns an excel workbook.
 	 * @param file File 